@@ -0,0 +1,93 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * AESBenchmark.java
+ *
+ * AES.encrypt and AES.decrypt, using the same key the client and server use,
+ * the raw byte versions without base-64, and a Cipher looked up and
+ * initialized for every message as AES.java used to do.
+ */
+import cs490midterm.AES;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AESBenchmark {
+
+    private static final String AES_KEY_STRING = "AES 128-bit key!";
+
+    @Param({Messages.SIZE_8, Messages.SIZE_64, Messages.SIZE_1K,
+        Messages.SIZE_16K, Messages.SIZE_1M})
+    int size;
+
+    private String message, cipherText;
+    private byte[] messageBytes, cipherBytes;
+
+    @Setup
+    public void setup() throws Exception {
+
+        message = Messages.ascii(size);
+        cipherText = AES.encrypt(message, AES_KEY_STRING);
+        messageBytes = message.getBytes(StandardCharsets.ISO_8859_1);
+        cipherBytes = AES.encryptBytes(messageBytes, 0, messageBytes.length,
+                AES_KEY_STRING);
+    }
+
+    @Benchmark
+    public String encrypt() throws Exception {
+
+        return AES.encrypt(message, AES_KEY_STRING);
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+
+        return AES.decrypt(cipherText, AES_KEY_STRING);
+    }
+
+    @Benchmark
+    public byte[] encryptBytes() throws Exception {
+
+        return AES.encryptBytes(messageBytes, 0, messageBytes.length,
+                AES_KEY_STRING);
+    }
+
+    @Benchmark
+    public byte[] decryptBytes() throws Exception {
+
+        return AES.decryptBytes(cipherBytes, 0, cipherBytes.length,
+                AES_KEY_STRING);
+    }
+
+    @Benchmark
+    public byte[] encryptUncached() throws Exception {
+
+        Cipher c = Cipher.getInstance("AES");
+
+        c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(
+                AES_KEY_STRING.getBytes(StandardCharsets.ISO_8859_1), "AES"));
+
+        return c.doFinal(messageBytes);
+    }
+}
@@ -0,0 +1,146 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * AESModesBenchmark.java
+ *
+ * AES-CTR and AES-GCM from AESModes.java, reading from and writing to direct
+ * ByteBuffers the way a packet would be handled, and GCM fed through a Stream
+ * in CHUNK-byte pieces.
+ */
+import cs490midterm.AESModes;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AESModesBenchmark {
+
+    private static final String AES_KEY_STRING = "AES 128-bit key!";
+
+    private static final int CHUNK = 16 * 1024;
+
+    @Param({Messages.SIZE_8, Messages.SIZE_64, Messages.SIZE_1K,
+        Messages.SIZE_16K, Messages.SIZE_1M})
+    int size;
+
+    private ByteBuffer message, ctrCipherText, gcmCipherText, out;
+
+    @Setup
+    public void setup() throws Exception {
+
+        byte[] b = Messages.ascii(size).getBytes(StandardCharsets.ISO_8859_1);
+
+        message = ByteBuffer.allocateDirect(b.length);
+        message.put(b).flip();
+
+        ctrCipherText = encrypted(AESModes.Mode.CTR);
+        gcmCipherText = encrypted(AESModes.Mode.GCM);
+
+        out = ByteBuffer.allocateDirect(
+                AESModes.Mode.GCM.encryptedLength(size));
+    }
+
+    @Benchmark
+    public ByteBuffer ctrEncrypt() throws Exception {
+
+        out.clear();
+
+        AESModes.encrypt(AESModes.Mode.CTR, AES_KEY_STRING,
+                message.duplicate(), out);
+
+        return out;
+    }
+
+    @Benchmark
+    public ByteBuffer ctrDecrypt() throws Exception {
+
+        out.clear();
+
+        AESModes.decrypt(AESModes.Mode.CTR, AES_KEY_STRING,
+                ctrCipherText.duplicate(), out);
+
+        return out;
+    }
+
+    @Benchmark
+    public ByteBuffer gcmEncrypt() throws Exception {
+
+        out.clear();
+
+        AESModes.encrypt(AESModes.Mode.GCM, AES_KEY_STRING,
+                message.duplicate(), out);
+
+        return out;
+    }
+
+    @Benchmark
+    public ByteBuffer gcmDecrypt() throws Exception {
+
+        out.clear();
+
+        AESModes.decrypt(AESModes.Mode.GCM, AES_KEY_STRING,
+                gcmCipherText.duplicate(), out);
+
+        return out;
+    }
+
+    @Benchmark
+    public ByteBuffer gcmEncryptChunked() throws Exception {
+
+        out.clear();
+
+        ByteBuffer in = message.duplicate();
+
+        AESModes.Stream s = AESModes.encryptingStream(AESModes.Mode.GCM,
+                AES_KEY_STRING, out);
+
+        while (in.remaining() > CHUNK) {
+
+            ByteBuffer chunk = in.duplicate();
+
+            chunk.limit(chunk.position() + CHUNK);
+
+            s.update(chunk, out);
+
+            in.position(chunk.position());
+        }
+
+        s.doFinal(in, out);
+
+        return out;
+    }
+
+    /**
+     * Encrypt the message once, for the decryption benchmarks.
+     *
+     * @param mode CTR or GCM
+     * @return a direct buffer holding the IV and ciphertext
+     */
+    private ByteBuffer encrypted(AESModes.Mode mode) throws Exception {
+
+        ByteBuffer c = ByteBuffer.allocateDirect(mode.encryptedLength(size));
+
+        AESModes.encrypt(mode, AES_KEY_STRING, message.duplicate(), c);
+
+        return c.flip();
+    }
+}
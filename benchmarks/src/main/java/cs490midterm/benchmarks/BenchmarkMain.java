@@ -0,0 +1,45 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * BenchmarkMain.java
+ *
+ * The entry point of benchmarks.jar. It takes the same command line as JMH's
+ * own Main, and adds the GC profiler so that every run reports the bytes
+ * allocated per operation alongside the timings.
+ */
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkMain {
+
+    public static void main(String[] args)
+            throws CommandLineOptionException, IOException, RunnerException {
+
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        if (commandLine.shouldHelp()) {
+
+            commandLine.showHelp();
+            return;
+        }
+
+        if (commandLine.shouldList()) {
+
+            new Runner(commandLine).list();
+            return;
+        }
+
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
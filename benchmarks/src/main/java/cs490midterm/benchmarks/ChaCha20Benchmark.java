@@ -0,0 +1,113 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * ChaCha20Benchmark.java
+ *
+ * ChaCha20.java against the other ciphers a message can be sent with, to pick
+ * the fastest on a given machine: RC4Engine, AES-CTR through javax.crypto
+ * (which uses the AES instructions where the processor has them) and the
+ * pure-Java TableAES, which shows what AES costs where it doesn't. The stream
+ * ciphers XOR keystream over the same array in place. chaCha20Message adds the
+ * random nonce and the move along the buffer that the ChaCha20 engine does for
+ * every message.
+ */
+import cs490midterm.AESModes;
+import cs490midterm.ChaCha20;
+import cs490midterm.RC4Engine;
+import cs490midterm.TableAES;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChaCha20Benchmark {
+
+    private static final String KEY_STRING = "iamakey!";
+    private static final String AES_KEY_STRING = "AES 128-bit key!";
+    private static final String CHACHA20_KEY_STRING
+            = "ChaCha20 256-bit key for CS490!!";
+
+    @Param({Messages.SIZE_8, Messages.SIZE_64, Messages.SIZE_1K,
+        Messages.SIZE_16K, Messages.SIZE_1M})
+    int size;
+
+    private ChaCha20 chaCha20;
+    private RC4Engine rc4;
+    private byte[] nonce, bytes, buffer;
+    private ByteBuffer aesIn, aesCtrOut;
+
+    @Setup
+    public void setup() {
+
+        chaCha20 = new ChaCha20(CHACHA20_KEY_STRING);
+        rc4 = new RC4Engine(KEY_STRING);
+        nonce = new byte[ChaCha20.NONCE_LENGTH];
+
+        bytes = Messages.ascii(size).getBytes(StandardCharsets.ISO_8859_1);
+        buffer = new byte[ChaCha20.NONCE_LENGTH + size];
+
+        aesIn = ByteBuffer.wrap(bytes);
+        aesCtrOut = ByteBuffer.allocate(
+                AESModes.Mode.CTR.encryptedLength(size));
+    }
+
+    @Benchmark
+    public byte[] chaCha20Crypt() {
+
+        chaCha20.crypt(nonce, 0, ChaCha20.INITIAL_COUNTER, bytes, 0, size);
+
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] chaCha20Message() {
+
+        chaCha20.encryptMessage(buffer, 0, size);
+
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] rc4Crypt() {
+
+        rc4.crypt(bytes, 0, size);
+
+        return bytes;
+    }
+
+    @Benchmark
+    public ByteBuffer aesCtrEncrypt() throws Exception {
+
+        aesCtrOut.clear();
+
+        AESModes.encrypt(AESModes.Mode.CTR, AES_KEY_STRING,
+                aesIn.duplicate(), aesCtrOut);
+
+        return aesCtrOut;
+    }
+
+    @Benchmark
+    public byte[] tableAESEncrypt() throws Exception {
+
+        return TableAES.encryptBytes(bytes, 0, size, AES_KEY_STRING);
+    }
+}
@@ -0,0 +1,69 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * CipherEngineBenchmark.java
+ *
+ * Every standard mode through its CipherEngine, the way MessageHandler runs a
+ * packet: encrypted in place in a buffer allocated once, then decrypted in
+ * place again.
+ */
+import cs490midterm.CipherEngine;
+import cs490midterm.CipherEngines;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CipherEngineBenchmark {
+
+    @Param({"1", "2", "3", "4", "5", "6", "8"})
+    int mode;
+
+    @Param({Messages.SIZE_8, Messages.SIZE_64, Messages.SIZE_1K,
+        Messages.SIZE_16K, Messages.SIZE_1M})
+    int size;
+
+    private CipherEngine engine;
+    private byte[] message, buffer;
+
+    @Setup
+    public void setup() {
+
+        engine = CipherEngines.standard("iamakey!", "AES 128-bit key!",
+                "iamakey!andanotherthird!", "ChaCha20 256-bit key for CS490!!")
+                .get(mode);
+
+        message = Messages.ascii(size).getBytes(StandardCharsets.ISO_8859_1);
+        buffer = new byte[engine.getOutputSize(size)];
+    }
+
+    @Benchmark
+    public byte[] roundTrip() throws Exception {
+
+        System.arraycopy(message, 0, buffer, 0, size);
+
+        int n = engine.encrypt(buffer, 0, size);
+
+        engine.decrypt(buffer, 0, n);
+
+        return buffer;
+    }
+}
@@ -0,0 +1,107 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * DESBenchmark.java
+ *
+ * Encryption and decryption of a message with the original DES.java and with
+ * FastDES, using the same key the client and server use. The legacy
+ * implementation is kept here as the reference point for FastDES.
+ *
+ * fastEncryptBytes and fastDecryptBytes work on byte arrays allocated once,
+ * without the hex Strings, so that the GC profiler shows what FastDES itself
+ * allocates. From 1 KB up they go through BitslicedDES, whose scratch arrays
+ * are kept per thread, and should allocate nothing per operation.
+ */
+import cs490midterm.DES;
+import cs490midterm.DESKeySchedule;
+import cs490midterm.FastDES;
+import cs490midterm.Utils;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DESBenchmark {
+
+    private static final String KEY_STRING = "iamakey!";
+
+    @Param({Messages.SIZE_8, Messages.SIZE_64, Messages.SIZE_1K,
+        Messages.SIZE_16K, Messages.SIZE_1M})
+    int size;
+
+    private String hexKey, message, legacyCipherText, cipherText;
+    private DESKeySchedule key;
+    private byte[] messageBytes, cipherBytes, out;
+
+    @Setup
+    public void setup() {
+
+        hexKey = Utils.ASCIIToHexString(KEY_STRING);
+        key = DESKeySchedule.forHexKey(hexKey);
+        message = Messages.ascii(size);
+        legacyCipherText = DES.encryptMessage(message, hexKey);
+        cipherText = FastDES.encryptMessage(message, key);
+        messageBytes = message.getBytes(StandardCharsets.ISO_8859_1);
+        cipherBytes = new byte[FastDES.outputLength(size)];
+        out = new byte[cipherBytes.length];
+        FastDES.encrypt(messageBytes, 0, size, cipherBytes, 0, key);
+    }
+
+    @Benchmark
+    public String legacyEncrypt() {
+
+        return DES.encryptMessage(message, hexKey);
+    }
+
+    @Benchmark
+    public String legacyDecrypt() {
+
+        return Utils.stripNulls(DES.decryptMessage(legacyCipherText, hexKey));
+    }
+
+    @Benchmark
+    public String fastEncrypt() {
+
+        return FastDES.encryptMessage(message, key);
+    }
+
+    @Benchmark
+    public String fastDecrypt() {
+
+        return FastDES.decryptMessage(cipherText, key);
+    }
+
+    @Benchmark
+    public byte[] fastEncryptBytes() {
+
+        FastDES.encrypt(messageBytes, 0, messageBytes.length, out, 0, key);
+
+        return out;
+    }
+
+    @Benchmark
+    public byte[] fastDecryptBytes() {
+
+        FastDES.decrypt(cipherBytes, 0, cipherBytes.length, out, 0, key);
+
+        return out;
+    }
+}
@@ -0,0 +1,152 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * ExecutionModeBenchmark.java
+ *
+ * The ways a batch of message exchanges can be run at once: a new platform
+ * thread for each, as ClientUI normally does, a cached pool of platform
+ * threads, and a virtual thread for each from RequestExecutors. Each exchange
+ * encrypts a 64-byte message, waits WAIT_MICROS to stand in for the round
+ * trip to the server, and decrypts it again; an operation is a whole batch of
+ * 'exchanges' of them, run together.
+ *
+ * The message is encrypted with AES, mode 3, or with DES, mode 2. AES borrows
+ * an initialized javax.crypto Cipher from AES.java's pool for each message,
+ * where DES needs nothing but its key schedule, so comparing the two shows
+ * whether the pool keeps up when every message has a thread of its own.
+ *
+ * Virtual threads need JDK 21, so run the benchmarks jar on a JDK 21 java for
+ * the "virtual" results; on an older JDK that mode fails in setup and the
+ * others still run.
+ */
+import cs490midterm.CipherEngine;
+import cs490midterm.CipherEngines;
+import cs490midterm.RequestExecutors;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionModeBenchmark {
+
+    private static final long WAIT_MICROS = 200;
+
+    @Param({"thread", "pooled", "virtual"})
+    String mode;
+
+    @Param({"10", "100", "1000"})
+    int exchanges;
+
+    @Param({"AES", "DES"})
+    String cipher;
+
+    private CipherEngine engine;
+    private byte[] message;
+    private ExecutorService executor;
+    private Executor execute;
+
+    @Setup
+    public void setup() {
+
+        engine = CipherEngines.standard("iamakey!", "AES 128-bit key!",
+                "iamakey!andanotherthird!", "ChaCha20 256-bit key for CS490!!")
+                .get(cipher.equals("AES") ? CipherEngines.MODE_AES
+                        : CipherEngines.MODE_DES);
+
+        message = Messages.ascii(64).getBytes(StandardCharsets.ISO_8859_1);
+
+        switch (mode) {
+
+            case "thread":
+                execute = r -> new Thread(r).start();
+                break;
+
+            case "pooled":
+                executor = RequestExecutors.newThreadPerTaskExecutor(false);
+                execute = executor;
+                break;
+
+            default:
+                executor = RequestExecutors.newVirtualThreadPerTaskExecutor();
+                execute = executor;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        if (executor != null) {
+
+            executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void batch() throws InterruptedException {
+
+        CountDownLatch done = new CountDownLatch(exchanges);
+
+        for (int x = 0; x < exchanges; ++x) {
+
+            execute.execute(() -> {
+
+                try {
+
+                    exchange();
+
+                } finally {
+
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+    }
+
+    /**
+     * One message there and back, with a wait in place of the network.
+     */
+    private void exchange() {
+
+        byte[] b = new byte[engine.getOutputSize(message.length)];
+
+        System.arraycopy(message, 0, b, 0, message.length);
+
+        try {
+
+            int n = engine.encrypt(b, 0, message.length);
+
+            LockSupport.parkNanos(WAIT_MICROS * 1000);
+
+            engine.decrypt(b, 0, n);
+
+        } catch (Exception ex) {
+
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+}
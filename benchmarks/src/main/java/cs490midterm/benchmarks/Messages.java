@@ -0,0 +1,47 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * Messages.java
+ *
+ * Test messages for the benchmarks. Every benchmark is run at the same set of
+ * message sizes, from a single DES block up to 1 MB, and uses printable ASCII
+ * generated from a fixed seed so that runs can be compared with each other.
+ */
+import java.util.Random;
+
+final class Messages {
+
+    /**
+     * The message sizes in bytes, for use in @Param.
+     */
+    static final String SIZE_8 = "8",
+            SIZE_64 = "64",
+            SIZE_1K = "1024",
+            SIZE_16K = "16384",
+            SIZE_1M = "1048576";
+
+    private Messages() {
+    }
+
+    /**
+     * Create a message of printable ASCII characters.
+     *
+     * @param size the length of the message
+     * @return the message
+     */
+    static String ascii(int size) {
+
+        Random random = new Random(size);
+        char[] c = new char[size];
+
+        for (int x = 0; x < size; ++x) {
+
+            c[x] = (char) (' ' + random.nextInt(95));
+        }
+
+        return new String(c);
+    }
+}
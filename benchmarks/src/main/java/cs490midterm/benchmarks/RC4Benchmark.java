@@ -0,0 +1,106 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * RC4Benchmark.java
+ *
+ * RC4.rC4 on its own, and the round trip the client and server make through
+ * Utils.hexToASCII to turn its hexadecimal output into the ciphertext that is
+ * actually sent, against an RC4Session, which skips the key schedule and
+ * carries on through one keystream, and RC4Engine, which works on bytes.
+ * engineCrypt encrypts the same array in place over and over, so it measures
+ * the keystream loop on its own. prefetchedCrypt does the same through a
+ * KeystreamPrefetcher with a 64 KB buffer, so messages up to that size mostly
+ * come down to an XOR while the background thread keeps the buffer full.
+ */
+import cs490midterm.KeystreamPrefetcher;
+import cs490midterm.RC4;
+import cs490midterm.RC4Engine;
+import cs490midterm.RC4Session;
+import cs490midterm.Utils;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RC4Benchmark {
+
+    private static final String KEY_STRING = "iamakey!";
+
+    @Param({Messages.SIZE_8, Messages.SIZE_64, Messages.SIZE_1K,
+        Messages.SIZE_16K, Messages.SIZE_1M})
+    int size;
+
+    private String message;
+    private RC4Session session;
+    private RC4Engine engine;
+    private KeystreamPrefetcher prefetcher;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+
+        message = Messages.ascii(size);
+        session = RC4Session.newClientSession(KEY_STRING);
+        engine = new RC4Engine(KEY_STRING);
+        prefetcher = new KeystreamPrefetcher(new RC4Engine(KEY_STRING),
+                64 * 1024, 32 * 1024);
+        bytes = new byte[size];
+    }
+
+    @Benchmark
+    public String rC4() {
+
+        return RC4.rC4(message, KEY_STRING);
+    }
+
+    @Benchmark
+    public String rC4ToASCII() {
+
+        return Utils.hexToASCII(RC4.rC4(message, KEY_STRING));
+    }
+
+    @Benchmark
+    public String sessionEncrypt() {
+
+        return session.encryptMessage(message);
+    }
+
+    @Benchmark
+    public String engineCryptMessage() {
+
+        return RC4Engine.cryptMessage(message, KEY_STRING);
+    }
+
+    @Benchmark
+    public byte[] engineCrypt() {
+
+        engine.crypt(bytes, 0, bytes.length);
+
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] prefetchedCrypt() {
+
+        prefetcher.crypt(bytes, 0, bytes.length);
+
+        return bytes;
+    }
+}
@@ -0,0 +1,113 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * ServerLogBenchmark.java
+ *
+ * The cost to a thread handling packets of logging one "Received encrypted
+ * message" entry: appending it to a JTextArea with a newly formatted
+ * timestamp, as the messagers did, against handing it to an AsyncLog, with
+ * the PACKET level on and off. The AsyncLog writes to a sink that throws the
+ * text away; if its writer can't keep up, entries are dropped and counted
+ * rather than slowing the benchmark thread, as they would be in the server.
+ */
+import cs490midterm.AsyncLog;
+import cs490midterm.ServerLog;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JTextArea;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class ServerLogBenchmark {
+
+    /**
+     * A short message's ciphertext as hexadecimal, and where it came from.
+     */
+    static final String CIPHERTEXT = "8bcb4bcb9dae35e7b3e37dffca3554ce";
+    static final String CLIENT = "/127.0.0.1";
+
+    private JTextArea area;
+    private DateFormat dateFormat;
+    private AsyncLog packetLog, infoLog;
+
+    @Setup
+    public void setup() {
+
+        area = new JTextArea();
+        dateFormat = new SimpleDateFormat("HH:mm:ss");
+
+        packetLog = new AsyncLog("Packet Log", ServerLog.Level.PACKET, 65536,
+                s -> {
+                });
+        infoLog = new AsyncLog("Info Log", ServerLog.Level.INFO, 65536,
+                s -> {
+                });
+    }
+
+    /**
+     * Start each iteration with an empty text area, so that it doesn't grow
+     * without limit.
+     */
+    @Setup(Level.Iteration)
+    public void clearTextArea() {
+
+        area.setText("");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+
+        packetLog.close();
+        infoLog.close();
+    }
+
+    @Benchmark
+    public JTextArea textArea() {
+
+        area.append("["
+                + dateFormat.format(Calendar.getInstance().getTime())
+                + "] Received encrypted message:\n\"" + CIPHERTEXT
+                + "\"\nfrom client at " + CLIENT + "\n");
+
+        return area;
+    }
+
+    @Benchmark
+    public void asyncLog() {
+
+        packetLog.log(ServerLog.Level.PACKET, "Received encrypted message:\n\"",
+                CIPHERTEXT, "\"\nfrom client at ", CLIENT, "\n");
+    }
+
+    @Benchmark
+    public void asyncLogGatedOff() {
+
+        if (infoLog.isEnabled(ServerLog.Level.PACKET)) {
+
+            infoLog.log(ServerLog.Level.PACKET,
+                    "Received encrypted message:\n\"", CIPHERTEXT,
+                    "\"\nfrom client at ", CLIENT, "\n");
+        }
+    }
+}
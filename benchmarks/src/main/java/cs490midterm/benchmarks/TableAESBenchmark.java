@@ -0,0 +1,81 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * TableAESBenchmark.java
+ *
+ * The same benchmarks as AESBenchmark.java, run against TableAES.java, the
+ * pure-Java AES. Comparing the two shows what the JDK's AES intrinsics are
+ * worth on the machine running them; running AESBenchmark with
+ * -jvmArgsAppend -XX:-UseAESIntrinsics shows javax.crypto without them.
+ */
+import cs490midterm.TableAES;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TableAESBenchmark {
+
+    private static final String AES_KEY_STRING = "AES 128-bit key!";
+
+    @Param({Messages.SIZE_8, Messages.SIZE_64, Messages.SIZE_1K,
+        Messages.SIZE_16K, Messages.SIZE_1M})
+    int size;
+
+    private String message, cipherText;
+    private byte[] messageBytes, cipherBytes;
+
+    @Setup
+    public void setup() throws Exception {
+
+        message = Messages.ascii(size);
+        cipherText = TableAES.encrypt(message, AES_KEY_STRING);
+        messageBytes = message.getBytes(StandardCharsets.ISO_8859_1);
+        cipherBytes = TableAES.encryptBytes(messageBytes, 0,
+                messageBytes.length, AES_KEY_STRING);
+    }
+
+    @Benchmark
+    public String encrypt() throws Exception {
+
+        return TableAES.encrypt(message, AES_KEY_STRING);
+    }
+
+    @Benchmark
+    public String decrypt() throws Exception {
+
+        return TableAES.decrypt(cipherText, AES_KEY_STRING);
+    }
+
+    @Benchmark
+    public byte[] encryptBytes() throws Exception {
+
+        return TableAES.encryptBytes(messageBytes, 0, messageBytes.length,
+                AES_KEY_STRING);
+    }
+
+    @Benchmark
+    public byte[] decryptBytes() throws Exception {
+
+        return TableAES.decryptBytes(cipherBytes, 0, cipherBytes.length,
+                AES_KEY_STRING);
+    }
+}
@@ -0,0 +1,87 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * UtilsBenchmark.java
+ *
+ * The String helpers in Utils.java that the ciphers and messagers run every
+ * message through, and the HexCodec.java methods underneath them working on
+ * arrays that are allocated once.
+ */
+import cs490midterm.HexCodec;
+import cs490midterm.Utils;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UtilsBenchmark {
+
+    @Param({Messages.SIZE_8, Messages.SIZE_64, Messages.SIZE_1K,
+        Messages.SIZE_16K, Messages.SIZE_1M})
+    int size;
+
+    private String message, hex, withNulls;
+    private byte[] bytes;
+    private char[] digits;
+
+    @Setup
+    public void setup() {
+
+        message = Messages.ascii(size);
+        hex = Utils.ASCIIToHexString(message);
+        withNulls = message.replace('~', '\0');
+        bytes = new byte[size];
+        digits = new char[2 * size];
+    }
+
+    @Benchmark
+    public String asciiToHexString() {
+
+        return Utils.ASCIIToHexString(message);
+    }
+
+    @Benchmark
+    public String hexToASCII() {
+
+        return Utils.hexToASCII(hex);
+    }
+
+    @Benchmark
+    public String stripNulls() {
+
+        return Utils.stripNulls(withNulls);
+    }
+
+    @Benchmark
+    public char[] hexEncodeInto() {
+
+        HexCodec.encode(message, 0, size, digits, 0);
+
+        return digits;
+    }
+
+    @Benchmark
+    public byte[] hexDecodeInto() {
+
+        HexCodec.decode(hex, 0, hex.length(), bytes, 0);
+
+        return bytes;
+    }
+}
@@ -0,0 +1,99 @@
+package cs490midterm.benchmarks;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * XorKernelBenchmark.java
+ *
+ * XorKernel against the byte-at-a-time loop it replaced, for keystream held as
+ * bytes (KeystreamPrefetcher) and as big-endian longs (CTR mode in
+ * CipherModes.java). Each XORs the keystream into the same array in place.
+ */
+import cs490midterm.XorKernel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XorKernelBenchmark {
+
+    @Param({Messages.SIZE_8, Messages.SIZE_64, Messages.SIZE_1K,
+        Messages.SIZE_16K, Messages.SIZE_1M})
+    int size;
+
+    private byte[] bytes, keystream;
+    private long[] blocks;
+
+    @Setup
+    public void setup() {
+
+        Random random = new Random(size);
+
+        bytes = new byte[size];
+        keystream = new byte[size];
+        blocks = new long[(size + 7) / 8];
+
+        random.nextBytes(bytes);
+        random.nextBytes(keystream);
+
+        for (int x = 0; x < blocks.length; ++x) {
+
+            blocks[x] = random.nextLong();
+        }
+    }
+
+    @Benchmark
+    public byte[] byteLoop() {
+
+        for (int x = 0; x < size; ++x) {
+
+            bytes[x] = (byte) (bytes[x] ^ keystream[x]);
+        }
+
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] kernel() {
+
+        XorKernel.xor(bytes, 0, keystream, 0, bytes, 0, size);
+
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] blockLoop() {
+
+        for (int x = 0; x < size; ++x) {
+
+            bytes[x] = (byte) (bytes[x]
+                    ^ (blocks[x >>> 3] >>> (56 - 8 * (x & 7))));
+        }
+
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] blockKernel() {
+
+        XorKernel.xor(bytes, 0, blocks, 0, bytes, 0, size);
+
+        return bytes;
+    }
+}
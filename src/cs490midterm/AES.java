@@ -11,39 +11,343 @@ package cs490midterm;
  * The implementation for AES is provided by the javax.crypto.Cipher and
  * javax.crypto.spec.SecretKeySpec classes.
  *
- * NOTE: the use of sun.misc.BASE64Encoder and sun.misc.BASE64Decoder will cause
- * the Java compiler to throw a warning fit (but still compile). Oracle has
- * denounced use of classes within third-party packages. I used these because I
- * needed a quick and dirty base-64 implementation. This is not good programming
- * practice, and I would never advocate such usage in production code. This is
- * is just for fun and a few extra points on this project.
+ * The ciphertext is sent as base-64 text. This was originally done with
+ * sun.misc.BASE64Encoder and sun.misc.BASE64Decoder, which no longer exist in
+ * current versions of Java, so java.util.Base64 is used instead. The decoder
+ * is the MIME one, which skips line breaks the same way the old one did.
+ * encryptBytes and decryptBytes skip the base-64 and work on the raw bytes.
+ *
+ * Looking up a Cipher from the providers and initializing it with a key costs
+ * far more than encrypting a chat message, so neither is done per message.
+ * Each key gets one SecretKeySpec and, for each direction, a pool of
+ * initialized Ciphers. A message borrows a Cipher from the pool, runs doFinal
+ * and gives it back; a Cipher is not thread safe, but once doFinal returns it
+ * is ready for the next message with the same key. A Cipher per thread would
+ * be no use to virtual threads, which usually handle one message each, so the
+ * pool is shared by all threads and holds as many Ciphers as have been in use
+ * at once, up to MAX_POOLED. Up to MAX_KEYS keys are remembered, dropping the
+ * least recently used.
  */
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
-import sun.misc.BASE64Decoder;
-import sun.misc.BASE64Encoder;
 
 public class AES {
 
+    /**
+     * The most keys to keep Ciphers for at once. The client and server only
+     * ever use one.
+     */
+    static final int MAX_KEYS = 16;
+
+    /**
+     * The most idle Ciphers kept for each key and direction. Any more than
+     * that in use at once are thrown away when they are given back.
+     */
+    static final int MAX_POOLED = 64;
+
+    private static final Map<String, Key> KEYS
+            = new LinkedHashMap<String, Key>(MAX_KEYS, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, Key> eldest) {
+
+                    return size() > MAX_KEYS;
+                }
+            };
+
     public static String encrypt(String message, String keyString)
             throws Exception {
 
-        Cipher cipherAES = Cipher.getInstance("AES");
-
-        cipherAES.init(Cipher.ENCRYPT_MODE,
-                new SecretKeySpec(keyString.getBytes(), "AES"));
+        byte[] b = message.getBytes(Charset.defaultCharset());
 
-        return new BASE64Encoder().encode(cipherAES.doFinal(message.getBytes()));
+        return Base64.getEncoder().encodeToString(
+                encryptBytes(b, 0, b.length, keyString));
     }
 
     public static String decrypt(String message, String keyString)
             throws Exception {
 
-        Cipher cipherAES = Cipher.getInstance("AES");
+        byte[] b = Base64.getMimeDecoder().decode(message);
+
+        return new String(decryptBytes(b, 0, b.length, keyString),
+                Charset.defaultCharset());
+    }
+
+    /**
+     * Encrypt bytes with a pooled Cipher for the key.
+     *
+     * @param in the array holding the plaintext
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @param keyString the key, 16, 24 or 32 bytes
+     * @return the ciphertext, without any base-64
+     * @throws GeneralSecurityException if the Cipher fails
+     * @throws IllegalArgumentException if the key is not a valid AES key
+     */
+    public static byte[] encryptBytes(byte[] in, int off, int len,
+            String keyString) throws GeneralSecurityException {
+
+        return doFinal(key(keyString).encrypt, in, off, len);
+    }
+
+    /**
+     * Decrypt bytes with a pooled Cipher for the key.
+     *
+     * @param in the array holding the ciphertext
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @param keyString the key, 16, 24 or 32 bytes
+     * @return the plaintext
+     * @throws GeneralSecurityException if the ciphertext or its padding is
+     * bad
+     * @throws IllegalArgumentException if the key is not a valid AES key
+     */
+    public static byte[] decryptBytes(byte[] in, int off, int len,
+            String keyString) throws GeneralSecurityException {
+
+        return doFinal(key(keyString).decrypt, in, off, len);
+    }
+
+    /**
+     * Encrypt bytes into an array supplied by the caller. in and out may be
+     * the same array, as long as the output does not start after the input.
+     *
+     * @param in the array holding the plaintext
+     * @param inOff the offset of the first byte
+     * @param len the number of bytes
+     * @param out the array to write the ciphertext into, with room for
+     * outputLength(len) bytes
+     * @param outOff the offset to write the first byte of ciphertext at
+     * @param keyString the key, 16, 24 or 32 bytes
+     * @return the number of bytes written, outputLength(len)
+     * @throws GeneralSecurityException if the Cipher fails
+     * @throws IllegalArgumentException if the key is not a valid AES key
+     */
+    public static int encryptBytes(byte[] in, int inOff, int len, byte[] out,
+            int outOff, String keyString) throws GeneralSecurityException {
+
+        return doFinal(key(keyString).encrypt, in, inOff, len, out, outOff);
+    }
+
+    /**
+     * Decrypt bytes into an array supplied by the caller. in and out may be
+     * the same array, as long as the output does not start after the input.
+     *
+     * @param in the array holding the ciphertext
+     * @param inOff the offset of the first byte
+     * @param len the number of bytes
+     * @param out the array to write the plaintext into, with room for len
+     * bytes
+     * @param outOff the offset to write the first byte of plaintext at
+     * @param keyString the key, 16, 24 or 32 bytes
+     * @return the length of the plaintext, without padding
+     * @throws GeneralSecurityException if the ciphertext or its padding is
+     * bad
+     * @throws IllegalArgumentException if the key is not a valid AES key
+     */
+    public static int decryptBytes(byte[] in, int inOff, int len, byte[] out,
+            int outOff, String keyString) throws GeneralSecurityException {
+
+        return doFinal(key(keyString).decrypt, in, inOff, len, out, outOff);
+    }
+
+    /**
+     * The length of the ciphertext for a message, which is padded to a whole
+     * number of 16-byte blocks with at least one byte of padding.
+     *
+     * @param len the length of the message
+     * @return the length of the ciphertext
+     */
+    public static int outputLength(int len) {
+
+        return (len & ~15) + 16;
+    }
+
+    /**
+     * Run a Cipher from a pool over the bytes. If it fails, such as on a bad
+     * padding, the Cipher is thrown away rather than given back, so the next
+     * message gets a freshly initialized one rather than one left part way
+     * through.
+     *
+     * @param pool the Ciphers for one key and direction
+     * @param in the array holding the input
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @return the output
+     * @throws GeneralSecurityException if the Cipher fails
+     */
+    private static byte[] doFinal(CipherPool pool, byte[] in, int off,
+            int len) throws GeneralSecurityException {
+
+        Cipher c = pool.borrow();
+
+        byte[] out = c.doFinal(in, off, len);
+
+        pool.giveBack(c);
+
+        return out;
+    }
+
+    /**
+     * Run a Cipher from a pool over the bytes, writing the output into out,
+     * and throwing the Cipher away if it fails.
+     *
+     * @param pool the Ciphers for one key and direction
+     * @param in the array holding the input
+     * @param inOff the offset of the first byte of input
+     * @param len the number of bytes
+     * @param out the array to write the output into
+     * @param outOff the offset to write the first byte of output at
+     * @return the number of bytes written to out
+     * @throws GeneralSecurityException if the Cipher fails
+     */
+    private static int doFinal(CipherPool pool, byte[] in, int inOff, int len,
+            byte[] out, int outOff) throws GeneralSecurityException {
+
+        Cipher c = pool.borrow();
+
+        int n = c.doFinal(in, inOff, len, out, outOff);
+
+        pool.giveBack(c);
+
+        return n;
+    }
+
+    /**
+     * Get the SecretKeySpec and Ciphers for a key, creating them the first
+     * time the key is used.
+     *
+     * @param keyString the key
+     * @return the cached key
+     */
+    static Key key(String keyString) {
+
+        synchronized (KEYS) {
+
+            return KEYS.computeIfAbsent(keyString, Key::new);
+        }
+    }
+
+    /**
+     * One key: its SecretKeySpec, and a pool of Ciphers for each direction.
+     */
+    static class Key {
+
+        final SecretKeySpec spec;
+        final CipherPool encrypt, decrypt;
+
+        Key(String keyString) {
+
+            spec = new SecretKeySpec(
+                    keyString.getBytes(Charset.defaultCharset()), "AES");
+
+            encrypt = new CipherPool(spec, Cipher.ENCRYPT_MODE);
+            decrypt = new CipherPool(spec, Cipher.DECRYPT_MODE);
+        }
+    }
+
+    /**
+     * The idle Ciphers for one key and direction, ready for their next
+     * message.
+     */
+    static final class CipherPool {
+
+        private final SecretKeySpec spec;
+        private final int mode;
+
+        private final Queue<Cipher> idle = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The number of Ciphers in idle, counted separately since counting
+         * a ConcurrentLinkedQueue means walking it.
+         */
+        private final AtomicInteger idleCount = new AtomicInteger();
+
+        CipherPool(SecretKeySpec spec, int mode) {
+
+            this.spec = spec;
+            this.mode = mode;
+        }
+
+        /**
+         * Take an idle Cipher, or initialize a new one if there are none.
+         *
+         * @return the Cipher, which must be given back only if doFinal
+         * succeeds
+         * @throws IllegalArgumentException if the key is not a valid AES key
+         */
+        Cipher borrow() {
+
+            Cipher c = idle.poll();
+
+            if (c != null) {
+
+                idleCount.decrementAndGet();
+
+                return c;
+            }
+
+            return newCipher();
+        }
+
+        /**
+         * Give a Cipher back for the next message, unless the pool already
+         * holds MAX_POOLED.
+         *
+         * @param c the Cipher
+         */
+        void giveBack(Cipher c) {
+
+            if (idleCount.incrementAndGet() <= MAX_POOLED) {
+
+                idle.offer(c);
+
+            } else {
+
+                idleCount.decrementAndGet();
+            }
+        }
+
+        /**
+         * The number of idle Ciphers.
+         *
+         * @return the number of Ciphers ready to be borrowed
+         */
+        int getIdleCount() {
+
+            return idleCount.get();
+        }
+
+        /**
+         * Look up and initialize a Cipher for this key. A key of the wrong
+         * length is reported when it is first used, as it was before the
+         * Ciphers were cached.
+         *
+         * @return the initialized Cipher
+         */
+        private Cipher newCipher() {
+
+            try {
+
+                Cipher c = Cipher.getInstance("AES");
+
+                c.init(mode, spec);
+
+                return c;
 
-        cipherAES.init(Cipher.DECRYPT_MODE,
-                new SecretKeySpec(keyString.getBytes(), "AES"));
+            } catch (GeneralSecurityException ex) {
 
-        return new String(cipherAES.doFinal(new BASE64Decoder().decodeBuffer(message)));
+                throw new IllegalArgumentException(ex.getMessage(), ex);
+            }
+        }
     }
 }
@@ -0,0 +1,342 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * AESModes.java
+ *
+ * AESModes.java provides AES in CTR and GCM mode, working directly on
+ * ByteBuffers. AES.java uses the bare "AES" transformation, which is ECB with
+ * PKCS#5 padding, and goes from a String to a byte[] to base-64 and back.
+ * These methods read the message from one buffer and write the result into
+ * another, such as the buffer a packet is sent from or received into, so with
+ * direct buffers the JDK's AES (and for GCM, GHASH) intrinsics run on the
+ * packet without any copies in between.
+ *
+ * CTR (counter) mode turns AES into a stream cipher, so the ciphertext is the
+ * same length as the message. GCM (Galois/counter mode) is CTR with a 16-byte
+ * authentication tag on the end, and decryption fails with an
+ * AEADBadTagException if the ciphertext has been changed. Each message gets a
+ * random IV, which is written in front of the ciphertext: 16 bytes for CTR
+ * and 12 for GCM.
+ *
+ * encrypt and decrypt handle a whole message with the calling thread's Cipher
+ * for the mode, which is only looked up once per thread; the key comes from the
+ * same cache as AES.java. For a large message, encryptingStream and
+ * decryptingStream give a Stream that takes the message a chunk at a time
+ * through update, so each chunk can be sent while the next is encrypted. A
+ * Stream is also a ChunkCipher, for CipherOutputStream and CipherInputStream.
+ * GCM can't release any plaintext until it has checked the tag, so when
+ * decrypting GCM all of the output comes from doFinal.
+ */
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+
+public final class AESModes {
+
+    /**
+     * The length in bytes of the GCM authentication tag.
+     */
+    static final int GCM_TAG_LENGTH = 16;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * The two modes, with the transformation and IV length of each.
+     */
+    public enum Mode {
+
+        CTR("AES/CTR/NoPadding", 16, 0),
+        GCM("AES/GCM/NoPadding", 12, GCM_TAG_LENGTH);
+
+        final String transformation;
+        final int ivLength, tagLength;
+
+        /**
+         * This thread's Cipher for the mode, initialized again for every
+         * message.
+         */
+        private final ThreadLocal<Cipher> cipher
+                = ThreadLocal.withInitial(this::newCipher);
+
+        Mode(String transformation, int ivLength, int tagLength) {
+
+            this.transformation = transformation;
+            this.ivLength = ivLength;
+            this.tagLength = tagLength;
+        }
+
+        /**
+         * The size of a message once it has been encrypted.
+         *
+         * @param len the length of the message
+         * @return the length of the IV, ciphertext and any tag
+         */
+        public int encryptedLength(int len) {
+
+            return ivLength + len + tagLength;
+        }
+
+        /**
+         * The parameters to initialize a Cipher with for a given IV.
+         *
+         * @param iv the IV
+         * @return the parameters for this mode
+         */
+        AlgorithmParameterSpec params(byte[] iv) {
+
+            return this == GCM ? new GCMParameterSpec(8 * tagLength, iv)
+                    : new IvParameterSpec(iv);
+        }
+
+        /**
+         * Look up a Cipher for this mode from the providers.
+         *
+         * @return the uninitialized Cipher
+         */
+        Cipher newCipher() {
+
+            try {
+
+                return Cipher.getInstance(transformation);
+
+            } catch (GeneralSecurityException ex) {
+
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private AESModes() {
+    }
+
+    /**
+     * Encrypt all of the remaining bytes of in with a random IV, writing the
+     * IV and then the ciphertext to out. Both buffers have their positions
+     * advanced.
+     *
+     * @param mode CTR or GCM
+     * @param keyString the key, as used by AES.encrypt
+     * @param in the buffer holding the message
+     * @param out the buffer to write the IV and ciphertext into, with at least
+     * mode.encryptedLength(in.remaining()) bytes remaining
+     * @return the number of bytes written to out
+     * @throws GeneralSecurityException if the Cipher fails
+     */
+    public static int encrypt(Mode mode, String keyString, ByteBuffer in,
+            ByteBuffer out) throws GeneralSecurityException {
+
+        if (out.remaining() < mode.encryptedLength(in.remaining())) {
+
+            throw new BufferOverflowException();
+        }
+
+        Cipher cipher = mode.cipher.get();
+
+        byte[] iv = newIV(mode);
+
+        /**
+         * The IV is only written once the Cipher has taken the key, so a bad
+         * key leaves out as it was.
+         */
+        init(cipher, mode, Cipher.ENCRYPT_MODE, keyString, iv);
+
+        out.put(iv);
+
+        return mode.ivLength + cipher.doFinal(in, out);
+    }
+
+    /**
+     * Decrypt all of the remaining bytes of in, which start with the IV,
+     * writing the message to out. Both buffers have their positions advanced.
+     *
+     * @param mode CTR or GCM
+     * @param keyString the key, as used by AES.decrypt
+     * @param in the buffer holding the IV and ciphertext
+     * @param out the buffer to write the message into
+     * @return the number of bytes written to out
+     * @throws GeneralSecurityException if the Cipher fails, including an
+     * AEADBadTagException if a GCM message has been changed
+     */
+    public static int decrypt(Mode mode, String keyString, ByteBuffer in,
+            ByteBuffer out) throws GeneralSecurityException {
+
+        Cipher cipher = mode.cipher.get();
+
+        init(cipher, mode, Cipher.DECRYPT_MODE, keyString, readIV(mode, in));
+
+        return cipher.doFinal(in, out);
+    }
+
+    /**
+     * Start encrypting a message a chunk at a time, with a random IV.
+     *
+     * @param mode CTR or GCM
+     * @param keyString the key, as used by AES.encrypt
+     * @param out the buffer to write the IV into, ahead of the ciphertext
+     * @return the Stream to pass the message through
+     * @throws GeneralSecurityException if the Cipher can't be initialized
+     */
+    public static Stream encryptingStream(Mode mode, String keyString,
+            ByteBuffer out) throws GeneralSecurityException {
+
+        if (out.remaining() < mode.ivLength) {
+
+            throw new BufferOverflowException();
+        }
+
+        Cipher cipher = mode.newCipher();
+
+        byte[] iv = newIV(mode);
+
+        init(cipher, mode, Cipher.ENCRYPT_MODE, keyString, iv);
+
+        out.put(iv);
+
+        return new Stream(cipher);
+    }
+
+    /**
+     * Start decrypting a message a chunk at a time.
+     *
+     * @param mode CTR or GCM
+     * @param keyString the key, as used by AES.decrypt
+     * @param in the buffer to read the IV from, ahead of the ciphertext
+     * @return the Stream to pass the rest of the ciphertext through
+     * @throws GeneralSecurityException if the Cipher can't be initialized
+     */
+    public static Stream decryptingStream(Mode mode, String keyString,
+            ByteBuffer in) throws GeneralSecurityException {
+
+        Cipher cipher = mode.newCipher();
+
+        init(cipher, mode, Cipher.DECRYPT_MODE, keyString, readIV(mode, in));
+
+        return new Stream(cipher);
+    }
+
+    /**
+     * Initialize a Cipher with the cached SecretKeySpec for a key.
+     *
+     * @param cipher the Cipher
+     * @param mode the mode the Cipher is for
+     * @param opmode Cipher.ENCRYPT_MODE or Cipher.DECRYPT_MODE
+     * @param keyString the key
+     * @param iv the IV
+     * @throws GeneralSecurityException if the key or IV is not valid
+     */
+    private static void init(Cipher cipher, Mode mode, int opmode,
+            String keyString, byte[] iv) throws GeneralSecurityException {
+
+        cipher.init(opmode, AES.key(keyString).spec, mode.params(iv));
+    }
+
+    /**
+     * Choose a random IV.
+     *
+     * @param mode the mode, which decides the length of the IV
+     * @return the IV
+     */
+    private static byte[] newIV(Mode mode) {
+
+        byte[] iv = new byte[mode.ivLength];
+
+        RANDOM.nextBytes(iv);
+
+        return iv;
+    }
+
+    /**
+     * Read the IV from the start of a ciphertext.
+     *
+     * @param mode the mode, which decides the length of the IV
+     * @param in the buffer holding the ciphertext
+     * @return the IV
+     */
+    private static byte[] readIV(Mode mode, ByteBuffer in) {
+
+        if (in.remaining() < mode.ivLength + mode.tagLength) {
+
+            throw new BufferUnderflowException();
+        }
+
+        byte[] iv = new byte[mode.ivLength];
+
+        in.get(iv);
+
+        return iv;
+    }
+
+    /**
+     * One message being encrypted or decrypted a chunk at a time. The IV has
+     * already been written or read by the time a Stream is created.
+     */
+    public static final class Stream implements ChunkCipher {
+
+        private final Cipher cipher;
+
+        private Stream(Cipher cipher) {
+
+            this.cipher = cipher;
+        }
+
+        /**
+         * Process the remaining bytes of in, writing any output to out. Both
+         * buffers have their positions advanced.
+         *
+         * @param in the buffer holding the next chunk
+         * @param out the buffer to write the output into
+         * @return the number of bytes written to out
+         * @throws GeneralSecurityException if the Cipher fails
+         */
+        public int update(ByteBuffer in, ByteBuffer out)
+                throws GeneralSecurityException {
+
+            return cipher.update(in, out);
+        }
+
+        /**
+         * Process the remaining bytes of in and finish the message, writing
+         * the GCM tag when encrypting or checking it when decrypting.
+         *
+         * @param in the buffer holding the last chunk, which may be empty
+         * @param out the buffer to write the output into
+         * @return the number of bytes written to out
+         * @throws GeneralSecurityException if the Cipher fails, including an
+         * AEADBadTagException if a GCM message has been changed
+         */
+        public int doFinal(ByteBuffer in, ByteBuffer out)
+                throws GeneralSecurityException {
+
+            return cipher.doFinal(in, out);
+        }
+
+        @Override
+        public int update(byte[] in, int inOff, int len, byte[] out,
+                int outOff) throws GeneralSecurityException {
+
+            return cipher.update(in, inOff, len, out, outOff);
+        }
+
+        @Override
+        public int doFinal(byte[] out, int outOff)
+                throws GeneralSecurityException {
+
+            return cipher.doFinal(out, outOff);
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return cipher.getOutputSize(len);
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * AsyncLog.java
+ *
+ * AsyncLog is a ServerLog that writes its entries on a thread of its own, so
+ * that logging costs the threads handling packets as little as possible.
+ * Appending every line to the ServerUI's JTextArea from the network thread
+ * means building the line and formatting a timestamp three or four times per
+ * packet, on a component that is only meant to be used from Swing's thread,
+ * and for short messages that costs more than the encryption does.
+ *
+ * log only takes the time and puts the parts of the entry into the next free
+ * slot of a ring of 'capacity' slots. The slots are claimed without a lock:
+ * each has a sequence number saying whether it is free for the entry at a
+ * given position or holds one ready to be written, and a thread logging claims
+ * a position by moving the tail on with compareAndSet. If the ring is full the
+ * entry is dropped and counted rather than making the thread wait for the
+ * writer.
+ *
+ * The writer thread takes the entries in order, puts the time in front of
+ * each and joins its parts, and hands everything it took in one go to a sink,
+ * such as a PrintStream for a server without a window, or the ServerUI's text
+ * area on Swing's event thread. The time is formatted once a second at most,
+ * since entries made in the same second share it. With nothing to write, the
+ * writer sleeps until an entry is logged.
+ *
+ * Entries below the log's level are thrown away before anything else is done,
+ * and setLevel can change the level while the server is running.
+ */
+import java.io.PrintStream;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+
+public class AsyncLog implements ServerLog {
+
+    /**
+     * The most entries the writer hands to the sink at once.
+     */
+    static final int MAX_BATCH = 256;
+
+    /**
+     * The longest the writer sleeps before looking for entries again, in case
+     * it missed being woken.
+     */
+    static final long MAX_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Entry[] ring;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    /**
+     * The position of the next entry to be logged, and of the next to be
+     * written. Only the writer thread uses head.
+     */
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Consumer<String> sink;
+    private final Thread writer;
+
+    private volatile Level level;
+    private volatile boolean sleeping, closed;
+
+    /**
+     * The second the cached time was formatted for, and the time. Only the
+     * writer thread uses them.
+     */
+    private final DateFormat dateFormat = new SimpleDateFormat("HH:mm:ss");
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedTime;
+
+    /**
+     * Create a log and start its writer thread.
+     *
+     * @param name the name of the writer thread
+     * @param level the least important level to keep
+     * @param capacity the number of entries the ring holds, rounded up to a
+     * power of 2
+     * @param sink where each batch of formatted entries is written
+     */
+    public AsyncLog(String name, Level level, int capacity,
+            Consumer<String> sink) {
+
+        if (capacity < 1 || capacity > 1 << 30) {
+
+            throw new IllegalArgumentException("Capacity must be between 1 "
+                    + "and 2^30 entries");
+        }
+
+        int size = Integer.highestOneBit(capacity);
+
+        if (size < capacity) {
+
+            size <<= 1;
+        }
+
+        ring = new Entry[size];
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+
+        /**
+         * Slot x is free for the entry at position x.
+         */
+        for (int x = 0; x < size; ++x) {
+
+            ring[x] = new Entry();
+            sequences.set(x, x);
+        }
+
+        this.level = level;
+        this.sink = sink;
+
+        writer = new Thread(this::write, name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Create a log that prints its entries to a stream, such as System.out.
+     *
+     * @param out the stream
+     * @param level the least important level to keep
+     * @param capacity the number of entries the ring holds
+     * @return the log
+     */
+    public static AsyncLog toStream(PrintStream out, Level level,
+            int capacity) {
+
+        return new AsyncLog("Server Log", level, capacity, s -> {
+
+            out.print(s);
+            out.flush();
+        });
+    }
+
+    /**
+     * Create a log that appends its entries to a text area, on Swing's event
+     * thread.
+     *
+     * @param area the text area
+     * @param level the least important level to keep
+     * @param capacity the number of entries the ring holds
+     * @return the log
+     */
+    public static AsyncLog toTextArea(JTextArea area, Level level,
+            int capacity) {
+
+        return new AsyncLog("Server Log", level, capacity,
+                s -> SwingUtilities.invokeLater(() -> area.append(s)));
+    }
+
+    @Override
+    public boolean isEnabled(Level level) {
+
+        return level.compareTo(this.level) <= 0;
+    }
+
+    @Override
+    public void log(Level level, Object... parts) {
+
+        if (!isEnabled(level)) {
+
+            return;
+        }
+
+        long time = System.currentTimeMillis();
+
+        long pos = tail.get();
+
+        while (true) {
+
+            long seq = sequences.get((int) pos & mask);
+
+            if (seq == pos) {
+
+                if (tail.compareAndSet(pos, pos + 1)) {
+
+                    break;
+                }
+
+                pos = tail.get();
+
+            } else if (seq < pos) {
+
+                /**
+                 * The slot still holds the entry from one lap of the ring
+                 * ago, which hasn't been written yet, so the ring is full.
+                 */
+                dropped.incrementAndGet();
+
+                return;
+
+            } else {
+
+                /**
+                 * Another thread has claimed this position already.
+                 */
+                pos = tail.get();
+            }
+        }
+
+        int slot = (int) pos & mask;
+
+        Entry entry = ring[slot];
+
+        entry.time = time;
+        entry.parts = parts;
+
+        /**
+         * The entry is ready to be written.
+         */
+        sequences.set(slot, pos + 1);
+
+        if (sleeping) {
+
+            LockSupport.unpark(writer);
+        }
+    }
+
+    public Level getLevel() {
+
+        return level;
+    }
+
+    /**
+     * Change the least important level kept. Setting it to Level.INFO turns
+     * off the entries for every packet.
+     *
+     * @param level the level
+     */
+    public void setLevel(Level level) {
+
+        this.level = level;
+    }
+
+    /**
+     * The number of entries dropped because the ring was full.
+     *
+     * @return the number of entries dropped
+     */
+    public long getDropped() {
+
+        return dropped.get();
+    }
+
+    /**
+     * Write every entry logged so far and stop the writer thread. Entries
+     * logged after close returns are not written.
+     *
+     * @throws InterruptedException if interrupted while waiting for the
+     * writer
+     */
+    public void close() throws InterruptedException {
+
+        closed = true;
+
+        LockSupport.unpark(writer);
+
+        writer.join();
+    }
+
+    @Override
+    public String toString() {
+
+        return "AsyncLog[level=" + level + ", capacity=" + ring.length
+                + ", waiting=" + (tail.get() - head) + ", dropped="
+                + dropped.get() + "]";
+    }
+
+    /**
+     * The writer thread: take entries from the ring and hand them to the sink
+     * until the log is closed and the ring is empty.
+     */
+    private void write() {
+
+        StringBuilder batch = new StringBuilder();
+
+        while (true) {
+
+            /**
+             * Whether the log was closed before looking at the ring. Only
+             * then is an empty ring the end: an entry logged before close
+             * was called is in the ring by the time closed is seen, but may
+             * not have been when the ring was last looked at.
+             */
+            boolean wasClosed = closed;
+
+            int taken = 0;
+
+            while (taken < MAX_BATCH && take(batch)) {
+
+                ++taken;
+            }
+
+            if (taken > 0) {
+
+                try {
+
+                    sink.accept(batch.toString());
+
+                } catch (RuntimeException ex) {
+
+                    /**
+                     * A sink that fails loses its batch, but mustn't stop the
+                     * log.
+                     */
+                }
+
+                batch.setLength(0);
+
+                continue;
+            }
+
+            if (wasClosed) {
+
+                return;
+            }
+
+            /**
+             * Say the writer is about to sleep before looking once more, so
+             * that an entry logged in between either is seen or wakes it.
+             */
+            sleeping = true;
+
+            if (!isReady() && !closed) {
+
+                LockSupport.parkNanos(this, MAX_SLEEP_NANOS);
+            }
+
+            sleeping = false;
+        }
+    }
+
+    /**
+     * Whether the entry at the head of the ring is ready to be written.
+     *
+     * @return true if there is an entry to take
+     */
+    private boolean isReady() {
+
+        return sequences.get((int) head & mask) == head + 1;
+    }
+
+    /**
+     * Format the entry at the head of the ring onto a batch, and free its
+     * slot for the entry one lap of the ring later.
+     *
+     * @param batch the batch to add the entry to
+     * @return true if there was an entry, false if the ring is empty
+     */
+    private boolean take(StringBuilder batch) {
+
+        if (!isReady()) {
+
+            return false;
+        }
+
+        int slot = (int) head & mask;
+
+        Entry entry = ring[slot];
+
+        batch.append('[').append(getTime(entry.time)).append("] ");
+
+        for (Object part : entry.parts) {
+
+            batch.append(part);
+        }
+
+        entry.parts = null;
+
+        sequences.set(slot, head + ring.length);
+
+        ++head;
+
+        return true;
+    }
+
+    /**
+     * The time of an entry as HH:mm:ss, formatted again only when the second
+     * has changed.
+     *
+     * @param time the time in milliseconds
+     * @return the formatted time
+     */
+    private String getTime(long time) {
+
+        long second = Math.floorDiv(time, 1000L);
+
+        if (second != cachedSecond) {
+
+            cachedTime = dateFormat.format(new Date(time));
+            cachedSecond = second;
+        }
+
+        return cachedTime;
+    }
+
+    /**
+     * One slot of the ring. The fields are written by the thread that claimed
+     * the slot before its sequence number is set, and read by the writer
+     * after it sees the sequence number, which makes them visible to it.
+     */
+    private static final class Entry {
+
+        long time;
+        Object[] parts;
+    }
+}
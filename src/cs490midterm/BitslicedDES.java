@@ -0,0 +1,498 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * BitslicedDES.java
+ *
+ * BitslicedDES.java encrypts or decrypts 64 independent DES blocks at once.
+ * The 64 blocks are treated as a 64x64 matrix of bits and transposed, so that
+ * instead of one long per block there is one long per bit position: "plane" n
+ * holds bit n of every block, with block j in bit j of the plane. Every step
+ * of DES then works on all 64 blocks with a single operation:
+ *
+ * - IP, E, P and FP only move bits around, so on planes they are just a
+ *   choice of which array element to read. They cost nothing.
+ * - XORing with a round key bit is an XOR with all ones or all zeroes, since
+ *   every block uses the same key.
+ * - Each S-box is computed with ANDs, ORs and NOTs instead of a table. The
+ *   four middle input bits are decoded into 16 column terms and the outer two
+ *   into 4 row terms, and each output bit is the OR of the column terms that
+ *   have that bit set in each row. There are no table lookups at all, so the
+ *   timing does not depend on the data.
+ *
+ * The transposes at the start and end cost much less than the 16 rounds, so
+ * for a batch of 64 or more blocks this is faster than FastDES one block at a
+ * time. It only helps where blocks are independent of each other: ECB, and the
+ * keystream of CTR mode. FastDES, DESBlockCipher and CipherModes switch to it
+ * on their own whenever they have at least BATCH blocks to do.
+ *
+ * The planes of the two halves, the expanded right half and the S-box outputs
+ * live in a Workspace, which each thread keeps and reuses for every batch, so
+ * a long message doesn't allocate anything per batch. A virtual thread, which
+ * usually handles one message, gets a Workspace of its own the first time.
+ */
+public class BitslicedDES {
+
+    /**
+     * The number of blocks encrypted in each pass.
+     */
+    static final int BATCH = 64;
+
+    /**
+     * The expansion from 32 to 48 bits, using the FIPS 46-3 bit numbering.
+     */
+    private static final int[] E = {
+        32, 1, 2, 3, 4, 5,
+        4, 5, 6, 7, 8, 9,
+        8, 9, 10, 11, 12, 13,
+        12, 13, 14, 15, 16, 17,
+        16, 17, 18, 19, 20, 21,
+        20, 21, 22, 23, 24, 25,
+        24, 25, 26, 27, 28, 29,
+        28, 29, 30, 31, 32, 1
+    };
+
+    /**
+     * This thread's scratch arrays.
+     */
+    private static final ThreadLocal<Workspace> WORKSPACE
+            = ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Encrypt BATCH blocks in place.
+     *
+     * @param blocks the array holding the blocks
+     * @param off the index of the first of the BATCH blocks
+     * @param key the key schedule to encrypt with
+     */
+    static void encrypt(long[] blocks, int off, DESKeySchedule key) {
+
+        crypt(blocks, off, key.encryptKeys);
+    }
+
+    /**
+     * Decrypt BATCH blocks in place.
+     *
+     * @param blocks the array holding the blocks
+     * @param off the index of the first of the BATCH blocks
+     * @param key the key schedule to decrypt with
+     */
+    static void decrypt(long[] blocks, int off, DESKeySchedule key) {
+
+        crypt(blocks, off, key.decryptKeys);
+    }
+
+    /**
+     * Run BATCH blocks through DES in place. The blocks are transposed into
+     * planes within the caller's array, so no copy of the input is made.
+     *
+     * @param blocks the array holding the blocks
+     * @param off the index of the first of the BATCH blocks
+     * @param roundKeys the 16 round keys, reversed for decryption
+     */
+    static void crypt(long[] blocks, int off, long[] roundKeys) {
+
+        transpose(blocks, off);
+
+        Workspace w = workspace();
+
+        long[] l = w.l,
+                r = w.r,
+                e = w.e,
+                s = w.s;
+
+        for (int x = 0; x < 32; ++x) {
+
+            l[x] = blocks[off + FastDES.IP[x] - 1];
+            r[x] = blocks[off + FastDES.IP[x + 32] - 1];
+        }
+
+        for (int round = 0; round < roundKeys.length; ++round) {
+
+            long k = roundKeys[round];
+
+            /**
+             * E, then the round key. A key bit of 1 flips the plane for every
+             * block.
+             */
+            for (int x = 0; x < 48; ++x) {
+
+                e[x] = r[E[x] - 1] ^ -((k >>> (47 - x)) & 1);
+            }
+
+            s1(e[0], e[1], e[2], e[3], e[4], e[5], s, 0);
+            s2(e[6], e[7], e[8], e[9], e[10], e[11], s, 4);
+            s3(e[12], e[13], e[14], e[15], e[16], e[17], s, 8);
+            s4(e[18], e[19], e[20], e[21], e[22], e[23], s, 12);
+            s5(e[24], e[25], e[26], e[27], e[28], e[29], s, 16);
+            s6(e[30], e[31], e[32], e[33], e[34], e[35], s, 20);
+            s7(e[36], e[37], e[38], e[39], e[40], e[41], s, 24);
+            s8(e[42], e[43], e[44], e[45], e[46], e[47], s, 28);
+
+            /**
+             * P, then the new right half is the old left half XOR'd with the
+             * result. The old right half becomes the new left half.
+             */
+            for (int x = 0; x < 32; ++x) {
+
+                l[x] ^= s[FastDES.P[x] - 1];
+            }
+
+            long[] t = l;
+            l = r;
+            r = t;
+        }
+
+        /**
+         * The halves are swapped once more before the final permutation.
+         */
+        for (int x = 0; x < 64; ++x) {
+
+            int b = FastDES.FP[x] - 1;
+
+            blocks[off + x] = b < 32 ? r[b] : l[b - 32];
+        }
+
+        transpose(blocks, off);
+    }
+
+    /**
+     * Get the calling thread's Workspace. Its batch array is free for the
+     * caller to gather blocks into before calling crypt.
+     *
+     * @return the Workspace
+     */
+    static Workspace workspace() {
+
+        return WORKSPACE.get();
+    }
+
+    /**
+     * Transpose a 64x64 matrix of bits in place, by swapping 32x32 blocks,
+     * then 16x16 blocks within those, and so on down to single bits. Row i is
+     * the long at off + i, and column j is bit 63 - j. Transposing twice gives
+     * back the original matrix.
+     *
+     * @param a the array holding the matrix
+     * @param off the index of the first row
+     */
+    static void transpose(long[] a, int off) {
+
+        long m = 0x00000000FFFFFFFFL;
+
+        for (int j = 32; j != 0; j >>>= 1, m ^= (m << j)) {
+
+            for (int k = 0; k < 64; k = ((k | j) + 1) & ~j) {
+
+                long t = (a[off + k] ^ (a[off + (k | j)] >>> j)) & m;
+
+                a[off + k] ^= t;
+                a[off + (k | j)] ^= (t << j);
+            }
+        }
+    }
+
+    /**
+     * S-box 1 as a gate network.
+     */
+    private static void s1(long x0, long x1, long x2, long x3, long x4,
+            long x5, long[] out, int o) {
+
+        long a0 = ~(x1 | x2), a1 = ~x1 & x2, a2 = x1 & ~x2, a3 = x1 & x2;
+        long b0 = ~(x3 | x4), b1 = ~x3 & x4, b2 = x3 & ~x4, b3 = x3 & x4;
+        long r0 = ~(x0 | x5), r1 = ~x0 & x5, r2 = x0 & ~x5, r3 = x0 & x5;
+
+        long c0 = a0 & b0, c1 = a0 & b1, c2 = a0 & b2, c3 = a0 & b3;
+        long c4 = a1 & b0, c5 = a1 & b1, c6 = a1 & b2, c7 = a1 & b3;
+        long c8 = a2 & b0, c9 = a2 & b1, c10 = a2 & b2, c11 = a2 & b3;
+        long c12 = a3 & b0, c13 = a3 & b1, c14 = a3 & b2, c15 = a3 & b3;
+
+        out[o] = (r0 & (c0 | c2 | c5 | c6 | c7 | c9 | c11 | c13))
+                | (r1 & (c1 | c4 | c6 | c8 | c10 | c11 | c12 | c15))
+                | (r2 & (c2 | c3 | c4 | c7 | c8 | c9 | c10 | c13))
+                | (r3 & (c0 | c1 | c2 | c5 | c9 | c11 | c12 | c15));
+
+        out[o + 1] = (r0 & (c0 | c1 | c2 | c5 | c10 | c11 | c12 | c15))
+                | (r1 & (c1 | c2 | c3 | c4 | c6 | c9 | c10 | c13))
+                | (r2 & (c0 | c2 | c4 | c5 | c8 | c9 | c11 | c14))
+                | (r3 & (c0 | c1 | c4 | c7 | c8 | c11 | c14 | c15));
+
+        out[o + 2] = (r0 & (c0 | c4 | c5 | c6 | c8 | c9 | c10 | c15))
+                | (r1 & (c1 | c2 | c4 | c5 | c8 | c9 | c11 | c14))
+                | (r2 & (c2 | c5 | c6 | c7 | c8 | c11 | c12 | c13))
+                | (r3 & (c0 | c3 | c7 | c9 | c10 | c11 | c12 | c14));
+
+        out[o + 3] = (r0 & (c2 | c3 | c5 | c6 | c8 | c12 | c13 | c15))
+                | (r1 & (c1 | c2 | c6 | c7 | c11 | c12 | c13 | c14))
+                | (r2 & (c1 | c4 | c7 | c8 | c10 | c11 | c12 | c14))
+                | (r3 & (c0 | c5 | c6 | c7 | c8 | c9 | c10 | c15));
+    }
+
+    /**
+     * S-box 2 as a gate network.
+     */
+    private static void s2(long x0, long x1, long x2, long x3, long x4,
+            long x5, long[] out, int o) {
+
+        long a0 = ~(x1 | x2), a1 = ~x1 & x2, a2 = x1 & ~x2, a3 = x1 & x2;
+        long b0 = ~(x3 | x4), b1 = ~x3 & x4, b2 = x3 & ~x4, b3 = x3 & x4;
+        long r0 = ~(x0 | x5), r1 = ~x0 & x5, r2 = x0 & ~x5, r3 = x0 & x5;
+
+        long c0 = a0 & b0, c1 = a0 & b1, c2 = a0 & b2, c3 = a0 & b3;
+        long c4 = a1 & b0, c5 = a1 & b1, c6 = a1 & b2, c7 = a1 & b3;
+        long c8 = a2 & b0, c9 = a2 & b1, c10 = a2 & b2, c11 = a2 & b3;
+        long c12 = a3 & b0, c13 = a3 & b1, c14 = a3 & b2, c15 = a3 & b3;
+
+        out[o] = (r0 & (c0 | c2 | c3 | c5 | c8 | c11 | c12 | c15))
+                | (r1 & (c1 | c4 | c6 | c7 | c8 | c11 | c13 | c14))
+                | (r2 & (c1 | c3 | c4 | c6 | c9 | c10 | c12 | c15))
+                | (r3 & (c0 | c1 | c2 | c5 | c8 | c11 | c14 | c15));
+
+        out[o + 1] = (r0 & (c0 | c3 | c4 | c7 | c9 | c11 | c12 | c14))
+                | (r1 & (c1 | c2 | c3 | c4 | c7 | c8 | c12 | c15))
+                | (r2 & (c1 | c2 | c5 | c6 | c8 | c10 | c11 | c15))
+                | (r3 & (c0 | c5 | c6 | c9 | c10 | c11 | c13 | c14));
+
+        out[o + 2] = (r0 & (c0 | c3 | c4 | c5 | c6 | c9 | c10 | c15))
+                | (r1 & (c0 | c3 | c4 | c5 | c7 | c11 | c12 | c14))
+                | (r2 & (c1 | c2 | c3 | c4 | c11 | c13 | c14 | c15))
+                | (r3 & (c2 | c4 | c5 | c7 | c8 | c9 | c10 | c14));
+
+        out[o + 3] = (r0 & (c0 | c1 | c5 | c6 | c8 | c9 | c11 | c14))
+                | (r1 & (c0 | c1 | c3 | c4 | c10 | c13 | c14 | c15))
+                | (r2 & (c2 | c3 | c6 | c7 | c8 | c12 | c13 | c15))
+                | (r3 & (c0 | c3 | c4 | c5 | c8 | c10 | c13 | c15));
+    }
+
+    /**
+     * S-box 3 as a gate network.
+     */
+    private static void s3(long x0, long x1, long x2, long x3, long x4,
+            long x5, long[] out, int o) {
+
+        long a0 = ~(x1 | x2), a1 = ~x1 & x2, a2 = x1 & ~x2, a3 = x1 & x2;
+        long b0 = ~(x3 | x4), b1 = ~x3 & x4, b2 = x3 & ~x4, b3 = x3 & x4;
+        long r0 = ~(x0 | x5), r1 = ~x0 & x5, r2 = x0 & ~x5, r3 = x0 & x5;
+
+        long c0 = a0 & b0, c1 = a0 & b1, c2 = a0 & b2, c3 = a0 & b3;
+        long c4 = a1 & b0, c5 = a1 & b1, c6 = a1 & b2, c7 = a1 & b3;
+        long c8 = a2 & b0, c9 = a2 & b1, c10 = a2 & b2, c11 = a2 & b3;
+        long c12 = a3 & b0, c13 = a3 & b1, c14 = a3 & b2, c15 = a3 & b3;
+
+        out[o] = (r0 & (c0 | c2 | c3 | c6 | c9 | c10 | c12 | c15))
+                | (r1 & (c0 | c3 | c7 | c9 | c11 | c12 | c13 | c14))
+                | (r2 & (c0 | c3 | c4 | c5 | c8 | c11 | c13 | c14))
+                | (r3 & (c1 | c2 | c5 | c6 | c9 | c10 | c12 | c15));
+
+        out[o + 1] = (r0 & (c3 | c4 | c6 | c7 | c9 | c10 | c11 | c13))
+                | (r1 & (c0 | c1 | c5 | c6 | c10 | c11 | c12 | c14))
+                | (r2 & (c0 | c1 | c2 | c5 | c11 | c12 | c14 | c15))
+                | (r3 & (c2 | c4 | c7 | c8 | c9 | c10 | c13 | c15));
+
+        out[o + 2] = (r0 & (c0 | c3 | c4 | c5 | c6 | c11 | c12 | c14))
+                | (r1 & (c1 | c4 | c6 | c7 | c8 | c11 | c13 | c14))
+                | (r2 & (c1 | c5 | c6 | c8 | c10 | c13 | c14 | c15))
+                | (r3 & (c1 | c4 | c7 | c9 | c10 | c11 | c12 | c14));
+
+        out[o + 3] = (r0 & (c2 | c5 | c6 | c7 | c8 | c9 | c11 | c12))
+                | (r1 & (c0 | c1 | c3 | c4 | c10 | c13 | c14 | c15))
+                | (r2 & (c0 | c3 | c5 | c6 | c8 | c9 | c12 | c15))
+                | (r3 & (c0 | c2 | c5 | c7 | c9 | c11 | c12 | c13));
+    }
+
+    /**
+     * S-box 4 as a gate network.
+     */
+    private static void s4(long x0, long x1, long x2, long x3, long x4,
+            long x5, long[] out, int o) {
+
+        long a0 = ~(x1 | x2), a1 = ~x1 & x2, a2 = x1 & ~x2, a3 = x1 & x2;
+        long b0 = ~(x3 | x4), b1 = ~x3 & x4, b2 = x3 & ~x4, b3 = x3 & x4;
+        long r0 = ~(x0 | x5), r1 = ~x0 & x5, r2 = x0 & ~x5, r3 = x0 & x5;
+
+        long c0 = a0 & b0, c1 = a0 & b1, c2 = a0 & b2, c3 = a0 & b3;
+        long c4 = a1 & b0, c5 = a1 & b1, c6 = a1 & b2, c7 = a1 & b3;
+        long c8 = a2 & b0, c9 = a2 & b1, c10 = a2 & b2, c11 = a2 & b3;
+        long c12 = a3 & b0, c13 = a3 & b1, c14 = a3 & b2, c15 = a3 & b3;
+
+        out[o] = (r0 & (c1 | c2 | c6 | c7 | c10 | c12 | c13 | c15))
+                | (r1 & (c0 | c1 | c2 | c5 | c11 | c13 | c14 | c15))
+                | (r2 & (c0 | c2 | c4 | c5 | c7 | c8 | c11 | c14))
+                | (r3 & (c1 | c4 | c6 | c7 | c8 | c11 | c12 | c15));
+
+        out[o + 1] = (r0 & (c0 | c1 | c2 | c5 | c11 | c13 | c14 | c15))
+                | (r1 & (c0 | c3 | c4 | c5 | c8 | c9 | c11 | c14))
+                | (r2 & (c1 | c4 | c6 | c7 | c8 | c11 | c12 | c15))
+                | (r3 & (c1 | c3 | c6 | c9 | c10 | c12 | c13 | c15));
+
+        out[o + 2] = (r0 & (c0 | c2 | c3 | c5 | c7 | c9 | c12 | c15))
+                | (r1 & (c2 | c4 | c5 | c7 | c9 | c10 | c13 | c14))
+                | (r2 & (c0 | c1 | c5 | c6 | c8 | c10 | c11 | c13))
+                | (r3 & (c0 | c1 | c3 | c4 | c11 | c13 | c14 | c15));
+
+        out[o + 3] = (r0 & (c0 | c1 | c3 | c6 | c8 | c11 | c12 | c15))
+                | (r1 & (c0 | c2 | c3 | c5 | c7 | c9 | c12 | c15))
+                | (r2 & (c2 | c5 | c6 | c7 | c8 | c9 | c10 | c12))
+                | (r3 & (c0 | c1 | c5 | c6 | c8 | c10 | c11 | c13));
+    }
+
+    /**
+     * S-box 5 as a gate network.
+     */
+    private static void s5(long x0, long x1, long x2, long x3, long x4,
+            long x5, long[] out, int o) {
+
+        long a0 = ~(x1 | x2), a1 = ~x1 & x2, a2 = x1 & ~x2, a3 = x1 & x2;
+        long b0 = ~(x3 | x4), b1 = ~x3 & x4, b2 = x3 & ~x4, b3 = x3 & x4;
+        long r0 = ~(x0 | x5), r1 = ~x0 & x5, r2 = x0 & ~x5, r3 = x0 & x5;
+
+        long c0 = a0 & b0, c1 = a0 & b1, c2 = a0 & b2, c3 = a0 & b3;
+        long c4 = a1 & b0, c5 = a1 & b1, c6 = a1 & b2, c7 = a1 & b3;
+        long c8 = a2 & b0, c9 = a2 & b1, c10 = a2 & b2, c11 = a2 & b3;
+        long c12 = a3 & b0, c13 = a3 & b1, c14 = a3 & b2, c15 = a3 & b3;
+
+        out[o] = (r0 & (c1 | c5 | c6 | c8 | c11 | c12 | c14 | c15))
+                | (r1 & (c0 | c1 | c3 | c6 | c10 | c11 | c13 | c14))
+                | (r2 & (c3 | c4 | c5 | c7 | c8 | c9 | c10 | c15))
+                | (r3 & (c0 | c1 | c2 | c5 | c7 | c9 | c11 | c12));
+
+        out[o + 1] = (r0 & (c1 | c2 | c4 | c7 | c9 | c11 | c12 | c14))
+                | (r1 & (c0 | c3 | c4 | c5 | c6 | c8 | c10 | c15))
+                | (r2 & (c0 | c5 | c6 | c8 | c10 | c11 | c12 | c15))
+                | (r3 & (c2 | c3 | c5 | c7 | c8 | c9 | c13 | c14));
+
+        out[o + 2] = (r0 & (c0 | c4 | c5 | c6 | c7 | c10 | c11 | c14))
+                | (r1 & (c0 | c1 | c2 | c5 | c10 | c11 | c12 | c15))
+                | (r2 & (c1 | c3 | c4 | c6 | c8 | c12 | c13 | c15))
+                | (r3 & (c0 | c3 | c5 | c6 | c8 | c9 | c12 | c15));
+
+        out[o + 3] = (r0 & (c3 | c4 | c6 | c9 | c10 | c11 | c12 | c15))
+                | (r1 & (c1 | c5 | c6 | c7 | c8 | c10 | c12 | c13))
+                | (r2 & (c2 | c3 | c5 | c6 | c8 | c9 | c11 | c13))
+                | (r3 & (c0 | c3 | c4 | c7 | c9 | c11 | c14 | c15));
+    }
+
+    /**
+     * S-box 6 as a gate network.
+     */
+    private static void s6(long x0, long x1, long x2, long x3, long x4,
+            long x5, long[] out, int o) {
+
+        long a0 = ~(x1 | x2), a1 = ~x1 & x2, a2 = x1 & ~x2, a3 = x1 & x2;
+        long b0 = ~(x3 | x4), b1 = ~x3 & x4, b2 = x3 & ~x4, b3 = x3 & x4;
+        long r0 = ~(x0 | x5), r1 = ~x0 & x5, r2 = x0 & ~x5, r3 = x0 & x5;
+
+        long c0 = a0 & b0, c1 = a0 & b1, c2 = a0 & b2, c3 = a0 & b3;
+        long c4 = a1 & b0, c5 = a1 & b1, c6 = a1 & b2, c7 = a1 & b3;
+        long c8 = a2 & b0, c9 = a2 & b1, c10 = a2 & b2, c11 = a2 & b3;
+        long c12 = a3 & b0, c13 = a3 & b1, c14 = a3 & b2, c15 = a3 & b3;
+
+        out[o] = (r0 & (c0 | c2 | c3 | c4 | c7 | c9 | c12 | c15))
+                | (r1 & (c0 | c1 | c5 | c6 | c10 | c11 | c13 | c15))
+                | (r2 & (c0 | c1 | c2 | c5 | c6 | c11 | c13 | c14))
+                | (r3 & (c3 | c4 | c6 | c7 | c8 | c9 | c14 | c15));
+
+        out[o + 1] = (r0 & (c0 | c3 | c6 | c9 | c11 | c12 | c13 | c14))
+                | (r1 & (c1 | c2 | c4 | c5 | c7 | c8 | c10 | c11))
+                | (r2 & (c1 | c2 | c3 | c6 | c8 | c10 | c13 | c15))
+                | (r3 & (c0 | c3 | c5 | c6 | c9 | c11 | c12 | c15));
+
+        out[o + 2] = (r0 & (c2 | c3 | c5 | c6 | c10 | c12 | c13 | c15))
+                | (r1 & (c0 | c1 | c3 | c4 | c8 | c11 | c13 | c14))
+                | (r2 & (c1 | c2 | c4 | c7 | c8 | c11 | c14 | c15))
+                | (r3 & (c1 | c2 | c6 | c7 | c8 | c9 | c11 | c12));
+
+        out[o + 3] = (r0 & (c1 | c3 | c4 | c9 | c10 | c13 | c14 | c15))
+                | (r1 & (c1 | c4 | c6 | c7 | c9 | c10 | c13 | c14))
+                | (r2 & (c0 | c2 | c3 | c7 | c8 | c12 | c13 | c14))
+                | (r3 & (c1 | c4 | c5 | c6 | c8 | c10 | c11 | c15));
+    }
+
+    /**
+     * S-box 7 as a gate network.
+     */
+    private static void s7(long x0, long x1, long x2, long x3, long x4,
+            long x5, long[] out, int o) {
+
+        long a0 = ~(x1 | x2), a1 = ~x1 & x2, a2 = x1 & ~x2, a3 = x1 & x2;
+        long b0 = ~(x3 | x4), b1 = ~x3 & x4, b2 = x3 & ~x4, b3 = x3 & x4;
+        long r0 = ~(x0 | x5), r1 = ~x0 & x5, r2 = x0 & ~x5, r3 = x0 & x5;
+
+        long c0 = a0 & b0, c1 = a0 & b1, c2 = a0 & b2, c3 = a0 & b3;
+        long c4 = a1 & b0, c5 = a1 & b1, c6 = a1 & b2, c7 = a1 & b3;
+        long c8 = a2 & b0, c9 = a2 & b1, c10 = a2 & b2, c11 = a2 & b3;
+        long c12 = a3 & b0, c13 = a3 & b1, c14 = a3 & b2, c15 = a3 & b3;
+
+        out[o] = (r0 & (c1 | c3 | c4 | c6 | c7 | c9 | c10 | c13))
+                | (r1 & (c0 | c2 | c5 | c7 | c8 | c11 | c13 | c14))
+                | (r2 & (c2 | c3 | c4 | c7 | c8 | c9 | c11 | c14))
+                | (r3 & (c1 | c2 | c3 | c6 | c8 | c11 | c12 | c15));
+
+        out[o + 1] = (r0 & (c0 | c3 | c4 | c7 | c9 | c11 | c12 | c14))
+                | (r1 & (c0 | c3 | c4 | c8 | c10 | c11 | c13 | c15))
+                | (r2 & (c1 | c3 | c4 | c6 | c7 | c9 | c10 | c13))
+                | (r3 & (c0 | c2 | c5 | c7 | c9 | c11 | c12 | c15));
+
+        out[o + 2] = (r0 & (c1 | c2 | c3 | c4 | c8 | c11 | c13 | c14))
+                | (r1 & (c2 | c3 | c7 | c8 | c9 | c12 | c13 | c15))
+                | (r2 & (c2 | c5 | c6 | c7 | c8 | c9 | c10 | c15))
+                | (r3 & (c0 | c1 | c6 | c7 | c11 | c12 | c13 | c14));
+
+        out[o + 3] = (r0 & (c1 | c4 | c7 | c8 | c10 | c11 | c12 | c15))
+                | (r1 & (c0 | c2 | c3 | c5 | c6 | c9 | c10 | c13))
+                | (r2 & (c0 | c2 | c3 | c5 | c6 | c9 | c13 | c14))
+                | (r3 & (c1 | c2 | c4 | c7 | c8 | c9 | c11 | c14));
+    }
+
+    /**
+     * S-box 8 as a gate network.
+     */
+    private static void s8(long x0, long x1, long x2, long x3, long x4,
+            long x5, long[] out, int o) {
+
+        long a0 = ~(x1 | x2), a1 = ~x1 & x2, a2 = x1 & ~x2, a3 = x1 & x2;
+        long b0 = ~(x3 | x4), b1 = ~x3 & x4, b2 = x3 & ~x4, b3 = x3 & x4;
+        long r0 = ~(x0 | x5), r1 = ~x0 & x5, r2 = x0 & ~x5, r3 = x0 & x5;
+
+        long c0 = a0 & b0, c1 = a0 & b1, c2 = a0 & b2, c3 = a0 & b3;
+        long c4 = a1 & b0, c5 = a1 & b1, c6 = a1 & b2, c7 = a1 & b3;
+        long c8 = a2 & b0, c9 = a2 & b1, c10 = a2 & b2, c11 = a2 & b3;
+        long c12 = a3 & b0, c13 = a3 & b1, c14 = a3 & b2, c15 = a3 & b3;
+
+        out[o] = (r0 & (c0 | c2 | c5 | c6 | c8 | c9 | c11 | c14))
+                | (r1 & (c1 | c2 | c3 | c4 | c8 | c11 | c13 | c14))
+                | (r2 & (c1 | c4 | c5 | c6 | c10 | c11 | c12 | c15))
+                | (r3 & (c2 | c5 | c6 | c7 | c8 | c9 | c10 | c15));
+
+        out[o + 1] = (r0 & (c0 | c3 | c4 | c5 | c11 | c12 | c14 | c15))
+                | (r1 & (c1 | c2 | c6 | c7 | c8 | c9 | c10 | c13))
+                | (r2 & (c0 | c2 | c5 | c6 | c9 | c11 | c12 | c14))
+                | (r3 & (c2 | c3 | c4 | c7 | c8 | c9 | c13 | c14));
+
+        out[o + 2] = (r0 & (c1 | c4 | c5 | c6 | c8 | c10 | c11 | c15))
+                | (r1 & (c1 | c4 | c5 | c6 | c10 | c11 | c13 | c15))
+                | (r2 & (c0 | c1 | c6 | c7 | c9 | c10 | c12 | c13))
+                | (r3 & (c0 | c2 | c3 | c5 | c8 | c12 | c14 | c15));
+
+        out[o + 3] = (r0 & (c0 | c5 | c6 | c7 | c9 | c10 | c12 | c15))
+                | (r1 & (c0 | c1 | c2 | c5 | c6 | c9 | c11 | c14))
+                | (r2 & (c0 | c1 | c3 | c4 | c11 | c12 | c13 | c14))
+                | (r3 & (c1 | c3 | c7 | c8 | c10 | c12 | c13 | c15));
+    }
+
+    /**
+     * The arrays one thread uses while running batches through DES. crypt
+     * only uses l, r, e and s, which it overwrites before reading, and leaves
+     * batch to its caller.
+     */
+    static final class Workspace {
+
+        final long[] batch = new long[BATCH],
+                l = new long[32],
+                r = new long[32],
+                e = new long[48],
+                s = new long[32];
+    }
+}
@@ -0,0 +1,69 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * BlockCipher.java
+ *
+ * BlockCipher is the interface between a cipher with a 64-bit block, such as
+ * DES, and the modes of operation in CipherModes.java. An implementation only
+ * has to know how to encrypt and decrypt a single block held in a long; the
+ * modes take care of chaining, counters, padding and splitting the work.
+ *
+ * Implementations must be safe to call from several threads at once, since
+ * CipherModes may encrypt different parts of one message in parallel.
+ *
+ * Where blocks are independent of each other (ECB, and the keystream of CTR),
+ * CipherModes hands them over in batches through encryptBlocks and
+ * decryptBlocks. By default these just go one block at a time, but an
+ * implementation such as DESBlockCipher can do a whole batch at once.
+ */
+public interface BlockCipher {
+
+    /**
+     * Encrypt a single 64-bit block.
+     *
+     * @param block the 64-bit block of plaintext
+     * @return the 64-bit block of ciphertext
+     */
+    long encryptBlock(long block);
+
+    /**
+     * Decrypt a single 64-bit block.
+     *
+     * @param block the 64-bit block of ciphertext
+     * @return the 64-bit block of plaintext
+     */
+    long decryptBlock(long block);
+
+    /**
+     * Encrypt a batch of independent 64-bit blocks in place.
+     *
+     * @param blocks the array holding the blocks
+     * @param off the index of the first block
+     * @param len the number of blocks
+     */
+    default void encryptBlocks(long[] blocks, int off, int len) {
+
+        for (int x = off; x < off + len; ++x) {
+
+            blocks[x] = encryptBlock(blocks[x]);
+        }
+    }
+
+    /**
+     * Decrypt a batch of independent 64-bit blocks in place.
+     *
+     * @param blocks the array holding the blocks
+     * @param off the index of the first block
+     * @param len the number of blocks
+     */
+    default void decryptBlocks(long[] blocks, int off, int len) {
+
+        for (int x = off; x < off + len; ++x) {
+
+            blocks[x] = decryptBlock(blocks[x]);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * BufferPool.java
+ *
+ * BufferPool.java keeps direct ByteBuffers of one size for reuse, so a server
+ * can receive and send packets without allocating a buffer for each one.
+ * Direct buffers are what the operating system reads from and writes to, so a
+ * DatagramChannel can use them without copying through a temporary buffer, but
+ * they are slow to allocate and are only freed by the garbage collector, which
+ * makes them worth keeping.
+ *
+ * acquire hands out a pooled buffer, or allocates a new one if the pool is
+ * empty; release gives it back, cleared, for the next packet. At most
+ * 'maxPooled' buffers are kept, so a burst that needs more than that doesn't
+ * leave them all behind afterwards. The number of buffers allocated in total
+ * shows whether the pool is big enough: once the server has warmed up it
+ * should stop going up.
+ *
+ * A BufferPool can be shared by several threads.
+ */
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+public class BufferPool {
+
+    private final int bufferSize, maxPooled;
+    private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>();
+    private long allocated;
+
+    /**
+     * Create a pool, allocating 'initial' buffers up front.
+     *
+     * @param bufferSize the capacity of each buffer
+     * @param initial the number of buffers to allocate now
+     * @param maxPooled the most buffers to keep
+     */
+    public BufferPool(int bufferSize, int initial, int maxPooled) {
+
+        if (bufferSize < 1 || initial < 0 || maxPooled < initial) {
+
+            throw new IllegalArgumentException("Pool must have 0 <= initial "
+                    + "<= maxPooled buffers of at least 1 byte");
+        }
+
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+
+        for (int x = 0; x < initial; ++x) {
+
+            pool.push(allocate());
+        }
+    }
+
+    /**
+     * Take a buffer from the pool, or allocate one if the pool is empty.
+     *
+     * @return a cleared buffer of getBufferSize() bytes
+     */
+    public synchronized ByteBuffer acquire() {
+
+        ByteBuffer buffer = pool.poll();
+
+        return buffer != null ? buffer : allocate();
+    }
+
+    /**
+     * Give a buffer back to the pool. It must not be used again by the
+     * caller.
+     *
+     * @param buffer a buffer from acquire
+     */
+    public synchronized void release(ByteBuffer buffer) {
+
+        if (buffer.capacity() != bufferSize || !buffer.isDirect()) {
+
+            throw new IllegalArgumentException("Buffer is not from this pool");
+        }
+
+        if (pool.size() < maxPooled) {
+
+            buffer.clear();
+
+            pool.push(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+
+        return bufferSize;
+    }
+
+    /**
+     * The number of buffers waiting in the pool.
+     *
+     * @return the number of pooled buffers
+     */
+    public synchronized int getPooled() {
+
+        return pool.size();
+    }
+
+    /**
+     * The number of buffers allocated since the pool was created, including
+     * the initial ones.
+     *
+     * @return the number of buffers allocated
+     */
+    public synchronized long getAllocated() {
+
+        return allocated;
+    }
+
+    @Override
+    public synchronized String toString() {
+
+        return "BufferPool[bufferSize=" + bufferSize + ", pooled="
+                + pool.size() + ", allocated=" + allocated + "]";
+    }
+
+    private ByteBuffer allocate() {
+
+        ++allocated;
+
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+}
@@ -0,0 +1,327 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * ChaCha20.java
+ *
+ * ChaCha20.java provides the ChaCha20 stream cipher of RFC 8439, written in
+ * plain Java. Like RC4 it produces a keystream that is XORed with the message,
+ * so encryption and decryption are the same operation, but it is built only
+ * from 32-bit additions, XORs and rotations, which run at the same speed on
+ * any processor. Where AES has no hardware support, ChaCha20 is the fast
+ * choice, and unlike RC4 it has no known weaknesses.
+ *
+ * The keystream comes in 64-byte blocks. Each block is 20 rounds over a 4x4
+ * matrix of ints holding a constant, the 256-bit key, a 32-bit block counter
+ * and a 96-bit nonce. Because every block depends only on its counter, any
+ * block can be produced without the ones before it, the same as CTR mode.
+ * The matrix is kept in local variables for the whole block, so the JIT can
+ * hold it in registers, and whole blocks are XORed into the message four
+ * bytes at a time straight from those locals.
+ *
+ * A nonce must never be used twice with the same key. encryptMessage chooses
+ * a random 12-byte nonce for every message and writes it in front of the
+ * ciphertext, the same way CipherModes.java does with its IV.
+ *
+ * A ChaCha20 only holds the key, so one can be shared by any number of
+ * threads.
+ */
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+
+public final class ChaCha20 {
+
+    public static final int KEY_LENGTH = 32, NONCE_LENGTH = 12,
+            BLOCK_LENGTH = 64;
+
+    /**
+     * The counter of the first block used for a message. Block 0 is left for
+     * the Poly1305 key, as in RFC 8439.
+     */
+    public static final int INITIAL_COUNTER = 1;
+
+    /**
+     * "expand 32-byte k" as four little-endian ints.
+     */
+    private static final int C0 = 0x61707865, C1 = 0x3320646e,
+            C2 = 0x79622d32, C3 = 0x6b206574;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int k0, k1, k2, k3, k4, k5, k6, k7;
+
+    /**
+     * Create a cipher for a key.
+     *
+     * @param key the 256-bit key
+     */
+    public ChaCha20(byte[] key) {
+
+        if (key.length != KEY_LENGTH) {
+
+            throw new IllegalArgumentException("Key must be " + KEY_LENGTH
+                    + " bytes");
+        }
+
+        k0 = getInt(key, 0);
+        k1 = getInt(key, 4);
+        k2 = getInt(key, 8);
+        k3 = getInt(key, 12);
+        k4 = getInt(key, 16);
+        k5 = getInt(key, 20);
+        k6 = getInt(key, 24);
+        k7 = getInt(key, 28);
+    }
+
+    /**
+     * Create a cipher from a String key, one byte per character.
+     *
+     * @param key the key, 32 characters
+     */
+    public ChaCha20(String key) {
+
+        this(key.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * XOR len bytes of keystream into b, in place.
+     *
+     * @param nonce the array holding the nonce
+     * @param nonceOff the offset of the nonce
+     * @param counter the counter of the first block
+     * @param b the array
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     */
+    public void crypt(byte[] nonce, int nonceOff, int counter, byte[] b,
+            int off, int len) {
+
+        crypt(nonce, nonceOff, counter, b, off, len, b, off);
+    }
+
+    /**
+     * XOR len bytes of keystream with in, writing the result to out. in and
+     * out may be the same array, as long as the output does not start after
+     * the input.
+     *
+     * @param nonce the array holding the nonce
+     * @param nonceOff the offset of the nonce
+     * @param counter the counter of the first block
+     * @param in the array holding the input
+     * @param inOff the offset of the first byte of input
+     * @param len the number of bytes
+     * @param out the array to write the output into
+     * @param outOff the offset to write the first byte of output at
+     */
+    public void crypt(byte[] nonce, int nonceOff, int counter, byte[] in,
+            int inOff, int len, byte[] out, int outOff) {
+
+        if (inOff < 0 || len < 0 || inOff + len > in.length) {
+
+            throw new IllegalArgumentException("Input out of bounds");
+        }
+
+        if (outOff < 0 || outOff + len > out.length) {
+
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+
+        /**
+         * The counter is 32 bits, so one nonce covers at most 2^32 blocks.
+         */
+        long blocks = ((long) len + BLOCK_LENGTH - 1) / BLOCK_LENGTH;
+
+        if ((counter & 0xFFFFFFFFL) + blocks > 0x100000000L) {
+
+            throw new IllegalArgumentException("Block counter would wrap");
+        }
+
+        int n0 = getInt(nonce, nonceOff), n1 = getInt(nonce, nonceOff + 4),
+                n2 = getInt(nonce, nonceOff + 8);
+
+        for (int x = 0; x < len; x += BLOCK_LENGTH, ++counter) {
+
+            int n = Math.min(BLOCK_LENGTH, len - x);
+
+            if (n == BLOCK_LENGTH) {
+
+                block(n0, n1, n2, counter, in, inOff + x, out, outOff + x);
+
+            } else {
+
+                /**
+                 * The last block of the message is short, so produce the
+                 * keystream on its own and XOR as much of it as is needed.
+                 */
+                byte[] last = new byte[BLOCK_LENGTH];
+
+                block(n0, n1, n2, counter, last, 0, last, 0);
+
+                XorKernel.xor(in, inOff + x, last, 0, out, outOff + x, n);
+            }
+        }
+    }
+
+    /**
+     * Encrypt a message in place with a random nonce. The message is moved
+     * along to make room for the nonce in front of it.
+     *
+     * @param b the array holding the message, with room for NONCE_LENGTH +
+     * len bytes from off
+     * @param off the offset of the first byte of the message
+     * @param len the length of the message
+     * @return the length of the nonce and ciphertext
+     */
+    public int encryptMessage(byte[] b, int off, int len) {
+
+        System.arraycopy(b, off, b, off + NONCE_LENGTH, len);
+
+        byte[] nonce = new byte[NONCE_LENGTH];
+
+        RANDOM.nextBytes(nonce);
+
+        System.arraycopy(nonce, 0, b, off, NONCE_LENGTH);
+
+        crypt(b, off, INITIAL_COUNTER, b, off + NONCE_LENGTH, len);
+
+        return NONCE_LENGTH + len;
+    }
+
+    /**
+     * Decrypt a message produced by encryptMessage in place. The plaintext is
+     * written from off, over the nonce.
+     *
+     * @param b the array holding the nonce and ciphertext
+     * @param off the offset of the nonce
+     * @param len the length of the nonce and ciphertext
+     * @return the length of the plaintext
+     */
+    public int decryptMessage(byte[] b, int off, int len) {
+
+        if (len < NONCE_LENGTH) {
+
+            throw new IllegalArgumentException("Message is missing its nonce");
+        }
+
+        int n = len - NONCE_LENGTH;
+
+        crypt(b, off, INITIAL_COUNTER, b, off + NONCE_LENGTH, n);
+
+        System.arraycopy(b, off + NONCE_LENGTH, b, off, n);
+
+        return n;
+    }
+
+    /**
+     * Produce one block of keystream and XOR it with 64 bytes of in, writing
+     * the result to out.
+     *
+     * @param n0 the first int of the nonce
+     * @param n1 the second int of the nonce
+     * @param n2 the third int of the nonce
+     * @param counter the block counter
+     * @param in the array holding the input
+     * @param inOff the offset of the input
+     * @param out the array to write the output into
+     * @param outOff the offset to write the output at
+     */
+    private void block(int n0, int n1, int n2, int counter, byte[] in,
+            int inOff, byte[] out, int outOff) {
+
+        int x0 = C0, x1 = C1, x2 = C2, x3 = C3,
+                x4 = k0, x5 = k1, x6 = k2, x7 = k3,
+                x8 = k4, x9 = k5, x10 = k6, x11 = k7,
+                x12 = counter, x13 = n0, x14 = n1, x15 = n2;
+
+        /**
+         * Ten double rounds: a quarter round down each column, then along
+         * each diagonal.
+         */
+        for (int r = 0; r < 10; ++r) {
+
+            x0 += x4; x12 = Integer.rotateLeft(x12 ^ x0, 16);
+            x8 += x12; x4 = Integer.rotateLeft(x4 ^ x8, 12);
+            x0 += x4; x12 = Integer.rotateLeft(x12 ^ x0, 8);
+            x8 += x12; x4 = Integer.rotateLeft(x4 ^ x8, 7);
+
+            x1 += x5; x13 = Integer.rotateLeft(x13 ^ x1, 16);
+            x9 += x13; x5 = Integer.rotateLeft(x5 ^ x9, 12);
+            x1 += x5; x13 = Integer.rotateLeft(x13 ^ x1, 8);
+            x9 += x13; x5 = Integer.rotateLeft(x5 ^ x9, 7);
+
+            x2 += x6; x14 = Integer.rotateLeft(x14 ^ x2, 16);
+            x10 += x14; x6 = Integer.rotateLeft(x6 ^ x10, 12);
+            x2 += x6; x14 = Integer.rotateLeft(x14 ^ x2, 8);
+            x10 += x14; x6 = Integer.rotateLeft(x6 ^ x10, 7);
+
+            x3 += x7; x15 = Integer.rotateLeft(x15 ^ x3, 16);
+            x11 += x15; x7 = Integer.rotateLeft(x7 ^ x11, 12);
+            x3 += x7; x15 = Integer.rotateLeft(x15 ^ x3, 8);
+            x11 += x15; x7 = Integer.rotateLeft(x7 ^ x11, 7);
+
+            x0 += x5; x15 = Integer.rotateLeft(x15 ^ x0, 16);
+            x10 += x15; x5 = Integer.rotateLeft(x5 ^ x10, 12);
+            x0 += x5; x15 = Integer.rotateLeft(x15 ^ x0, 8);
+            x10 += x15; x5 = Integer.rotateLeft(x5 ^ x10, 7);
+
+            x1 += x6; x12 = Integer.rotateLeft(x12 ^ x1, 16);
+            x11 += x12; x6 = Integer.rotateLeft(x6 ^ x11, 12);
+            x1 += x6; x12 = Integer.rotateLeft(x12 ^ x1, 8);
+            x11 += x12; x6 = Integer.rotateLeft(x6 ^ x11, 7);
+
+            x2 += x7; x13 = Integer.rotateLeft(x13 ^ x2, 16);
+            x8 += x13; x7 = Integer.rotateLeft(x7 ^ x8, 12);
+            x2 += x7; x13 = Integer.rotateLeft(x13 ^ x2, 8);
+            x8 += x13; x7 = Integer.rotateLeft(x7 ^ x8, 7);
+
+            x3 += x4; x14 = Integer.rotateLeft(x14 ^ x3, 16);
+            x9 += x14; x4 = Integer.rotateLeft(x4 ^ x9, 12);
+            x3 += x4; x14 = Integer.rotateLeft(x14 ^ x3, 8);
+            x9 += x14; x4 = Integer.rotateLeft(x4 ^ x9, 7);
+        }
+
+        xor(in, inOff, out, outOff, x0 + C0);
+        xor(in, inOff + 4, out, outOff + 4, x1 + C1);
+        xor(in, inOff + 8, out, outOff + 8, x2 + C2);
+        xor(in, inOff + 12, out, outOff + 12, x3 + C3);
+        xor(in, inOff + 16, out, outOff + 16, x4 + k0);
+        xor(in, inOff + 20, out, outOff + 20, x5 + k1);
+        xor(in, inOff + 24, out, outOff + 24, x6 + k2);
+        xor(in, inOff + 28, out, outOff + 28, x7 + k3);
+        xor(in, inOff + 32, out, outOff + 32, x8 + k4);
+        xor(in, inOff + 36, out, outOff + 36, x9 + k5);
+        xor(in, inOff + 40, out, outOff + 40, x10 + k6);
+        xor(in, inOff + 44, out, outOff + 44, x11 + k7);
+        xor(in, inOff + 48, out, outOff + 48, x12 + counter);
+        xor(in, inOff + 52, out, outOff + 52, x13 + n0);
+        xor(in, inOff + 56, out, outOff + 56, x14 + n1);
+        xor(in, inOff + 60, out, outOff + 60, x15 + n2);
+    }
+
+    /**
+     * XOR one little-endian int of keystream with four bytes of in, writing
+     * the result to out.
+     *
+     * @param in the array holding the input
+     * @param inOff the offset of the input
+     * @param out the array to write the output into
+     * @param outOff the offset to write the output at
+     * @param k the keystream int
+     */
+    private static void xor(byte[] in, int inOff, byte[] out, int outOff,
+            int k) {
+
+        out[outOff] = (byte) (in[inOff] ^ k);
+        out[outOff + 1] = (byte) (in[inOff + 1] ^ (k >>> 8));
+        out[outOff + 2] = (byte) (in[inOff + 2] ^ (k >>> 16));
+        out[outOff + 3] = (byte) (in[inOff + 3] ^ (k >>> 24));
+    }
+
+    private static int getInt(byte[] b, int off) {
+
+        return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8)
+                | ((b[off + 2] & 0xFF) << 16) | (b[off + 3] << 24);
+    }
+}
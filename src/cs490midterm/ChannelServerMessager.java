@@ -0,0 +1,671 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * ChannelServerMessager.java
+ *
+ * ChannelServerMessager is a second transport for the server, doing the same
+ * job as ServerMessager with java.nio instead of a blocking DatagramSocket. It
+ * binds a non-blocking DatagramChannel to each of the addresses it is given
+ * and waits on all of them with one Selector, so a single thread serves every
+ * address. It takes at most MAX_PACKETS_PER_SELECT packets from a channel
+ * before going back to the selector, so a busy address can't starve the
+ * rest.
+ *
+ * Packets are received into and sent from direct ByteBuffers taken from a
+ * BufferPool, and each packet is decrypted, answered and encrypted again in
+ * one work array through the ByteBuffer methods of MessageHandler.java. The
+ * uppercase reply is made in place in the work array, so once the pool has
+ * warmed up nothing is allocated per packet apart from the log, and nothing
+ * at all if the ServerLog's level leaves out the entries for every packet.
+ *
+ * If a channel can't take a reply straight away, the reply waits in a queue
+ * for that channel, still in its pooled buffer, and the channel is watched for
+ * room to write as well as for packets. Each channel counts the packets it
+ * has received, the replies it has sent, the replies it had to drop because
+ * too many were waiting, and the packets that couldn't be answered.
+ *
+ * With SO_REUSEPORT, several ChannelServerMessagers can bind to the same
+ * address and port, each with its own selector thread, and the kernel spreads
+ * the clients across them. ListenerGroup.java sets that up.
+ */
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+public class ChannelServerMessager extends Thread {
+
+    /**
+     * The maximum size of the messages able to be sent at one time.
+     */
+    final int MAX_BUFFER_SIZE = 256;
+
+    /**
+     * The ChannelServerMessager instance will wait this amount of time (in
+     * ms) for a message from any client before closing its channels.
+     */
+    final int TIMEOUT = 3000000;
+
+    /**
+     * The number of buffers allocated when the server starts, and the most
+     * kept in the pool.
+     */
+    final int INITIAL_BUFFERS = 16, MAX_POOLED_BUFFERS = 1024;
+
+    /**
+     * The String constant 'KEY_STRING' is the ASCII of the 64-bit key to be
+     * used in calls to both RC4.java and DES.java. The project instructions
+     * require that the same key is used for everything and cannot be changed
+     * dynamically. A different key is needed for AES because of the increased
+     * bit-length of the minimum key.
+     */
+    final String KEY_STRING = "iamakey!";
+
+    /**
+     * AES requires a 128-bit key at the minimum.
+     */
+    final String AES_KEY_STRING = "AES 128-bit key!";
+
+    /**
+     * The 192-bit key used for Triple-DES, as three independent 64-bit DES
+     * keys.
+     */
+    final String TDES_KEY_STRING = "iamakey!andanotherthird!";
+
+    /**
+     * The 256-bit key used for ChaCha20.
+     */
+    final String CHACHA20_KEY_STRING = "ChaCha20 256-bit key for CS490!!";
+
+    /**
+     * The most RC4 sessions kept at once. The least recently used session is
+     * dropped to make room for a new one.
+     */
+    final int MAX_RC4_SESSIONS = 256;
+
+    /**
+     * Every mode the server understands, with the RC4 session engine keeping
+     * track of the sessions started by clients.
+     */
+    final MessageHandler messages;
+
+    final BufferPool buffers;
+
+    /**
+     * The most replies kept waiting for one channel to have room. Any more
+     * are dropped, as the socket would drop them if it were blocking.
+     */
+    final int MAX_WAITING_REPLIES = 256;
+
+    /**
+     * The most packets taken from one channel each time the selector says it
+     * is readable. Any more wait for the next select, so that one flooded
+     * address can't keep the thread from the others.
+     */
+    final int MAX_PACKETS_PER_SELECT = 64;
+
+    Selector selector;
+    InetSocketAddress[] serverSocketAddrs;
+
+    /**
+     * The counters of every channel, in the order of serverSocketAddrs. They
+     * are kept here as well as attached to the channels' keys, since the
+     * selector's key set can't safely be read from another thread, and they
+     * outlive the channels, so the final counts can be read after close.
+     */
+    private final Listener[] listeners;
+
+    ServerLog log;
+
+    /**
+     * The ServerUI that started this ChannelServerMessager, or null without
+     * one.
+     */
+    ServerUI server;
+
+    public ChannelServerMessager(String serverIP, String serverPort,
+            ServerUI server) throws IOException {
+
+        this("Channel Server Messager", server,
+                new InetSocketAddress(serverIP, Integer.parseInt(serverPort)));
+    }
+
+    public ChannelServerMessager(String name, ServerUI server,
+            InetSocketAddress... serverSocketAddrs) throws IOException {
+
+        this(name, server, server.log, null, null, false, serverSocketAddrs);
+    }
+
+    /**
+     * Create a ChannelServerMessager without a ServerUI, such as for
+     * HeadlessServer, that may share its engines and buffers with others, as
+     * the members of a ListenerGroup do.
+     *
+     * @param name the name of the thread
+     * @param log the log
+     * @param messages the MessageHandler to use, or null for a new one
+     * @param buffers the BufferPool to use, or null for a new one
+     * @param reusePort whether to set SO_REUSEPORT, so that other channels
+     * can be bound to the same addresses
+     * @param serverSocketAddrs the addresses to bind to
+     * @throws IOException if a channel can't be opened or bound
+     */
+    public ChannelServerMessager(String name, ServerLog log,
+            MessageHandler messages, BufferPool buffers, boolean reusePort,
+            InetSocketAddress... serverSocketAddrs) throws IOException {
+
+        this(name, null, log, messages, buffers, reusePort,
+                serverSocketAddrs);
+    }
+
+    /**
+     * Create a ChannelServerMessager that may share its engines and buffers
+     * with others, as the members of a ListenerGroup do.
+     *
+     * @param name the name of the thread
+     * @param server the ServerUI that started it, or null
+     * @param log the log
+     * @param messages the MessageHandler to use, or null for a new one
+     * @param buffers the BufferPool to use, or null for a new one
+     * @param reusePort whether to set SO_REUSEPORT, so that other channels
+     * can be bound to the same addresses
+     * @param serverSocketAddrs the addresses to bind to
+     * @throws IOException if a channel can't be opened or bound
+     */
+    ChannelServerMessager(String name, ServerUI server, ServerLog log,
+            MessageHandler messages, BufferPool buffers, boolean reusePort,
+            InetSocketAddress... serverSocketAddrs) throws IOException {
+
+        super(name);
+
+        if (serverSocketAddrs.length == 0) {
+
+            throw new IllegalArgumentException("No address to bind to");
+        }
+
+        this.serverSocketAddrs = serverSocketAddrs;
+        this.server = server;
+        this.log = log;
+
+        this.messages = messages != null ? messages : new MessageHandler(
+                CipherEngines.standard(KEY_STRING, AES_KEY_STRING,
+                        TDES_KEY_STRING, CHACHA20_KEY_STRING)
+                .register(CipherEngines.rc4Sessions(KEY_STRING,
+                        MAX_RC4_SESSIONS)));
+
+        this.buffers = buffers != null ? buffers : new BufferPool(
+                MAX_BUFFER_SIZE, INITIAL_BUFFERS, MAX_POOLED_BUFFERS);
+
+        listeners = new Listener[serverSocketAddrs.length];
+
+        selector = Selector.open();
+
+        try {
+
+            for (int x = 0; x < serverSocketAddrs.length; ++x) {
+
+                InetSocketAddress addr = serverSocketAddrs[x];
+
+                DatagramChannel channel = DatagramChannel.open();
+
+                try {
+
+                    channel.configureBlocking(false);
+
+                    if (reusePort) {
+
+                        channel.setOption(StandardSocketOptions.SO_REUSEPORT,
+                                true);
+                    }
+
+                    channel.bind(addr);
+
+                    listeners[x] = new Listener(addr);
+
+                    channel.register(selector, SelectionKey.OP_READ,
+                            listeners[x]);
+
+                } catch (IOException | RuntimeException ex) {
+
+                    channel.close();
+
+                    throw ex;
+                }
+            }
+
+        } catch (IOException | RuntimeException ex) {
+
+            close();
+
+            throw ex;
+        }
+    }
+
+    @Override
+    public void run() {
+
+        for (InetSocketAddress addr : serverSocketAddrs) {
+
+            log.log(ServerLog.Level.INFO,
+                    "Channel server messager service started on ",
+                    addr.getAddress(), " port ", addr.getPort(), "\n");
+        }
+
+        log.log(ServerLog.Level.INFO,
+                "Listening for message from client...\n\n");
+
+        /**
+         * Every packet is decrypted and its reply encrypted in this array.
+         */
+        byte[] work = new byte[MAX_BUFFER_SIZE];
+
+        try {
+
+            while (true) {
+
+                if (selector.select(TIMEOUT) == 0) {
+
+                    log.log(ServerLog.Level.INFO,
+                            "Channel server messager service timed out after "
+                            + "waiting ", TIMEOUT, " ms for client message, "
+                            + "closing channels\n", getStats(), buffers,
+                            "\n");
+
+                    break;
+                }
+
+                Iterator<SelectionKey> keys
+                        = selector.selectedKeys().iterator();
+
+                while (keys.hasNext()) {
+
+                    SelectionKey key = keys.next();
+
+                    keys.remove();
+
+                    if (key.isWritable()) {
+
+                        flush(key);
+                    }
+
+                    if (key.isReadable()) {
+
+                        receive(key, work);
+                    }
+                }
+            }
+
+        } catch (IOException ex) {
+
+            log.log(ServerLog.Level.ERROR,
+                    "An I/O error occurred -- restart server:\n",
+                    ex.getMessage(), "\n");
+        }
+
+        if (server != null) {
+
+            server.isRunning = false;
+        }
+
+        close();
+    }
+
+    /**
+     * Receive and answer the packets waiting on a channel, up to
+     * MAX_PACKETS_PER_SELECT of them. The channel stays readable if there
+     * are more, so the selector comes back to it after the other channels.
+     *
+     * @param key the channel's key
+     * @param work the array to decrypt and encrypt in
+     * @throws IOException if the channel fails
+     */
+    private void receive(SelectionKey key, byte[] work) throws IOException {
+
+        DatagramChannel channel = (DatagramChannel) key.channel();
+
+        Listener listener = (Listener) key.attachment();
+
+        for (int x = 0; x < MAX_PACKETS_PER_SELECT; ++x) {
+
+            ByteBuffer packet = buffers.acquire();
+
+            SocketAddress clientAddr = channel.receive(packet);
+
+            if (clientAddr == null) {
+
+                buffers.release(packet);
+
+                return;
+            }
+
+            ++listener.received;
+
+            packet.flip();
+
+            try {
+
+                answer(packet, clientAddr, work);
+
+                send(key, packet, clientAddr);
+
+            } catch (Exception ex) {
+
+                /**
+                 * Catch everything to do with a single packet, including the
+                 * multiple exceptions associated with the javax.crypto
+                 * classes, so that one bad packet doesn't stop the server.
+                 */
+                buffers.release(packet);
+
+                ++listener.errors;
+
+                log.log(ServerLog.Level.ERROR, "Something went wrong:\n",
+                        ex.getMessage(), "\n");
+            }
+        }
+    }
+
+    /**
+     * Decrypt a packet, and replace it with the encrypted uppercase version of
+     * its message in the same buffer.
+     *
+     * @param packet the buffer holding the packet
+     * @param clientAddr the address the packet came from
+     * @param work the array to decrypt and encrypt in
+     * @throws Exception if the packet can't be decrypted or the reply can't
+     * be encrypted
+     */
+    private void answer(ByteBuffer packet, SocketAddress clientAddr,
+            byte[] work) throws Exception {
+
+        CipherEngine engine = messages.getEngine(packet);
+
+        boolean logPacket = log.isEnabled(ServerLog.Level.PACKET),
+                plain = engine.getId() == CipherEngines.MODE_PLAIN;
+
+        if (logPacket && !plain) {
+
+            log.log(ServerLog.Level.PACKET, "Received encrypted message:\n\"",
+                    toHex(packet), "\"\nfrom client at ", clientAddr, "\n");
+        }
+
+        int n = messages.decrypt(engine, packet, work);
+
+        if (logPacket) {
+
+            String decryptedMessage
+                    = new String(work, 1, n, StandardCharsets.UTF_8);
+
+            if (plain) {
+
+                log.log(ServerLog.Level.PACKET,
+                        "Received plainttext message:\n\"", decryptedMessage,
+                        "\"\nfrom client at ", clientAddr, "\n");
+
+            } else {
+
+                log.log(ServerLog.Level.PACKET,
+                        "Message was decrypted using ", engine.getName(),
+                        " algorithm:\n\"", decryptedMessage, "\"\n");
+            }
+
+            String status = engine.getStatus();
+
+            if (status != null) {
+
+                log.log(ServerLog.Level.PACKET, engine.getName(), " ", status,
+                        "\n");
+            }
+        }
+
+        /**
+         * Return an uppercase version of the message to the client.
+         */
+        n = toUpperCase(work, 1, n);
+
+        messages.encrypt(engine, work, n, packet);
+
+        if (logPacket) {
+
+            log.log(ServerLog.Level.PACKET, plain
+                    ? "Sending message \n\"" : "Sending encrypted message \n\"",
+                    plain ? new String(work, 1, n, StandardCharsets.UTF_8)
+                            : toHex(packet),
+                    "\"\n back to client\n\n");
+        }
+    }
+
+    /**
+     * Send a reply, or queue it behind any replies already waiting for the
+     * channel, or drop it if too many are waiting already. The buffer goes
+     * back to the pool once it has been sent or dropped.
+     *
+     * @param key the channel's key
+     * @param packet the buffer holding the reply
+     * @param clientAddr the address to send it to
+     * @throws IOException if the channel fails
+     */
+    private void send(SelectionKey key, ByteBuffer packet,
+            SocketAddress clientAddr) throws IOException {
+
+        Listener listener = (Listener) key.attachment();
+
+        ArrayDeque<Reply> waiting = listener.waiting;
+
+        if (waiting.isEmpty()
+                && ((DatagramChannel) key.channel()).send(packet, clientAddr)
+                > 0) {
+
+            buffers.release(packet);
+
+            ++listener.sent;
+
+            return;
+        }
+
+        if (waiting.size() >= MAX_WAITING_REPLIES) {
+
+            buffers.release(packet);
+
+            ++listener.dropped;
+
+            return;
+        }
+
+        waiting.add(new Reply(packet, clientAddr));
+
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Send as many of the replies waiting for a channel as it will take.
+     *
+     * @param key the channel's key
+     * @throws IOException if the channel fails
+     */
+    private void flush(SelectionKey key) throws IOException {
+
+        Listener listener = (Listener) key.attachment();
+
+        ArrayDeque<Reply> waiting = listener.waiting;
+
+        DatagramChannel channel = (DatagramChannel) key.channel();
+
+        for (Reply reply; (reply = waiting.peek()) != null; waiting.poll()) {
+
+            if (channel.send(reply.packet, reply.clientAddr) == 0) {
+
+                return;
+            }
+
+            buffers.release(reply.packet);
+
+            ++listener.sent;
+        }
+
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * The packet counters of every channel, one line each. They can be read
+     * from any thread while the server is running, and once it has stopped
+     * they are the final counts.
+     *
+     * @return the counters
+     */
+    public String getStats() {
+
+        StringBuilder s = new StringBuilder();
+
+        for (Listener listener : listeners) {
+
+            /**
+             * A channel that failed to bind in the constructor has none.
+             */
+            if (listener != null) {
+
+                s.append(listener).append("\n");
+            }
+        }
+
+        return s.toString();
+    }
+
+    /**
+     * Close the selector and every channel. Nothing is done if they are
+     * already closed.
+     */
+    void close() {
+
+        if (!selector.isOpen()) {
+
+            return;
+        }
+
+        for (SelectionKey key : selector.keys()) {
+
+            try {
+
+                key.channel().close();
+
+            } catch (IOException ex) {
+            }
+        }
+
+        try {
+
+            selector.close();
+
+        } catch (IOException ex) {
+        }
+    }
+
+    /**
+     * Uppercase a UTF-8 message in place. Messages of ASCII characters, the
+     * usual case, are done a byte at a time without decoding them; anything
+     * else goes through String.toUpperCase.
+     *
+     * @param b the array holding the message
+     * @param off the offset of the message
+     * @param len the length of the message
+     * @return the length of the uppercase message, which may differ from len
+     * if it isn't ASCII
+     * @throws IllegalArgumentException if the uppercase message won't fit in
+     * the array
+     */
+    static int toUpperCase(byte[] b, int off, int len) {
+
+        for (int x = off; x < off + len; ++x) {
+
+            if (b[x] < 0) {
+
+                byte[] upper = new String(b, off, len, StandardCharsets.UTF_8)
+                        .toUpperCase().getBytes(StandardCharsets.UTF_8);
+
+                if (off + upper.length > b.length) {
+
+                    throw new IllegalArgumentException(
+                            "Uppercase message is too long");
+                }
+
+                System.arraycopy(upper, 0, b, off, upper.length);
+
+                return upper.length;
+            }
+
+            if (b[x] >= 'a' && b[x] <= 'z') {
+
+                b[x] -= 'a' - 'A';
+            }
+        }
+
+        return len;
+    }
+
+    /**
+     * The encrypted part of a packet as hexadecimal, for the log, without
+     * moving the buffer's position.
+     *
+     * @param packet the buffer holding the packet
+     * @return two hexadecimal digits for each byte after the mode id
+     */
+    private static String toHex(ByteBuffer packet) {
+
+        byte[] b = new byte[packet.remaining()];
+
+        packet.duplicate().get(b);
+
+        return MessageHandler.toHex(b, b.length);
+    }
+
+    /**
+     * The state of one channel: the replies waiting for it, and how many
+     * packets it has received, replies it has sent and dropped, and packets
+     * that couldn't be answered. Only the server's thread writes the
+     * counters.
+     */
+    private static final class Listener {
+
+        final InetSocketAddress address;
+        final ArrayDeque<Reply> waiting = new ArrayDeque<>();
+
+        volatile long received, sent, dropped, errors;
+
+        Listener(InetSocketAddress address) {
+
+            this.address = address;
+        }
+
+        @Override
+        public String toString() {
+
+            return address + ": received=" + received + ", sent=" + sent
+                    + ", dropped=" + dropped + ", errors=" + errors;
+        }
+    }
+
+    /**
+     * A reply waiting for room to send it.
+     */
+    private static final class Reply {
+
+        final ByteBuffer packet;
+        final SocketAddress clientAddr;
+
+        Reply(ByteBuffer packet, SocketAddress clientAddr) {
+
+            this.packet = packet;
+            this.clientAddr = clientAddr;
+        }
+    }
+}
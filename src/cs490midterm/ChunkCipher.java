@@ -0,0 +1,57 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * ChunkCipher.java
+ *
+ * ChunkCipher is a cipher that is fed its input a piece at a time and keeps
+ * its state between pieces, so a message never has to be in memory all at
+ * once. Block ciphers hold back any partial block until the next call to
+ * update, or until doFinal; stream ciphers carry on from where they left off
+ * in the keystream.
+ *
+ * CipherOutputStream and CipherInputStream use a ChunkCipher to encrypt or
+ * decrypt a stream of any length with a fixed amount of memory. Instances for
+ * DES, RC4 and AES are created by ChunkCiphers.java.
+ */
+import java.security.GeneralSecurityException;
+
+public interface ChunkCipher {
+
+    /**
+     * Process the next piece of input.
+     *
+     * @param in the array holding the input
+     * @param inOff the offset of the first byte of input
+     * @param len the number of bytes of input
+     * @param out the array to write the output into
+     * @param outOff the offset to write the first byte of output at
+     * @return the number of bytes written to out
+     * @throws GeneralSecurityException if the input can't be processed
+     */
+    int update(byte[] in, int inOff, int len, byte[] out, int outOff)
+            throws GeneralSecurityException;
+
+    /**
+     * Finish the message, writing out anything that was held back and any
+     * padding. The cipher can't be used after this.
+     *
+     * @param out the array to write the output into
+     * @param outOff the offset to write the first byte of output at
+     * @return the number of bytes written to out
+     * @throws GeneralSecurityException if the message can't be finished, for
+     * example if its padding is wrong
+     */
+    int doFinal(byte[] out, int outOff) throws GeneralSecurityException;
+
+    /**
+     * The most output that a call to update with len bytes, followed by
+     * doFinal, could produce.
+     *
+     * @param len the number of bytes of input
+     * @return the size of output buffer needed
+     */
+    int getOutputSize(int len);
+}
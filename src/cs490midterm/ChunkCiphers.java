@@ -0,0 +1,247 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * ChunkCiphers.java
+ *
+ * ChunkCiphers.java creates ChunkCipher instances for the ciphers used by the
+ * client and server, for use with CipherOutputStream and CipherInputStream.
+ *
+ * - DES works the same as FastDES.encrypt and FastDES.decrypt (ECB, with
+ *   PKCS#5 padding), holding back up to one block between calls to update.
+ * - RC4 keeps one RC4Engine for the whole message, so the keystream carries
+ *   on from one piece of the message to the next. It produces the same bytes
+ *   as RC4.rC4 (before the hex encoding).
+ * - AES uses the same javax.crypto transformation and key as AES.java, through
+ *   Cipher.update and Cipher.doFinal.
+ */
+import java.security.GeneralSecurityException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+
+public final class ChunkCiphers {
+
+    private ChunkCiphers() {
+    }
+
+    /**
+     * Create a DES cipher.
+     *
+     * @param key the key schedule to use
+     * @param encrypt true to encrypt, false to decrypt
+     * @return the DES ChunkCipher
+     */
+    public static ChunkCipher des(DESKeySchedule key, boolean encrypt) {
+
+        return new DESChunkCipher(key, encrypt);
+    }
+
+    /**
+     * Create an RC4 cipher. Encryption and decryption are the same operation.
+     *
+     * @param key the key, as used by RC4.rC4
+     * @return the RC4 ChunkCipher
+     */
+    public static ChunkCipher rc4(String key) {
+
+        return new RC4ChunkCipher(key);
+    }
+
+    /**
+     * Create an AES cipher.
+     *
+     * @param keyString the key, as used by AES.encrypt and AES.decrypt
+     * @param encrypt true to encrypt, false to decrypt
+     * @return the AES ChunkCipher
+     * @throws GeneralSecurityException if AES isn't available or the key is
+     * not a valid AES key
+     */
+    public static ChunkCipher aes(String keyString, boolean encrypt)
+            throws GeneralSecurityException {
+
+        Cipher cipher = Cipher.getInstance("AES");
+
+        cipher.init(encrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE,
+                AES.key(keyString).spec);
+
+        return new AESChunkCipher(cipher);
+    }
+
+    /**
+     * DES in ECB mode. Whole blocks are passed straight to FastDES, and a
+     * trailing partial block is kept until the next update or doFinal. When
+     * decrypting, the last whole block is kept as well, since it might be the
+     * one holding the padding.
+     */
+    private static class DESChunkCipher implements ChunkCipher {
+
+        private final DESKeySchedule key;
+        private final boolean encrypt;
+
+        private final byte[] pending = new byte[8];
+        private int pendingLen;
+
+        DESChunkCipher(DESKeySchedule key, boolean encrypt) {
+
+            this.key = key;
+            this.encrypt = encrypt;
+        }
+
+        @Override
+        public int update(byte[] in, int inOff, int len, byte[] out,
+                int outOff) {
+
+            int written = 0;
+
+            if (pendingLen > 0) {
+
+                int n = Math.min(8 - pendingLen, len);
+
+                System.arraycopy(in, inOff, pending, pendingLen, n);
+
+                pendingLen += n;
+                inOff += n;
+                len -= n;
+
+                if (pendingLen < 8 || (!encrypt && len == 0)) {
+
+                    return 0;
+                }
+
+                crypt(pending, 0, 8, out, outOff);
+
+                written = 8;
+                pendingLen = 0;
+            }
+
+            int full = len & ~7;
+
+            if (!encrypt && full > 0 && full == len) {
+
+                full -= 8;
+            }
+
+            crypt(in, inOff, full, out, outOff + written);
+
+            written += full;
+            pendingLen = len - full;
+            System.arraycopy(in, inOff + full, pending, 0, pendingLen);
+
+            return written;
+        }
+
+        @Override
+        public int doFinal(byte[] out, int outOff)
+                throws GeneralSecurityException {
+
+            int n = pendingLen;
+
+            pendingLen = 0;
+
+            if (encrypt) {
+
+                return FastDES.encrypt(pending, 0, n, out, outOff, key);
+            }
+
+            if (n != 8) {
+
+                throw new IllegalBlockSizeException(
+                        "Ciphertext must be a whole number of 8-byte blocks");
+            }
+
+            try {
+
+                return FastDES.decrypt(pending, 0, 8, out, outOff, key);
+
+            } catch (IllegalArgumentException ex) {
+
+                throw new BadPaddingException(ex.getMessage());
+            }
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return encrypt ? FastDES.outputLength(pendingLen + len)
+                    : pendingLen + len;
+        }
+
+        private void crypt(byte[] in, int inOff, int len, byte[] out,
+                int outOff) {
+
+            FastDES.cryptBlocks(in, inOff, len, out, outOff,
+                    encrypt ? key.encryptKeys : key.decryptKeys);
+        }
+    }
+
+    /**
+     * RC4, continuing the keystream from one call to the next.
+     */
+    private static class RC4ChunkCipher implements ChunkCipher {
+
+        private final RC4Engine engine;
+
+        RC4ChunkCipher(String key) {
+
+            engine = new RC4Engine(key);
+        }
+
+        @Override
+        public int update(byte[] in, int inOff, int len, byte[] out,
+                int outOff) {
+
+            engine.crypt(in, inOff, len, out, outOff);
+
+            return len;
+        }
+
+        @Override
+        public int doFinal(byte[] out, int outOff) {
+
+            return 0;
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return len;
+        }
+    }
+
+    /**
+     * AES through javax.crypto, which already keeps its own state between
+     * calls to update.
+     */
+    private static class AESChunkCipher implements ChunkCipher {
+
+        private final Cipher cipher;
+
+        AESChunkCipher(Cipher cipher) {
+
+            this.cipher = cipher;
+        }
+
+        @Override
+        public int update(byte[] in, int inOff, int len, byte[] out,
+                int outOff) throws GeneralSecurityException {
+
+            return cipher.update(in, inOff, len, out, outOff);
+        }
+
+        @Override
+        public int doFinal(byte[] out, int outOff)
+                throws GeneralSecurityException {
+
+            return cipher.doFinal(out, outOff);
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return cipher.getOutputSize(len);
+        }
+    }
+}
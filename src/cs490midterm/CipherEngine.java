@@ -0,0 +1,121 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * CipherEngine.java
+ *
+ * CipherEngine is one of the encryption modes the client and server can use,
+ * identified by the mode id sent as the first byte of every packet. An engine
+ * encrypts and decrypts a whole message in place in a byte[], writing any IV
+ * or header it needs in front of the ciphertext, so MessageHandler can run
+ * every mode through the same code with one buffer per packet.
+ *
+ * Engines are kept in a CipherEngines registry, which finds the engine for a
+ * packet by its mode id. Adding a new cipher is a matter of writing an engine
+ * and registering it; ClientMessager and ServerMessager don't change.
+ *
+ * Implementations must be safe to call from several threads at once.
+ */
+import java.security.GeneralSecurityException;
+
+public interface CipherEngine {
+
+    /**
+     * The mode id sent as the first byte of every packet, 0 to 9.
+     *
+     * @return the mode id
+     */
+    int getId();
+
+    /**
+     * The name of the cipher and mode, for the log.
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * The size in bytes that messages are padded to a multiple of, or 1 if
+     * the ciphertext is the same length as the message (apart from any IV or
+     * header).
+     *
+     * @return the block size
+     */
+    int getBlockSize();
+
+    /**
+     * The most bytes that encrypt can write for a message of len bytes,
+     * including any IV, header and padding. The array passed to encrypt must
+     * have this much room from the start of the message.
+     *
+     * @param len the length of the message
+     * @return the length of the encrypted message
+     */
+    int getOutputSize(int len);
+
+    /**
+     * Encrypt a message in place.
+     *
+     * @param b the array holding the message, with room for getOutputSize(len)
+     * bytes from off
+     * @param off the offset of the first byte of the message
+     * @param len the length of the message
+     * @return the length of the encrypted message
+     * @throws GeneralSecurityException if the message can't be encrypted
+     */
+    int encrypt(byte[] b, int off, int len) throws GeneralSecurityException;
+
+    /**
+     * Decrypt a message produced by encrypt in place. The plaintext is
+     * written from off.
+     *
+     * @param b the array holding the encrypted message
+     * @param off the offset of the first byte of the encrypted message
+     * @param len the length of the encrypted message
+     * @return the length of the plaintext
+     * @throws GeneralSecurityException if the message can't be decrypted, for
+     * example if its padding is wrong
+     */
+    int decrypt(byte[] b, int off, int len) throws GeneralSecurityException;
+
+    /**
+     * Whether newChunkCipher can be used, to encrypt or decrypt a message a
+     * piece at a time without holding all of it in memory.
+     *
+     * @return true if the engine supports streaming
+     */
+    default boolean isStreaming() {
+
+        return false;
+    }
+
+    /**
+     * Create a ChunkCipher that produces the same ciphertext as encrypt, for
+     * CipherOutputStream and CipherInputStream.
+     *
+     * @param encrypt true to encrypt, false to decrypt
+     * @return the ChunkCipher
+     * @throws GeneralSecurityException if the cipher can't be created
+     * @throws UnsupportedOperationException if the engine doesn't support
+     * streaming
+     */
+    default ChunkCipher newChunkCipher(boolean encrypt)
+            throws GeneralSecurityException {
+
+        throw new UnsupportedOperationException(getName()
+                + " does not support streaming");
+    }
+
+    /**
+     * Anything about the engine's state worth showing in the log after the
+     * current thread's last message, such as keystream prefetching.
+     *
+     * @return the status, or null if there is nothing to show
+     */
+    default String getStatus() {
+
+        return null;
+    }
+}
@@ -0,0 +1,887 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * CipherEngines.java
+ *
+ * CipherEngines.java is the registry of CipherEngine instances, and creates
+ * the engines for the modes used by the client and server:
+ *
+ * 0 - plaintext, with no encryption
+ * 1 - RC4, starting the keystream over for every message
+ * 2 - DES in ECB mode, with PKCS#5 padding (FastDES)
+ * 3 - AES in ECB mode, with PKCS#5 padding (AES.java, or TableAES.java when
+ *     the system property cs490midterm.aes is "table")
+ * 4 - DES in CBC mode, with the IV in front of the ciphertext
+ * 5 - DES in CTR mode, with the initial counter in front of the ciphertext
+ * 6 - Triple-DES in CBC mode
+ * 7 - an RC4Session, carrying on through the keystream between messages
+ * 8 - ChaCha20, with the nonce in front of the ciphertext (ChaCha20.java)
+ *
+ * The registry is an array indexed by mode id, so finding the engine for a
+ * packet is a single array lookup. Modes 0 to 6 and 8 depend only on the
+ * keys and are registered by standard(); the RC4 session engine depends on
+ * which end of the conversation it is for, so ClientMessager and
+ * ServerMessager register it themselves.
+ */
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class CipherEngines {
+
+    public static final int MODE_PLAIN = 0, MODE_RC4 = 1, MODE_DES = 2,
+            MODE_AES = 3, MODE_DES_CBC = 4, MODE_DES_CTR = 5, MODE_TDES_CBC = 6,
+            MODE_RC4_SESSION = 7, MODE_CHACHA20 = 8;
+
+    /**
+     * Mode ids are sent as a single decimal digit.
+     */
+    public static final int MAX_ENGINES = 10;
+
+    /**
+     * The default for the most RC4 sessions a server starts in one second.
+     * Each one costs a key schedule and some keystream prefetching, and this
+     * is far more than a classroom of clients would start.
+     */
+    public static final int MAX_NEW_RC4_SESSIONS = 64;
+
+    /**
+     * The system property that chooses the AES for mode 3: "table" for
+     * TableAES, or anything else for javax.crypto.
+     */
+    public static final String AES_PROPERTY = "cs490midterm.aes";
+
+    private final CipherEngine[] engines = new CipherEngine[MAX_ENGINES];
+
+    /**
+     * Create a registry holding the engines for modes 0 to 6 and 8.
+     *
+     * @param key the key for RC4 and DES
+     * @param aesKey the key for AES
+     * @param tdesKey the 192-bit key for Triple-DES
+     * @param chaChaKey the 256-bit key for ChaCha20
+     * @return the registry
+     */
+    public static CipherEngines standard(String key, String aesKey,
+            String tdesKey, String chaChaKey) {
+
+        DESKeySchedule desKey
+                = DESKeySchedule.forKey(key.getBytes(StandardCharsets.UTF_8));
+
+        BlockCipher des = new DESBlockCipher(desKey),
+                tdes = TripleDES.forKey(
+                        tdesKey.getBytes(StandardCharsets.UTF_8));
+
+        return new CipherEngines()
+                .register(plain())
+                .register(rc4(key))
+                .register(des(desKey))
+                .register(aes(aesKey))
+                .register(cbc(MODE_DES_CBC, "DES-CBC", des))
+                .register(ctr(MODE_DES_CTR, "DES-CTR", des))
+                .register(cbc(MODE_TDES_CBC, "3DES-CBC", tdes))
+                .register(chaCha20(chaChaKey));
+    }
+
+    /**
+     * Add an engine, replacing any already registered for its mode id.
+     *
+     * @param engine the engine
+     * @return this registry
+     */
+    public CipherEngines register(CipherEngine engine) {
+
+        int id = engine.getId();
+
+        if (id < 0 || id >= MAX_ENGINES) {
+
+            throw new IllegalArgumentException("Mode id must be 0 to "
+                    + (MAX_ENGINES - 1));
+        }
+
+        engines[id] = engine;
+
+        return this;
+    }
+
+    /**
+     * Find the engine for a mode id.
+     *
+     * @param id the mode id
+     * @return the engine
+     * @throws IllegalArgumentException if no engine is registered for id
+     */
+    public CipherEngine get(int id) {
+
+        CipherEngine engine = id >= 0 && id < MAX_ENGINES ? engines[id] : null;
+
+        if (engine == null) {
+
+            throw new IllegalArgumentException("Unknown encryption mode " + id);
+        }
+
+        return engine;
+    }
+
+    /**
+     * Mode 0, which sends the message as it is.
+     *
+     * @return the plaintext engine
+     */
+    public static CipherEngine plain() {
+
+        return new PlainEngine();
+    }
+
+    /**
+     * Mode 1, RC4 with a new RC4Engine for every message.
+     *
+     * @param key the key
+     * @return the RC4 engine
+     */
+    public static CipherEngine rc4(String key) {
+
+        return new RC4MessageEngine(key);
+    }
+
+    /**
+     * Mode 2, DES in ECB mode.
+     *
+     * @param key the key schedule
+     * @return the DES engine
+     */
+    public static CipherEngine des(DESKeySchedule key) {
+
+        return new DESEngine(key);
+    }
+
+    /**
+     * Mode 3, AES in ECB mode, through javax.crypto unless the AES_PROPERTY
+     * system property is "table".
+     *
+     * @param keyString the key
+     * @return the AES engine
+     */
+    public static CipherEngine aes(String keyString) {
+
+        return "table".equals(System.getProperty(AES_PROPERTY))
+                ? tableAES(keyString) : new AESEngine(keyString);
+    }
+
+    /**
+     * Mode 3 with TableAES, which gives the same ciphertext as javax.crypto.
+     *
+     * @param keyString the key
+     * @return the AES engine
+     */
+    public static CipherEngine tableAES(String keyString) {
+
+        return new TableAESEngine(keyString);
+    }
+
+    /**
+     * A block cipher in CBC mode, with a random IV for every message.
+     *
+     * @param id the mode id
+     * @param name the name for the log
+     * @param cipher the block cipher
+     * @return the CBC engine
+     */
+    public static CipherEngine cbc(int id, String name, BlockCipher cipher) {
+
+        return new CBCEngine(id, name, cipher);
+    }
+
+    /**
+     * A block cipher in CTR mode, with a random initial counter for every
+     * message.
+     *
+     * @param id the mode id
+     * @param name the name for the log
+     * @param cipher the block cipher
+     * @return the CTR engine
+     */
+    public static CipherEngine ctr(int id, String name, BlockCipher cipher) {
+
+        return new CTREngine(id, name, cipher);
+    }
+
+    /**
+     * Mode 8, ChaCha20 with a random nonce for every message.
+     *
+     * @param key the 256-bit key
+     * @return the ChaCha20 engine
+     */
+    public static CipherEngine chaCha20(String key) {
+
+        return new ChaCha20Engine(new ChaCha20(key));
+    }
+
+    /**
+     * Mode 7 for the client: every message uses the same session.
+     *
+     * @param session the client's session
+     * @return the RC4 session engine
+     */
+    public static CipherEngine rc4Session(RC4Session session) {
+
+        return new ClientRC4SessionEngine(session);
+    }
+
+    /**
+     * Mode 7 for the server: each message is decrypted with the session
+     * named in its header, and the reply is encrypted with the same session.
+     * A session is started by the first message of a client's session, and
+     * no more than MAX_NEW_RC4_SESSIONS are started each second. The session
+     * is remembered per thread between decrypting a message and encrypting
+     * the reply, so several threads can serve different clients at once.
+     *
+     * @param key the key shared with the clients
+     * @param maxSessions the most sessions to keep, dropping the least
+     * recently used
+     * @return the RC4 session engine
+     */
+    public static CipherEngine rc4Sessions(String key, int maxSessions) {
+
+        return rc4Sessions(key, maxSessions, MAX_NEW_RC4_SESSIONS);
+    }
+
+    /**
+     * Mode 7 for the server, with a limit on how quickly sessions are
+     * started.
+     *
+     * @param key the key shared with the clients
+     * @param maxSessions the most sessions to keep, dropping the least
+     * recently used
+     * @param maxNewSessions the most sessions to start in any one second
+     * @return the RC4 session engine
+     */
+    public static CipherEngine rc4Sessions(String key, int maxSessions,
+            int maxNewSessions) {
+
+        return new ServerRC4SessionEngine(key, maxSessions, maxNewSessions);
+    }
+
+    private static class PlainEngine implements CipherEngine {
+
+        @Override
+        public int getId() {
+
+            return MODE_PLAIN;
+        }
+
+        @Override
+        public String getName() {
+
+            return "plaintext";
+        }
+
+        @Override
+        public int getBlockSize() {
+
+            return 1;
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return len;
+        }
+
+        @Override
+        public int encrypt(byte[] b, int off, int len) {
+
+            return len;
+        }
+
+        @Override
+        public int decrypt(byte[] b, int off, int len) {
+
+            return len;
+        }
+    }
+
+    private static class RC4MessageEngine implements CipherEngine {
+
+        private final String key;
+
+        RC4MessageEngine(String key) {
+
+            this.key = key;
+        }
+
+        @Override
+        public int getId() {
+
+            return MODE_RC4;
+        }
+
+        @Override
+        public String getName() {
+
+            return "RC4";
+        }
+
+        @Override
+        public int getBlockSize() {
+
+            return 1;
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return len;
+        }
+
+        @Override
+        public int encrypt(byte[] b, int off, int len) {
+
+            new RC4Engine(key).crypt(b, off, len);
+
+            return len;
+        }
+
+        @Override
+        public int decrypt(byte[] b, int off, int len) {
+
+            return encrypt(b, off, len);
+        }
+
+        @Override
+        public boolean isStreaming() {
+
+            return true;
+        }
+
+        @Override
+        public ChunkCipher newChunkCipher(boolean encrypt) {
+
+            return ChunkCiphers.rc4(key);
+        }
+    }
+
+    private static class DESEngine implements CipherEngine {
+
+        private final DESKeySchedule key;
+
+        DESEngine(DESKeySchedule key) {
+
+            this.key = key;
+        }
+
+        @Override
+        public int getId() {
+
+            return MODE_DES;
+        }
+
+        @Override
+        public String getName() {
+
+            return "DES";
+        }
+
+        @Override
+        public int getBlockSize() {
+
+            return 8;
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return FastDES.outputLength(len);
+        }
+
+        @Override
+        public int encrypt(byte[] b, int off, int len) {
+
+            return FastDES.encrypt(b, off, len, b, off, key);
+        }
+
+        @Override
+        public int decrypt(byte[] b, int off, int len) {
+
+            return FastDES.decrypt(b, off, len, b, off, key);
+        }
+
+        @Override
+        public boolean isStreaming() {
+
+            return true;
+        }
+
+        @Override
+        public ChunkCipher newChunkCipher(boolean encrypt) {
+
+            return ChunkCiphers.des(key, encrypt);
+        }
+    }
+
+    private static class AESEngine implements CipherEngine {
+
+        final String keyString;
+
+        AESEngine(String keyString) {
+
+            this.keyString = keyString;
+        }
+
+        @Override
+        public int getId() {
+
+            return MODE_AES;
+        }
+
+        @Override
+        public String getName() {
+
+            return "AES";
+        }
+
+        @Override
+        public int getBlockSize() {
+
+            return 16;
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return AES.outputLength(len);
+        }
+
+        @Override
+        public int encrypt(byte[] b, int off, int len)
+                throws GeneralSecurityException {
+
+            return AES.encryptBytes(b, off, len, b, off,
+                    keyString);
+        }
+
+        @Override
+        public int decrypt(byte[] b, int off, int len)
+                throws GeneralSecurityException {
+
+            return AES.decryptBytes(b, off, len, b, off,
+                    keyString);
+        }
+
+        @Override
+        public boolean isStreaming() {
+
+            return true;
+        }
+
+        @Override
+        public ChunkCipher newChunkCipher(boolean encrypt)
+                throws GeneralSecurityException {
+
+            return ChunkCiphers.aes(keyString, encrypt);
+        }
+    }
+
+    /**
+     * Mode 3 through TableAES. A streamed message still goes through
+     * javax.crypto, since the bytes on the wire are the same.
+     */
+    private static class TableAESEngine extends AESEngine {
+
+        TableAESEngine(String keyString) {
+
+            super(keyString);
+        }
+
+        @Override
+        public String getName() {
+
+            return "AES (TableAES)";
+        }
+
+        @Override
+        public int encrypt(byte[] b, int off, int len) {
+
+            return TableAES.encryptBytes(b, off, len, b, off, keyString);
+        }
+
+        @Override
+        public int decrypt(byte[] b, int off, int len)
+                throws GeneralSecurityException {
+
+            return TableAES.decryptBytes(b, off, len, b, off, keyString);
+        }
+    }
+
+    private static class CBCEngine implements CipherEngine {
+
+        private final int id;
+        private final String name;
+        private final BlockCipher cipher;
+
+        CBCEngine(int id, String name, BlockCipher cipher) {
+
+            this.id = id;
+            this.name = name;
+            this.cipher = cipher;
+        }
+
+        @Override
+        public int getId() {
+
+            return id;
+        }
+
+        @Override
+        public String getName() {
+
+            return name;
+        }
+
+        @Override
+        public int getBlockSize() {
+
+            return 8;
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return CipherModes.IV_LENGTH + FastDES.outputLength(len);
+        }
+
+        @Override
+        public int encrypt(byte[] b, int off, int len) {
+
+            return CipherModes.encryptMessageCBC(cipher, b, off, len);
+        }
+
+        @Override
+        public int decrypt(byte[] b, int off, int len) {
+
+            return CipherModes.decryptMessageCBC(cipher, b, off, len);
+        }
+    }
+
+    private static class CTREngine implements CipherEngine {
+
+        private final int id;
+        private final String name;
+        private final BlockCipher cipher;
+
+        CTREngine(int id, String name, BlockCipher cipher) {
+
+            this.id = id;
+            this.name = name;
+            this.cipher = cipher;
+        }
+
+        @Override
+        public int getId() {
+
+            return id;
+        }
+
+        @Override
+        public String getName() {
+
+            return name;
+        }
+
+        @Override
+        public int getBlockSize() {
+
+            return 1;
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return CipherModes.IV_LENGTH + len;
+        }
+
+        @Override
+        public int encrypt(byte[] b, int off, int len) {
+
+            return CipherModes.encryptMessageCTR(cipher, b, off, len);
+        }
+
+        @Override
+        public int decrypt(byte[] b, int off, int len) {
+
+            return CipherModes.decryptMessageCTR(cipher, b, off, len);
+        }
+    }
+
+    private static class ChaCha20Engine implements CipherEngine {
+
+        private final ChaCha20 cipher;
+
+        ChaCha20Engine(ChaCha20 cipher) {
+
+            this.cipher = cipher;
+        }
+
+        @Override
+        public int getId() {
+
+            return MODE_CHACHA20;
+        }
+
+        @Override
+        public String getName() {
+
+            return "ChaCha20";
+        }
+
+        @Override
+        public int getBlockSize() {
+
+            return 1;
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return ChaCha20.NONCE_LENGTH + len;
+        }
+
+        @Override
+        public int encrypt(byte[] b, int off, int len) {
+
+            return cipher.encryptMessage(b, off, len);
+        }
+
+        @Override
+        public int decrypt(byte[] b, int off, int len) {
+
+            return cipher.decryptMessage(b, off, len);
+        }
+    }
+
+    /**
+     * The parts of mode 7 that are the same at both ends.
+     */
+    private abstract static class RC4SessionEngine implements CipherEngine {
+
+        @Override
+        public int getId() {
+
+            return MODE_RC4_SESSION;
+        }
+
+        @Override
+        public String getName() {
+
+            return "RC4 session";
+        }
+
+        @Override
+        public int getBlockSize() {
+
+            return 1;
+        }
+
+        @Override
+        public int getOutputSize(int len) {
+
+            return RC4Session.HEADER_LENGTH + len;
+        }
+
+        /**
+         * Describe a session and its receive prefetching, which a client only
+         * has once the server's first reply has arrived.
+         *
+         * @param session the session, or null
+         * @return the description, or null if there is no session
+         */
+        static String status(RC4Session session) {
+
+            if (session == null) {
+
+                return null;
+            }
+
+            KeystreamPrefetcher prefetcher = session.getReceivePrefetcher();
+
+            return "session " + Long.toHexString(session.getId())
+                    + (prefetcher == null ? ", no reply yet"
+                            : ", keystream prefetch: " + prefetcher);
+        }
+    }
+
+    private static class ClientRC4SessionEngine extends RC4SessionEngine {
+
+        private final RC4Session session;
+
+        ClientRC4SessionEngine(RC4Session session) {
+
+            this.session = session;
+        }
+
+        @Override
+        public int encrypt(byte[] b, int off, int len) {
+
+            return session.encryptMessage(b, off, len);
+        }
+
+        @Override
+        public int decrypt(byte[] b, int off, int len) {
+
+            return session.decryptMessage(b, off, len);
+        }
+
+        @Override
+        public String getStatus() {
+
+            return status(session);
+        }
+    }
+
+    private static class ServerRC4SessionEngine extends RC4SessionEngine {
+
+        private final String key;
+
+        private final int maxNewSessions;
+
+        /**
+         * The sessions started by clients, by session id, in order of use. A
+         * message for a session that has been dropped is rejected, and the
+         * client starts a new session when it gets no reply.
+         */
+        private final Map<Long, RC4Session> sessions;
+
+        /**
+         * The second, from System.nanoTime, that sessions are being counted
+         * for, and the number started in it. Both are guarded by sessions.
+         */
+        private long second;
+        private int started;
+
+        /**
+         * The session of the last message each thread decrypted, which its
+         * reply is encrypted with.
+         */
+        private final ThreadLocal<RC4Session> current = new ThreadLocal<>();
+
+        ServerRC4SessionEngine(String key, int maxSessions,
+                int maxNewSessions) {
+
+            this.key = key;
+            this.maxNewSessions = maxNewSessions;
+
+            sessions = new LinkedHashMap<Long, RC4Session>(16, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Long, RC4Session> eldest) {
+
+                    return size() > maxSessions;
+                }
+            };
+        }
+
+        @Override
+        public int encrypt(byte[] b, int off, int len) {
+
+            RC4Session session = current.get();
+
+            if (session == null) {
+
+                throw new IllegalStateException(
+                        "No RC4 session message to reply to");
+            }
+
+            return session.encryptMessage(b, off, len);
+        }
+
+        @Override
+        public int decrypt(byte[] b, int off, int len) {
+
+            long id = RC4Session.sessionId(b, off, len);
+
+            RC4Session session;
+
+            synchronized (sessions) {
+
+                session = sessions.get(id);
+            }
+
+            if (session == null) {
+
+                session = start(id, b, off, len);
+            }
+
+            current.set(session);
+
+            return session.decryptMessage(b, off, len);
+        }
+
+        @Override
+        public String getStatus() {
+
+            return status(current.get());
+        }
+
+        /**
+         * Start a session for a message with an id that isn't known, if the
+         * message is the authentic first message of a session and not too
+         * many sessions have been started in the last second.
+         *
+         * @param id the session id from the message's header
+         * @param b the array holding the message
+         * @param off the offset of the header
+         * @param len the length of the message
+         * @return the session
+         * @throws IllegalArgumentException if the session can't be started
+         */
+        private RC4Session start(long id, byte[] b, int off, int len) {
+
+            /**
+             * The tag is checked before taking the lock, since it is the
+             * slow part.
+             */
+            if (!RC4Session.isNewSession(key, b, off, len)) {
+
+                throw new IllegalArgumentException(
+                        "Message is not from a known RC4 session");
+            }
+
+            synchronized (sessions) {
+
+                RC4Session session = sessions.get(id);
+
+                if (session != null) {
+
+                    return session;
+                }
+
+                long now = System.nanoTime() / 1_000_000_000L;
+
+                if (now != second) {
+
+                    second = now;
+                    started = 0;
+                }
+
+                if (started >= maxNewSessions) {
+
+                    throw new IllegalArgumentException(
+                            "Too many new RC4 sessions");
+                }
+
+                ++started;
+
+                session = RC4Session.forServer(key, id);
+
+                sessions.put(id, session);
+
+                return session;
+            }
+        }
+    }
+}
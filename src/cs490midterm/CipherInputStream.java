@@ -0,0 +1,157 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * CipherInputStream.java
+ *
+ * CipherInputStream reads from another InputStream and returns the data
+ * encrypted or decrypted with a ChunkCipher. The underlying stream is read
+ * CHUNK_SIZE bytes at a time, so a message of any length can be handled with
+ * two fixed-size buffers. When the underlying stream runs out the cipher is
+ * finished, which checks and removes the padding for DES and AES.
+ */
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+public class CipherInputStream extends FilterInputStream {
+
+    /**
+     * The largest piece of the underlying stream read at once.
+     */
+    static final int CHUNK_SIZE = 8192;
+
+    private final ChunkCipher cipher;
+    private final byte[] inBuffer = new byte[CHUNK_SIZE];
+    private final byte[] outBuffer;
+
+    /**
+     * The unread part of outBuffer is outBuffer[outPos] up to outBuffer[outEnd].
+     */
+    private int outPos, outEnd;
+
+    private boolean finished;
+
+    public CipherInputStream(InputStream in, ChunkCipher cipher) {
+
+        super(in);
+
+        this.cipher = cipher;
+
+        outBuffer = new byte[cipher.getOutputSize(CHUNK_SIZE)];
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        if (!fill()) {
+
+            return -1;
+        }
+
+        return outBuffer[outPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (len == 0) {
+
+            return 0;
+        }
+
+        if (!fill()) {
+
+            return -1;
+        }
+
+        int n = Math.min(len, outEnd - outPos);
+
+        System.arraycopy(outBuffer, outPos, b, off, n);
+        outPos += n;
+
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+
+        long skipped = 0;
+
+        while (skipped < n && fill()) {
+
+            int s = (int) Math.min(n - skipped, outEnd - outPos);
+
+            outPos += s;
+            skipped += s;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+
+        return outEnd - outPos;
+    }
+
+    @Override
+    public boolean markSupported() {
+
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Make sure there is something left to read in outBuffer, reading and
+     * processing more of the underlying stream if needed.
+     *
+     * @return false if there is nothing left to read at all
+     * @throws IOException if the underlying stream or the cipher fails
+     */
+    private boolean fill() throws IOException {
+
+        try {
+
+            while (outPos == outEnd) {
+
+                if (finished) {
+
+                    return false;
+                }
+
+                int n = in.read(inBuffer, 0, inBuffer.length);
+
+                outPos = 0;
+
+                if (n < 0) {
+
+                    finished = true;
+                    outEnd = cipher.doFinal(outBuffer, 0);
+
+                } else {
+
+                    outEnd = cipher.update(inBuffer, 0, n, outBuffer, 0);
+                }
+            }
+
+            return true;
+
+        } catch (GeneralSecurityException ex) {
+
+            throw new IOException(ex);
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * CipherModes.java
+ *
+ * CipherModes.java provides the ECB, CBC and CTR modes of operation for any
+ * BlockCipher with a 64-bit block.
+ *
+ * ECB (electronic codebook) encrypts every block independently, so identical
+ * blocks of plaintext produce identical blocks of ciphertext. It is what
+ * FastDES does on its own, and is here for the other block ciphers. The
+ * message is padded as described by PKCS#5, the same as FastDES.
+ *
+ * CBC (cipher block chaining) XORs each block of plaintext with the previous
+ * block of ciphertext before encrypting it, starting with a random
+ * initialization vector (IV). Each block depends on the one before it, so CBC
+ * encryption has to run one block at a time. It is padded the same way as ECB,
+ * so decryption returns the exact length of the message.
+ *
+ * CTR (counter) mode encrypts successive values of a counter, starting from a
+ * random initial value, and XORs the result with the message. It turns the
+ * block cipher into a stream cipher, so no padding is needed and encryption
+ * and decryption are the same operation. Every block of keystream is
+ * independent of every other, so inputs of at least PARALLEL_THRESHOLD bytes
+ * are split into ranges of blocks and handled by the common ForkJoinPool.
+ *
+ * ECB and CTR hand their blocks to the cipher in batches through
+ * BlockCipher.encryptBlocks, so DES switches to BitslicedDES for any batch of
+ * 64 blocks or more.
+ *
+ * The String methods are used by ClientMessager and ServerMessager, and send
+ * the IV or initial counter as the first 8 characters of the ciphertext.
+ */
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class CipherModes {
+
+    /**
+     * CTR inputs of at least this many bytes are encrypted in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 16 * 1024;
+
+    /**
+     * The number of blocks handled by each parallel CTR task.
+     */
+    static final int BLOCKS_PER_TASK = 1024;
+
+    /**
+     * The size in bytes of the IV or initial counter sent with a message.
+     */
+    static final int IV_LENGTH = 8;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Encrypt an ASCII String using CBC mode and a random IV.
+     *
+     * @param message the String representation of the message to encrypt
+     * @param cipher the block cipher to use
+     * @return the IV followed by the ciphertext, one character per byte
+     */
+    public static String encryptMessageCBC(String message, BlockCipher cipher) {
+
+        byte[] b = Arrays.copyOf(message.getBytes(StandardCharsets.ISO_8859_1),
+                IV_LENGTH + FastDES.outputLength(message.length()));
+
+        int n = encryptMessageCBC(cipher, b, 0, message.length());
+
+        return new String(b, 0, n, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decrypt a String produced by encryptMessageCBC.
+     *
+     * @param message the IV followed by the ciphertext
+     * @param cipher the block cipher to use
+     * @return the decrypted message, without its padding
+     */
+    public static String decryptMessageCBC(String message, BlockCipher cipher) {
+
+        byte[] b = message.getBytes(StandardCharsets.ISO_8859_1);
+
+        int n = decryptMessageCBC(cipher, b, 0, b.length);
+
+        return new String(b, 0, n, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Encrypt an ASCII String using CTR mode and a random initial counter.
+     *
+     * @param message the String representation of the message to encrypt
+     * @param cipher the block cipher to use
+     * @return the initial counter followed by the ciphertext, one character
+     * per byte
+     */
+    public static String encryptMessageCTR(String message, BlockCipher cipher) {
+
+        byte[] b = Arrays.copyOf(message.getBytes(StandardCharsets.ISO_8859_1),
+                IV_LENGTH + message.length());
+
+        int n = encryptMessageCTR(cipher, b, 0, message.length());
+
+        return new String(b, 0, n, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decrypt a String produced by encryptMessageCTR.
+     *
+     * @param message the initial counter followed by the ciphertext
+     * @param cipher the block cipher to use
+     * @return the decrypted message
+     */
+    public static String decryptMessageCTR(String message, BlockCipher cipher) {
+
+        byte[] b = message.getBytes(StandardCharsets.ISO_8859_1);
+
+        int n = decryptMessageCTR(cipher, b, 0, b.length);
+
+        return new String(b, 0, n, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Encrypt a message in place using CBC mode and a random IV. The message
+     * is moved along to make room for the IV in front of it.
+     *
+     * @param cipher the block cipher to use
+     * @param b the array holding the message, with room for IV_LENGTH +
+     * FastDES.outputLength(len) bytes from off
+     * @param off the offset of the first byte of the message
+     * @param len the length of the message
+     * @return the length of the IV and ciphertext
+     */
+    public static int encryptMessageCBC(BlockCipher cipher, byte[] b, int off,
+            int len) {
+
+        System.arraycopy(b, off, b, off + IV_LENGTH, len);
+
+        long iv = RANDOM.nextLong();
+
+        FastDES.putLong(b, off, iv);
+
+        return IV_LENGTH + encryptCBC(cipher, iv, b, off + IV_LENGTH, len, b,
+                off + IV_LENGTH);
+    }
+
+    /**
+     * Decrypt a message produced by encryptMessageCBC in place. The plaintext
+     * is written from off, over the IV.
+     *
+     * @param cipher the block cipher to use
+     * @param b the array holding the IV and ciphertext
+     * @param off the offset of the IV
+     * @param len the length of the IV and ciphertext
+     * @return the length of the plaintext, without its padding
+     */
+    public static int decryptMessageCBC(BlockCipher cipher, byte[] b, int off,
+            int len) {
+
+        if (len < IV_LENGTH) {
+
+            throw new IllegalArgumentException("Message is missing its IV");
+        }
+
+        /**
+         * Each block is read before the one in front of it is written, so
+         * the plaintext can start where the IV was.
+         */
+        return decryptCBC(cipher, FastDES.getLong(b, off), b, off + IV_LENGTH,
+                len - IV_LENGTH, b, off);
+    }
+
+    /**
+     * Encrypt a message in place using CTR mode and a random initial counter.
+     * The message is moved along to make room for the counter in front of it.
+     *
+     * @param cipher the block cipher to use
+     * @param b the array holding the message, with room for IV_LENGTH + len
+     * bytes from off
+     * @param off the offset of the first byte of the message
+     * @param len the length of the message
+     * @return the length of the counter and ciphertext
+     */
+    public static int encryptMessageCTR(BlockCipher cipher, byte[] b, int off,
+            int len) {
+
+        System.arraycopy(b, off, b, off + IV_LENGTH, len);
+
+        long counter = RANDOM.nextLong();
+
+        FastDES.putLong(b, off, counter);
+
+        return IV_LENGTH + ctr(cipher, counter, b, off + IV_LENGTH, len, b,
+                off + IV_LENGTH);
+    }
+
+    /**
+     * Decrypt a message produced by encryptMessageCTR in place. The plaintext
+     * is moved back to off, over the counter.
+     *
+     * @param cipher the block cipher to use
+     * @param b the array holding the counter and ciphertext
+     * @param off the offset of the counter
+     * @param len the length of the counter and ciphertext
+     * @return the length of the plaintext
+     */
+    public static int decryptMessageCTR(BlockCipher cipher, byte[] b, int off,
+            int len) {
+
+        if (len < IV_LENGTH) {
+
+            throw new IllegalArgumentException("Message is missing its counter");
+        }
+
+        /**
+         * Large messages are split between threads, so the output can't
+         * overlap the input at a different offset. Decrypt where the
+         * ciphertext is and then move it.
+         */
+        int n = ctr(cipher, FastDES.getLong(b, off), b, off + IV_LENGTH,
+                len - IV_LENGTH, b, off + IV_LENGTH);
+
+        System.arraycopy(b, off + IV_LENGTH, b, off, n);
+
+        return n;
+    }
+
+    /**
+     * Encrypt len bytes of in using ECB mode, padded as described by PKCS#5.
+     * in and out may be the same array.
+     *
+     * @param cipher the block cipher to use
+     * @param in the array holding the plaintext
+     * @param inOff the offset of the first byte of plaintext
+     * @param len the number of bytes of plaintext
+     * @param out the array to write the ciphertext into
+     * @param outOff the offset to write the first byte of ciphertext at
+     * @return the number of bytes written, FastDES.outputLength(len)
+     */
+    public static int encryptECB(BlockCipher cipher, byte[] in, int inOff,
+            int len, byte[] out, int outOff) {
+
+        int outLen = FastDES.outputLength(len);
+
+        checkBounds(in, inOff, len, out, outOff, outLen);
+
+        ecb(cipher, true, in, inOff, len, out, outOff, outLen);
+
+        return outLen;
+    }
+
+    /**
+     * Decrypt len bytes of in using ECB mode. in and out may be the same
+     * array.
+     *
+     * @param cipher the block cipher to use
+     * @param in the array holding the ciphertext
+     * @param inOff the offset of the first byte of ciphertext
+     * @param len the number of bytes of ciphertext, a multiple of 8
+     * @param out the array to write the plaintext into, with room for len
+     * bytes
+     * @param outOff the offset to write the first byte of plaintext at
+     * @return the length of the plaintext written, without padding
+     */
+    public static int decryptECB(BlockCipher cipher, byte[] in, int inOff,
+            int len, byte[] out, int outOff) {
+
+        FastDES.checkCipherTextLength(len);
+        checkBounds(in, inOff, len, out, outOff, len);
+
+        ecb(cipher, false, in, inOff, len, out, outOff, len);
+
+        return FastDES.unpaddedLength(out, outOff, len);
+    }
+
+    /**
+     * Encrypt len bytes of in using CBC mode, padded as described by PKCS#5.
+     * in and out may be the same array.
+     *
+     * @param cipher the block cipher to use
+     * @param iv the 64-bit initialization vector
+     * @param in the array holding the plaintext
+     * @param inOff the offset of the first byte of plaintext
+     * @param len the number of bytes of plaintext
+     * @param out the array to write the ciphertext into
+     * @param outOff the offset to write the first byte of ciphertext at
+     * @return the number of bytes written, FastDES.outputLength(len)
+     */
+    public static int encryptCBC(BlockCipher cipher, long iv, byte[] in,
+            int inOff, int len, byte[] out, int outOff) {
+
+        int outLen = FastDES.outputLength(len);
+
+        checkBounds(in, inOff, len, out, outOff, outLen);
+
+        long prev = iv;
+
+        for (int x = 0; x < outLen; x += 8) {
+
+            prev = cipher.encryptBlock(readBlock(in, inOff + x, len - x) ^ prev);
+
+            FastDES.putLong(out, outOff + x, prev);
+        }
+
+        return outLen;
+    }
+
+    /**
+     * Decrypt len bytes of in using CBC mode. in and out may be the same
+     * array.
+     *
+     * @param cipher the block cipher to use
+     * @param iv the 64-bit initialization vector
+     * @param in the array holding the ciphertext
+     * @param inOff the offset of the first byte of ciphertext
+     * @param len the number of bytes of ciphertext, a multiple of 8
+     * @param out the array to write the plaintext into, with room for len
+     * bytes
+     * @param outOff the offset to write the first byte of plaintext at
+     * @return the length of the plaintext written, without padding
+     */
+    public static int decryptCBC(BlockCipher cipher, long iv, byte[] in,
+            int inOff, int len, byte[] out, int outOff) {
+
+        FastDES.checkCipherTextLength(len);
+        checkBounds(in, inOff, len, out, outOff, len);
+
+        long prev = iv;
+
+        for (int x = 0; x < len; x += 8) {
+
+            /**
+             * Read the ciphertext block before writing over it, in case the
+             * decryption is being done in place.
+             */
+            long c = FastDES.getLong(in, inOff + x);
+
+            FastDES.putLong(out, outOff + x, cipher.decryptBlock(c) ^ prev);
+
+            prev = c;
+        }
+
+        return FastDES.unpaddedLength(out, outOff, len);
+    }
+
+    /**
+     * Encrypt or decrypt len bytes of in using CTR mode. The output is the same
+     * length as the input, and in and out may be the same array. Inputs of at
+     * least PARALLEL_THRESHOLD bytes are split across the common ForkJoinPool.
+     *
+     * @param cipher the block cipher to use
+     * @param counter the initial 64-bit counter value
+     * @param in the array holding the input
+     * @param inOff the offset of the first byte of input
+     * @param len the number of bytes of input
+     * @param out the array to write the output into
+     * @param outOff the offset to write the first byte of output at
+     * @return the number of bytes written, which is len
+     */
+    public static int ctr(BlockCipher cipher, long counter, byte[] in,
+            int inOff, int len, byte[] out, int outOff) {
+
+        checkBounds(in, inOff, len, out, outOff, len);
+
+        int blocks = (len + 7) / 8;
+
+        if (len < PARALLEL_THRESHOLD) {
+
+            ctr(cipher, counter, in, inOff, len, out, outOff, 0, blocks);
+
+        } else {
+
+            ForkJoinPool.commonPool().invoke(new CTRTask(cipher, counter, in,
+                    inOff, len, out, outOff, 0, blocks));
+        }
+
+        return len;
+    }
+
+    /**
+     * Apply ECB mode, handing the blocks to the cipher in batches of up to
+     * BitslicedDES.BATCH.
+     *
+     * @param cipher the block cipher to use
+     * @param encrypt true to encrypt, false to decrypt
+     * @param in the array holding the input
+     * @param inOff the offset of the first byte of input
+     * @param len the number of bytes of input
+     * @param out the array to write the output into
+     * @param outOff the offset to write the first byte of output at
+     * @param outLen the number of bytes of output, including any padding
+     */
+    private static void ecb(BlockCipher cipher, boolean encrypt, byte[] in,
+            int inOff, int len, byte[] out, int outOff, int outLen) {
+
+        long[] batch = new long[Math.min(BitslicedDES.BATCH, outLen / 8)];
+
+        for (int x = 0; x < outLen; x += batch.length * 8) {
+
+            int n = Math.min(batch.length, (outLen - x) / 8);
+
+            for (int y = 0; y < n; ++y) {
+
+                batch[y] = readBlock(in, inOff + x + 8 * y, len - x - 8 * y);
+            }
+
+            if (encrypt) {
+
+                cipher.encryptBlocks(batch, 0, n);
+
+            } else {
+
+                cipher.decryptBlocks(batch, 0, n);
+            }
+
+            for (int y = 0; y < n; ++y) {
+
+                FastDES.putLong(out, outOff + x + 8 * y, batch[y]);
+            }
+        }
+    }
+
+    /**
+     * Apply CTR mode to a range of blocks of the input. The counter values are
+     * encrypted in batches of up to BitslicedDES.BATCH.
+     *
+     * @param cipher the block cipher to use
+     * @param counter the initial 64-bit counter value of the whole input
+     * @param in the array holding the input
+     * @param inOff the offset of the first byte of the whole input
+     * @param len the number of bytes in the whole input
+     * @param out the array to write the output into
+     * @param outOff the offset of the first byte of the whole output
+     * @param from the index of the first block of the range
+     * @param to the index after the last block of the range
+     */
+    private static void ctr(BlockCipher cipher, long counter, byte[] in,
+            int inOff, int len, byte[] out, int outOff, int from, int to) {
+
+        long[] keystream = new long[Math.min(BitslicedDES.BATCH, to - from)];
+
+        for (int b = from; b < to; b += keystream.length) {
+
+            int n = Math.min(keystream.length, to - b);
+
+            for (int y = 0; y < n; ++y) {
+
+                keystream[y] = counter + b + y;
+            }
+
+            cipher.encryptBlocks(keystream, 0, n);
+
+            int x = b * 8;
+
+            XorKernel.xor(in, inOff + x, keystream, 0, out, outOff + x,
+                    Math.min(8 * n, len - x));
+        }
+    }
+
+    /**
+     * Read 8 bytes as a big-endian block. If fewer than 8 remain, this is the
+     * last block of the message and it is padded as described by PKCS#5.
+     *
+     * @param b the array
+     * @param off the offset of the first byte
+     * @param remaining the number of bytes left in the input
+     * @return the 64-bit block
+     */
+    private static long readBlock(byte[] b, int off, int remaining) {
+
+        if (remaining >= 8) {
+
+            return FastDES.getLong(b, off);
+        }
+
+        return FastDES.padBlock(b, off, Math.max(remaining, 0));
+    }
+
+    /**
+     * Make sure the input and output ranges fit in their arrays.
+     *
+     * @param in the input array
+     * @param inOff the offset of the first input byte
+     * @param len the number of input bytes
+     * @param out the output array
+     * @param outOff the offset of the first output byte
+     * @param outLen the number of bytes that will be written to out
+     */
+    private static void checkBounds(byte[] in, int inOff, int len, byte[] out,
+            int outOff, int outLen) {
+
+        if (inOff < 0 || len < 0 || inOff + len > in.length) {
+
+            throw new IllegalArgumentException("Input out of bounds");
+        }
+
+        if (outOff < 0 || outOff + outLen > out.length) {
+
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+    }
+
+    /**
+     * A range of CTR blocks that splits itself in half until it is no bigger
+     * than BLOCKS_PER_TASK.
+     */
+    private static class CTRTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BlockCipher cipher;
+        private final long counter;
+        private final byte[] in, out;
+        private final int inOff, len, outOff, from, to;
+
+        CTRTask(BlockCipher cipher, long counter, byte[] in, int inOff, int len,
+                byte[] out, int outOff, int from, int to) {
+
+            this.cipher = cipher;
+            this.counter = counter;
+            this.in = in;
+            this.inOff = inOff;
+            this.len = len;
+            this.out = out;
+            this.outOff = outOff;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from <= BLOCKS_PER_TASK) {
+
+                ctr(cipher, counter, in, inOff, len, out, outOff, from, to);
+
+            } else {
+
+                int mid = (from + to) >>> 1;
+
+                invokeAll(new CTRTask(cipher, counter, in, inOff, len, out,
+                        outOff, from, mid),
+                        new CTRTask(cipher, counter, in, inOff, len, out,
+                                outOff, mid, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * CipherOutputStream.java
+ *
+ * CipherOutputStream encrypts or decrypts everything written to it with a
+ * ChunkCipher and writes the result to another OutputStream. Data is passed
+ * through the cipher in pieces of at most CHUNK_SIZE bytes, so a message of any
+ * length can be handled with one fixed-size buffer.
+ *
+ * Closing the stream finishes the cipher (padding the last block, for DES and
+ * AES) and closes the underlying stream. A block cipher holds back any partial
+ * block until then, so flush only passes on what has been produced so far.
+ */
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+public class CipherOutputStream extends FilterOutputStream {
+
+    /**
+     * The largest piece of input passed to the cipher at once.
+     */
+    static final int CHUNK_SIZE = 8192;
+
+    private final ChunkCipher cipher;
+    private final byte[] buffer;
+    private final byte[] single = new byte[1];
+
+    private boolean closed;
+
+    public CipherOutputStream(OutputStream out, ChunkCipher cipher) {
+
+        super(out);
+
+        this.cipher = cipher;
+
+        buffer = new byte[cipher.getOutputSize(CHUNK_SIZE)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+
+        single[0] = (byte) b;
+
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+
+        if (closed) {
+
+            throw new IOException("Stream closed");
+        }
+
+        try {
+
+            for (int x = 0; x < len; x += CHUNK_SIZE) {
+
+                int n = cipher.update(b, off + x, Math.min(CHUNK_SIZE, len - x),
+                        buffer, 0);
+
+                out.write(buffer, 0, n);
+            }
+
+        } catch (GeneralSecurityException ex) {
+
+            throw new IOException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) {
+
+            return;
+        }
+
+        closed = true;
+
+        try {
+
+            out.write(buffer, 0, cipher.doFinal(buffer, 0));
+
+        } catch (GeneralSecurityException ex) {
+
+            throw new IOException(ex);
+
+        } finally {
+
+            out.close();
+        }
+    }
+}
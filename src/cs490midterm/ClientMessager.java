@@ -19,25 +19,30 @@ package cs490midterm;
  * server.
  *
  * Every time the 'send' button is hit by the user, a new instance of
- * ClientMessager is created in its own thread. Each instance of ClientMessager
- * sends and receives (or times out) exactly one message, and updates the
- * interface ClientUI appropriately.
+ * ClientMessager is created and run in its own thread: a new platform thread,
+ * or a virtual thread from RequestExecutors. ClientMessager is a Runnable
+ * rather than a Thread, so that a virtual thread doesn't need a platform
+ * Thread object made for it as well. Each instance of ClientMessager sends
+ * and receives (or times out) exactly one message, and updates the interface
+ * ClientUI appropriately.
  *
- * The actual encryption/decryption of messages is done using the DES.java,
- * RC4.java, and AES.java classes. For the implementation of the algorithms,
- * please refer to those classes. ClientUI and ClientMessager are simply the
- * interface and communication mechanisms.
+ * The actual encryption/decryption of messages is done by the CipherEngine
+ * registered in CipherEngines.java for the chosen mode, and every mode goes
+ * through the same steps in MessageHandler.java. For the implementation of the
+ * algorithms, please refer to those classes. ClientUI and ClientMessager are
+ * simply the interface and communication mechanisms.
+ *
+ * Ciphertext is shown in the log as hexadecimal, using HexCodec.java.
  */
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
-import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 
-public class ClientMessager extends Thread {
+public class ClientMessager implements Runnable {
 
     /**
      * The maximum size of the messages able to be sent at one time.
@@ -57,25 +62,23 @@ public class ClientMessager extends Thread {
      * dynamically. A different key is needed for AES because of the increased
      * bit-length of the minimum key.
      */
-    final String KEY_STRING = "iamakey!";
+    static final String KEY_STRING = "iamakey!";
 
     /**
      * AES requires a 128-bit key at the minimum.
      */
-    final String AES_KEY_STRING = "AES 128-bit key!";
+    static final String AES_KEY_STRING = "AES 128-bit key!";
 
     /**
-     * The Charset used by the Client and Server must be identical or
-     * unpredictable behavior will result, and messages will almost certainly
-     * not be able to be deciphered between Client and Server. Most JVMs running
-     * on Windows 7 will have "windows-1252" (aka "Cp1252" or "Windows Latin-1")
-     * as the default Charset, and Linux will generally specify "UTF-8" as the
-     * default. For convenience I have hard-coded every byte[] to String
-     * conversion to use the constant 'CHARSET', which has been set to "UTF-8".
-     * This does not change the default encoding specified by the JVM on the
-     * local machine.
+     * The 192-bit key used for Triple-DES, as three independent 64-bit DES
+     * keys.
      */
-    final String CHARSET = StandardCharsets.UTF_8.name();
+    static final String TDES_KEY_STRING = "iamakey!andanotherthird!";
+
+    /**
+     * The 256-bit key used for ChaCha20.
+     */
+    static final String CHACHA20_KEY_STRING = "ChaCha20 256-bit key for CS490!!";
 
     InetSocketAddress serverSocketAddr;
     DatagramSocket clientSocket;
@@ -87,30 +90,20 @@ public class ClientMessager extends Thread {
 
     int encryptionMode;
 
+    /**
+     * The ClientUI's RC4 session, if this message is sent in mode 7.
+     */
+    RC4Session session;
+
     public ClientMessager(String serverIP, String serverPort, String message,
             ClientUI client, int mode) throws IOException {
 
-        this("ClientMessager", serverIP, serverPort, message, client, mode);
+        this(serverIP, Integer.parseInt(serverPort), message, client, mode);
     }
 
     public ClientMessager(String serverIP, int serverPort, String message,
             ClientUI client, int mode) throws IOException {
 
-        this("ClientMessager", serverIP, serverPort, message, client, mode);
-    }
-
-    public ClientMessager(String name, String serverIP, String serverPort,
-            String message, ClientUI client, int mode) throws IOException {
-
-        this(name, serverIP, Integer.parseInt(serverPort), message, client,
-                mode);
-    }
-
-    public ClientMessager(String name, String serverIP, int serverPort,
-            String message, ClientUI client, int mode) throws IOException {
-
-        super(name);
-
         serverSocketAddr = new InetSocketAddress(serverIP, serverPort);
         clientSocket = new DatagramSocket();
         clientSocket.setSoTimeout(TIMEOUT);
@@ -132,180 +125,93 @@ public class ClientMessager extends Thread {
 
         try {
 
-            byte[] inputBuffer = new byte[MAX_BUFFER_SIZE];
+            MessageHandler messages = client.messages;
 
             /**
-             * A code of 0 denotes plain-text with no encryption.
+             * RC4 session encryption. The session belongs to the ClientUI, so
+             * that it carries on from one message to the next, and is started
+             * by the first message sent in this mode, which registers its
+             * engine with the ClientUI's engines. The session lock is held
+             * until the reply has been received, or has timed out, so no
+             * other message can start a session in the meantime.
              */
-            if (encryptionMode == 0) {
+            if (encryptionMode == CipherEngines.MODE_RC4_SESSION) {
 
-                String cipherText = Integer.toString(encryptionMode) + message;
+                client.rc4SessionLock.lock();
 
-                clientSocket.send(new DatagramPacket(cipherText.getBytes(CHARSET),
-                        cipherText.getBytes(CHARSET).length, serverSocketAddr));
+                synchronized (client) {
 
-                client.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Message sent to server at "
-                        + serverSocketAddr.getAddress().toString() + "\n");
+                    if (client.rc4Session == null) {
 
-                DatagramPacket receivePacket = new DatagramPacket(inputBuffer,
-                        inputBuffer.length);
+                        client.rc4Session
+                                = RC4Session.newClientSession(KEY_STRING);
 
-                clientSocket.receive(receivePacket);
+                        client.engines.register(
+                                CipherEngines.rc4Session(client.rc4Session));
+                    }
 
-                /**
-                 * Take the encrypted message returned from the server,
-                 * decrypted it using the key, and strip any 'null' characters
-                 * (ASCII value of 0) from the String
-                 */
-                String returnFromServer = new String(receivePacket.getData(),
-                        0, receivePacket.getLength());
-
-                client.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Received message:\n\"" + returnFromServer
-                        + "\"\n returned from server at "
-                        + receivePacket.getAddress() + "\n\n");
+                    session = client.rc4Session;
+                }
             }
 
+            CipherEngine engine = messages.getEngine(encryptionMode);
+
             /**
-             * RC4 encryption.
+             * A code of 0 denotes plain-text with no encryption.
              */
-            if (encryptionMode == 1) {
-
-                /**
-                 * Encrypt the message to send to the server.
-                 */
-                String cipherText = Integer.toString(encryptionMode)
-                        + Utils.hexToASCII(RC4.rC4(message, KEY_STRING));
-
-                client.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Message encrypted using RC4 is:\n\""
-                        + cipherText.substring(1) + "\"\n");
-
-                clientSocket.send(new DatagramPacket(cipherText.getBytes(CHARSET),
-                        cipherText.getBytes(CHARSET).length, serverSocketAddr));
-
-                client.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Message sent to server at "
-                        + serverSocketAddr.getAddress().toString() + "\n");
-
-                DatagramPacket receivePacket = new DatagramPacket(inputBuffer,
-                        inputBuffer.length);
-
-                clientSocket.receive(receivePacket);
-
-                /**
-                 * Take the encrypted message returned from the server,
-                 * decrypted it using the key, and strip any 'null' characters
-                 * (ASCII value of 0) from the String.
-                 */
-                String returnFromServer = new String(receivePacket.getData(), 0,
-                        receivePacket.getLength(), CHARSET);
+            boolean plain = engine.getId() == CipherEngines.MODE_PLAIN;
 
-                String decryptedMessage
-                        = Utils.hexToASCII(RC4.rC4(returnFromServer, KEY_STRING));
-
-                client.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Received message:\n\"" + decryptedMessage
-                        + "\"\n returned from server at "
-                        + receivePacket.getAddress() + "\n\n");
-            }
+            /**
+             * The same buffer holds the packet sent and the one received.
+             */
+            byte[] packet = new byte[MAX_BUFFER_SIZE];
 
             /**
-             * DES encryption.
+             * Encrypt the message to send to the server.
              */
-            if (encryptionMode == 2) {
+            int n = messages.encrypt(engine, message, packet);
 
-                /**
-                 * Encrypt the message to send to the server.
-                 */
-                String cipherText = Integer.toString(encryptionMode)
-                        + DES.encryptMessage(message,
-                                Utils.ASCIIToHexString(KEY_STRING));
+            if (!plain) {
 
                 client.convoArea.append("["
                         + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Message encrypted using DES is:\n\""
-                        + cipherText.substring(1) + "\"\n");
+                        + "] Message encrypted using " + engine.getName()
+                        + " is:\n\"" + MessageHandler.toHex(packet, n)
+                        + "\"\n");
+            }
 
-                clientSocket.send(new DatagramPacket(cipherText.getBytes(CHARSET),
-                        cipherText.getBytes(CHARSET).length, serverSocketAddr));
+            clientSocket.send(new DatagramPacket(packet, n, serverSocketAddr));
 
-                client.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Message sent to server at "
-                        + serverSocketAddr.getAddress().toString() + "\n");
+            client.convoArea.append("["
+                    + dateFormat.format(Calendar.getInstance().getTime())
+                    + "] Message sent to server at "
+                    + serverSocketAddr.getAddress().toString() + "\n");
 
-                DatagramPacket receivePacket = new DatagramPacket(inputBuffer,
-                        inputBuffer.length);
+            DatagramPacket receivePacket = new DatagramPacket(packet,
+                    packet.length);
 
-                clientSocket.receive(receivePacket);
+            clientSocket.receive(receivePacket);
 
-                /**
-                 * Take the encrypted message returned from the server,
-                 * decrypted it using the key, and strip any 'null' characters
-                 * (ASCII value of 0) from the String.
-                 */
-                String returnFromServer = new String(receivePacket.getData(), 0,
-                        receivePacket.getLength(), CHARSET);
+            int len = receivePacket.getLength();
 
-                String decryptedMessage
-                        = Utils.stripNulls(DES.decryptMessage(returnFromServer,
-                                        Utils.ASCIIToHexString(KEY_STRING)));
+            if (messages.getEngine(packet, len) != engine) {
 
-                client.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Received message:\n\"" + decryptedMessage
-                        + "\"\n returned from server at "
-                        + receivePacket.getAddress() + "\n\n");
+                throw new IllegalArgumentException(
+                        "Reply from server used a different mode");
             }
 
             /**
-             * AES encryption.
+             * Take the encrypted message returned from the server and decrypt
+             * it. Any padding is left out of the result, so there is nothing
+             * to strip.
              */
-            if (encryptionMode == 3) {
-
-                /**
-                 * Encrypt the message to send to the server.
-                 */
-                String cipherText = Integer.toString(encryptionMode)
-                        + AES.encrypt(message, AES_KEY_STRING);
-
-                client.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Message encrypted using AES is:\n\""
-                        + cipherText.substring(1) + "\"\n");
-
-                clientSocket.send(new DatagramPacket(cipherText.getBytes(CHARSET),
-                        cipherText.getBytes(CHARSET).length, serverSocketAddr));
-
-                client.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Message sent to server at "
-                        + serverSocketAddr.getAddress().toString() + "\n");
-
-                DatagramPacket receivePacket = new DatagramPacket(inputBuffer,
-                        inputBuffer.length);
+            String decryptedMessage = messages.decrypt(engine, packet, len);
 
-                clientSocket.receive(receivePacket);
-
-                String returnFromServer = new String(receivePacket.getData(), 0,
-                        receivePacket.getLength(), CHARSET);
-
-                String decryptedMessage = AES.decrypt(returnFromServer,
-                        AES_KEY_STRING);
-
-                client.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Received message:\n\"" + decryptedMessage
-                        + "\"\n returned from server at "
-                        + receivePacket.getAddress() + "\n\n");
-            }
+            client.convoArea.append("["
+                    + dateFormat.format(Calendar.getInstance().getTime())
+                    + "] Received message:\n\"" + decryptedMessage
+                    + "\"\n returned from server at "
+                    + receivePacket.getAddress() + "\n\n");
 
         } catch (java.net.SocketTimeoutException t) {
 
@@ -316,6 +222,21 @@ public class ClientMessager extends Thread {
                     + " not received within " + TIMEOUT
                     + "ms, closing socket connection\n\n");
 
+            /**
+             * The server may have dropped the session, or never received
+             * its first message, so the next message starts a new one.
+             */
+            if (session != null) {
+
+                synchronized (client) {
+
+                    if (client.rc4Session == session) {
+
+                        client.rc4Session = null;
+                    }
+                }
+            }
+
         } catch (IOException ex) {
 
             client.convoArea.append(ex.getMessage() + "\n");
@@ -329,6 +250,12 @@ public class ClientMessager extends Thread {
                     + dateFormat.format(Calendar.getInstance().getTime())
                     + "] Something went wrong:\n"
                     + ex.getMessage());
+        } finally {
+
+            if (client.rc4SessionLock.isHeldByCurrentThread()) {
+
+                client.rc4SessionLock.unlock();
+            }
         }
 
         clientSocket.close();
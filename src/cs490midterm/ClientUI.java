@@ -29,6 +29,7 @@ import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.swing.*;
 
 public class ClientUI extends JPanel implements ActionListener {
@@ -41,13 +42,54 @@ public class ClientUI extends JPanel implements ActionListener {
     JTextField messageInputField;
     JTextArea convoArea;
     JScrollPane messagePane;
-    JButton sendButton, offButton, RC4Button, DESButton, AESButton, clearButton;
+    JButton sendButton, offButton, RC4Button, DESButton, AESButton,
+            DESCBCButton, DESCTRButton, TDESButton, RC4SessionButton,
+            ChaCha20Button, virtualThreadsButton, clearButton;
+    JButton[] modeButtons;
     Color bgColor, panelColor, buttonDefaultColor, buttonSelectedColor;
 
     DateFormat dateFormat;
 
     int encryptionMode;
 
+    /**
+     * Whether messages are sent on the shared executor of RequestExecutors,
+     * on virtual threads where the JDK has them, instead of a new platform
+     * thread each.
+     */
+    boolean virtualThreads;
+
+    /**
+     * The RC4 session used by encryption mode 7. It is kept here rather than
+     * in ClientMessager, since a new ClientMessager is created for every
+     * message but the session carries on from one message to the next. It is
+     * started by the first message sent in that mode, and is started again
+     * whenever the "RC4 Session" button is pressed. It is read and replaced
+     * while holding the ClientUI's own lock.
+     */
+    RC4Session rc4Session;
+
+    /**
+     * Held by a ClientMessager in mode 7 from encrypting its message until it
+     * has the reply or has timed out, so that only one message of the session
+     * is on its way at a time. The server can't decrypt a message that
+     * arrives after a later one in the same session. The lock is fair, so the
+     * messages go out in the order they were sent.
+     */
+    final ReentrantLock rc4SessionLock = new ReentrantLock(true);
+
+    /**
+     * The engines for every mode, built once and used by every
+     * ClientMessager. The engine for mode 7 is registered by the
+     * ClientMessager that starts each RC4 session.
+     */
+    final CipherEngines engines = CipherEngines.standard(
+            ClientMessager.KEY_STRING, ClientMessager.AES_KEY_STRING,
+            ClientMessager.TDES_KEY_STRING,
+            ClientMessager.CHACHA20_KEY_STRING);
+
+    final MessageHandler messages = new MessageHandler(engines);
+
     public ClientUI() {
 
         super(new BorderLayout(20, 0));
@@ -76,6 +118,28 @@ public class ClientUI extends JPanel implements ActionListener {
         AESButton = new JButton("AES");
         AESButton.addActionListener(this);
 
+        DESCBCButton = new JButton("DES-CBC");
+        DESCBCButton.addActionListener(this);
+
+        DESCTRButton = new JButton("DES-CTR");
+        DESCTRButton.addActionListener(this);
+
+        TDESButton = new JButton("3DES");
+        TDESButton.addActionListener(this);
+
+        RC4SessionButton = new JButton("RC4 Session");
+        RC4SessionButton.addActionListener(this);
+
+        ChaCha20Button = new JButton("ChaCha20");
+        ChaCha20Button.addActionListener(this);
+
+        modeButtons = new JButton[]{RC4Button, DESButton, AESButton,
+            DESCBCButton, DESCTRButton, TDESButton, RC4SessionButton,
+            ChaCha20Button};
+
+        virtualThreadsButton = new JButton("Virtual threads");
+        virtualThreadsButton.addActionListener(this);
+
         clearButton = new JButton("Clear messages");
         clearButton.addActionListener(this);
 
@@ -101,7 +165,13 @@ public class ClientUI extends JPanel implements ActionListener {
         buttonPanel.add(RC4Button);
         buttonPanel.add(DESButton);
         buttonPanel.add(AESButton);
+        buttonPanel.add(DESCBCButton);
+        buttonPanel.add(DESCTRButton);
+        buttonPanel.add(TDESButton);
+        buttonPanel.add(RC4SessionButton);
+        buttonPanel.add(ChaCha20Button);
         buttonPanel.add(offButton);
+        buttonPanel.add(virtualThreadsButton);
         buttonPanel.add(clearButton);
 
         topPanel = new JPanel();
@@ -137,9 +207,7 @@ public class ClientUI extends JPanel implements ActionListener {
          */
         if (ae.getSource() == offButton) {
 
-            RC4Button.setBackground(buttonDefaultColor);
-            DESButton.setBackground(buttonDefaultColor);
-            AESButton.setBackground(buttonDefaultColor);
+            selectModeButton(null);
 
             encryptionMode = 0;
 
@@ -155,9 +223,7 @@ public class ClientUI extends JPanel implements ActionListener {
          */
         if (ae.getSource() == RC4Button) {
 
-            RC4Button.setBackground(buttonSelectedColor);
-            DESButton.setBackground(buttonDefaultColor);
-            AESButton.setBackground(buttonDefaultColor);
+            selectModeButton(RC4Button);
 
             encryptionMode = 1;
 
@@ -173,9 +239,7 @@ public class ClientUI extends JPanel implements ActionListener {
          */
         if (ae.getSource() == DESButton) {
 
-            RC4Button.setBackground(buttonDefaultColor);
-            DESButton.setBackground(buttonSelectedColor);
-            AESButton.setBackground(buttonDefaultColor);
+            selectModeButton(DESButton);
 
             encryptionMode = 2;
 
@@ -191,9 +255,7 @@ public class ClientUI extends JPanel implements ActionListener {
          */
         if (ae.getSource() == AESButton) {
 
-            RC4Button.setBackground(buttonDefaultColor);
-            DESButton.setBackground(buttonDefaultColor);
-            AESButton.setBackground(Color.red);
+            selectModeButton(AESButton);
 
             encryptionMode = 3;
 
@@ -202,6 +264,112 @@ public class ClientUI extends JPanel implements ActionListener {
                     + "] AES encryption enabled\n\n");
         }
 
+        /**
+         * If the "DES-CBC" button is pressed, set the encryptionMode value to
+         * 4. All messages sent will be encrypted using DES in CBC mode, as
+         * implemented in CipherModes.java.
+         */
+        if (ae.getSource() == DESCBCButton) {
+
+            selectModeButton(DESCBCButton);
+
+            encryptionMode = 4;
+
+            convoArea.append("["
+                    + dateFormat.format(Calendar.getInstance().getTime())
+                    + "] DES-CBC encryption enabled\n\n");
+        }
+
+        /**
+         * If the "DES-CTR" button is pressed, set the encryptionMode value to
+         * 5. All messages sent will be encrypted using DES in CTR mode, as
+         * implemented in CipherModes.java.
+         */
+        if (ae.getSource() == DESCTRButton) {
+
+            selectModeButton(DESCTRButton);
+
+            encryptionMode = 5;
+
+            convoArea.append("["
+                    + dateFormat.format(Calendar.getInstance().getTime())
+                    + "] DES-CTR encryption enabled\n\n");
+        }
+
+        /**
+         * If the "3DES" button is pressed, set the encryptionMode value to 6.
+         * All messages sent will be encrypted using Triple-DES in CBC mode, as
+         * implemented in TripleDES.java.
+         */
+        if (ae.getSource() == TDESButton) {
+
+            selectModeButton(TDESButton);
+
+            encryptionMode = 6;
+
+            convoArea.append("["
+                    + dateFormat.format(Calendar.getInstance().getTime())
+                    + "] 3DES encryption enabled\n\n");
+        }
+
+        /**
+         * If the "RC4 Session" button is pressed, set the encryptionMode value
+         * to 7 and drop the current session, if there is one. All messages
+         * sent will be encrypted using a new RC4 session, as implemented in
+         * RC4Session.java.
+         */
+        if (ae.getSource() == RC4SessionButton) {
+
+            selectModeButton(RC4SessionButton);
+
+            encryptionMode = 7;
+
+            synchronized (this) {
+
+                rc4Session = null;
+            }
+
+            convoArea.append("["
+                    + dateFormat.format(Calendar.getInstance().getTime())
+                    + "] RC4 session encryption enabled\n\n");
+        }
+
+        /**
+         * If the "ChaCha20" button is pressed, set the encryptionMode value to
+         * 8. All messages sent will be encrypted using ChaCha20 with a new
+         * nonce for each message, as implemented in ChaCha20.java.
+         */
+        if (ae.getSource() == ChaCha20Button) {
+
+            selectModeButton(ChaCha20Button);
+
+            encryptionMode = 8;
+
+            convoArea.append("["
+                    + dateFormat.format(Calendar.getInstance().getTime())
+                    + "] ChaCha20 encryption enabled\n\n");
+        }
+
+        /**
+         * The "Virtual threads" button switches between sending each message
+         * on a new platform thread, and on a virtual thread from the executor
+         * shared by every ClientUI. Before JDK 21 the shared executor uses
+         * pooled platform threads instead.
+         */
+        if (ae.getSource() == virtualThreadsButton) {
+
+            virtualThreads = !virtualThreads;
+
+            convoArea.append("["
+                    + dateFormat.format(Calendar.getInstance().getTime())
+                    + "] Messages will be sent on "
+                    + (!virtualThreads ? "a new thread each"
+                            : RequestExecutors.isVirtualThreadSupported()
+                            ? "virtual threads"
+                            : "pooled threads (virtual threads need JDK 21)")
+                    + "\n\n");
+        }
+
         /**
          * If the "Send" button is pressed, validate the input (must be at least
          * one character) and construct a new ClientMessager instance in a
@@ -220,7 +388,14 @@ public class ClientUI extends JPanel implements ActionListener {
                     ClientMessager m = new ClientMessager(SERVER_IP,
                             SERVER_PORT, input, this, encryptionMode);
                     
-                    m.start();
+                    if (virtualThreads) {
+
+                        RequestExecutors.client().execute(m);
+
+                    } else {
+
+                        new Thread(m, "ClientMessager").start();
+                    }
 
                 } catch (IOException | IllegalArgumentException ex) {
                     
@@ -239,6 +414,21 @@ public class ClientUI extends JPanel implements ActionListener {
         }
     }
 
+    /**
+     * Highlight the button of the selected encryption mode and reset all of
+     * the others.
+     *
+     * @param selected the button to highlight, or null for no encryption
+     */
+    private void selectModeButton(JButton selected) {
+
+        for (JButton b : modeButtons) {
+
+            b.setBackground(b == selected ? buttonSelectedColor
+                    : buttonDefaultColor);
+        }
+    }
+
     public static void main(String[] args) {
 
         ClientUI clientPanel = new ClientUI();
@@ -30,7 +30,6 @@ package cs490midterm;
  * notation. This program will treat this representation as a byte array such
  * that its values are: {0,1,1,0,0,0,0,1}.
  */
-import java.math.BigInteger;
 import java.util.HashMap;
 
 public class DES {
@@ -51,7 +50,7 @@ public class DES {
 
         byte[] key = hexStringTo64BitBinaryArray(k);
 
-        String cipherText = "";
+        StringBuilder cipherText = new StringBuilder(message.length() + 8);
 
         for (int x = 0; x < message.length(); x += 8) {
 
@@ -71,14 +70,10 @@ public class DES {
              */
             byte[] c = encrypt(i, key);
 
-            String cipherBinString = intArrayToString(c);
-
-            String h = (new BigInteger(cipherBinString, 2)).toString(16);
-
-            cipherText += Utils.hexToASCII(h);
+            appendBlock(c, cipherText);
         }
 
-        return cipherText;
+        return cipherText.toString();
     }
 
     /**
@@ -92,7 +87,7 @@ public class DES {
 
         byte[] key = hexStringTo64BitBinaryArray(k);
 
-        String plainText = "";
+        StringBuilder plainText = new StringBuilder(message.length());
 
         for (int x = 0; x < message.length(); x += 8) {
 
@@ -106,14 +101,10 @@ public class DES {
 
             byte[] d = decrypt(i, key);
 
-            String cipherBinString = intArrayToString(d);
-
-            String h = (new BigInteger(cipherBinString, 2)).toString(16);
-
-            plainText += Utils.hexToASCII(h);
+            appendBlock(d, plainText);
         }
 
-        return plainText;
+        return plainText.toString();
     }
 
     /**
@@ -144,9 +135,11 @@ public class DES {
              * Uncomment this block to print out the individual round results.
              *
              System.out.println("R" + (x + 1) + " -- Key: " 
-             + (new BigInteger(intArrayToString(roundKeys[x]), 2)).toString(16)
+             + Long.toHexString(Long.parseUnsignedLong(
+             intArrayToString(roundKeys[x]), 2))
              + "  Output: " 
-             + (new BigInteger(intArrayToString(i), 2)).toString(16));
+             + Long.toHexString(Long.parseUnsignedLong(
+             intArrayToString(i), 2)));
              */
         }
 
@@ -636,78 +629,75 @@ public class DES {
      */
     public static byte[] hexStringTo64BitBinaryArray(String h) {
 
-        String s = (new BigInteger(h, 16)).toString(2);
-        String t = "";
-
-        for (int x = 0; x < (64 - s.length()); ++x) {
-
-            t += 0;
-        }
-
-        t += s;
+        long k = FastDES.parseKey(h);
 
         byte[] i = new byte[64];
 
         for (int x = 0; x < i.length; ++x) {
 
-            i[x] = t.charAt(x) == '1' ? (byte) 1 : (byte) 0;
+            i[x] = (byte) ((k >>> (63 - x)) & 1);
         }
 
         return i;
     }
 
     public static String intArrayToString(byte[] i) {
-        String s = "";
+
+        char[] s = new char[i.length];
 
         for (int x = 0; x < i.length; ++x) {
-            s += i[x];
+
+            s[x] = (char) ('0' + i[x]);
         }
 
-        return s;
+        return new String(s);
     }
 
     /**
-     * Takes in a String of ASCII characters <= 8 bytes in length and returns a
-     * 64-bit binary representation, padded with leading zeroes if neccessary.
-     * 
-     * @param input the String of ASCII characters 8 bytes or less in length
-     * @return a byte[] representing the bits of input
+     * Append the 64 bits of a block to a String as 8 characters, one per
+     * byte. Every byte is kept, including any zero bytes at the start of the
+     * block, which converting through BigInteger and hexadecimal used to drop.
+     *
+     * @param bits the 64-bit block, one bit per byte
+     * @param out the characters of the message so far
      */
-    private static byte[] binArray64(String input) {
-
-        String bin = "";
+    private static void appendBlock(byte[] bits, StringBuilder out) {
 
-        char[] c = input.toCharArray();
+        for (int x = 0; x < bits.length; x += 8) {
 
-        for (int x = 0; x < c.length; ++x) {
+            int c = 0;
 
-            String a = "";
+            for (int z = 0; z < 8; ++z) {
 
-            for (int z = 0;
-                    z < (8 - Integer.toBinaryString((int) c[x]).length());
-                    ++z) {
-                
-                a += "0";
+                c = (c << 1) | bits[x + z];
             }
 
-            bin += (a + Integer.toBinaryString((int) c[x]));
+            out.append((char) c);
         }
+    }
+
+    /**
+     * Takes in a String of ASCII characters <= 8 bytes in length and returns a
+     * 64-bit binary representation, padded with leading zeroes if neccessary.
+     * 
+     * @param input the String of ASCII characters 8 bytes or less in length
+     * @return a byte[] representing the bits of input
+     */
+    private static byte[] binArray64(String input) {
 
         /**
-         * Pad out to 64 places with zeros.
+         * Anything short of 8 characters is padded out to 64 places with
+         * zeros, which the new array already holds.
          */
-        for (int x = 0; x < (8 - input.length()); ++x) {
+        byte[] bin64 = new byte[64];
 
-            bin += "00000000";
-        }
+        for (int x = 0; x < input.length(); ++x) {
 
-        byte[] bin64 = new byte[64];
+            int c = input.charAt(x);
+
+            for (int z = 0; z < 8; ++z) {
 
-        for (int x = 0; x < bin64.length; ++x) {
-            
-            if (bin.charAt(x) == '1') {
-                
-                bin64[x] = 1;
+                bin64[8 * x + z] = (byte) ((c >>> (7 - z)) & 1);
             }
         }
 
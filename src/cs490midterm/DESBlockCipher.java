@@ -0,0 +1,65 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * DESBlockCipher.java
+ *
+ * DESBlockCipher adapts FastDES and a DESKeySchedule to the BlockCipher
+ * interface so that DES can be used with the modes in CipherModes.java.
+ * Batches of BitslicedDES.BATCH blocks or more are handed to BitslicedDES.
+ */
+public class DESBlockCipher implements BlockCipher {
+
+    private final DESKeySchedule key;
+
+    public DESBlockCipher(DESKeySchedule key) {
+
+        this.key = key;
+    }
+
+    @Override
+    public long encryptBlock(long block) {
+
+        return FastDES.encryptBlock(block, key);
+    }
+
+    @Override
+    public long decryptBlock(long block) {
+
+        return FastDES.decryptBlock(block, key);
+    }
+
+    @Override
+    public void encryptBlocks(long[] blocks, int off, int len) {
+
+        int x = off;
+
+        for (; x + BitslicedDES.BATCH <= off + len; x += BitslicedDES.BATCH) {
+
+            BitslicedDES.encrypt(blocks, x, key);
+        }
+
+        for (; x < off + len; ++x) {
+
+            blocks[x] = FastDES.encryptBlock(blocks[x], key);
+        }
+    }
+
+    @Override
+    public void decryptBlocks(long[] blocks, int off, int len) {
+
+        int x = off;
+
+        for (; x + BitslicedDES.BATCH <= off + len; x += BitslicedDES.BATCH) {
+
+            BitslicedDES.decrypt(blocks, x, key);
+        }
+
+        for (; x < off + len; ++x) {
+
+            blocks[x] = FastDES.decryptBlock(blocks[x], key);
+        }
+    }
+}
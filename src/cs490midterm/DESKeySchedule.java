@@ -0,0 +1,230 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * DESKeySchedule.java
+ *
+ * DESKeySchedule holds the 16 48-bit round keys generated from a single 64-bit
+ * DES key, in encryption order and in the reversed order used for decryption.
+ * An instance never changes once it has been built, so the same instance can be
+ * shared by every thread and every block encrypted under that key.
+ *
+ * Generating the schedule (PC1, the rotations of each half and PC2) only needs
+ * to happen once per key, so instances are handed out through forKey, which
+ * keeps the most recently used schedules in a small LRU cache keyed by the raw
+ * key bytes.
+ */
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class DESKeySchedule {
+
+    /**
+     * The maximum number of schedules kept in the cache. The messagers only
+     * ever use one DES key, so this is generous.
+     */
+    static final int CACHE_SIZE = 64;
+
+    /**
+     * Permuted choice 1, 64 bits down to 56.
+     */
+    private static final int[] PC1 = {
+        57, 49, 41, 33, 25, 17, 9,
+        1, 58, 50, 42, 34, 26, 18,
+        10, 2, 59, 51, 43, 35, 27,
+        19, 11, 3, 60, 52, 44, 36,
+        63, 55, 47, 39, 31, 23, 15,
+        7, 62, 54, 46, 38, 30, 22,
+        14, 6, 61, 53, 45, 37, 29,
+        21, 13, 5, 28, 20, 12, 4
+    };
+
+    /**
+     * Permuted choice 2, 56 bits down to 48.
+     */
+    private static final int[] PC2 = {
+        14, 17, 11, 24, 1, 5,
+        3, 28, 15, 6, 21, 10,
+        23, 19, 12, 4, 26, 8,
+        16, 7, 27, 20, 13, 2,
+        41, 52, 31, 37, 47, 55,
+        30, 40, 51, 45, 33, 48,
+        44, 49, 39, 56, 34, 53,
+        46, 42, 50, 36, 29, 32
+    };
+
+    /**
+     * The number of bits each half of the key is rotated in each round.
+     */
+    private static final int[] SHIFTS = {
+        1, 1, 2, 2, 2, 2, 2, 2, 1, 2, 2, 2, 2, 2, 2, 1
+    };
+
+    /**
+     * Recently used schedules, least recently used first. Access to the map
+     * is synchronized on the map itself.
+     */
+    private static final Map<Long, DESKeySchedule> CACHE
+            = new LinkedHashMap<Long, DESKeySchedule>(CACHE_SIZE, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Long, DESKeySchedule> eldest) {
+
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    /**
+     * The 64-bit key this schedule was generated from.
+     */
+    private final long key;
+
+    /**
+     * The round keys in the order used for encryption and for decryption.
+     * These are never modified and are not exposed outside the package.
+     */
+    final long[] encryptKeys;
+    final long[] decryptKeys;
+
+    private DESKeySchedule(long key) {
+
+        this.key = key;
+
+        encryptKeys = genKeys(key);
+        decryptKeys = new long[encryptKeys.length];
+
+        for (int x = 0; x < encryptKeys.length; ++x) {
+
+            decryptKeys[x] = encryptKeys[encryptKeys.length - 1 - x];
+        }
+    }
+
+    /**
+     * Get the schedule for an 8-byte key.
+     *
+     * @param key the 8 raw bytes of the 64-bit key
+     * @return the schedule for key
+     */
+    public static DESKeySchedule forKey(byte[] key) {
+
+        if (key.length != 8) {
+
+            throw new IllegalArgumentException("Key must be 64-bit");
+        }
+
+        long k = 0;
+
+        for (int x = 0; x < 8; ++x) {
+
+            k = (k << 8) | (key[x] & 0xFF);
+        }
+
+        return forKey(k);
+    }
+
+    /**
+     * Get the schedule for a key given as a hexadecimal String, the format
+     * used by DES.encryptMessage and DES.decryptMessage.
+     *
+     * @param h the String representation of the 64-bit key in hexadecimal
+     * @return the schedule for the key
+     */
+    public static DESKeySchedule forHexKey(String h) {
+
+        return forKey(FastDES.parseKey(h));
+    }
+
+    /**
+     * Get the schedule for a 64-bit key, generating it only if it isn't
+     * already cached.
+     *
+     * @param key the 64-bit key
+     * @return the schedule for key
+     */
+    public static DESKeySchedule forKey(long key) {
+
+        Long k = key;
+
+        synchronized (CACHE) {
+
+            DESKeySchedule schedule = CACHE.get(k);
+
+            if (schedule == null) {
+
+                schedule = new DESKeySchedule(key);
+                CACHE.put(k, schedule);
+            }
+
+            return schedule;
+        }
+    }
+
+    /**
+     * @return the 64-bit key this schedule was generated from
+     */
+    public long getKey() {
+
+        return key;
+    }
+
+    /**
+     * Generate the 48-bit keys for each round of the cipher.
+     *
+     * @param key the original 64-bit key
+     * @return the 16 round keys, each in the low 48 bits of a long
+     */
+    private static long[] genKeys(long key) {
+
+        long k56 = permute(key, 64, PC1);
+
+        int c = (int) (k56 >>> 28) & 0x0FFFFFFF,
+                d = (int) k56 & 0x0FFFFFFF;
+
+        long[] roundKeys = new long[SHIFTS.length];
+
+        for (int x = 0; x < SHIFTS.length; ++x) {
+
+            c = rotate28(c, SHIFTS[x]);
+            d = rotate28(d, SHIFTS[x]);
+
+            roundKeys[x] = permute(((long) c << 28) | d, 56, PC2);
+        }
+
+        return roundKeys;
+    }
+
+    /**
+     * Rotate a 28-bit value left.
+     *
+     * @param i the 28-bit value
+     * @param n the number of places to rotate
+     * @return the rotated value
+     */
+    private static int rotate28(int i, int n) {
+
+        return ((i << n) | (i >>> (28 - n))) & 0x0FFFFFFF;
+    }
+
+    /**
+     * Apply a permutation table bit by bit.
+     *
+     * @param in the input, right-aligned in a long
+     * @param width the number of bits in the input
+     * @param table the 1-based permutation table
+     * @return the permuted bits, right-aligned in a long
+     */
+    private static long permute(long in, int width, int[] table) {
+
+        long out = 0;
+
+        for (int x = 0; x < table.length; ++x) {
+
+            out = (out << 1) | ((in >>> (width - table[x])) & 1);
+        }
+
+        return out;
+    }
+}
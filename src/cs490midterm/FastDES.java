@@ -0,0 +1,811 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * FastDES.java
+ *
+ * FastDES.java is a second implementation of the standard DES algorithm. Unlike
+ * DES.java, it does not store each bit of the block in its own byte. A 64-bit
+ * block is held in a single long and the left and right halves of each round
+ * are held in ints. Every permutation is either a handful of shifts and masks
+ * or a lookup into a table that is built once when the class is loaded, so
+ * nothing is allocated inside the round loop.
+ *
+ * The bit numbering used by the FIPS 46-3 tables (bit 1 is the leftmost bit)
+ * maps onto the most significant bit of the long, so the first character of a
+ * block ends up in the top 8 bits.
+ *
+ * encryptMessage and decryptMessage take and return ASCII Strings and
+ * hexadecimal key Strings like their counterparts in DES.java, and every whole
+ * block of a message encrypts to the same ciphertext as it does with DES.java.
+ * The difference is in the padding. DES.java pads the last block with zeroes,
+ * so the zeroes have to be stripped back out of the decrypted message (along
+ * with any that were really part of it) by Utils.stripNulls. FastDES pads as
+ * described by PKCS#5, where the value of each padding byte is the number of
+ * padding bytes, so decrypt can tell exactly where the message ends and
+ * returns its length without the padding.
+ *
+ * The String methods are thin wrappers around encrypt and decrypt, which work
+ * on byte arrays or ByteBuffers so that a message can be encrypted straight
+ * into a packet buffer. Each character of a String is treated as one byte
+ * (ISO-8859-1), which is how DES.java treats them. Inputs of 64 blocks or
+ * more are handed to BitslicedDES, 64 blocks at a time.
+ */
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+public class FastDES {
+
+    /**
+     * Initial permutation, using the FIPS 46-3 bit numbering.
+     */
+    static final int[] IP = {
+        58, 50, 42, 34, 26, 18, 10, 2,
+        60, 52, 44, 36, 28, 20, 12, 4,
+        62, 54, 46, 38, 30, 22, 14, 6,
+        64, 56, 48, 40, 32, 24, 16, 8,
+        57, 49, 41, 33, 25, 17, 9, 1,
+        59, 51, 43, 35, 27, 19, 11, 3,
+        61, 53, 45, 37, 29, 21, 13, 5,
+        63, 55, 47, 39, 31, 23, 15, 7
+    };
+
+    /**
+     * Final permutation, aka IP-inverse.
+     */
+    static final int[] FP = {
+        40, 8, 48, 16, 56, 24, 64, 32,
+        39, 7, 47, 15, 55, 23, 63, 31,
+        38, 6, 46, 14, 54, 22, 62, 30,
+        37, 5, 45, 13, 53, 21, 61, 29,
+        36, 4, 44, 12, 52, 20, 60, 28,
+        35, 3, 43, 11, 51, 19, 59, 27,
+        34, 2, 42, 10, 50, 18, 58, 26,
+        33, 1, 41, 9, 49, 17, 57, 25
+    };
+
+    /**
+     * The 32-bit permutation applied to the output of the S-boxes. Only used
+     * to build the SP tables.
+     */
+    static final int[] P = {
+        16, 7, 20, 21, 29, 12, 28, 17,
+        1, 15, 23, 26, 5, 18, 31, 10,
+        2, 8, 24, 14, 32, 27, 3, 9,
+        19, 13, 30, 6, 22, 11, 4, 25
+    };
+
+    /**
+     * The 8 S-boxes, in the same row/column layout as DES.S(). Only used to
+     * build the SP tables.
+     */
+    private static final int[][][] SBOXES = {
+        {
+            {14, 4, 13, 1, 2, 15, 11, 8, 3, 10, 6, 12, 5, 9, 0, 7},
+            {0, 15, 7, 4, 14, 2, 13, 1, 10, 6, 12, 11, 9, 5, 3, 8},
+            {4, 1, 14, 8, 13, 6, 2, 11, 15, 12, 9, 7, 3, 10, 5, 0},
+            {15, 12, 8, 2, 4, 9, 1, 7, 5, 11, 3, 14, 10, 0, 6, 13}
+        },
+        {
+            {15, 1, 8, 14, 6, 11, 3, 4, 9, 7, 2, 13, 12, 0, 5, 10},
+            {3, 13, 4, 7, 15, 2, 8, 14, 12, 0, 1, 10, 6, 9, 11, 5},
+            {0, 14, 7, 11, 10, 4, 13, 1, 5, 8, 12, 6, 9, 3, 2, 15},
+            {13, 8, 10, 1, 3, 15, 4, 2, 11, 6, 7, 12, 0, 5, 14, 9}
+        },
+        {
+            {10, 0, 9, 14, 6, 3, 15, 5, 1, 13, 12, 7, 11, 4, 2, 8},
+            {13, 7, 0, 9, 3, 4, 6, 10, 2, 8, 5, 14, 12, 11, 15, 1},
+            {13, 6, 4, 9, 8, 15, 3, 0, 11, 1, 2, 12, 5, 10, 14, 7},
+            {1, 10, 13, 0, 6, 9, 8, 7, 4, 15, 14, 3, 11, 5, 2, 12}
+        },
+        {
+            {7, 13, 14, 3, 0, 6, 9, 10, 1, 2, 8, 5, 11, 12, 4, 15},
+            {13, 8, 11, 5, 6, 15, 0, 3, 4, 7, 2, 12, 1, 10, 14, 9},
+            {10, 6, 9, 0, 12, 11, 7, 13, 15, 1, 3, 14, 5, 2, 8, 4},
+            {3, 15, 0, 6, 10, 1, 13, 8, 9, 4, 5, 11, 12, 7, 2, 14}
+        },
+        {
+            {2, 12, 4, 1, 7, 10, 11, 6, 8, 5, 3, 15, 13, 0, 14, 9},
+            {14, 11, 2, 12, 4, 7, 13, 1, 5, 0, 15, 10, 3, 9, 8, 6},
+            {4, 2, 1, 11, 10, 13, 7, 8, 15, 9, 12, 5, 6, 3, 0, 14},
+            {11, 8, 12, 7, 1, 14, 2, 13, 6, 15, 0, 9, 10, 4, 5, 3}
+        },
+        {
+            {12, 1, 10, 15, 9, 2, 6, 8, 0, 13, 3, 4, 14, 7, 5, 11},
+            {10, 15, 4, 2, 7, 12, 9, 5, 6, 1, 13, 14, 0, 11, 3, 8},
+            {9, 14, 15, 5, 2, 8, 12, 3, 7, 0, 4, 10, 1, 13, 11, 6},
+            {4, 3, 2, 12, 9, 5, 15, 10, 11, 14, 1, 7, 6, 0, 8, 13}
+        },
+        {
+            {4, 11, 2, 14, 15, 0, 8, 13, 3, 12, 9, 7, 5, 10, 6, 1},
+            {13, 0, 11, 7, 4, 9, 1, 10, 14, 3, 5, 12, 2, 15, 8, 6},
+            {1, 4, 11, 13, 12, 3, 7, 14, 10, 15, 6, 8, 0, 5, 9, 2},
+            {6, 11, 13, 8, 1, 4, 10, 7, 9, 5, 0, 15, 14, 2, 3, 12}
+        },
+        {
+            {13, 2, 8, 4, 6, 15, 11, 1, 10, 9, 3, 14, 5, 0, 12, 7},
+            {1, 15, 13, 8, 10, 3, 7, 4, 12, 5, 6, 11, 0, 14, 9, 2},
+            {7, 11, 4, 1, 9, 12, 14, 2, 0, 6, 10, 13, 15, 3, 5, 8},
+            {2, 1, 14, 7, 4, 10, 8, 13, 15, 12, 9, 0, 3, 5, 6, 11}
+        }
+    };
+
+    /**
+     * IP and FP split into one table per input byte. Entry [b][v] is the
+     * permutation of a block whose only non-zero byte is byte b with value v,
+     * so a whole block is permuted with 8 lookups OR'd together.
+     */
+    private static final long[][] IP_TABLE = byteTables(IP);
+    private static final long[][] FP_TABLE = byteTables(FP);
+
+    /**
+     * The S-boxes fused with the P permutation. Entry SPn[e] is P applied to
+     * the output of S-box n for the 6-bit input e, already shifted into its
+     * place in the 32-bit word, so the whole of S followed by P is 8 lookups
+     * XOR'd together.
+     */
+    private static final int[] SP1 = spTable(0),
+            SP2 = spTable(1),
+            SP3 = spTable(2),
+            SP4 = spTable(3),
+            SP5 = spTable(4),
+            SP6 = spTable(5),
+            SP7 = spTable(6),
+            SP8 = spTable(7);
+
+    /**
+     * Encrypt an ASCII String representation of a plaintext message.
+     *
+     * @param message the String representation of the message to encrypt
+     * @param k the String representation of the 64-bit key used by DES
+     * @return a String representation of message, encrypted using DES
+     */
+    public static String encryptMessage(String message, String k) {
+
+        if (k.length() < 16) {
+
+            throw new java.lang.IllegalArgumentException("Key must be 64-bit");
+        }
+
+        return encryptMessage(message, DESKeySchedule.forHexKey(k));
+    }
+
+    /**
+     * Decrypt an ASCII String representation of a ciphertext message.
+     *
+     * @param message the String representation of the message to decrypt
+     * @param k the String representation of the 64-bit key used by DES
+     * @return String representation of message, decrypted using DES
+     */
+    public static String decryptMessage(String message, String k) {
+
+        return decryptMessage(message, DESKeySchedule.forHexKey(k));
+    }
+
+    /**
+     * Encrypt an ASCII String representation of a plaintext message using a
+     * key schedule that has already been generated.
+     *
+     * @param message the String representation of the message to encrypt
+     * @param key the key schedule of the 64-bit key
+     * @return a String representation of message, encrypted using DES
+     */
+    public static String encryptMessage(String message, DESKeySchedule key) {
+
+        byte[] in = message.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] out = new byte[outputLength(in.length)];
+
+        encrypt(in, 0, in.length, out, 0, key);
+
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decrypt an ASCII String representation of a ciphertext message using a
+     * key schedule that has already been generated.
+     *
+     * @param message the String representation of the message to decrypt
+     * @param key the key schedule of the 64-bit key
+     * @return String representation of message, decrypted using DES
+     */
+    public static String decryptMessage(String message, DESKeySchedule key) {
+
+        byte[] in = message.getBytes(StandardCharsets.ISO_8859_1);
+
+        int n = decrypt(in, 0, in.length, in, 0, key);
+
+        return new String(in, 0, n, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Encrypt len bytes of in, starting at inOff, into out starting at outOff.
+     * The plaintext is padded as described by PKCS#5, so there is always at
+     * least one byte of padding. in and out may be the same array, as long as
+     * the output does not start after the input.
+     *
+     * @param in the array holding the plaintext
+     * @param inOff the offset of the first byte of plaintext
+     * @param len the number of bytes of plaintext
+     * @param out the array to write the ciphertext into
+     * @param outOff the offset to write the first byte of ciphertext at
+     * @param key the key schedule to encrypt with
+     * @return the number of bytes written to out, which is outputLength(len)
+     */
+    public static int encrypt(byte[] in, int inOff, int len, byte[] out,
+            int outOff, DESKeySchedule key) {
+
+        int outLen = outputLength(len);
+
+        checkBounds(in, inOff, len, out, outOff, outLen);
+
+        int full = len & ~7;
+
+        cryptBlocks(in, inOff, full, out, outOff, key.encryptKeys);
+
+        putLong(out, outOff + full, cryptBlock(
+                padBlock(in, inOff + full, len - full), key.encryptKeys));
+
+        return outLen;
+    }
+
+    /**
+     * Decrypt len bytes of in, starting at inOff, into out starting at outOff.
+     * The whole of the last block is written to out, padding included, but the
+     * length returned leaves the padding out, so nothing has to be copied to
+     * remove it. in and out may be the same array, as long as the output does
+     * not start after the input.
+     *
+     * @param in the array holding the ciphertext
+     * @param inOff the offset of the first byte of ciphertext
+     * @param len the number of bytes of ciphertext, a multiple of 8
+     * @param out the array to write the plaintext into, with room for len
+     * bytes
+     * @param outOff the offset to write the first byte of plaintext at
+     * @param key the key schedule to decrypt with
+     * @return the length of the plaintext written to out, without padding
+     */
+    public static int decrypt(byte[] in, int inOff, int len, byte[] out,
+            int outOff, DESKeySchedule key) {
+
+        checkCipherTextLength(len);
+        checkBounds(in, inOff, len, out, outOff, len);
+
+        cryptBlocks(in, inOff, len, out, outOff, key.decryptKeys);
+
+        return unpaddedLength(out, outOff, len);
+    }
+
+    /**
+     * Encrypt all of the remaining bytes of in into out, padded as described
+     * by PKCS#5. Both buffers have their positions advanced; heap and direct
+     * buffers are both fine.
+     *
+     * @param in the buffer holding the plaintext
+     * @param out the buffer to write the ciphertext into
+     * @param key the key schedule to encrypt with
+     * @return the number of bytes written to out
+     */
+    public static int encrypt(ByteBuffer in, ByteBuffer out,
+            DESKeySchedule key) {
+
+        int len = in.remaining(),
+                outLen = outputLength(len);
+
+        if (out.remaining() < outLen) {
+
+            throw new BufferOverflowException();
+        }
+
+        cryptBlocks(in, out, len & ~7, key.encryptKeys);
+
+        int rest = len & 7;
+        long block = 0;
+
+        for (int x = 0; x < 8; ++x) {
+
+            block = (block << 8) | (x < rest ? in.get() & 0xFF : 8 - rest);
+        }
+
+        putLong(out, cryptBlock(block, key.encryptKeys));
+
+        return outLen;
+    }
+
+    /**
+     * Decrypt all of the remaining bytes of in into out. Both buffers have
+     * their positions advanced; heap and direct buffers are both fine. The
+     * padding is written to out and then the position of out is moved back
+     * over it, so it is left out without any copying. If the padding is bad
+     * neither position is changed, though the bytes after out's position
+     * have been written over.
+     *
+     * @param in the buffer holding the ciphertext
+     * @param out the buffer to write the plaintext into
+     * @param key the key schedule to decrypt with
+     * @return the length of the plaintext written to out, without padding
+     * @throws IllegalArgumentException if the padding is bad
+     */
+    public static int decrypt(ByteBuffer in, ByteBuffer out,
+            DESKeySchedule key) {
+
+        int len = in.remaining();
+
+        checkCipherTextLength(len);
+
+        if (out.remaining() < len) {
+
+            throw new BufferOverflowException();
+        }
+
+        int inStart = in.position(),
+                outStart = out.position();
+
+        cryptBlocks(in, out, len, key.decryptKeys);
+
+        int pad = out.get(out.position() - 1) & 0xFF;
+
+        boolean good = pad >= 1 && pad <= 8;
+
+        for (int x = 2; good && x <= pad; ++x) {
+
+            good = (out.get(out.position() - x) & 0xFF) == pad;
+        }
+
+        if (!good) {
+
+            /**
+             * Put both buffers back where they were, so that a caller that
+             * catches the exception finds them as they were before the call.
+             */
+            in.position(inStart);
+            out.position(outStart);
+
+            throw new IllegalArgumentException("Bad padding");
+        }
+
+        out.position(out.position() - pad);
+
+        return len - pad;
+    }
+
+    /**
+     * The number of bytes encrypt writes for a given length of plaintext. This
+     * is also the most that decrypt can write for that length of ciphertext.
+     *
+     * @param len the number of bytes of plaintext
+     * @return len plus between 1 and 8 bytes of padding
+     */
+    public static int outputLength(int len) {
+
+        return (len & ~7) + 8;
+    }
+
+    /**
+     * Build the final, padded block of a message as described by PKCS#5: each
+     * of the n bytes needed to fill the block is set to n, and a message that
+     * fills its last block exactly gets a whole extra block of 8s.
+     *
+     * @param b the array holding the last bytes of the message
+     * @param off the offset of the first byte of the final block
+     * @param rest the number of bytes of message in the final block, 0 to 7
+     * @return the 64-bit padded block
+     */
+    static long padBlock(byte[] b, int off, int rest) {
+
+        long block = 0;
+
+        for (int x = 0; x < 8; ++x) {
+
+            block = (block << 8) | (x < rest ? b[off + x] & 0xFF : 8 - rest);
+        }
+
+        return block;
+    }
+
+    /**
+     * Check the PKCS#5 padding at the end of a decrypted message. Only the
+     * padding itself is read, so this takes the same time for any length of
+     * message.
+     *
+     * @param b the array holding the decrypted message
+     * @param off the offset of the first byte of the message
+     * @param len the length of the message including padding
+     * @return the length of the message without its padding
+     */
+    static int unpaddedLength(byte[] b, int off, int len) {
+
+        int pad = b[off + len - 1] & 0xFF;
+
+        if (pad < 1 || pad > 8) {
+
+            throw new IllegalArgumentException("Bad padding");
+        }
+
+        for (int x = len - pad; x < len - 1; ++x) {
+
+            if ((b[off + x] & 0xFF) != pad) {
+
+                throw new IllegalArgumentException("Bad padding");
+            }
+        }
+
+        return len - pad;
+    }
+
+    /**
+     * Make sure a ciphertext is a whole number of blocks, and at least one.
+     *
+     * @param len the length of the ciphertext
+     */
+    static void checkCipherTextLength(int len) {
+
+        if (len <= 0 || (len & 7) != 0) {
+
+            throw new IllegalArgumentException(
+                    "Ciphertext must be a whole number of 8-byte blocks");
+        }
+    }
+
+    /**
+     * Make sure the input and output ranges fit in their arrays.
+     *
+     * @param in the input array
+     * @param inOff the offset of the first input byte
+     * @param len the number of input bytes
+     * @param out the output array
+     * @param outOff the offset of the first output byte
+     * @param outLen the number of bytes that will be written to out
+     */
+    private static void checkBounds(byte[] in, int inOff, int len, byte[] out,
+            int outOff, int outLen) {
+
+        if (inOff < 0 || len < 0 || inOff + len > in.length) {
+
+            throw new IllegalArgumentException("Input out of bounds");
+        }
+
+        if (outOff < 0 || outOff + outLen > out.length) {
+
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+    }
+
+    /**
+     * Run whole 8-byte blocks of an array through the cipher. Any run of at
+     * least BitslicedDES.BATCH blocks is done 64 at a time, gathered into the
+     * thread's BitslicedDES.Workspace rather than a new array.
+     *
+     * @param in the input array
+     * @param inOff the offset of the first input byte
+     * @param len the number of input bytes, a multiple of 8
+     * @param out the output array
+     * @param outOff the offset of the first output byte
+     * @param roundKeys the 16 round keys, reversed for decryption
+     */
+    static void cryptBlocks(byte[] in, int inOff, int len, byte[] out,
+            int outOff, long[] roundKeys) {
+
+        int x = 0;
+
+        if (len >= BitslicedDES.BATCH * 8) {
+
+            long[] batch = BitslicedDES.workspace().batch;
+
+            for (; x + batch.length * 8 <= len; x += batch.length * 8) {
+
+                for (int y = 0; y < batch.length; ++y) {
+
+                    batch[y] = getLong(in, inOff + x + 8 * y);
+                }
+
+                BitslicedDES.crypt(batch, 0, roundKeys);
+
+                for (int y = 0; y < batch.length; ++y) {
+
+                    putLong(out, outOff + x + 8 * y, batch[y]);
+                }
+            }
+        }
+
+        for (; x < len; x += 8) {
+
+            putLong(out, outOff + x,
+                    cryptBlock(getLong(in, inOff + x), roundKeys));
+        }
+    }
+
+    /**
+     * Run whole 8-byte blocks of a ByteBuffer through the cipher.
+     *
+     * @param in the input buffer
+     * @param out the output buffer
+     * @param len the number of input bytes, a multiple of 8
+     * @param roundKeys the 16 round keys, reversed for decryption
+     */
+    private static void cryptBlocks(ByteBuffer in, ByteBuffer out, int len,
+            long[] roundKeys) {
+
+        boolean bigEndian = in.order() == ByteOrder.BIG_ENDIAN;
+
+        for (int x = 0; x < len; x += 8) {
+
+            long block = bigEndian ? in.getLong()
+                    : Long.reverseBytes(in.getLong());
+
+            putLong(out, cryptBlock(block, roundKeys));
+        }
+    }
+
+    /**
+     * Write a long into a ByteBuffer, big-endian whatever the order of the
+     * buffer.
+     *
+     * @param b the buffer
+     * @param v the 64-bit block
+     */
+    private static void putLong(ByteBuffer b, long v) {
+
+        b.putLong(b.order() == ByteOrder.BIG_ENDIAN ? v : Long.reverseBytes(v));
+    }
+
+    /**
+     * Read 8 bytes of an array as a big-endian long.
+     *
+     * @param b the array
+     * @param off the offset of the first byte
+     * @return the 64-bit block
+     */
+    static long getLong(byte[] b, int off) {
+
+        return ((long) (b[off] & 0xFF) << 56)
+                | ((long) (b[off + 1] & 0xFF) << 48)
+                | ((long) (b[off + 2] & 0xFF) << 40)
+                | ((long) (b[off + 3] & 0xFF) << 32)
+                | ((long) (b[off + 4] & 0xFF) << 24)
+                | ((b[off + 5] & 0xFF) << 16)
+                | ((b[off + 6] & 0xFF) << 8)
+                | (b[off + 7] & 0xFF);
+    }
+
+    /**
+     * Write a long into 8 bytes of an array, big-endian.
+     *
+     * @param b the array
+     * @param off the offset of the first byte
+     * @param v the 64-bit block
+     */
+    static void putLong(byte[] b, int off, long v) {
+
+        b[off] = (byte) (v >>> 56);
+        b[off + 1] = (byte) (v >>> 48);
+        b[off + 2] = (byte) (v >>> 40);
+        b[off + 3] = (byte) (v >>> 32);
+        b[off + 4] = (byte) (v >>> 24);
+        b[off + 5] = (byte) (v >>> 16);
+        b[off + 6] = (byte) (v >>> 8);
+        b[off + 7] = (byte) v;
+    }
+
+    /**
+     * Encrypt a single 64-bit block.
+     *
+     * @param block the 64-bit block of plaintext
+     * @param key the key schedule to encrypt with
+     * @return the 64-bit block of ciphertext
+     */
+    static long encryptBlock(long block, DESKeySchedule key) {
+
+        return cryptBlock(block, key.encryptKeys);
+    }
+
+    /**
+     * Decrypt a single 64-bit block.
+     *
+     * @param block the 64-bit block of ciphertext
+     * @param key the key schedule to decrypt with
+     * @return the 64-bit block of plaintext
+     */
+    static long decryptBlock(long block, DESKeySchedule key) {
+
+        return cryptBlock(block, key.decryptKeys);
+    }
+
+    /**
+     * Run a single 64-bit block through IP, the 16 rounds and FP. Decryption
+     * is the same operation with the round keys in reverse order.
+     *
+     * @param block the 64-bit input block
+     * @param roundKeys the 16 48-bit round keys in the order to apply them
+     * @return the 64-bit output block
+     */
+    private static long cryptBlock(long block, long[] roundKeys) {
+
+        return fp(rounds(ip(block), roundKeys));
+    }
+
+    /**
+     * The 16 rounds of the Feistel network, without IP and FP. Since FP is the
+     * inverse of IP, several DES operations in a row (as in TripleDES) only
+     * need IP once at the start and FP once at the end.
+     *
+     * @param lr the block after the initial permutation
+     * @param roundKeys the 16 48-bit round keys in the order to apply them
+     * @return the block before the final permutation
+     */
+    static long rounds(long lr, long[] roundKeys) {
+
+        int l = (int) (lr >>> 32),
+                r = (int) lr;
+
+        for (int x = 0; x < roundKeys.length; ++x) {
+
+            int t = r;
+            r = l ^ f(r, roundKeys[x]);
+            l = t;
+        }
+
+        /**
+         * The halves are swapped once more before the final permutation.
+         */
+        return ((long) r << 32) | (l & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The Feistel function: expand the 32-bit half to 48 bits, mix in the
+     * round key, substitute through the S-boxes and permute with P.
+     *
+     * Each 6-bit group of the expansion E is just 6 adjacent bits of r (the
+     * first and last groups wrap around), so the expansion is a rotation and
+     * a mask per group. S and P are both handled by the SP tables.
+     *
+     * @param r the right half of the round input
+     * @param k the 48-bit round key in the low bits of a long
+     * @return the 32-bit output of the Feistel function
+     */
+    private static int f(int r, long k) {
+
+        return SP1[(Integer.rotateRight(r, 27) ^ (int) (k >>> 42)) & 0x3F]
+                ^ SP2[(Integer.rotateRight(r, 23) ^ (int) (k >>> 36)) & 0x3F]
+                ^ SP3[(Integer.rotateRight(r, 19) ^ (int) (k >>> 30)) & 0x3F]
+                ^ SP4[(Integer.rotateRight(r, 15) ^ (int) (k >>> 24)) & 0x3F]
+                ^ SP5[(Integer.rotateRight(r, 11) ^ (int) (k >>> 18)) & 0x3F]
+                ^ SP6[(Integer.rotateRight(r, 7) ^ (int) (k >>> 12)) & 0x3F]
+                ^ SP7[(Integer.rotateRight(r, 3) ^ (int) (k >>> 6)) & 0x3F]
+                ^ SP8[(Integer.rotateLeft(r, 1) ^ (int) k) & 0x3F];
+    }
+
+    /**
+     * The initial permutation.
+     *
+     * @param block the 64-bit block to permute
+     * @return the permutation of block as per the IP table
+     */
+    static long ip(long block) {
+
+        return permute(block, IP_TABLE);
+    }
+
+    /**
+     * The final permutation.
+     *
+     * @param block the 64-bit block to permute
+     * @return the permutation of block as per the FP table
+     */
+    static long fp(long block) {
+
+        return permute(block, FP_TABLE);
+    }
+
+    /**
+     * Apply a 64-bit permutation using its per-byte lookup tables.
+     *
+     * @param block the 64-bit block to permute
+     * @param table the per-byte tables built by byteTables
+     * @return the permuted block
+     */
+    private static long permute(long block, long[][] table) {
+
+        return table[0][(int) (block >>> 56) & 0xFF]
+                | table[1][(int) (block >>> 48) & 0xFF]
+                | table[2][(int) (block >>> 40) & 0xFF]
+                | table[3][(int) (block >>> 32) & 0xFF]
+                | table[4][(int) (block >>> 24) & 0xFF]
+                | table[5][(int) (block >>> 16) & 0xFF]
+                | table[6][(int) (block >>> 8) & 0xFF]
+                | table[7][(int) block & 0xFF];
+    }
+
+    /**
+     * Apply a permutation table bit by bit. Only used to build the tables,
+     * never once per block.
+     *
+     * @param in the input, right-aligned in a long
+     * @param width the number of bits in the input
+     * @param table the 1-based permutation table
+     * @return the permuted bits, right-aligned in a long
+     */
+    private static long permute(long in, int width, int[] table) {
+
+        long out = 0;
+
+        for (int x = 0; x < table.length; ++x) {
+
+            out = (out << 1) | ((in >>> (width - table[x])) & 1);
+        }
+
+        return out;
+    }
+
+    /**
+     * Build the per-byte lookup tables for a 64-bit permutation.
+     *
+     * @param table the 1-based permutation table
+     * @return 8 tables of 256 entries, one for each byte of the input
+     */
+    private static long[][] byteTables(int[] table) {
+
+        long[][] t = new long[8][256];
+
+        for (int b = 0; b < 8; ++b) {
+
+            for (int v = 0; v < 256; ++v) {
+
+                t[b][v] = permute((long) v << (56 - 8 * b), 64, table);
+            }
+        }
+
+        return t;
+    }
+
+    /**
+     * Build the fused SP table for one S-box. The 6-bit input selects the row
+     * with its outer two bits and the column with its inner four, as in
+     * DES.S().
+     *
+     * @param box the index of the S-box, 0 to 7
+     * @return a table of 64 entries indexed by the 6-bit S-box input
+     */
+    private static int[] spTable(int box) {
+
+        int[] sp = new int[64];
+
+        for (int e = 0; e < 64; ++e) {
+
+            int s = SBOXES[box][((e >>> 4) & 2) | (e & 1)][(e >>> 1) & 0xF];
+
+            sp[e] = (int) permute((long) s << (28 - 4 * box), 32, P);
+        }
+
+        return sp;
+    }
+
+    /**
+     * Convert a String representation of a hexadecimal key into a long. As
+     * with DES.hexStringTo64BitBinaryArray, a key longer than 64 bits is
+     * truncated to its 64 most significant bits.
+     *
+     * @param h the String representation of a hexadecimal value
+     * @return the 64-bit key
+     */
+    static long parseKey(String h) {
+
+        if (h.length() <= 16) {
+
+            return HexCodec.decodeLong(h, 0, h.length());
+        }
+
+        BigInteger k = new BigInteger(h, 16);
+
+        if (k.bitLength() > 64) {
+
+            k = k.shiftRight(k.bitLength() - 64);
+        }
+
+        return k.longValue();
+    }
+}
@@ -0,0 +1,238 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * HeadlessServer.java
+ *
+ * HeadlessServer runs the secure UDP server from the command line, without a
+ * ServerUI, for a machine with no display or for measuring the server without
+ * Swing in the way. It starts one of the same transports the ServerUI buttons
+ * do and logs to the console through an AsyncLog (see AsyncLog.java), which
+ * by default leaves out the entries for every packet.
+ *
+ * Usage:
+ *
+ * java cs490midterm.HeadlessServer [--ip address] [--port port]
+ * [--mode socket|sharded|virtual|nio|group] [--threads n]
+ * [--log error|info|packet] [--log-capacity n]
+ *
+ * --mode picks the transport: ServerMessager handling every packet on its own
+ * thread (socket, the default), on 'threads' worker shards (sharded) or on a
+ * virtual thread each (virtual); a ChannelServerMessager (nio); or a
+ * ListenerGroup of 'threads' sockets (group). --threads defaults to the number
+ * of processors. The server runs until it times out, then its counters are
+ * printed.
+ */
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+public class HeadlessServer {
+
+    final static String DEFAULT_IP = "0.0.0.0";
+
+    /**
+     * The most log entries waiting to be printed.
+     */
+    final static int DEFAULT_LOG_CAPACITY = 8192;
+
+    public static void main(String[] args) throws InterruptedException {
+
+        String ip = DEFAULT_IP, mode = "socket";
+        int port = Integer.parseInt(ServerUI.SERVER_PORT),
+                threads = Runtime.getRuntime().availableProcessors(),
+                logCapacity = DEFAULT_LOG_CAPACITY;
+        ServerLog.Level level = ServerLog.Level.INFO;
+
+        try {
+
+            for (int x = 0; x < args.length; x += 2) {
+
+                if (x + 1 == args.length) {
+
+                    throw new IllegalArgumentException("No value for "
+                            + args[x]);
+                }
+
+                String value = args[x + 1];
+
+                switch (args[x]) {
+
+                    case "--ip":
+                        ip = value;
+                        break;
+                    case "--port":
+                        port = Integer.parseInt(value);
+                        break;
+                    case "--mode":
+                        mode = value;
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    case "--log":
+                        level = ServerLog.Level.valueOf(
+                                value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "--log-capacity":
+                        logCapacity = Integer.parseInt(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option "
+                                + args[x]);
+                }
+            }
+
+        } catch (IllegalArgumentException ex) {
+
+            usage(System.err, ex.getMessage());
+
+            System.exit(2);
+        }
+
+        AsyncLog log = AsyncLog.toStream(System.out, level, logCapacity);
+
+        /**
+         * Write what is left in the log if the server is stopped with Ctrl-C
+         * rather than timing out.
+         */
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+
+            try {
+
+                log.close();
+
+            } catch (InterruptedException ex) {
+            }
+        }));
+
+        int status = run(mode, new InetSocketAddress(ip, port), threads, log);
+
+        log.close();
+
+        System.exit(status);
+    }
+
+    /**
+     * Start the server, and wait for it to time out.
+     *
+     * @param mode the transport
+     * @param addr the address and port to listen on
+     * @param threads the number of worker shards or listeners
+     * @param log the log
+     * @return the exit status: 0 once the server has timed out, 1 if it
+     * couldn't be started, 2 if the mode is unknown
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static int run(String mode, InetSocketAddress addr, int threads,
+            AsyncLog log) throws InterruptedException {
+
+        String ip = addr.getHostString();
+        int port = addr.getPort();
+
+        ExecutorService executor = null;
+
+        try {
+
+            switch (mode) {
+
+                case "socket":
+                case "sharded": {
+
+                    ServerMessager messager = new ServerMessager(
+                            "Server Messager", ip, port, log,
+                            mode.equals("sharded") ? threads : 0, null);
+
+                    Thread thread = new Thread(messager, messager.getName());
+
+                    thread.start();
+                    thread.join();
+
+                    return 0;
+                }
+                case "virtual": {
+
+                    executor = RequestExecutors.newThreadPerTaskExecutor(true);
+
+                    ServerMessager messager = new ServerMessager(
+                            "Server Messager", ip, port, log, 0, executor);
+
+                    log.log(ServerLog.Level.INFO, "Handling packets on ",
+                            RequestExecutors.isVirtualThreadSupported()
+                            ? "virtual threads"
+                            : "pooled threads (virtual threads need JDK 21)",
+                            "\n");
+
+                    Thread thread = new Thread(messager, messager.getName());
+
+                    thread.start();
+                    thread.join();
+
+                    return 0;
+                }
+                case "nio": {
+
+                    ChannelServerMessager messager = new ChannelServerMessager(
+                            "Channel Server Messager", log, null, null, false,
+                            addr);
+
+                    messager.start();
+                    messager.join();
+
+                    return 0;
+                }
+                case "group": {
+
+                    ListenerGroup group = new ListenerGroup("Listener", log,
+                            addr, threads);
+
+                    group.start();
+                    group.join();
+
+                    log.log(ServerLog.Level.INFO, group.getStats(), "\n");
+
+                    return 0;
+                }
+                default:
+
+                    usage(System.err, "Unknown mode " + mode);
+
+                    return 2;
+            }
+
+        } catch (IOException | IllegalArgumentException
+                | UnsupportedOperationException ex) {
+
+            if (executor != null) {
+
+                executor.shutdown();
+            }
+
+            log.log(ServerLog.Level.ERROR, "An error occured trying to start ",
+                    "the server on IP address ", ip, " and port ", port, "\n",
+                    ex.getMessage(), "\n");
+
+            return 1;
+        }
+    }
+
+    /**
+     * Print what was wrong with the arguments and how to use them.
+     *
+     * @param out the stream to print to
+     * @param problem what was wrong
+     */
+    private static void usage(PrintStream out, String problem) {
+
+        out.println(problem);
+        out.println("Usage: java cs490midterm.HeadlessServer [--ip address] "
+                + "[--port port]");
+        out.println("    [--mode socket|sharded|virtual|nio|group] "
+                + "[--threads n]");
+        out.println("    [--log error|info|packet] [--log-capacity n]");
+    }
+}
@@ -0,0 +1,247 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * HexCodec.java
+ *
+ * HexCodec.java converts between bytes and hexadecimal using lookup tables
+ * built once when the class is loaded. Every byte value has its two digits
+ * stored side by side in ENCODE, and every digit character has its value
+ * stored in DECODE, so neither direction needs Integer.toHexString, BigInteger
+ * or any other object per byte.
+ *
+ * The encode and decode methods write into arrays supplied by the caller and
+ * return the number of characters or bytes written. Strings are treated as one
+ * byte per character (ISO-8859-1), the same as the ciphers treat them, so the
+ * methods that take a CharSequence only look at the low 8 bits of each
+ * character. Encoding always writes two digits per byte, in lowercase, and
+ * decoding accepts either case.
+ */
+import java.util.Arrays;
+
+public final class HexCodec {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The two digits of byte b are ENCODE[2 * b] and ENCODE[2 * b + 1].
+     */
+    private static final char[] ENCODE = new char[512];
+
+    /**
+     * The value of each digit character, or -1 for anything that isn't one.
+     */
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+
+        for (int b = 0; b < 256; ++b) {
+
+            ENCODE[2 * b] = DIGITS[b >>> 4];
+            ENCODE[2 * b + 1] = DIGITS[b & 0xF];
+        }
+
+        Arrays.fill(DECODE, (byte) -1);
+
+        for (int d = 0; d < 16; ++d) {
+
+            DECODE[DIGITS[d]] = (byte) d;
+            DECODE[Character.toUpperCase(DIGITS[d])] = (byte) d;
+        }
+    }
+
+    private HexCodec() {
+    }
+
+    /**
+     * Write the two hexadecimal digits of each byte of in to out.
+     *
+     * @param in the array holding the bytes
+     * @param inOff the offset of the first byte
+     * @param len the number of bytes
+     * @param out the array to write the digits into
+     * @param outOff the offset to write the first digit at
+     * @return the number of characters written, 2 * len
+     */
+    public static int encode(byte[] in, int inOff, int len, char[] out,
+            int outOff) {
+
+        for (int x = 0; x < len; ++x) {
+
+            int b = (in[inOff + x] & 0xFF) << 1;
+
+            out[outOff + 2 * x] = ENCODE[b];
+            out[outOff + 2 * x + 1] = ENCODE[b + 1];
+        }
+
+        return 2 * len;
+    }
+
+    /**
+     * Write the two hexadecimal digits of each character of in to out, one
+     * byte per character.
+     *
+     * @param in the characters
+     * @param inOff the offset of the first character
+     * @param len the number of characters
+     * @param out the array to write the digits into
+     * @param outOff the offset to write the first digit at
+     * @return the number of characters written, 2 * len
+     */
+    public static int encode(CharSequence in, int inOff, int len, char[] out,
+            int outOff) {
+
+        for (int x = 0; x < len; ++x) {
+
+            int b = (in.charAt(inOff + x) & 0xFF) << 1;
+
+            out[outOff + 2 * x] = ENCODE[b];
+            out[outOff + 2 * x + 1] = ENCODE[b + 1];
+        }
+
+        return 2 * len;
+    }
+
+    /**
+     * Write the two hexadecimal digits of a single byte to out.
+     *
+     * @param b the byte, only the low 8 bits are used
+     * @param out the array to write the digits into
+     * @param outOff the offset to write the first digit at
+     */
+    public static void encode(int b, char[] out, int outOff) {
+
+        b = (b & 0xFF) << 1;
+
+        out[outOff] = ENCODE[b];
+        out[outOff + 1] = ENCODE[b + 1];
+    }
+
+    /**
+     * The hexadecimal representation of a String, one byte per character.
+     * This is for display, such as showing a ciphertext in the log.
+     *
+     * @param s the String
+     * @return two hexadecimal digits for each character of s
+     */
+    public static String encode(CharSequence s) {
+
+        char[] out = new char[2 * s.length()];
+
+        encode(s, 0, s.length(), out, 0);
+
+        return new String(out);
+    }
+
+    /**
+     * Decode pairs of hexadecimal digits into bytes.
+     *
+     * @param in the digits
+     * @param inOff the offset of the first digit
+     * @param len the number of digits, which must be even
+     * @param out the array to write the bytes into
+     * @param outOff the offset to write the first byte at
+     * @return the number of bytes written, len / 2
+     * @throws IllegalArgumentException if len is odd or a character isn't a
+     * hexadecimal digit
+     */
+    public static int decode(CharSequence in, int inOff, int len, byte[] out,
+            int outOff) {
+
+        checkLength(len);
+
+        for (int x = 0; x < len; x += 2) {
+
+            out[outOff + x / 2] = (byte) ((digit(in.charAt(inOff + x)) << 4)
+                    | digit(in.charAt(inOff + x + 1)));
+        }
+
+        return len / 2;
+    }
+
+    /**
+     * Decode pairs of hexadecimal digits into characters, one byte per
+     * character.
+     *
+     * @param in the digits
+     * @param inOff the offset of the first digit
+     * @param len the number of digits, which must be even
+     * @param out the array to write the characters into
+     * @param outOff the offset to write the first character at
+     * @return the number of characters written, len / 2
+     * @throws IllegalArgumentException if len is odd or a character isn't a
+     * hexadecimal digit
+     */
+    public static int decode(CharSequence in, int inOff, int len, char[] out,
+            int outOff) {
+
+        checkLength(len);
+
+        for (int x = 0; x < len; x += 2) {
+
+            out[outOff + x / 2] = (char) ((digit(in.charAt(inOff + x)) << 4)
+                    | digit(in.charAt(inOff + x + 1)));
+        }
+
+        return len / 2;
+    }
+
+    /**
+     * Decode up to 16 hexadecimal digits into a long.
+     *
+     * @param in the digits
+     * @param inOff the offset of the first digit
+     * @param len the number of digits, 1 to 16
+     * @return the value of the digits
+     * @throws IllegalArgumentException if len is out of range or a character
+     * isn't a hexadecimal digit
+     */
+    public static long decodeLong(CharSequence in, int inOff, int len) {
+
+        if (len < 1 || len > 16) {
+
+            throw new IllegalArgumentException(
+                    "Need 1 to 16 hexadecimal digits");
+        }
+
+        long v = 0;
+
+        for (int x = 0; x < len; ++x) {
+
+            v = (v << 4) | digit(in.charAt(inOff + x));
+        }
+
+        return v;
+    }
+
+    /**
+     * The value of a single hexadecimal digit.
+     *
+     * @param c the digit
+     * @return its value, 0 to 15
+     * @throws IllegalArgumentException if c isn't a hexadecimal digit
+     */
+    public static int digit(char c) {
+
+        int d = c < 128 ? DECODE[c] : -1;
+
+        if (d < 0) {
+
+            throw new IllegalArgumentException("Not a hexadecimal digit: '"
+                    + c + "'");
+        }
+
+        return d;
+    }
+
+    private static void checkLength(int len) {
+
+        if ((len & 1) != 0) {
+
+            throw new IllegalArgumentException(
+                    "Hexadecimal must have an even number of digits");
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * KeyedSerialExecutor.java
+ *
+ * KeyedSerialExecutor.java runs tasks on another executor, such as a virtual
+ * thread per task from RequestExecutors, except that the tasks submitted with
+ * the same key run one after another, in the order they were submitted.
+ * Tasks with different keys still run at the same time. ServerMessager uses
+ * it with the session id as the key for RC4 session packets, whose keystream
+ * can only go forward, so a later packet of a session can never be decrypted
+ * before an earlier one.
+ *
+ * Each key with tasks waiting or running has the last of them, as a
+ * CompletableFuture, and the next task for that key is chained on after it.
+ * The key is forgotten once its last task has finished, so keys that are
+ * never used again don't build up.
+ */
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class KeyedSerialExecutor {
+
+    private final Executor executor;
+
+    /**
+     * The last task for each key that has tasks waiting or running.
+     */
+    private final Map<Object, CompletableFuture<Void>> tails = new HashMap<>();
+
+    /**
+     * Run tasks on an executor, one key at a time.
+     *
+     * @param executor the executor the tasks run on
+     */
+    public KeyedSerialExecutor(Executor executor) {
+
+        this.executor = executor;
+    }
+
+    /**
+     * Run a task after every task already submitted with the same key has
+     * finished.
+     *
+     * @param key the key
+     * @param task the task
+     * @throws java.util.concurrent.RejectedExecutionException if the
+     * executor refuses the task
+     */
+    public void execute(Object key, Runnable task) {
+
+        synchronized (tails) {
+
+            CompletableFuture<Void> tail = tails.get(key);
+
+            /**
+             * The task runs whether the one before it finished normally or
+             * not, so one failure doesn't stop the rest of the key's tasks.
+             */
+            CompletableFuture<Void> next = tail == null
+                    ? CompletableFuture.runAsync(task, executor)
+                    : tail.handleAsync((v, ex) -> {
+
+                        task.run();
+
+                        return null;
+                    }, executor);
+
+            tails.put(key, next);
+
+            next.whenComplete((v, ex) -> {
+
+                synchronized (tails) {
+
+                    tails.remove(key, next);
+                }
+            });
+        }
+    }
+
+    /**
+     * The number of keys with tasks waiting or running.
+     *
+     * @return the number of keys
+     */
+    public int getKeyCount() {
+
+        synchronized (tails) {
+
+            return tails.size();
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * KeystreamPrefetcher.java
+ *
+ * KeystreamPrefetcher.java generates RC4 keystream ahead of time. The
+ * keystream doesn't depend on the message, so it can be worked out before the
+ * message arrives. A prefetcher keeps a ring buffer of the next 'depth' bytes
+ * of an RC4Engine's keystream, and whenever no more than 'refillThreshold'
+ * bytes are left it hands a refill to a background thread. Encrypting or
+ * decrypting a message is then just an XOR against bytes that are already in
+ * the buffer.
+ *
+ * If a message needs more keystream than is in the buffer, the rest is
+ * generated on the spot from the engine. That is counted as a miss; a message
+ * served entirely from the buffer is a hit. The counters, and the number of
+ * bytes served each way, can be read at any time to tune the depth and
+ * threshold against real message sizes. A depth of 0 turns prefetching off,
+ * so every message is a miss.
+ *
+ * The engine belongs to the prefetcher once it has been created. The buffer
+ * and the engine are only touched while holding the prefetcher's lock, and the
+ * background thread refills REFILL_CHUNK bytes at a time so that a message
+ * never has to wait long for it. By default every prefetcher shares one daemon
+ * thread.
+ */
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class KeystreamPrefetcher {
+
+    /**
+     * The most keystream generated by the background thread at one time
+     * before letting a waiting message in.
+     */
+    static final int REFILL_CHUNK = 1024;
+
+    /**
+     * The thread shared by every prefetcher that isn't given an Executor of
+     * its own.
+     */
+    private static final ExecutorService SHARED_EXECUTOR
+            = Executors.newSingleThreadExecutor(r -> {
+
+                Thread t = new Thread(r, "KeystreamPrefetcher");
+
+                t.setDaemon(true);
+
+                return t;
+            });
+
+    private final RC4Engine engine;
+    private final Executor executor;
+    private final int refillThreshold;
+
+    /**
+     * The ring buffer. The next unused byte of keystream is ring[head], and
+     * there are 'available' bytes of it, wrapping around the end of the array.
+     */
+    private final byte[] ring;
+    private int head, available;
+
+    private boolean refillPending;
+
+    private final AtomicLong hits = new AtomicLong(),
+            misses = new AtomicLong(),
+            hitBytes = new AtomicLong(),
+            missBytes = new AtomicLong();
+
+    private final Runnable refill = this::refill;
+
+    /**
+     * Create a prefetcher that refills on the shared background thread. The
+     * first refill starts straight away.
+     *
+     * @param engine the engine to take the keystream from
+     * @param depth the size of the ring buffer
+     * @param refillThreshold start a refill when no more than this many bytes
+     * are left in the buffer
+     */
+    public KeystreamPrefetcher(RC4Engine engine, int depth,
+            int refillThreshold) {
+
+        this(engine, depth, refillThreshold, SHARED_EXECUTOR);
+    }
+
+    /**
+     * Create a prefetcher that refills using the given Executor. The first
+     * refill starts straight away.
+     *
+     * @param engine the engine to take the keystream from
+     * @param depth the size of the ring buffer
+     * @param refillThreshold start a refill when no more than this many bytes
+     * are left in the buffer
+     * @param executor runs the refills
+     */
+    public KeystreamPrefetcher(RC4Engine engine, int depth,
+            int refillThreshold, Executor executor) {
+
+        if (depth < 0 || refillThreshold < 0 || refillThreshold > depth) {
+
+            throw new IllegalArgumentException(
+                    "Need 0 <= refillThreshold <= depth");
+        }
+
+        this.engine = engine;
+        this.executor = executor;
+        this.refillThreshold = refillThreshold;
+
+        ring = new byte[depth];
+
+        synchronized (this) {
+
+            scheduleRefill();
+        }
+    }
+
+    /**
+     * XOR the next len bytes of keystream into b, in place.
+     *
+     * @param b the array
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     */
+    public void crypt(byte[] b, int off, int len) {
+
+        crypt(b, off, len, b, off);
+    }
+
+    /**
+     * XOR the next len bytes of keystream with in, writing the result to out.
+     * in and out may be the same array, as long as the output does not start
+     * after the input.
+     *
+     * @param in the array holding the input
+     * @param inOff the offset of the first byte of input
+     * @param len the number of bytes
+     * @param out the array to write the output into
+     * @param outOff the offset to write the first byte of output at
+     */
+    public void crypt(byte[] in, int inOff, int len, byte[] out, int outOff) {
+
+        if (inOff < 0 || len < 0 || inOff + len > in.length) {
+
+            throw new IllegalArgumentException("Input out of bounds");
+        }
+
+        if (outOff < 0 || outOff + len > out.length) {
+
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+
+        synchronized (this) {
+
+            int n = Math.min(len, available);
+
+            /**
+             * The prefetched bytes may wrap around the end of the ring, in
+             * which case they are XORed in two pieces.
+             */
+            int first = Math.min(n, ring.length - head);
+
+            XorKernel.xor(in, inOff, ring, head, out, outOff, first);
+            XorKernel.xor(in, inOff + first, ring, 0, out, outOff + first,
+                    n - first);
+
+            take(n);
+
+            if (n < len) {
+
+                engine.crypt(in, inOff + n, len - n, out, outOff + n);
+
+                misses.incrementAndGet();
+                missBytes.addAndGet(len - n);
+
+            } else {
+
+                hits.incrementAndGet();
+            }
+
+            hitBytes.addAndGet(n);
+
+            scheduleRefill();
+        }
+    }
+
+    /**
+     * Throw away the next n bytes of keystream.
+     *
+     * @param n the number of bytes to skip
+     */
+    public void skip(long n) {
+
+        synchronized (this) {
+
+            int fromRing = (int) Math.min(n, available);
+
+            take(fromRing);
+
+            engine.skip(n - fromRing);
+
+            scheduleRefill();
+        }
+    }
+
+    /**
+     * The number of messages served entirely from the buffer.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+
+        return hits.get();
+    }
+
+    /**
+     * The number of messages that needed keystream generated on the spot.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+
+        return misses.get();
+    }
+
+    /**
+     * The number of bytes of keystream taken from the buffer.
+     *
+     * @return the number of bytes
+     */
+    public long getHitBytes() {
+
+        return hitBytes.get();
+    }
+
+    /**
+     * The number of bytes of keystream generated on the spot because the
+     * buffer ran out.
+     *
+     * @return the number of bytes
+     */
+    public long getMissBytes() {
+
+        return missBytes.get();
+    }
+
+    /**
+     * The number of bytes of keystream in the buffer right now.
+     *
+     * @return the number of bytes
+     */
+    public synchronized int getAvailable() {
+
+        return available;
+    }
+
+    public int getDepth() {
+
+        return ring.length;
+    }
+
+    public int getRefillThreshold() {
+
+        return refillThreshold;
+    }
+
+    @Override
+    public String toString() {
+
+        return "KeystreamPrefetcher[depth=" + ring.length + ", threshold="
+                + refillThreshold + ", hits=" + getHits() + ", misses="
+                + getMisses() + ", hitBytes=" + getHitBytes() + ", missBytes="
+                + getMissBytes() + "]";
+    }
+
+    /**
+     * Use up the next n bytes of the buffer. Must hold the lock.
+     *
+     * @param n the number of bytes, no more than are available
+     */
+    private void take(int n) {
+
+        if (n > 0) {
+
+            head = (head + n) % ring.length;
+            available -= n;
+        }
+    }
+
+    /**
+     * Hand a refill to the background thread if the buffer is running low and
+     * one isn't already on its way. Must hold the lock.
+     */
+    private void scheduleRefill() {
+
+        if (!refillPending && ring.length > 0
+                && available <= refillThreshold) {
+
+            refillPending = true;
+
+            executor.execute(refill);
+        }
+    }
+
+    /**
+     * Fill the buffer, REFILL_CHUNK bytes at a time, letting any message that
+     * is waiting in between chunks.
+     */
+    private void refill() {
+
+        while (true) {
+
+            synchronized (this) {
+
+                int free = ring.length - available;
+
+                if (free == 0) {
+
+                    refillPending = false;
+                    return;
+                }
+
+                int tail = (head + available) % ring.length,
+                        n = Math.min(Math.min(free, REFILL_CHUNK),
+                                ring.length - tail);
+
+                engine.keystream(ring, tail, n);
+
+                available += n;
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * ListenerGroup.java
+ *
+ * ListenerGroup.java runs the server on several DatagramChannels bound to the
+ * same address and port, each served by its own ChannelServerMessager thread.
+ * One socket has one receive queue in the kernel and one thread emptying it,
+ * however many cores the machine has. With SO_REUSEPORT set on every channel,
+ * Linux gives each socket its own queue and spreads incoming packets across
+ * them by a hash of the client's address and port, so the receiving, and the
+ * decrypting and encrypting that follow it, happen on as many cores as there
+ * are listeners.
+ *
+ * The listeners share one MessageHandler and one BufferPool. ClientMessager
+ * sends every message from a new port, so the messages of an RC4 session
+ * arrive on whichever socket the kernel's hash picks, and the shared
+ * MessageHandler finds the session from any of them. The kernel can't be
+ * told to keep a session on one socket, so the group relies on the client
+ * sending a session's next message only once it has the reply to the last,
+ * as ClientMessager does. If a client sent two at once, two listeners could
+ * decrypt them in the wrong order; the session's locks keep its keystream
+ * whole, but the earlier message would be rejected.
+ *
+ * Each listener keeps its own counters of packets received, replies sent and
+ * dropped, and errors, and getStats reports them for every socket. They all
+ * write to the same ServerLog, whose level decides whether every packet is
+ * logged.
+ *
+ * SO_REUSEPORT is not available everywhere; where it isn't, a group can only
+ * have one listener.
+ */
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+
+public class ListenerGroup {
+
+    private final ChannelServerMessager[] listeners;
+
+    /**
+     * Create the listeners and bind their channels.
+     *
+     * @param name the name of the group, which the threads are named after
+     * @param server the ServerUI to log to
+     * @param addr the address and port every listener binds to
+     * @param count the number of listeners
+     * @throws IOException if a channel can't be opened or bound
+     * @throws UnsupportedOperationException if count is more than 1 and
+     * SO_REUSEPORT is not supported
+     */
+    public ListenerGroup(String name, ServerUI server, InetSocketAddress addr,
+            int count) throws IOException {
+
+        this(name, server, server.log, addr, count);
+    }
+
+    /**
+     * Create the listeners without a ServerUI, such as for HeadlessServer,
+     * and bind their channels.
+     *
+     * @param name the name of the group, which the threads are named after
+     * @param log the log every listener writes to
+     * @param addr the address and port every listener binds to
+     * @param count the number of listeners
+     * @throws IOException if a channel can't be opened or bound
+     * @throws UnsupportedOperationException if count is more than 1 and
+     * SO_REUSEPORT is not supported
+     */
+    public ListenerGroup(String name, ServerLog log, InetSocketAddress addr,
+            int count) throws IOException {
+
+        this(name, null, log, addr, count);
+    }
+
+    private ListenerGroup(String name, ServerUI server, ServerLog log,
+            InetSocketAddress addr, int count) throws IOException {
+
+        if (count < 1) {
+
+            throw new IllegalArgumentException("Need at least one listener");
+        }
+
+        boolean reusePort = count > 1;
+
+        if (reusePort && !isReusePortSupported()) {
+
+            throw new UnsupportedOperationException(
+                    "SO_REUSEPORT is not supported on this platform");
+        }
+
+        listeners = new ChannelServerMessager[count];
+
+        try {
+
+            listeners[0] = new ChannelServerMessager(name + "-0", server,
+                    log, null, null, reusePort, addr);
+
+            for (int x = 1; x < count; ++x) {
+
+                listeners[x] = new ChannelServerMessager(name + "-" + x,
+                        server, log, listeners[0].messages,
+                        listeners[0].buffers, true, addr);
+            }
+
+        } catch (IOException | RuntimeException ex) {
+
+            for (ChannelServerMessager listener : listeners) {
+
+                if (listener != null) {
+
+                    listener.close();
+                }
+            }
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Whether DatagramChannels on this platform support SO_REUSEPORT.
+     *
+     * @return true if several channels can be bound to one port
+     * @throws IOException if a channel can't be opened to find out
+     */
+    public static boolean isReusePortSupported() throws IOException {
+
+        try (DatagramChannel channel = DatagramChannel.open()) {
+
+            return channel.supportedOptions()
+                    .contains(StandardSocketOptions.SO_REUSEPORT);
+        }
+    }
+
+    /**
+     * Start every listener's thread.
+     */
+    public void start() {
+
+        for (ChannelServerMessager listener : listeners) {
+
+            listener.start();
+        }
+    }
+
+    /**
+     * Wait for every listener's thread to finish, which it does when it has
+     * had no packets for its timeout.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void join() throws InterruptedException {
+
+        for (ChannelServerMessager listener : listeners) {
+
+            listener.join();
+        }
+    }
+
+    public int getListenerCount() {
+
+        return listeners.length;
+    }
+
+    /**
+     * The counters of every listener's socket, one line each, and the
+     * shared BufferPool. After join they are the final counts.
+     *
+     * @return the counters
+     */
+    public String getStats() {
+
+        StringBuilder s = new StringBuilder("ListenerGroup[listeners=")
+                .append(listeners.length).append("]\n");
+
+        for (ChannelServerMessager listener : listeners) {
+
+            s.append("  ").append(listener.getName()).append(" ")
+                    .append(listener.getStats());
+        }
+
+        return s.append("  ").append(listeners[0].buffers).toString();
+    }
+}
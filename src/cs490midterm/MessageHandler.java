@@ -0,0 +1,217 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * MessageHandler.java
+ *
+ * MessageHandler is the one path that every message takes between a String
+ * and a packet, whatever mode it is sent in, for both ClientMessager and
+ * ServerMessager. A packet is the mode id as a single ASCII digit, followed by
+ * whatever the mode's CipherEngine produced from the UTF-8 bytes of the
+ * message. Replies from the server use the same format.
+ *
+ * The message is encrypted and decrypted in place in the packet buffer, so
+ * apart from converting between the String and its bytes, nothing is copied or
+ * allocated on the way. The caller owns the buffer and can use the same one
+ * for every packet.
+ *
+ * A server using a DatagramChannel receives and sends packets in ByteBuffers.
+ * The ByteBuffer versions of decrypt and encrypt copy the packet once into a
+ * work array owned by the caller and hand that to the engine, so the message
+ * never has to become a String; the server can build its reply in the work
+ * array and have it encrypted back into the buffer.
+ *
+ * A MessageHandler holds no state of its own, so one can be shared by any
+ * number of threads as long as each has its own buffer.
+ */
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+public class MessageHandler {
+
+    private final CipherEngines engines;
+
+    public MessageHandler(CipherEngines engines) {
+
+        this.engines = engines;
+    }
+
+    /**
+     * Find the engine for the mode a packet was sent in.
+     *
+     * @param packet the array holding the packet
+     * @param len the length of the packet
+     * @return the engine
+     * @throws IllegalArgumentException if the packet is empty or its mode is
+     * unknown
+     */
+    public CipherEngine getEngine(byte[] packet, int len) {
+
+        if (len < 1) {
+
+            throw new IllegalArgumentException("Empty packet");
+        }
+
+        return engines.get(packet[0] - '0');
+    }
+
+    /**
+     * Find the engine for the mode of a packet held in a buffer, from its
+     * position to its limit. The buffer's position is not changed.
+     *
+     * @param packet the buffer holding the packet
+     * @return the engine
+     * @throws IllegalArgumentException if the packet is empty or its mode is
+     * unknown
+     */
+    public CipherEngine getEngine(ByteBuffer packet) {
+
+        if (!packet.hasRemaining()) {
+
+            throw new IllegalArgumentException("Empty packet");
+        }
+
+        return engines.get(packet.get(packet.position()) - '0');
+    }
+
+    /**
+     * Find the engine for a mode id.
+     *
+     * @param mode the mode id
+     * @return the engine
+     * @throws IllegalArgumentException if the mode is unknown
+     */
+    public CipherEngine getEngine(int mode) {
+
+        return engines.get(mode);
+    }
+
+    /**
+     * Encrypt a message into a packet.
+     *
+     * @param engine the engine for the mode to send the message in
+     * @param message the message
+     * @param packet the array to build the packet in, starting at 0
+     * @return the length of the packet
+     * @throws GeneralSecurityException if the engine fails
+     * @throws IllegalArgumentException if the packet won't fit in the array
+     */
+    public int encrypt(CipherEngine engine, String message, byte[] packet)
+            throws GeneralSecurityException {
+
+        byte[] b = message.getBytes(StandardCharsets.UTF_8);
+
+        if (1 + engine.getOutputSize(b.length) > packet.length) {
+
+            throw new IllegalArgumentException("Message is too long, the most "
+                    + "that can be sent is " + packet.length + " bytes");
+        }
+
+        packet[0] = (byte) ('0' + engine.getId());
+
+        System.arraycopy(b, 0, packet, 1, b.length);
+
+        return 1 + engine.encrypt(packet, 1, b.length);
+    }
+
+    /**
+     * Decrypt the message in a packet, in place.
+     *
+     * @param engine the engine for the packet's mode, from getEngine
+     * @param packet the array holding the packet
+     * @param len the length of the packet
+     * @return the message
+     * @throws GeneralSecurityException if the engine fails
+     */
+    public String decrypt(CipherEngine engine, byte[] packet, int len)
+            throws GeneralSecurityException {
+
+        int n = engine.decrypt(packet, 1, len - 1);
+
+        return new String(packet, 1, n, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copy the packet held in a buffer, from its position to its limit, into
+     * work and decrypt it there. The message is left in work from index 1,
+     * and the buffer's position is moved to its limit.
+     *
+     * @param engine the engine for the packet's mode, from getEngine
+     * @param packet the buffer holding the packet
+     * @param work the array to decrypt the packet in, at least as long as the
+     * packet
+     * @return the length of the message
+     * @throws GeneralSecurityException if the engine fails
+     * @throws BufferOverflowException if the packet won't fit in work
+     */
+    public int decrypt(CipherEngine engine, ByteBuffer packet, byte[] work)
+            throws GeneralSecurityException {
+
+        int len = packet.remaining();
+
+        if (len > work.length) {
+
+            throw new BufferOverflowException();
+        }
+
+        packet.get(work, 0, len);
+
+        return engine.decrypt(work, 1, len - 1);
+    }
+
+    /**
+     * Encrypt a message held in work from index 1, building the packet in
+     * work and then copying it into a buffer. The buffer is cleared first and
+     * flipped afterwards, ready to send.
+     *
+     * @param engine the engine for the mode to send the message in
+     * @param work the array holding the message from index 1
+     * @param len the length of the message
+     * @param packet the buffer to write the packet into
+     * @return the length of the packet
+     * @throws GeneralSecurityException if the engine fails
+     * @throws IllegalArgumentException if the packet won't fit in work or the
+     * buffer
+     */
+    public int encrypt(CipherEngine engine, byte[] work, int len,
+            ByteBuffer packet) throws GeneralSecurityException {
+
+        int max = 1 + engine.getOutputSize(len);
+
+        if (max > work.length || max > packet.capacity()) {
+
+            throw new IllegalArgumentException("Message is too long, the most "
+                    + "that can be sent is "
+                    + Math.min(work.length, packet.capacity()) + " bytes");
+        }
+
+        work[0] = (byte) ('0' + engine.getId());
+
+        int n = 1 + engine.encrypt(work, 1, len);
+
+        packet.clear();
+        packet.put(work, 0, n).flip();
+
+        return n;
+    }
+
+    /**
+     * The encrypted part of a packet as hexadecimal, for the log.
+     *
+     * @param packet the array holding the packet
+     * @param len the length of the packet
+     * @return two hexadecimal digits for each byte after the mode id
+     */
+    public static String toHex(byte[] packet, int len) {
+
+        char[] hex = new char[2 * (len - 1)];
+
+        HexCodec.encode(packet, 1, len - 1, hex, 0);
+
+        return new String(hex);
+    }
+}
@@ -31,13 +31,14 @@ public class RC4 {
      * 
      * @param message the String representation of the message 
      * @param key the 64-bit key used for both encryption and decryption
-     * @return the encrypted or decrypted text
+     * @return the encrypted or decrypted text, as two hexadecimal digits per
+     * character
      */
     public static String rC4(String message, String key) {
 
         int[] S = permuteS(initialS(), key.toCharArray());
 
-        String C = "";
+        char[] C = new char[2 * message.length()];
 
         for (int i = 0, j = 0, z = 0; z < message.length(); ++z) {
 
@@ -50,10 +51,10 @@ public class RC4 {
 
             int c = (S[((S[i] + S[j]) % 256)] ^ (int) message.charAt(z));
 
-            C += (c < 16 ? "0" + Integer.toHexString(c) : Integer.toHexString(c));
+            HexCodec.encode(c, C, 2 * z);
         }
 
-        return C;
+        return new String(C);
     }
 
     /**
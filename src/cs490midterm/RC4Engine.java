@@ -0,0 +1,285 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * RC4Engine.java
+ *
+ * RC4Engine.java is the RC4 algorithm of RC4.java working directly on bytes.
+ * RC4.rC4 takes a String, keeps S as an int[], uses % 256, and builds a
+ * hexadecimal String of the output one character at a time, which the caller
+ * then turns back into characters with Utils.hexToASCII. RC4Engine keeps S in
+ * a 256-byte table, uses & 0xFF for all of the index arithmetic, and XORs the
+ * keystream straight into a byte array or ByteBuffer, so nothing is allocated
+ * once the engine has been created.
+ *
+ * An engine is created from a key, which runs the key-scheduling algorithm
+ * once, and then carries on through the keystream with every call to crypt.
+ * Encryption and decryption are the same operation. cryptMessage gives the
+ * same result as Utils.hexToASCII(RC4.rC4(message, key)) for messages of
+ * ASCII characters, without the hexadecimal in between.
+ *
+ * An RC4Engine is not thread safe.
+ */
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class RC4Engine {
+
+    private final byte[] S = new byte[256];
+    private int i, j;
+
+    /**
+     * Create an engine, running the key-scheduling algorithm.
+     *
+     * @param key the key, 1 to 256 bytes
+     */
+    public RC4Engine(byte[] key) {
+
+        if (key.length < 1 || key.length > 256) {
+
+            throw new IllegalArgumentException("Key must be 1 to 256 bytes");
+        }
+
+        for (int x = 0; x < 256; ++x) {
+
+            S[x] = (byte) x;
+        }
+
+        /**
+         * The bytes of S and the key are signed, but adding them and masking
+         * with 0xFF gives the same index as adding their unsigned values.
+         */
+        for (int x = 0, y = 0; x < 256; ++x) {
+
+            byte t = S[x];
+
+            y = (y + t + key[x % key.length]) & 0xFF;
+
+            S[x] = S[y];
+            S[y] = t;
+        }
+    }
+
+    /**
+     * Create an engine from a String key, one byte per character, as used by
+     * RC4.rC4.
+     *
+     * @param key the key
+     */
+    public RC4Engine(String key) {
+
+        this(key.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Encrypt or decrypt an ASCII String with a new engine, the way
+     * ClientMessager and ServerMessager use RC4.
+     *
+     * @param message the String representation of the message
+     * @param key the key
+     * @return the encrypted or decrypted text, one character per byte
+     */
+    public static String cryptMessage(String message, String key) {
+
+        byte[] b = message.getBytes(StandardCharsets.ISO_8859_1);
+
+        new RC4Engine(key).crypt(b, 0, b.length);
+
+        return new String(b, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * XOR the next len bytes of keystream into b, in place.
+     *
+     * @param b the array
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     */
+    public void crypt(byte[] b, int off, int len) {
+
+        crypt(b, off, len, b, off);
+    }
+
+    /**
+     * XOR the next len bytes of keystream with in, writing the result to out.
+     * in and out may be the same array, as long as the output does not start
+     * after the input.
+     *
+     * @param in the array holding the input
+     * @param inOff the offset of the first byte of input
+     * @param len the number of bytes
+     * @param out the array to write the output into
+     * @param outOff the offset to write the first byte of output at
+     */
+    public void crypt(byte[] in, int inOff, int len, byte[] out, int outOff) {
+
+        if (inOff < 0 || len < 0 || inOff + len > in.length) {
+
+            throw new IllegalArgumentException("Input out of bounds");
+        }
+
+        if (outOff < 0 || outOff + len > out.length) {
+
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+
+        /**
+         * Work on locals so the JIT can keep the counters in registers for
+         * the whole loop.
+         */
+        byte[] s = S;
+        int a = i, b = j;
+
+        for (int x = 0; x < len; ++x) {
+
+            a = (a + 1) & 0xFF;
+
+            byte t = s[a];
+
+            b = (b + t) & 0xFF;
+
+            byte u = s[b];
+
+            s[a] = u;
+            s[b] = t;
+
+            out[outOff + x] = (byte) (in[inOff + x] ^ s[(t + u) & 0xFF]);
+        }
+
+        i = a;
+        j = b;
+    }
+
+    /**
+     * XOR the remaining bytes of a buffer with the keystream, in place. The
+     * position of the buffer is moved to its limit.
+     *
+     * @param b the buffer
+     */
+    public void crypt(ByteBuffer b) {
+
+        crypt(b, b.duplicate());
+    }
+
+    /**
+     * XOR all of the remaining bytes of in with the keystream, writing the
+     * result to out. Both buffers have their positions advanced; heap and
+     * direct buffers are both fine.
+     *
+     * @param in the buffer holding the input
+     * @param out the buffer to write the output into
+     */
+    public void crypt(ByteBuffer in, ByteBuffer out) {
+
+        int len = in.remaining();
+
+        if (out.remaining() < len) {
+
+            throw new BufferOverflowException();
+        }
+
+        int inPos = in.position(),
+                outPos = out.position();
+
+        if (in.hasArray() && out.hasArray() && !out.isReadOnly()) {
+
+            crypt(in.array(), in.arrayOffset() + inPos, len, out.array(),
+                    out.arrayOffset() + outPos);
+
+        } else {
+
+            byte[] s = S;
+            int a = i, b = j;
+
+            for (int x = 0; x < len; ++x) {
+
+                a = (a + 1) & 0xFF;
+
+                byte t = s[a];
+
+                b = (b + t) & 0xFF;
+
+                byte u = s[b];
+
+                s[a] = u;
+                s[b] = t;
+
+                out.put(outPos + x,
+                        (byte) (in.get(inPos + x) ^ s[(t + u) & 0xFF]));
+            }
+
+            i = a;
+            j = b;
+        }
+
+        in.position(inPos + len);
+        out.position(outPos + len);
+    }
+
+    /**
+     * Write the next len bytes of keystream to out, without XORing them with
+     * anything.
+     *
+     * @param out the array to write the keystream into
+     * @param off the offset to write the first byte at
+     * @param len the number of bytes
+     */
+    public void keystream(byte[] out, int off, int len) {
+
+        if (off < 0 || len < 0 || off + len > out.length) {
+
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+
+        byte[] s = S;
+        int a = i, b = j;
+
+        for (int x = 0; x < len; ++x) {
+
+            a = (a + 1) & 0xFF;
+
+            byte t = s[a];
+
+            b = (b + t) & 0xFF;
+
+            byte u = s[b];
+
+            s[a] = u;
+            s[b] = t;
+
+            out[off + x] = s[(t + u) & 0xFF];
+        }
+
+        i = a;
+        j = b;
+    }
+
+    /**
+     * Throw away the next n bytes of keystream.
+     *
+     * @param n the number of bytes to skip
+     */
+    public void skip(long n) {
+
+        byte[] s = S;
+        int a = i, b = j;
+
+        for (long x = 0; x < n; ++x) {
+
+            a = (a + 1) & 0xFF;
+
+            byte t = s[a];
+
+            b = (b + t) & 0xFF;
+
+            s[a] = s[b];
+            s[b] = t;
+        }
+
+        i = a;
+        j = b;
+    }
+}
@@ -0,0 +1,668 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * RC4Session.java
+ *
+ * RC4Session.java is RC4 for a conversation rather than a single message.
+ * RC4.rC4 runs the key-scheduling algorithm (initialS and permuteS) for every
+ * message and starts the keystream over from the beginning each time. An
+ * RC4Session runs the key schedule once, when the session is created, and then
+ * carries on through the keystream of an RC4Engine from one message to the
+ * next.
+ *
+ * Each session has a random 64-bit id, chosen by the client, and a random
+ * 64-bit nonce, chosen by the server when the session's first message
+ * arrives. A session holds one keystream for sending and one for receiving,
+ * and the client and server never use the same keystream. The RC4 key for
+ * each direction is an HMAC-SHA256, keyed with the shared key, of "RC4", the
+ * session id, a direction byte (0 from the client to the server, 1 from the
+ * server to the client) and, from the server to the client, the server's
+ * nonce. Keys that only differ in a few known bytes, as they would if the id
+ * were just appended to the shared key, are what broke RC4 in WEP; through
+ * the HMAC they have nothing in common. The first DROP bytes of every
+ * keystream, where RC4's output is most biased towards its key, are thrown
+ * away as well.
+ *
+ * The server's nonce is what keeps a replayed session from reusing the
+ * server's keystream. Without it, someone who recorded a session could send
+ * its first message again once the server had forgotten the session, or had
+ * been restarted, and then later messages, and get replies encrypted with
+ * keystream the server had already used for different replies. With it, the
+ * server's keystream is new every time it starts a session. The client learns
+ * the nonce from the header of the first reply, and sends it back in every
+ * message after that; the server rejects a message with any other nonce,
+ * apart from 0 before it has sent a reply.
+ *
+ * Every message carries a header of 40 characters: the session id, the
+ * server's nonce (0 until the client knows it), then the sequence number of
+ * the message, which is the position in the keystream of its first byte, then
+ * a tag. The receiver uses the sequence number to stay in step with the
+ * sender. If a packet was lost, the receiver skips ahead to the sequence
+ * number of the next one. The keystream can't be run backwards, so a message
+ * from earlier in the keystream than one already received (a reordered or
+ * replayed packet) is rejected, as is one more than MAX_SKIP bytes ahead.
+ *
+ * The tag is an HMAC-SHA256, cut down to TAG_LENGTH bytes, of the session id,
+ * the nonce, the sequence number and the ciphertext, keyed with an HMAC of
+ * "MAC" and the same inputs as that direction's RC4 key. It is checked before
+ * the receiver acts on the sequence number, so a forged or damaged header
+ * can't move the receiver's keystream along and leave it out of step with the
+ * sender.
+ *
+ * Since the receiver can't go back, the sender must not have two messages of
+ * a session on their way at once if they might arrive out of order.
+ * ClientMessager waits for the reply to each message of a session before it
+ * sends the next one.
+ *
+ * Each direction's keystream is generated ahead of time by a
+ * KeystreamPrefetcher, so a message is normally just XORed with keystream that
+ * is already waiting. The depth of the prefetching can be chosen when the
+ * session is created.
+ *
+ * Messages are one character per byte, the same as the other ciphers used by
+ * ClientMessager and ServerMessager.
+ */
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+public class RC4Session {
+
+    /**
+     * The number of characters of the tag, which follows the session id and
+     * sequence number.
+     */
+    static final int TAG_LENGTH = 16;
+
+    /**
+     * The number of characters taken by the session id, nonce, sequence
+     * number and tag at the start of every message.
+     */
+    static final int HEADER_LENGTH = 24 + TAG_LENGTH;
+
+    /**
+     * The number of bytes at the start of every keystream that are thrown
+     * away, as recommended for RC4 by Mironov's "(Not So) Random Shuffles of
+     * RC4".
+     */
+    static final int DROP = 3072;
+
+    /**
+     * The furthest the receiver will skip ahead in the keystream for a single
+     * message. This is far more than any number of lost chat messages could
+     * account for, and stops a bad sequence number from keeping the receiver
+     * busy generating keystream.
+     */
+    static final long MAX_SKIP = 1 << 20;
+
+    /**
+     * The default number of bytes of keystream prefetched in each direction.
+     * Chat messages are short, so this covers several of them.
+     */
+    static final int PREFETCH_DEPTH = 1024;
+
+    /**
+     * The default number of prefetched bytes left that starts a refill. This
+     * is MAX_BUFFER_SIZE in ClientMessager and ServerMessager, so the next
+     * message will normally be a hit.
+     */
+    static final int REFILL_THRESHOLD = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final String key;
+    private final long id;
+    private final boolean client;
+    private final int prefetchDepth, refillThreshold;
+
+    private final Keystream send;
+
+    /**
+     * The keystream from the other end. On the client it is only known once
+     * the first reply has brought the server's nonce, until when it is null.
+     * It is only used while holding receiveLock.
+     */
+    private Keystream receive;
+    private final Object receiveLock = new Object();
+
+    /**
+     * The server's nonce, or 0 on the client until the first reply.
+     */
+    private volatile long nonce;
+
+    /**
+     * Whether the server has encrypted a reply, after which the client must
+     * know the nonce.
+     */
+    private volatile boolean replied;
+
+    /**
+     * Start a new session for a client, with a random session id.
+     *
+     * @param key the key shared by the client and server
+     * @return the client's side of the new session
+     */
+    public static RC4Session newClientSession(String key) {
+
+        return newClientSession(key, PREFETCH_DEPTH, REFILL_THRESHOLD);
+    }
+
+    /**
+     * Start a new session for a client, with a random session id and the
+     * given amount of keystream prefetching.
+     *
+     * @param key the key shared by the client and server
+     * @param prefetchDepth the bytes of keystream to prefetch in each
+     * direction, or 0 for none
+     * @param refillThreshold start prefetching more when no more than this
+     * many bytes are left
+     * @return the client's side of the new session
+     */
+    public static RC4Session newClientSession(String key, int prefetchDepth,
+            int refillThreshold) {
+
+        return new RC4Session(key, RANDOM.nextLong(), true, 0, prefetchDepth,
+                refillThreshold);
+    }
+
+    /**
+     * Create the server's side of a session started by a client, with a new
+     * random nonce.
+     *
+     * @param key the key shared by the client and server
+     * @param id the session id sent by the client
+     * @return the server's side of the session
+     */
+    public static RC4Session forServer(String key, long id) {
+
+        return forServer(key, id, PREFETCH_DEPTH, REFILL_THRESHOLD);
+    }
+
+    /**
+     * Create the server's side of a session started by a client, with the
+     * given amount of keystream prefetching.
+     *
+     * @param key the key shared by the client and server
+     * @param id the session id sent by the client
+     * @param prefetchDepth the bytes of keystream to prefetch in each
+     * direction, or 0 for none
+     * @param refillThreshold start prefetching more when no more than this
+     * many bytes are left
+     * @return the server's side of the session
+     */
+    public static RC4Session forServer(String key, long id, int prefetchDepth,
+            int refillThreshold) {
+
+        long nonce;
+
+        /**
+         * 0 stands for a nonce the client doesn't know yet.
+         */
+        do {
+
+            nonce = RANDOM.nextLong();
+
+        } while (nonce == 0);
+
+        return new RC4Session(key, id, false, nonce, prefetchDepth,
+                refillThreshold);
+    }
+
+    private RC4Session(String key, long id, boolean client, long nonce,
+            int prefetchDepth, int refillThreshold) {
+
+        this.key = key;
+        this.id = id;
+        this.client = client;
+        this.nonce = nonce;
+        this.prefetchDepth = prefetchDepth;
+        this.refillThreshold = refillThreshold;
+
+        Keystream toServer = new Keystream(key, id, 0, 0, prefetchDepth,
+                refillThreshold);
+
+        if (client) {
+
+            send = toServer;
+
+        } else {
+
+            send = new Keystream(key, id, 1, nonce, prefetchDepth,
+                    refillThreshold);
+            receive = toServer;
+        }
+    }
+
+    /**
+     * Read the session id from the header of a message, so that the server can
+     * find the session to decrypt it with.
+     *
+     * @param message a message produced by encryptMessage
+     * @return the session id
+     */
+    public static long sessionId(String message) {
+
+        return FastDES.getLong(header(message), 0);
+    }
+
+    /**
+     * Read the session id from the header of a message held in an array.
+     *
+     * @param b the array holding the message
+     * @param off the offset of the header
+     * @param len the length of the message
+     * @return the session id
+     */
+    public static long sessionId(byte[] b, int off, int len) {
+
+        checkHeader(len);
+
+        return FastDES.getLong(b, off);
+    }
+
+    /**
+     * Check whether a message for a session the server doesn't have is the
+     * first message of a new session: its nonce and sequence number are 0 and
+     * its tag is right for the session id in its header. A message that isn't
+     * can't start a session, which stops forged ids from filling up the
+     * server's sessions.
+     *
+     * @param key the key shared by the client and server
+     * @param b the array holding the message
+     * @param off the offset of the header
+     * @param len the length of the message
+     * @return whether the message starts a new session
+     */
+    public static boolean isNewSession(String key, byte[] b, int off,
+            int len) {
+
+        long id = sessionId(b, off, len);
+
+        return FastDES.getLong(b, off + 8) == 0
+                && FastDES.getLong(b, off + 16) == 0
+                && checkTag(hmac(directionKey(key, "MAC", id, 0, 0)), b, off,
+                        len);
+    }
+
+    public long getId() {
+
+        return id;
+    }
+
+    /**
+     * The server's nonce for this session.
+     *
+     * @return the nonce, or 0 on the client before the first reply
+     */
+    public long getNonce() {
+
+        return nonce;
+    }
+
+    /**
+     * The prefetcher for the keystream this end encrypts with, for reading
+     * its hit and miss counters.
+     *
+     * @return the sending prefetcher
+     */
+    public KeystreamPrefetcher getSendPrefetcher() {
+
+        return send.prefetcher;
+    }
+
+    /**
+     * The prefetcher for the keystream this end decrypts with, for reading
+     * its hit and miss counters.
+     *
+     * @return the receiving prefetcher, or null on the client before the
+     * first reply
+     */
+    public KeystreamPrefetcher getReceivePrefetcher() {
+
+        synchronized (receiveLock) {
+
+            return receive == null ? null : receive.prefetcher;
+        }
+    }
+
+    /**
+     * Encrypt a message with the next part of the sending keystream.
+     *
+     * @param message the String representation of the message to encrypt
+     * @return the header followed by the ciphertext, one character per byte
+     */
+    public String encryptMessage(String message) {
+
+        byte[] b = Arrays.copyOf(message.getBytes(StandardCharsets.ISO_8859_1),
+                HEADER_LENGTH + message.length());
+
+        int n = encryptMessage(b, 0, message.length());
+
+        return new String(b, 0, n, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decrypt a message from the other end of the session.
+     *
+     * @param message the header followed by the ciphertext
+     * @return the decrypted message
+     * @throws IllegalArgumentException if the message is for another session,
+     * fails authentication, or is from earlier in the keystream than a message
+     * already decrypted
+     */
+    public String decryptMessage(String message) {
+
+        byte[] b = header(message);
+
+        int n = decryptMessage(b, 0, b.length);
+
+        return new String(b, 0, n, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Encrypt a message in place with the next part of the sending keystream.
+     * The message is moved along to make room for the header in front of it.
+     *
+     * @param b the array holding the message, with room for HEADER_LENGTH +
+     * len bytes from off
+     * @param off the offset of the first byte of the message
+     * @param len the length of the message
+     * @return the length of the header and ciphertext
+     */
+    public int encryptMessage(byte[] b, int off, int len) {
+
+        System.arraycopy(b, off, b, off + HEADER_LENGTH, len);
+
+        FastDES.putLong(b, off, id);
+        FastDES.putLong(b, off + 8, nonce);
+
+        synchronized (send) {
+
+            FastDES.putLong(b, off + 16, send.position);
+
+            send.crypt(b, off + HEADER_LENGTH, len);
+
+            putTag(send.mac, b, off, HEADER_LENGTH + len);
+        }
+
+        if (!client) {
+
+            replied = true;
+        }
+
+        return HEADER_LENGTH + len;
+    }
+
+    /**
+     * Decrypt a message from the other end of the session in place. The
+     * plaintext is moved back to off, over the header.
+     *
+     * @param b the array holding the header and ciphertext
+     * @param off the offset of the header
+     * @param len the length of the header and ciphertext
+     * @return the length of the plaintext
+     * @throws IllegalArgumentException if the message is for another session,
+     * has the wrong nonce, fails authentication, or is from earlier in the
+     * keystream than a message already decrypted
+     */
+    public int decryptMessage(byte[] b, int off, int len) {
+
+        if (sessionId(b, off, len) != id) {
+
+            throw new IllegalArgumentException(
+                    "Message is for a different RC4 session");
+        }
+
+        long messageNonce = FastDES.getLong(b, off + 8),
+                sequence = FastDES.getLong(b, off + 16);
+
+        int n = len - HEADER_LENGTH;
+
+        synchronized (receiveLock) {
+
+            Keystream k = receive;
+
+            if (client && k == null && messageNonce != 0) {
+
+                /**
+                 * The first reply, which brings the server's nonce. The
+                 * keystream is only kept if the tag is right.
+                 */
+                k = new Keystream(key, id, 1, messageNonce, prefetchDepth,
+                        refillThreshold);
+
+            } else if (messageNonce != nonce
+                    && (client || messageNonce != 0 || replied)) {
+
+                throw new IllegalArgumentException(
+                        "RC4 session message has the wrong nonce");
+            }
+
+            if (!checkTag(k.mac, b, off, len)) {
+
+                throw new IllegalArgumentException(
+                        "RC4 session message failed authentication");
+            }
+
+            k.skipTo(sequence);
+            k.crypt(b, off + HEADER_LENGTH, n);
+
+            if (receive == null) {
+
+                receive = k;
+                nonce = messageNonce;
+            }
+        }
+
+        System.arraycopy(b, off + HEADER_LENGTH, b, off, n);
+
+        return n;
+    }
+
+    /**
+     * Get the bytes of a message, making sure it is long enough to have a
+     * header.
+     *
+     * @param message the message
+     * @return the message, one byte per character
+     */
+    private static byte[] header(String message) {
+
+        checkHeader(message.length());
+
+        return message.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Derive a key for one direction of a session: the HMAC-SHA256, keyed
+     * with the shared key, of a label, the session id, the direction byte
+     * and the server's nonce.
+     *
+     * @param key the key shared by the client and server
+     * @param label "RC4" for the keystream's key, "MAC" for the tags' key
+     * @param id the session id
+     * @param direction 0 from the client to the server, 1 back
+     * @param nonce the server's nonce from the server to the client, 0 the
+     * other way
+     * @return the 32-byte key
+     */
+    static byte[] directionKey(String key, String label, long id,
+            int direction, long nonce) {
+
+        Mac mac = hmac(key.getBytes(StandardCharsets.ISO_8859_1));
+
+        byte[] b = new byte[17];
+
+        FastDES.putLong(b, 0, id);
+        b[8] = (byte) direction;
+        FastDES.putLong(b, 9, nonce);
+
+        mac.update(label.getBytes(StandardCharsets.US_ASCII));
+
+        return mac.doFinal(b);
+    }
+
+    /**
+     * An HMAC-SHA256, ready to use.
+     *
+     * @param key the key
+     * @return the MAC
+     */
+    private static Mac hmac(byte[] key) {
+
+        try {
+
+            Mac mac = Mac.getInstance("HmacSHA256");
+
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+
+            return mac;
+
+        } catch (GeneralSecurityException e) {
+
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    /**
+     * Work out the tag of a message: the HMAC of the session id, the nonce,
+     * the sequence number and the ciphertext, cut down to TAG_LENGTH bytes.
+     *
+     * @param mac the MAC for the message's direction
+     * @param b the array holding the message
+     * @param off the offset of the header
+     * @param len the length of the header and ciphertext
+     * @return the tag
+     */
+    private static byte[] tag(Mac mac, byte[] b, int off, int len) {
+
+        mac.update(b, off, 24);
+        mac.update(b, off + HEADER_LENGTH, len - HEADER_LENGTH);
+
+        return Arrays.copyOf(mac.doFinal(), TAG_LENGTH);
+    }
+
+    /**
+     * Write the tag of a message into its header.
+     *
+     * @param mac the MAC for the message's direction
+     * @param b the array holding the message
+     * @param off the offset of the header
+     * @param len the length of the header and ciphertext
+     */
+    private static void putTag(Mac mac, byte[] b, int off, int len) {
+
+        System.arraycopy(tag(mac, b, off, len), 0, b, off + 24, TAG_LENGTH);
+    }
+
+    /**
+     * Check the tag in the header of a message, taking the same time however
+     * many of its bytes are right.
+     *
+     * @param mac the MAC for the message's direction
+     * @param b the array holding the message
+     * @param off the offset of the header
+     * @param len the length of the header and ciphertext
+     * @return whether the tag is right
+     */
+    private static boolean checkTag(Mac mac, byte[] b, int off, int len) {
+
+        return MessageDigest.isEqual(tag(mac, b, off, len),
+                Arrays.copyOfRange(b, off + 24, off + HEADER_LENGTH));
+    }
+
+    /**
+     * Make sure a message is long enough to have a header.
+     *
+     * @param len the length of the message
+     */
+    private static void checkHeader(int len) {
+
+        if (len < HEADER_LENGTH) {
+
+            throw new IllegalArgumentException(
+                    "Message is missing its RC4 session header");
+        }
+    }
+
+    /**
+     * One direction of a session: an RC4Engine that has been through the key
+     * schedule and past the first DROP bytes, behind a KeystreamPrefetcher,
+     * the position in its keystream, and the MAC for the tags of its
+     * messages. All of these are only used while holding the lock for that
+     * direction.
+     */
+    private static class Keystream {
+
+        private final KeystreamPrefetcher prefetcher;
+
+        private final Mac mac;
+
+        /**
+         * The number of keystream bytes used so far, which is the sequence
+         * number of the next message.
+         */
+        private long position;
+
+        Keystream(String key, long id, int direction, long nonce,
+                int prefetchDepth, int refillThreshold) {
+
+            RC4Engine engine = new RC4Engine(
+                    directionKey(key, "RC4", id, direction, nonce));
+
+            engine.skip(DROP);
+
+            prefetcher = new KeystreamPrefetcher(engine, prefetchDepth,
+                    refillThreshold);
+
+            mac = hmac(directionKey(key, "MAC", id, direction, nonce));
+        }
+
+        /**
+         * Move forward through the keystream, throwing away the bytes meant
+         * for any messages that never arrived.
+         *
+         * @param sequence the sequence number of the next message
+         */
+        void skipTo(long sequence) {
+
+            if (sequence < position) {
+
+                throw new IllegalArgumentException("RC4 session message "
+                        + sequence + " is out of order, expected at least "
+                        + position);
+            }
+
+            if (sequence - position > MAX_SKIP) {
+
+                throw new IllegalArgumentException("RC4 session message "
+                        + sequence + " is too far ahead of " + position);
+            }
+
+            prefetcher.skip(sequence - position);
+
+            position = sequence;
+        }
+
+        /**
+         * XOR the next len bytes of keystream into b.
+         *
+         * @param b the array
+         * @param off the offset of the first byte
+         * @param len the number of bytes
+         */
+        void crypt(byte[] b, int off, int len) {
+
+            prefetcher.crypt(b, off, len);
+
+            position += len;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * RequestExecutors.java
+ *
+ * RequestExecutors.java decides what kind of thread each message exchange
+ * runs on. Normally ClientUI starts a new platform thread for every message,
+ * and ServerMessager handles packets on its own thread or a fixed set of
+ * worker shards. On JDK 21 and later both can instead run every exchange on a
+ * virtual thread of its own. Virtual threads cost about as much as an object,
+ * and one blocked waiting on a socket gives its carrier thread back, so
+ * thousands of exchanges can be in flight at once without choosing a pool
+ * size.
+ *
+ * The project is built for JDK 17, so Executors.newVirtualThreadPerTaskExecutor
+ * is looked up by reflection when the class is loaded. Where it doesn't exist
+ * isVirtualThreadSupported returns false, and newThreadPerTaskExecutor falls
+ * back to a cached pool of daemon platform threads, which is the closest a
+ * JDK 17 runtime can come.
+ */
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public final class RequestExecutors {
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor, or null before JDK 21.
+     */
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+
+        Method m;
+
+        try {
+
+            m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+        } catch (NoSuchMethodException ex) {
+
+            m = null;
+        }
+
+        NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = m;
+    }
+
+    private RequestExecutors() {
+    }
+
+    /**
+     * Whether this JDK has virtual threads.
+     *
+     * @return true on JDK 21 and later
+     */
+    public static boolean isVirtualThreadSupported() {
+
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor that runs every task on a new virtual thread.
+     *
+     * @return the executor
+     * @throws UnsupportedOperationException before JDK 21
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+
+            throw new UnsupportedOperationException(
+                    "Virtual threads need JDK 21 or later");
+        }
+
+        try {
+
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR
+                    .invoke(null);
+
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Create an executor that runs each task on a thread of its own: a new
+     * virtual thread if virtual threads are wanted and supported, otherwise a
+     * daemon platform thread, reused once it is idle.
+     *
+     * @param virtual true to use virtual threads where they are supported
+     * @return the executor
+     */
+    public static ExecutorService newThreadPerTaskExecutor(boolean virtual) {
+
+        if (virtual && isVirtualThreadSupported()) {
+
+            return newVirtualThreadPerTaskExecutor();
+        }
+
+        return Executors.newCachedThreadPool(r -> {
+
+            Thread t = new Thread(r);
+
+            t.setDaemon(true);
+
+            return t;
+        });
+    }
+
+    /**
+     * The executor shared by every ClientUI for sending messages on virtual
+     * threads, created the first time it is needed.
+     *
+     * @return the shared executor
+     */
+    public static ExecutorService client() {
+
+        return Client.EXECUTOR;
+    }
+
+    private static final class Client {
+
+        static final ExecutorService EXECUTOR = newThreadPerTaskExecutor(true);
+    }
+}
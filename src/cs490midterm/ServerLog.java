@@ -0,0 +1,61 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * ServerLog.java
+ *
+ * ServerLog is where ServerMessager and ChannelServerMessager send their log,
+ * instead of appending to the ServerUI's text area themselves. Each entry has
+ * a level, and a log only keeps the levels it is set to, so the entries for
+ * every packet can be turned off on a busy server while starting, stopping
+ * and errors are still shown.
+ *
+ * An entry is given as its parts rather than as one String, and the log adds
+ * the time and joins the parts together when it writes the entry. With
+ * AsyncLog.java that is done on a background thread, so the thread handling
+ * packets only has to put the parts in a queue. Callers should check
+ * isEnabled before doing any work to produce the parts, such as turning a
+ * packet into hexadecimal.
+ */
+public interface ServerLog {
+
+    /**
+     * The levels of entry, from the most to the least important. A log set to
+     * a level keeps entries of that level and the levels before it.
+     */
+    enum Level {
+
+        /**
+         * Something went wrong.
+         */
+        ERROR,
+        /**
+         * The server starting, stopping or changing how it runs.
+         */
+        INFO,
+        /**
+         * Every packet received and sent.
+         */
+        PACKET
+    }
+
+    /**
+     * Whether entries of a level are kept.
+     *
+     * @param level the level
+     * @return true if entries of the level are written
+     */
+    boolean isEnabled(Level level);
+
+    /**
+     * Add an entry. The time is put in front of it as "[HH:mm:ss] ", and the
+     * parts are joined with String.valueOf, so the parts should include any
+     * line breaks.
+     *
+     * @param level the level of the entry
+     * @param parts the parts of the entry
+     */
+    void log(Level level, Object... parts);
+}
@@ -15,21 +15,41 @@ package cs490midterm;
  * the messages sent to the server, updates the ServerUI to display the
  * messages, and sends the appropriate messages back to the clients.
  *
- * The actual encryption/decryption of messages is done using the DES.java,
- * RC4.java, and AES.java classes. For the implementation of the algorithms,
- * please refer to those classes. ServerUI and ServerMessager are simply the
- * interface and communication mechanisms.
+ * The actual encryption/decryption of messages is done by the CipherEngine
+ * registered in CipherEngines.java for the mode the client chose, and every
+ * mode goes through the same steps in MessageHandler.java. For the
+ * implementation of the algorithms, please refer to those classes. ServerUI and
+ * ServerMessager are simply the interface and communication mechanisms.
+ *
+ * Ciphertext is shown in the log as hexadecimal, using HexCodec.java.
+ *
+ * Normally every packet is received, decrypted, answered and sent on the one
+ * ServerMessager thread, so one slow message holds up every other client.
+ * Created with a number of shards, the thread only receives, and each packet
+ * is handled by one of the worker threads of a ShardedWorkers, chosen by the
+ * session id for an RC4 session packet, so that each session's packets are
+ * handled in order, and otherwise by the address the packet came from. It can
+ * also hand every packet to an executor as a task of its own, such as a
+ * virtual thread per packet on JDK 21 and later (see RequestExecutors.java),
+ * except that the packets of each RC4 session are handled one after another
+ * by a KeyedSerialExecutor.
+ *
+ * ServerMessager is a Runnable, run on a thread of its own by ServerUI or
+ * HeadlessServer, which name the thread after getName.
+ *
+ * Everything is logged to a ServerLog (see ServerLog.java). Started from a
+ * ServerUI, that is the ServerUI's log, which shows it in the window; started
+ * from HeadlessServer.java, with no window at all, it is an AsyncLog printing
+ * to the console. Either way the entries for every packet are only made if
+ * the log's level includes them.
  */
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
-import java.nio.charset.StandardCharsets;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
 
-public class ServerMessager extends Thread {
+public class ServerMessager implements Runnable {
 
     /**
      * The maximum size of the messages able to be sent at one time.
@@ -57,23 +77,67 @@ public class ServerMessager extends Thread {
     final String AES_KEY_STRING = "AES 128-bit key!";
 
     /**
-     * The Charset used by the Client and Server must be identical or
-     * unpredictable behavior will result, and messages will almost certainly
-     * not be able to be deciphered between Client and Server. Most JVMs running
-     * on Windows 7 will have "windows-1252" (aka "Cp1252" or "Windows Latin-1")
-     * as the default Charset, and Linux will generally specify "UTF-8" as the
-     * default. For convenience I have hard-coded every byte[] to String
-     * conversion to use the constant 'CHARSET', which has been set to "UTF-8".
-     * This does not change the default encoding specified by the JVM on the
-     * local machine.
+     * The 192-bit key used for Triple-DES, as three independent 64-bit DES
+     * keys.
+     */
+    final String TDES_KEY_STRING = "iamakey!andanotherthird!";
+
+    /**
+     * The 256-bit key used for ChaCha20.
+     */
+    final String CHACHA20_KEY_STRING = "ChaCha20 256-bit key for CS490!!";
+
+    /**
+     * The most RC4 sessions kept at once. The least recently used session is
+     * dropped to make room for a new one.
+     */
+    final int MAX_RC4_SESSIONS = 256;
+
+    /**
+     * Every mode the server understands, with the RC4 session engine keeping
+     * track of the sessions started by clients.
+     */
+    final MessageHandler messages = new MessageHandler(
+            CipherEngines.standard(KEY_STRING, AES_KEY_STRING, TDES_KEY_STRING,
+                    CHACHA20_KEY_STRING)
+            .register(CipherEngines.rc4Sessions(KEY_STRING, MAX_RC4_SESSIONS)));
+
+    /**
+     * The most packets waiting for each worker shard.
+     */
+    final int SHARD_QUEUE_CAPACITY = 1024;
+
+    /**
+     * The worker shards, or null if packets are handled on the receiving
+     * thread.
      */
-    final String CHARSET = StandardCharsets.UTF_8.name();
+    ShardedWorkers workers;
+
+    /**
+     * The executor every packet is handed to as a task of its own, or null.
+     */
+    ExecutorService executor;
+
+    /**
+     * The packets of each RC4 session, on the executor one at a time, or
+     * null without an executor.
+     */
+    KeyedSerialExecutor sessionExecutor;
 
     DatagramSocket serverSocket;
     InetSocketAddress serverSocketAddr;
 
-    DateFormat dateFormat;
+    /**
+     * The name for the receiving thread, which the worker threads' names
+     * start with as well.
+     */
+    private final String name;
+
+    ServerLog log;
 
+    /**
+     * The ServerUI that started this ServerMessager, or null without one.
+     */
     ServerUI server;
 
     public ServerMessager(String serverIP, String serverPort, ServerUI server)
@@ -97,266 +161,362 @@ public class ServerMessager extends Thread {
     public ServerMessager(String name, String serverIP, int serverPort,
             ServerUI server) throws IOException {
 
-        super(name);
+        this(name, serverIP, serverPort, server, 0);
+    }
+
+    /**
+     * Create a ServerMessager whose receiving thread only receives, handing
+     * every packet to one of 'shards' worker threads picked by its RC4
+     * session id or the address it came from (see shardKey). With 0 shards
+     * every packet is handled on the receiving thread.
+     *
+     * @param name the name of the receiving thread
+     * @param serverIP the address to listen on
+     * @param serverPort the port to listen on
+     * @param server the ServerUI to log to
+     * @param shards the number of worker threads
+     * @throws IOException if the socket can't be bound
+     */
+    public ServerMessager(String name, String serverIP, int serverPort,
+            ServerUI server, int shards) throws IOException {
+
+        this(name, serverIP, serverPort, server, server.log, shards, null);
+    }
+
+    /**
+     * Create a ServerMessager whose receiving thread only receives, handing
+     * every packet to an executor as a task of its own, such as a new virtual
+     * thread from RequestExecutors.newThreadPerTaskExecutor. The packets of
+     * an RC4 session are run one at a time. The executor is shut down when
+     * the ServerMessager times out.
+     *
+     * @param name the name of the receiving thread
+     * @param serverIP the address to listen on
+     * @param serverPort the port to listen on
+     * @param server the ServerUI to log to
+     * @param executor the executor to handle packets on
+     * @throws IOException if the socket can't be bound
+     */
+    public ServerMessager(String name, String serverIP, int serverPort,
+            ServerUI server, ExecutorService executor) throws IOException {
+
+        this(name, serverIP, serverPort, server, server.log, 0, executor);
+    }
+
+    /**
+     * Create a ServerMessager without a ServerUI, such as for
+     * HeadlessServer. Packets are handled on 'shards' worker threads if
+     * shards is more than 0, otherwise on the executor if there is one,
+     * otherwise on the receiving thread.
+     *
+     * @param name the name of the receiving thread
+     * @param serverIP the address to listen on
+     * @param serverPort the port to listen on
+     * @param log the log
+     * @param shards the number of worker threads, or 0
+     * @param executor the executor to handle packets on, or null
+     * @throws IOException if the socket can't be bound
+     */
+    public ServerMessager(String name, String serverIP, int serverPort,
+            ServerLog log, int shards, ExecutorService executor)
+            throws IOException {
+
+        this(name, serverIP, serverPort, null, log, shards, executor);
+    }
+
+    private ServerMessager(String name, String serverIP, int serverPort,
+            ServerUI server, ServerLog log, int shards,
+            ExecutorService executor) throws IOException {
+
+        this.name = name;
 
         serverSocketAddr = new InetSocketAddress(serverIP, serverPort);
         serverSocket = new DatagramSocket(serverSocketAddr);
         serverSocket.setSoTimeout(TIMEOUT);
 
         this.server = server;
+        this.log = log;
+
+        if (shards > 0) {
+
+            workers = new ShardedWorkers(name, shards, SHARD_QUEUE_CAPACITY);
+        }
 
-        dateFormat = new SimpleDateFormat("HH:mm:ss");
+        this.executor = executor;
+
+        if (executor != null) {
+
+            sessionExecutor = new KeyedSerialExecutor(executor);
+        }
+    }
+
+    /**
+     * The name to give the thread this ServerMessager runs on.
+     *
+     * @return the name
+     */
+    public String getName() {
+
+        return name;
     }
 
     @Override
     public void run() {
-        server.convoArea.append("["
-                + dateFormat.format(Calendar.getInstance().getTime())
-                + "] Server messager service started on "
-                + serverSocketAddr.getAddress().toString()
-                + "\nListening for message from client...\n\n");
 
-        while (true) {
+        log.log(ServerLog.Level.INFO, "Server messager service started on ",
+                serverSocketAddr.getAddress(),
+                workers != null ? " with " + workers.getShardCount()
+                        + " worker shards"
+                        : executor != null ? " with a thread per packet" : "",
+                "\nListening for message from client...\n\n");
 
-            byte[] inputBuffer = new byte[MAX_BUFFER_SIZE];
+        /**
+         * On its own, the receiving thread uses one buffer for every packet,
+         * received and sent. When packets are handed to other threads, each
+         * packet gets its own buffer, which belongs to the thread handling it
+         * until the reply has been sent.
+         */
+        byte[] packet = new byte[MAX_BUFFER_SIZE];
 
-            DatagramPacket receivePacket = new DatagramPacket(inputBuffer,
-                    inputBuffer.length);
+        DatagramPacket receivePacket = new DatagramPacket(packet,
+                packet.length);
+
+        while (true) {
 
             try {
 
-                serverSocket.receive(receivePacket);
+                if (workers != null || executor != null) {
 
-                String messageReceived = new String(receivePacket.getData(), 0,
-                        receivePacket.getLength(), CHARSET);
+                    packet = new byte[MAX_BUFFER_SIZE];
 
-                int encryptionMode
-                        = Integer.parseInt(messageReceived.substring(0, 1));
+                    receivePacket.setData(packet);
 
-                /**
-                 * Remove the first character, which is the encryption mode code.
-                 */
-                messageReceived = messageReceived.substring(1);
+                } else {
 
-                /**
-                 * A code of 0 denotes plain-text with no encryption.
-                 */
-                if (encryptionMode == 0) {
+                    receivePacket.setLength(packet.length);
+                }
+
+                serverSocket.receive(receivePacket);
+
+                int len = receivePacket.getLength();
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Received plainttext message:\n\""
-                            + messageReceived + "\"\nfrom client at "
-                            + receivePacket.getAddress() + "\n");
+                InetSocketAddress clientAddr
+                        = new InetSocketAddress(receivePacket.getAddress(),
+                                receivePacket.getPort());
 
-                    InetSocketAddress clientAddr
-                            = new InetSocketAddress(receivePacket.getAddress(),
-                                    receivePacket.getPort());
+                if (executor != null) {
 
                     /**
-                     * Return an uppercase version of the message to the client.
+                     * Every packet runs on a thread of its own, apart from
+                     * RC4 session packets. A session's keystream can only go
+                     * forward, so its packets are handled one at a time, in
+                     * the order they arrived.
                      */
-                    String returnToClient = messageReceived.toUpperCase();
+                    byte[] p = packet;
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Sending message \n\""
-                            + returnToClient + "\" back to client\n");
+                    if (isRC4Session(packet, len)) {
 
-                    serverSocket.send(new DatagramPacket(returnToClient.getBytes(),
-                            returnToClient.getBytes().length, clientAddr));
+                        sessionExecutor.execute(
+                                RC4Session.sessionId(packet, 1, len - 1),
+                                () -> handle(p, len, clientAddr));
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Message sent to client at "
-                            + clientAddr.getAddress().toString() + "\n\n");
-                }
+                    } else {
 
-                /**
-                 * Code 1 denotes RC4 encryption used by client.
-                 */
-                if (encryptionMode == 1) {
+                        executor.execute(() -> handle(p, len, clientAddr));
+                    }
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Received encrypted message:\n\""
-                            + messageReceived + "\"\nfrom client at "
-                            + receivePacket.getAddress() + "\n");
+                } else if (workers == null) {
+
+                    handle(packet, len, clientAddr);
+
+                } else {
 
                     /**
-                     * Decrypt the message received from a client, removing any
-                     * null (ASCII value of 0) characters from the String.
+                     * Packets of one RC4 session always go to the same
+                     * shard, so they are decrypted in the order they
+                     * arrived. If the shard is too far behind the packet is
+                     * dropped and counted, as it would be if the socket's
+                     * buffer were full.
                      */
-                    String decryptedMessage
-                            = Utils.hexToASCII(RC4.rC4(messageReceived,
-                                            KEY_STRING));
+                    byte[] p = packet;
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Message was decrypted using RC4 algorithm:\n\""
-                            + decryptedMessage + "\"\n");
+                    workers.submit(shardKey(packet, len, clientAddr),
+                            () -> handle(p, len, clientAddr));
+                }
 
-                    InetSocketAddress clientAddr
-                            = new InetSocketAddress(receivePacket.getAddress(),
-                                    receivePacket.getPort());
+            } catch (java.net.SocketTimeoutException t) {
 
-                    /**
-                     * Return an uppercase version of the message to the client.
-                     */
-                    String returnToClient = decryptedMessage.toUpperCase();
+                /**
+                 * This exception will be thrown by the currently executing
+                 * 'serverSocket.receive(receivePacket)' method. This method
+                 * will block until a packet is received or the timeout limit
+                 * specified is reached. If the timeout is exceeded, a new
+                 * SocketTimeoutException will be thrown by .receive() and
+                 * caught here. The DatagramSocket 'serverSocket' will be closed
+                 * and the thread will terminate.
+                 */
+                log.log(ServerLog.Level.INFO,
+                        "Server messager service timed out after waiting ",
+                        TIMEOUT,
+                        " ms for client message, closing socket connection\n",
+                        workers == null ? "" : workers + "\n");
 
-                    String encryptedMessage
-                            = Utils.hexToASCII(RC4.rC4(returnToClient,
-                                    KEY_STRING));
+                if (workers != null) {
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Sending encrypted message \n\""
-                            + encryptedMessage + "\"\n back to client\n");
+                    workers.shutdown();
+                }
 
-                    serverSocket.send(new DatagramPacket(encryptedMessage.getBytes(CHARSET),
-                            encryptedMessage.getBytes(CHARSET).length, clientAddr));
+                if (executor != null) {
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Message sent to client at "
-                            + clientAddr.getAddress().toString() + "\n\n");
+                    executor.shutdown();
                 }
 
-                /**
-                 * Code 2 denotes DES encryption used by client.
-                 */
-                if (encryptionMode == 2) {
+                if (server != null) {
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Received encrypted message:\n\""
-                            + messageReceived + "\"\nfrom client at "
-                            + receivePacket.getAddress() + "\n");
+                    server.isRunning = false;
+                }
 
-                    /**
-                     * Decrypt the message received from a client, removing any
-                     * null (ASCII value of 0) characters from the String.
-                     */
-                    String decryptedMessage
-                            = Utils.stripNulls(DES.decryptMessage(messageReceived,
-                                            Utils.ASCIIToHexString(KEY_STRING)));
+                serverSocket.close();
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Message was decrypted using DES algorithm:\n\""
-                            + decryptedMessage + "\"\n");
+                break;
 
-                    InetSocketAddress clientAddr
-                            = new InetSocketAddress(receivePacket.getAddress(),
-                                    receivePacket.getPort());
+            } catch (IOException ex) {
+                log.log(ServerLog.Level.ERROR,
+                        "An I/O error occurred -- restart server:\n",
+                        ex.getMessage(), "\n");
+            }
+        }
+    }
 
-                    /**
-                     * Return an uppercase version of the message to the client.
-                     */
-                    String returnToClient = decryptedMessage.toUpperCase();
+    /**
+     * The key that picks the shard for a packet: the session id of an RC4
+     * session packet, since ClientMessager sends every message from a new
+     * port, and the address the packet came from for any other mode.
+     *
+     * @param packet the array holding the packet
+     * @param len the length of the packet
+     * @param clientAddr the address the packet came from
+     * @return the key
+     */
+    static Object shardKey(byte[] packet, int len,
+            InetSocketAddress clientAddr) {
 
-                    String encryptedMessage
-                            = DES.encryptMessage(returnToClient,
-                                    Utils.ASCIIToHexString(KEY_STRING));
+        if (isRC4Session(packet, len)) {
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Sending encrypted message \n\""
-                            + encryptedMessage + "\"\n back to client\n");
+            return RC4Session.sessionId(packet, 1, len - 1);
+        }
 
-                    serverSocket.send(new DatagramPacket(encryptedMessage.getBytes(CHARSET),
-                            encryptedMessage.getBytes(CHARSET).length, clientAddr));
+        return clientAddr;
+    }
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Message sent to client at "
-                            + clientAddr.getAddress().toString() + "\n\n");
-                }
+    /**
+     * Whether a packet was sent in mode 7, with room for an RC4 session
+     * header.
+     *
+     * @param packet the array holding the packet
+     * @param len the length of the packet
+     * @return true for an RC4 session packet
+     */
+    static boolean isRC4Session(byte[] packet, int len) {
 
-                /**
-                 * Code 3 denotes AES encryption used by client.
-                 */
-                if (encryptionMode == 3) {
+        return len > RC4Session.HEADER_LENGTH
+                && packet[0] - '0' == CipherEngines.MODE_RC4_SESSION;
+    }
+
+    /**
+     * Decrypt a packet from a client, and send back the encrypted uppercase
+     * version of its message. Nothing is done for the log unless it is
+     * keeping the entries for every packet.
+     *
+     * @param packet the array holding the packet, which the reply is built in
+     * @param len the length of the packet
+     * @param clientAddr the address the packet came from
+     */
+    private void handle(byte[] packet, int len, InetSocketAddress clientAddr) {
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Received encrypted message:\n\""
-                            + messageReceived + "\"\nfrom client at "
-                            + receivePacket.getAddress() + "\n");
+        boolean logPacket = log.isEnabled(ServerLog.Level.PACKET);
 
-                    String decryptedMessage = AES.decrypt(messageReceived,
-                            AES_KEY_STRING);
+        try {
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Message was decrypted using AES algorithm:\n\""
-                            + decryptedMessage + "\"\n");
+            CipherEngine engine = messages.getEngine(packet, len);
 
-                    InetSocketAddress clientAddr
-                            = new InetSocketAddress(receivePacket.getAddress(),
-                                    receivePacket.getPort());
+            /**
+             * A code of 0 denotes plain-text with no encryption.
+             */
+            boolean plain = engine.getId() == CipherEngines.MODE_PLAIN;
 
-                    /**
-                     * Return an uppercase version of the message to the client.
-                     */
-                    String returnToClient = decryptedMessage.toUpperCase();
+            /**
+             * The ciphertext has to be shown before it is decrypted in place.
+             */
+            String received = plain || !logPacket ? null
+                    : MessageHandler.toHex(packet, len);
 
-                    String encryptedMessage = AES.encrypt(returnToClient,
-                            AES_KEY_STRING);
+            /**
+             * Decrypt the message received from a client. Any padding is left
+             * out of the result, so there is nothing to strip.
+             */
+            String decryptedMessage = messages.decrypt(engine, packet, len);
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Sending encrypted message \n\""
-                            + encryptedMessage + "\"\n back to client\n");
+            if (logPacket) {
 
-                    serverSocket.send(new DatagramPacket(encryptedMessage.getBytes(CHARSET),
-                            encryptedMessage.getBytes(CHARSET).length, clientAddr));
+                log.log(ServerLog.Level.PACKET, plain
+                        ? "Received plainttext message:\n\""
+                        : "Received encrypted message:\n\"",
+                        plain ? decryptedMessage : received,
+                        "\"\nfrom client at ", clientAddr.getAddress(), "\n");
 
-                    server.convoArea.append("["
-                            + dateFormat.format(Calendar.getInstance().getTime())
-                            + "] Message sent to client at "
-                            + clientAddr.getAddress().toString() + "\n\n");
+                if (!plain) {
+
+                    log.log(ServerLog.Level.PACKET,
+                            "Message was decrypted using ", engine.getName(),
+                            " algorithm:\n\"", decryptedMessage, "\"\n");
                 }
 
-            } catch (java.net.SocketTimeoutException t) {
+                String status = engine.getStatus();
 
-                /**
-                 * This exception will be thrown by the currently executing
-                 * 'serverSocket.receive(receivePacket)' method. This method
-                 * will block until a packet is received or the timeout limit
-                 * specified is reached. If the timeout is exceeded, a new
-                 * SocketTimeoutException will be thrown by .receive() and
-                 * caught here. The DatagramSocket 'serverSocket' will be closed
-                 * and the thread will terminate.
-                 */
-                server.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Server messager service timed out after waiting "
-                        + TIMEOUT
-                        + " ms for client message, closing socket connection\n");
+                if (status != null) {
 
-                server.isRunning = false;
+                    log.log(ServerLog.Level.PACKET, engine.getName(), " ",
+                            status, "\n");
+                }
+            }
 
-                serverSocket.close();
+            /**
+             * Return an uppercase version of the message to the client.
+             */
+            String returnToClient = decryptedMessage.toUpperCase();
 
-                break;
+            int n = messages.encrypt(engine, returnToClient, packet);
 
-            } catch (IOException ex) {
-                server.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] An I/O error occurred -- restart server:\n"
-                        + ex.getMessage());
-            } catch (Exception ex) {
-                /**
-                 * Catch all other exceptions, this will catch the multiple
-                 * exceptions associated with the javax.crypto classes.
-                 */
-                server.convoArea.append("["
-                        + dateFormat.format(Calendar.getInstance().getTime())
-                        + "] Something went wrong:\n"
-                        + ex.getMessage());
+            if (logPacket) {
+
+                log.log(ServerLog.Level.PACKET, plain
+                        ? "Sending message \n\""
+                        : "Sending encrypted message \n\"",
+                        plain ? returnToClient
+                                : MessageHandler.toHex(packet, n),
+                        "\"\n back to client\n");
             }
+
+            serverSocket.send(new DatagramPacket(packet, n, clientAddr));
+
+            if (logPacket) {
+
+                log.log(ServerLog.Level.PACKET, "Message sent to client at ",
+                        clientAddr.getAddress(), "\n\n");
+            }
+
+        } catch (IOException ex) {
+            log.log(ServerLog.Level.ERROR,
+                    "An I/O error occurred -- restart server:\n",
+                    ex.getMessage(), "\n");
+        } catch (Exception ex) {
+            /**
+             * Catch all other exceptions, this will catch the multiple
+             * exceptions associated with the javax.crypto classes.
+             */
+            log.log(ServerLog.Level.ERROR, "Something went wrong:\n",
+                    ex.getMessage(), "\n");
         }
     }
 }
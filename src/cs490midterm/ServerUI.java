@@ -12,7 +12,14 @@ package cs490midterm;
  * from clients to the server and received within ServerMessager. ServerMessager
  * decrypts (if the message was encrypted) the messages sent to the server,
  * updates the ServerUI to display the messages, and sends the appropriate
- * messages back to the clients.
+ * messages back to the clients. ChannelServerMessager does the same job using
+ * a java.nio DatagramChannel, and can be started instead.
+ *
+ * The messagers don't append to the text area themselves. They write to the
+ * ServerUI's AsyncLog, which adds their entries to the text area on Swing's
+ * event thread, and the "Packet log" button turns the entries for every
+ * packet off and on. HeadlessServer.java runs the same server without a
+ * window.
  *
  * The actual encryption/decryption of messages is done using the DES.java,
  * RC4.java, and AES.java classes. For the implementation of the algorithms,
@@ -25,9 +32,11 @@ import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
 import javax.swing.*;
 
 public class ServerUI extends JPanel implements ActionListener {
@@ -39,12 +48,34 @@ public class ServerUI extends JPanel implements ActionListener {
             centerContentPanel;
     JTextArea convoArea;
     JScrollPane messagePane;
-    JButton clearButton, startButton;
+    JButton clearButton, startButton, startChannelButton,
+            startShardedButton, startVirtualButton, startGroupButton,
+            statusButton, packetLogButton;
     Color bgColor, panelColor;
     Dimension buttonSize = new Dimension(127, 26);
     DateFormat dateFormat;
     boolean isRunning;
 
+    /**
+     * The ServerMessager started last, if any, for the status button.
+     */
+    ServerMessager messager;
+
+    /**
+     * The ListenerGroup started last, if any, for the status button.
+     */
+    ListenerGroup listenerGroup;
+
+    /**
+     * The most log entries waiting to be added to the text area.
+     */
+    final static int LOG_CAPACITY = 4096;
+
+    /**
+     * The log every messager started from this ServerUI writes to.
+     */
+    AsyncLog log;
+
     public ServerUI() {
 
         super(new BorderLayout(20, 0));
@@ -64,10 +95,37 @@ public class ServerUI extends JPanel implements ActionListener {
         startButton.addActionListener(this);
         startButton.setPreferredSize(buttonSize);
 
+        startChannelButton = new JButton("Start NIO server");
+        startChannelButton.addActionListener(this);
+        startChannelButton.setPreferredSize(buttonSize);
+
+        startShardedButton = new JButton("Sharded server");
+        startShardedButton.addActionListener(this);
+        startShardedButton.setPreferredSize(buttonSize);
+
+        startVirtualButton = new JButton("Virtual server");
+        startVirtualButton.addActionListener(this);
+        startVirtualButton.setPreferredSize(buttonSize);
+
+        startGroupButton = new JButton("Listener group");
+        startGroupButton.addActionListener(this);
+        startGroupButton.setPreferredSize(buttonSize);
+
+        statusButton = new JButton("Server status");
+        statusButton.addActionListener(this);
+        statusButton.setPreferredSize(buttonSize);
+
+        packetLogButton = new JButton("Packet log");
+        packetLogButton.addActionListener(this);
+        packetLogButton.setPreferredSize(buttonSize);
+
         convoArea = new JTextArea();
         convoArea.setBackground(panelColor);
         convoArea.setEditable(false);
 
+        log = AsyncLog.toTextArea(convoArea, ServerLog.Level.PACKET,
+                LOG_CAPACITY);
+
         messagePane = new JScrollPane(convoArea);
         messagePane.setPreferredSize(new Dimension(768, 512));
 
@@ -80,6 +138,12 @@ public class ServerUI extends JPanel implements ActionListener {
         buttonPanel.setBorder(BorderFactory.createBevelBorder(1));
         buttonPanel.add(clearButton);
         buttonPanel.add(startButton);
+        buttonPanel.add(startChannelButton);
+        buttonPanel.add(startShardedButton);
+        buttonPanel.add(startVirtualButton);
+        buttonPanel.add(startGroupButton);
+        buttonPanel.add(statusButton);
+        buttonPanel.add(packetLogButton);
 
         topPanel = new JPanel();
         topPanel.setBackground(bgColor);
@@ -126,6 +190,94 @@ public class ServerUI extends JPanel implements ActionListener {
                 startServices();
             }
         }
+
+        if (ae.getSource() == startChannelButton) {
+
+            if (isRunning) {
+                convoArea.append("["
+                        + dateFormat.format(Calendar.getInstance().getTime())
+                        + "] The server is already running\n\n");
+            } else {
+                startChannelServices();
+            }
+        }
+
+        if (ae.getSource() == startShardedButton) {
+
+            if (isRunning) {
+                convoArea.append("["
+                        + dateFormat.format(Calendar.getInstance().getTime())
+                        + "] The server is already running\n\n");
+            } else {
+                startShardedServices(
+                        Runtime.getRuntime().availableProcessors());
+            }
+        }
+
+        if (ae.getSource() == startVirtualButton) {
+
+            if (isRunning) {
+                convoArea.append("["
+                        + dateFormat.format(Calendar.getInstance().getTime())
+                        + "] The server is already running\n\n");
+            } else {
+                startVirtualThreadServices();
+            }
+        }
+
+        if (ae.getSource() == startGroupButton) {
+
+            if (isRunning) {
+                convoArea.append("["
+                        + dateFormat.format(Calendar.getInstance().getTime())
+                        + "] The server is already running\n\n");
+            } else {
+                startListenerGroupServices(
+                        Runtime.getRuntime().availableProcessors());
+            }
+        }
+
+        /**
+         * The "Packet log" button switches between logging every packet and
+         * only the server starting and stopping and any errors.
+         */
+        if (ae.getSource() == packetLogButton) {
+
+            boolean packets = !log.isEnabled(ServerLog.Level.PACKET);
+
+            log.setLevel(packets ? ServerLog.Level.PACKET
+                    : ServerLog.Level.INFO);
+
+            convoArea.append("["
+                    + dateFormat.format(Calendar.getInstance().getTime())
+                    + "] Every packet will "
+                    + (packets ? "" : "not ") + "be logged\n\n");
+        }
+
+        if (ae.getSource() == statusButton) {
+
+            ServerMessager m = messager;
+            ListenerGroup g = listenerGroup;
+
+            String status = "";
+
+            if (m != null && m.workers != null) {
+
+                status += m.workers + "\n";
+            }
+
+            if (g != null) {
+
+                status += g.getStats() + "\n";
+            }
+
+            convoArea.append("["
+                    + dateFormat.format(Calendar.getInstance().getTime())
+                    + "] "
+                    + (status.isEmpty() ? "No sharded server or listener "
+                            + "group has been started\n" : status)
+                    + "\n");
+        }
     }
 
     /**
@@ -136,7 +288,32 @@ public class ServerUI extends JPanel implements ActionListener {
     public void startServices() {
 
         try {
-            new ServerMessager(SERVER_IP, SERVER_PORT, this).start();
+            messager = new ServerMessager(SERVER_IP, SERVER_PORT, this);
+            new Thread(messager, messager.getName()).start();
+            isRunning = true;
+
+        } catch (IOException | IllegalArgumentException ex) {
+
+            convoArea.append("An error occured trying to bind a socket "
+                    + "connection to IP address " + SERVER_IP + " and port "
+                    + SERVER_PORT + "\n" + ex.getMessage());
+        }
+    }
+
+    /**
+     * Start a new instance of ServerMessager that hands each packet to one of
+     * a number of worker threads, picked by the packet's RC4 session id or the
+     * address it came from. The workers' queue depths and processing times
+     * are shown by the "Server status" button.
+     *
+     * @param shards the number of worker threads
+     */
+    public void startShardedServices(int shards) {
+
+        try {
+            messager = new ServerMessager("Server Messager", SERVER_IP,
+                    Integer.parseInt(SERVER_PORT), this, shards);
+            new Thread(messager, messager.getName()).start();
             isRunning = true;
 
         } catch (IOException | IllegalArgumentException ex) {
@@ -147,6 +324,84 @@ public class ServerUI extends JPanel implements ActionListener {
         }
     }
 
+    /**
+     * Start a new instance of ServerMessager that handles every packet on a
+     * virtual thread of its own, or on pooled platform threads before JDK 21.
+     */
+    public void startVirtualThreadServices() {
+
+        ExecutorService executor
+                = RequestExecutors.newThreadPerTaskExecutor(true);
+
+        try {
+            messager = new ServerMessager("Server Messager", SERVER_IP,
+                    Integer.parseInt(SERVER_PORT), this, executor);
+            new Thread(messager, messager.getName()).start();
+            isRunning = true;
+
+            convoArea.append("["
+                    + dateFormat.format(Calendar.getInstance().getTime())
+                    + "] Handling packets on "
+                    + (RequestExecutors.isVirtualThreadSupported()
+                            ? "virtual threads"
+                            : "pooled threads (virtual threads need JDK 21)")
+                    + "\n\n");
+
+        } catch (IOException | IllegalArgumentException ex) {
+
+            executor.shutdown();
+
+            convoArea.append("An error occured trying to bind a socket "
+                    + "connection to IP address " + SERVER_IP + " and port "
+                    + SERVER_PORT + "\n" + ex.getMessage());
+        }
+    }
+
+    /**
+     * Start a ListenerGroup: several ChannelServerMessagers bound to the same
+     * IP address and port with SO_REUSEPORT, each with its own thread. The
+     * packet and drop counters of each socket are shown by the "Server
+     * status" button.
+     *
+     * @param listeners the number of sockets and threads
+     */
+    public void startListenerGroupServices(int listeners) {
+
+        try {
+            listenerGroup = new ListenerGroup("Listener",
+                    this, new InetSocketAddress(SERVER_IP,
+                            Integer.parseInt(SERVER_PORT)), listeners);
+            listenerGroup.start();
+            isRunning = true;
+
+        } catch (IOException | IllegalArgumentException
+                | UnsupportedOperationException ex) {
+
+            convoArea.append("An error occured trying to bind a channel "
+                    + "group to IP address " + SERVER_IP + " and port "
+                    + SERVER_PORT + "\n" + ex.getMessage());
+        }
+    }
+
+    /**
+     * Start a new instance of ChannelServerMessager, the java.nio version of
+     * ServerMessager, on the same IP address and port. It will run in its own
+     * thread until it times out.
+     */
+    public void startChannelServices() {
+
+        try {
+            new ChannelServerMessager(SERVER_IP, SERVER_PORT, this).start();
+            isRunning = true;
+
+        } catch (IOException | IllegalArgumentException ex) {
+
+            convoArea.append("An error occured trying to bind a channel "
+                    + "to IP address " + SERVER_IP + " and port "
+                    + SERVER_PORT + "\n" + ex.getMessage());
+        }
+    }
+
     public static void main(String[] args) {
 
         ServerUI server = new ServerUI();
@@ -0,0 +1,258 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * ShardedWorkers.java
+ *
+ * ShardedWorkers.java is a pool of worker threads, each with its own queue of
+ * tasks, for a server that receives on one thread and does the work on
+ * others. Every task is submitted with a key, and the key's hash picks the
+ * shard. All of the tasks for one key therefore run on the same thread, one
+ * after another in the order they were submitted, while tasks for different
+ * keys are spread across the shards and run at the same time. ServerMessager
+ * uses the session id as the key for RC4 session packets, so a session is
+ * never used by two threads at once, and the address the packet came from
+ * for the rest. ClientMessager sends every message from a new socket, so the
+ * address only keeps together the packets of a client that uses one port.
+ *
+ * Each queue holds at most 'queueCapacity' tasks. If a shard falls that far
+ * behind, submit refuses the task rather than holding up the receiving
+ * thread, the same as a full socket buffer dropping a packet, and the task is
+ * counted as dropped.
+ *
+ * For each shard the current queue depth, and the number of tasks run,
+ * dropped, and the total and longest time spent running them can be read at
+ * any time, to see whether work is spread evenly and whether there are
+ * enough shards. toString gives all of them, one line per shard.
+ */
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ShardedWorkers {
+
+    private final Shard[] shards;
+
+    /**
+     * Create the shards and start a daemon thread for each.
+     *
+     * @param name the name of the pool, which the threads are named after
+     * @param shardCount the number of shards
+     * @param queueCapacity the most tasks waiting for each shard
+     */
+    public ShardedWorkers(String name, int shardCount, int queueCapacity) {
+
+        if (shardCount < 1 || queueCapacity < 1) {
+
+            throw new IllegalArgumentException("Need at least one shard with "
+                    + "room for at least one task");
+        }
+
+        shards = new Shard[shardCount];
+
+        for (int x = 0; x < shardCount; ++x) {
+
+            shards[x] = new Shard(name + "-shard-" + x, queueCapacity);
+            shards[x].start();
+        }
+    }
+
+    /**
+     * Queue a task on the shard for a key.
+     *
+     * @param key the key that decides the shard
+     * @param task the task
+     * @return true if the task was queued, false if the shard's queue was
+     * full and the task was dropped
+     */
+    public boolean submit(Object key, Runnable task) {
+
+        Shard shard = shards[shardOf(key)];
+
+        if (shard.queue.offer(task)) {
+
+            return true;
+        }
+
+        shard.dropped.incrementAndGet();
+
+        return false;
+    }
+
+    /**
+     * The shard that tasks for a key run on.
+     *
+     * @param key the key
+     * @return the index of the shard
+     */
+    public int shardOf(Object key) {
+
+        int h = key.hashCode();
+
+        /**
+         * Mix the high bits of the hash into the low ones, since addresses
+         * that differ only in their last byte or port would otherwise often
+         * land on the same shard.
+         */
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    public int getShardCount() {
+
+        return shards.length;
+    }
+
+    /**
+     * The number of tasks waiting for a shard, not counting the one it is
+     * running.
+     *
+     * @param shard the index of the shard
+     * @return the queue depth
+     */
+    public int getQueueDepth(int shard) {
+
+        return shards[shard].queue.size();
+    }
+
+    /**
+     * The number of tasks a shard has finished.
+     *
+     * @param shard the index of the shard
+     * @return the number of tasks run
+     */
+    public long getProcessed(int shard) {
+
+        return shards[shard].processed;
+    }
+
+    /**
+     * The number of tasks refused because a shard's queue was full.
+     *
+     * @param shard the index of the shard
+     * @return the number of tasks dropped
+     */
+    public long getDropped(int shard) {
+
+        return shards[shard].dropped.get();
+    }
+
+    /**
+     * The total time a shard has spent running tasks.
+     *
+     * @param shard the index of the shard
+     * @return the time in nanoseconds
+     */
+    public long getProcessingNanos(int shard) {
+
+        return shards[shard].processingNanos;
+    }
+
+    /**
+     * The longest time a shard has spent on one task.
+     *
+     * @param shard the index of the shard
+     * @return the time in nanoseconds
+     */
+    public long getMaxProcessingNanos(int shard) {
+
+        return shards[shard].maxProcessingNanos;
+    }
+
+    /**
+     * Stop every shard. Tasks still waiting are not run.
+     */
+    public void shutdown() {
+
+        for (Shard shard : shards) {
+
+            shard.interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder s = new StringBuilder("ShardedWorkers[shards=")
+                .append(shards.length).append("]");
+
+        for (int x = 0; x < shards.length; ++x) {
+
+            long processed = getProcessed(x);
+
+            s.append("\n  shard ").append(x)
+                    .append(": depth=").append(getQueueDepth(x))
+                    .append(", processed=").append(processed)
+                    .append(", dropped=").append(getDropped(x))
+                    .append(", avg=")
+                    .append(processed == 0 ? 0
+                            : getProcessingNanos(x) / processed / 1000)
+                    .append(" us, max=")
+                    .append(getMaxProcessingNanos(x) / 1000).append(" us");
+        }
+
+        return s.toString();
+    }
+
+    /**
+     * One worker thread and its queue. Only the worker writes the timing
+     * counters, so they are volatile rather than atomic; tasks can be dropped
+     * by any thread calling submit.
+     */
+    private static final class Shard extends Thread {
+
+        final BlockingQueue<Runnable> queue;
+
+        final AtomicLong dropped = new AtomicLong();
+
+        volatile long processed, processingNanos, maxProcessingNanos;
+
+        Shard(String name, int queueCapacity) {
+
+            super(name);
+
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+
+            while (true) {
+
+                Runnable task;
+
+                try {
+
+                    task = queue.take();
+
+                } catch (InterruptedException ex) {
+
+                    return;
+                }
+
+                long start = System.nanoTime();
+
+                try {
+
+                    task.run();
+
+                } catch (RuntimeException ex) {
+
+                    /**
+                     * A task is expected to deal with its own errors; one
+                     * that doesn't mustn't stop the shard.
+                     */
+                }
+
+                long t = System.nanoTime() - start;
+
+                processingNanos += t;
+                maxProcessingNanos = Math.max(maxProcessingNanos, t);
+                ++processed;
+            }
+        }
+    }
+}
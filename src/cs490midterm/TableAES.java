@@ -0,0 +1,559 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * TableAES.java
+ *
+ * TableAES.java is AES written out in Java rather than taken from
+ * javax.crypto, with the same methods as AES.java and the same output: ECB
+ * with PKCS#5 padding, sent as base-64 text. Keys of 16, 24 and 32 bytes give
+ * AES-128, AES-192 and AES-256.
+ *
+ * Each round of AES is SubBytes, ShiftRows, MixColumns and AddRoundKey. With
+ * the state held as four 32-bit columns, the first three steps for one byte
+ * come down to looking up a 32-bit word, so each round is 16 table lookups
+ * and XORs. The four tables TE0 to TE3 (and TD0 to TD3 for decryption) are
+ * the same table rotated by 0, 8, 16 and 24 bits, and are worked out from the
+ * S-box when the class is loaded. The last round has no MixColumns, so it
+ * uses the S-box directly.
+ *
+ * Decryption uses the equivalent inverse cipher from FIPS-197, which runs the
+ * rounds in the same order as encryption by applying InvMixColumns to the
+ * round keys ahead of time. The expanded keys for both directions are worked
+ * out the first time a key is used and kept, like the Ciphers in AES.java, for
+ * up to AES.MAX_KEYS keys.
+ *
+ * javax.crypto uses the processor's AES instructions where it can, which
+ * TableAES can't, so this is mainly for comparison and for JVMs that don't
+ * have those intrinsics. Table lookups indexed by secret data also leak
+ * timing information, which the AES instructions do not. Mode 3 uses
+ * javax.crypto unless the client or server is started with
+ * -Dcs490midterm.aes=table, in which case CipherEngines.aes uses TableAES.
+ * The wire format is the same either way.
+ */
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
+
+public class TableAES {
+
+    static final int BLOCK_SIZE = 16;
+
+    private static final int[] SBOX = new int[256], INV_SBOX = new int[256];
+
+    private static final int[] TE0 = new int[256], TE1 = new int[256],
+            TE2 = new int[256], TE3 = new int[256];
+
+    private static final int[] TD0 = new int[256], TD1 = new int[256],
+            TD2 = new int[256], TD3 = new int[256];
+
+    /**
+     * The round constants, in the top byte of each word, for as many rounds
+     * of key expansion as AES-128 needs.
+     */
+    private static final int[] RCON = new int[10];
+
+    static {
+
+        /**
+         * Powers of 3, the generator of the multiplicative group of GF(2^8),
+         * and their logarithms, for multiplying and inverting.
+         */
+        int[] exp = new int[256], log = new int[256];
+
+        for (int x = 0, p = 1; x < 255; ++x) {
+
+            exp[x] = p;
+            log[p] = x;
+
+            p ^= xtime(p);
+        }
+
+        for (int x = 0; x < 256; ++x) {
+
+            int inv = x == 0 ? 0 : exp[(255 - log[x]) % 255];
+
+            /**
+             * The affine transformation of the multiplicative inverse.
+             */
+            int s = inv ^ rotl8(inv, 1) ^ rotl8(inv, 2) ^ rotl8(inv, 3)
+                    ^ rotl8(inv, 4) ^ 0x63;
+
+            SBOX[x] = s;
+            INV_SBOX[s] = x;
+        }
+
+        for (int x = 0; x < 256; ++x) {
+
+            int s = SBOX[x],
+                    e = (xtime(s) << 24) | (s << 16) | (s << 8)
+                    | (xtime(s) ^ s);
+
+            TE0[x] = e;
+            TE1[x] = Integer.rotateRight(e, 8);
+            TE2[x] = Integer.rotateRight(e, 16);
+            TE3[x] = Integer.rotateRight(e, 24);
+
+            int i = INV_SBOX[x],
+                    d = (mul(0x0E, i, exp, log) << 24)
+                    | (mul(0x09, i, exp, log) << 16)
+                    | (mul(0x0D, i, exp, log) << 8)
+                    | mul(0x0B, i, exp, log);
+
+            TD0[x] = d;
+            TD1[x] = Integer.rotateRight(d, 8);
+            TD2[x] = Integer.rotateRight(d, 16);
+            TD3[x] = Integer.rotateRight(d, 24);
+        }
+
+        for (int x = 0, r = 1; x < RCON.length; ++x) {
+
+            RCON[x] = r << 24;
+
+            r = xtime(r);
+        }
+    }
+
+    private static final Map<String, KeySchedule> KEYS
+            = new LinkedHashMap<String, KeySchedule>(AES.MAX_KEYS, 0.75f,
+                    true) {
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, KeySchedule> eldest) {
+
+                    return size() > AES.MAX_KEYS;
+                }
+            };
+
+    public static String encrypt(String message, String keyString)
+            throws Exception {
+
+        byte[] b = message.getBytes(Charset.defaultCharset());
+
+        return Base64.getEncoder().encodeToString(
+                encryptBytes(b, 0, b.length, keyString));
+    }
+
+    public static String decrypt(String message, String keyString)
+            throws Exception {
+
+        byte[] b = Base64.getMimeDecoder().decode(message);
+
+        return new String(decryptBytes(b, 0, b.length, keyString),
+                Charset.defaultCharset());
+    }
+
+    /**
+     * Encrypt bytes in ECB mode with PKCS#5 padding.
+     *
+     * @param in the array holding the plaintext
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @param keyString the key, 16, 24 or 32 bytes
+     * @return the ciphertext, without any base-64
+     * @throws IllegalArgumentException if the key is not a valid AES key
+     */
+    public static byte[] encryptBytes(byte[] in, int off, int len,
+            String keyString) {
+
+        byte[] out = new byte[AES.outputLength(len)];
+
+        encryptBytes(in, off, len, out, 0, keyString);
+
+        return out;
+    }
+
+    /**
+     * Decrypt bytes in ECB mode, removing the PKCS#5 padding.
+     *
+     * @param in the array holding the ciphertext
+     * @param off the offset of the first byte
+     * @param len the number of bytes
+     * @param keyString the key, 16, 24 or 32 bytes
+     * @return the plaintext
+     * @throws IllegalBlockSizeException if len is not a whole number of blocks
+     * @throws BadPaddingException if the padding is wrong
+     * @throws IllegalArgumentException if the key is not a valid AES key
+     */
+    public static byte[] decryptBytes(byte[] in, int off, int len,
+            String keyString)
+            throws IllegalBlockSizeException, BadPaddingException {
+
+        byte[] out = new byte[len];
+
+        return Arrays.copyOf(out,
+                decryptBytes(in, off, len, out, 0, keyString));
+    }
+
+    /**
+     * Encrypt bytes into an array supplied by the caller, as
+     * AES.encryptBytes does. in and out may be the same array, as long as the
+     * output does not start after the input.
+     *
+     * @param in the array holding the plaintext
+     * @param inOff the offset of the first byte
+     * @param len the number of bytes
+     * @param out the array to write the ciphertext into, with room for
+     * AES.outputLength(len) bytes
+     * @param outOff the offset to write the first byte of ciphertext at
+     * @param keyString the key, 16, 24 or 32 bytes
+     * @return the number of bytes written, AES.outputLength(len)
+     * @throws IllegalArgumentException if the key is not a valid AES key
+     */
+    public static int encryptBytes(byte[] in, int inOff, int len, byte[] out,
+            int outOff, String keyString) {
+
+        KeySchedule key = key(keyString);
+
+        int full = len & ~(BLOCK_SIZE - 1);
+
+        /**
+         * Each block is read in full before it is written, and the output
+         * never gets ahead of the input, so working in place is safe.
+         */
+        for (int x = 0; x < full; x += BLOCK_SIZE) {
+
+            encryptBlock(in, inOff + x, out, outOff + x, key);
+        }
+
+        /**
+         * The last block holds whatever is left of the message, filled out
+         * with bytes that each hold the number of padding bytes.
+         */
+        byte[] last = new byte[BLOCK_SIZE];
+        int rest = len - full;
+
+        System.arraycopy(in, inOff + full, last, 0, rest);
+
+        for (int x = rest; x < BLOCK_SIZE; ++x) {
+
+            last[x] = (byte) (BLOCK_SIZE - rest);
+        }
+
+        encryptBlock(last, 0, out, outOff + full, key);
+
+        return full + BLOCK_SIZE;
+    }
+
+    /**
+     * Decrypt bytes into an array supplied by the caller, as
+     * AES.decryptBytes does. in and out may be the same array, as long as the
+     * output does not start after the input.
+     *
+     * @param in the array holding the ciphertext
+     * @param inOff the offset of the first byte
+     * @param len the number of bytes
+     * @param out the array to write the plaintext into, with room for len
+     * bytes
+     * @param outOff the offset to write the first byte of plaintext at
+     * @param keyString the key, 16, 24 or 32 bytes
+     * @return the length of the plaintext, without padding
+     * @throws IllegalBlockSizeException if len is not a whole number of blocks
+     * @throws BadPaddingException if the padding is wrong
+     * @throws IllegalArgumentException if the key is not a valid AES key
+     */
+    public static int decryptBytes(byte[] in, int inOff, int len, byte[] out,
+            int outOff, String keyString)
+            throws IllegalBlockSizeException, BadPaddingException {
+
+        if (len == 0 || len % BLOCK_SIZE != 0) {
+
+            throw new IllegalBlockSizeException(
+                    "Ciphertext must be a whole number of 16-byte blocks");
+        }
+
+        KeySchedule key = key(keyString);
+
+        for (int x = 0; x < len; x += BLOCK_SIZE) {
+
+            decryptBlock(in, inOff + x, out, outOff + x, key);
+        }
+
+        int end = outOff + len,
+                pad = out[end - 1];
+
+        if (pad < 1 || pad > BLOCK_SIZE) {
+
+            throw new BadPaddingException("Bad padding");
+        }
+
+        for (int x = end - pad; x < end; ++x) {
+
+            if (out[x] != pad) {
+
+                throw new BadPaddingException("Bad padding");
+            }
+        }
+
+        return len - pad;
+    }
+
+    /**
+     * Get the expanded key for a key String, expanding it the first time the
+     * key is used.
+     *
+     * @param keyString the key
+     * @return the expanded key
+     */
+    static KeySchedule key(String keyString) {
+
+        synchronized (KEYS) {
+
+            return KEYS.computeIfAbsent(keyString, k -> new KeySchedule(
+                    k.getBytes(Charset.defaultCharset())));
+        }
+    }
+
+    /**
+     * Encrypt one 16-byte block.
+     *
+     * @param in the array holding the plaintext
+     * @param inOff the offset of the block
+     * @param out the array to write the ciphertext into
+     * @param outOff the offset to write the block at
+     * @param key the expanded key
+     */
+    static void encryptBlock(byte[] in, int inOff, byte[] out, int outOff,
+            KeySchedule key) {
+
+        int[] rk = key.encrypt;
+
+        int s0 = getInt(in, inOff) ^ rk[0],
+                s1 = getInt(in, inOff + 4) ^ rk[1],
+                s2 = getInt(in, inOff + 8) ^ rk[2],
+                s3 = getInt(in, inOff + 12) ^ rk[3];
+
+        int k = 4;
+
+        for (int r = 1; r < key.rounds; ++r, k += 4) {
+
+            int t0 = TE0[s0 >>> 24] ^ TE1[(s1 >>> 16) & 0xFF]
+                    ^ TE2[(s2 >>> 8) & 0xFF] ^ TE3[s3 & 0xFF] ^ rk[k],
+                    t1 = TE0[s1 >>> 24] ^ TE1[(s2 >>> 16) & 0xFF]
+                    ^ TE2[(s3 >>> 8) & 0xFF] ^ TE3[s0 & 0xFF] ^ rk[k + 1],
+                    t2 = TE0[s2 >>> 24] ^ TE1[(s3 >>> 16) & 0xFF]
+                    ^ TE2[(s0 >>> 8) & 0xFF] ^ TE3[s1 & 0xFF] ^ rk[k + 2],
+                    t3 = TE0[s3 >>> 24] ^ TE1[(s0 >>> 16) & 0xFF]
+                    ^ TE2[(s1 >>> 8) & 0xFF] ^ TE3[s2 & 0xFF] ^ rk[k + 3];
+
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+        }
+
+        /**
+         * The last round has no MixColumns.
+         */
+        putInt(out, outOff, lastRound(SBOX, s0, s1, s2, s3) ^ rk[k]);
+        putInt(out, outOff + 4, lastRound(SBOX, s1, s2, s3, s0) ^ rk[k + 1]);
+        putInt(out, outOff + 8, lastRound(SBOX, s2, s3, s0, s1) ^ rk[k + 2]);
+        putInt(out, outOff + 12, lastRound(SBOX, s3, s0, s1, s2) ^ rk[k + 3]);
+    }
+
+    /**
+     * Decrypt one 16-byte block.
+     *
+     * @param in the array holding the ciphertext
+     * @param inOff the offset of the block
+     * @param out the array to write the plaintext into
+     * @param outOff the offset to write the block at
+     * @param key the expanded key
+     */
+    static void decryptBlock(byte[] in, int inOff, byte[] out, int outOff,
+            KeySchedule key) {
+
+        int[] rk = key.decrypt;
+
+        int s0 = getInt(in, inOff) ^ rk[0],
+                s1 = getInt(in, inOff + 4) ^ rk[1],
+                s2 = getInt(in, inOff + 8) ^ rk[2],
+                s3 = getInt(in, inOff + 12) ^ rk[3];
+
+        int k = 4;
+
+        /**
+         * InvShiftRows takes each byte from the column to its left rather
+         * than its right.
+         */
+        for (int r = 1; r < key.rounds; ++r, k += 4) {
+
+            int t0 = TD0[s0 >>> 24] ^ TD1[(s3 >>> 16) & 0xFF]
+                    ^ TD2[(s2 >>> 8) & 0xFF] ^ TD3[s1 & 0xFF] ^ rk[k],
+                    t1 = TD0[s1 >>> 24] ^ TD1[(s0 >>> 16) & 0xFF]
+                    ^ TD2[(s3 >>> 8) & 0xFF] ^ TD3[s2 & 0xFF] ^ rk[k + 1],
+                    t2 = TD0[s2 >>> 24] ^ TD1[(s1 >>> 16) & 0xFF]
+                    ^ TD2[(s0 >>> 8) & 0xFF] ^ TD3[s3 & 0xFF] ^ rk[k + 2],
+                    t3 = TD0[s3 >>> 24] ^ TD1[(s2 >>> 16) & 0xFF]
+                    ^ TD2[(s1 >>> 8) & 0xFF] ^ TD3[s0 & 0xFF] ^ rk[k + 3];
+
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+        }
+
+        putInt(out, outOff, lastRound(INV_SBOX, s0, s3, s2, s1) ^ rk[k]);
+        putInt(out, outOff + 4,
+                lastRound(INV_SBOX, s1, s0, s3, s2) ^ rk[k + 1]);
+        putInt(out, outOff + 8,
+                lastRound(INV_SBOX, s2, s1, s0, s3) ^ rk[k + 2]);
+        putInt(out, outOff + 12,
+                lastRound(INV_SBOX, s3, s2, s1, s0) ^ rk[k + 3]);
+    }
+
+    /**
+     * One column of the last round: each byte is taken from a different
+     * column of the state, as ShiftRows does, and put through the S-box.
+     *
+     * @param sbox the S-box or inverse S-box
+     * @param a the column for the top byte
+     * @param b the column for the second byte
+     * @param c the column for the third byte
+     * @param d the column for the bottom byte
+     * @return the new column, before adding the round key
+     */
+    private static int lastRound(int[] sbox, int a, int b, int c, int d) {
+
+        return (sbox[a >>> 24] << 24) | (sbox[(b >>> 16) & 0xFF] << 16)
+                | (sbox[(c >>> 8) & 0xFF] << 8) | sbox[d & 0xFF];
+    }
+
+    /**
+     * Multiply by x (that is, by 2) in GF(2^8).
+     *
+     * @param a the byte
+     * @return a times 2
+     */
+    private static int xtime(int a) {
+
+        return ((a << 1) ^ ((a & 0x80) != 0 ? 0x1B : 0)) & 0xFF;
+    }
+
+    /**
+     * Multiply two bytes in GF(2^8) using logarithms.
+     *
+     * @param a the first byte
+     * @param b the second byte
+     * @param exp the powers of the generator
+     * @param log the logarithms
+     * @return a times b
+     */
+    private static int mul(int a, int b, int[] exp, int[] log) {
+
+        return a == 0 || b == 0 ? 0 : exp[(log[a] + log[b]) % 255];
+    }
+
+    /**
+     * Rotate a byte left.
+     *
+     * @param a the byte
+     * @param n the number of bits to rotate by
+     * @return the rotated byte
+     */
+    private static int rotl8(int a, int n) {
+
+        return ((a << n) | (a >>> (8 - n))) & 0xFF;
+    }
+
+    private static int getInt(byte[] b, int off) {
+
+        return (b[off] << 24) | ((b[off + 1] & 0xFF) << 16)
+                | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+
+    private static void putInt(byte[] b, int off, int v) {
+
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+
+    /**
+     * The expanded key for both directions. Once created it is only read, so
+     * one KeySchedule can be shared by every thread.
+     */
+    static final class KeySchedule {
+
+        final int rounds;
+        final int[] encrypt, decrypt;
+
+        /**
+         * Expand a key as described in FIPS-197.
+         *
+         * @param key the key, 16, 24 or 32 bytes
+         */
+        KeySchedule(byte[] key) {
+
+            if (key.length != 16 && key.length != 24 && key.length != 32) {
+
+                throw new IllegalArgumentException("Invalid AES key length: "
+                        + key.length + " bytes");
+            }
+
+            int nk = key.length / 4;
+
+            rounds = nk + 6;
+            encrypt = new int[4 * (rounds + 1)];
+
+            for (int x = 0; x < nk; ++x) {
+
+                encrypt[x] = getInt(key, 4 * x);
+            }
+
+            for (int x = nk; x < encrypt.length; ++x) {
+
+                int t = encrypt[x - 1];
+
+                if (x % nk == 0) {
+
+                    t = subWord(Integer.rotateLeft(t, 8)) ^ RCON[x / nk - 1];
+
+                } else if (nk > 6 && x % nk == 4) {
+
+                    t = subWord(t);
+                }
+
+                encrypt[x] = encrypt[x - nk] ^ t;
+            }
+
+            /**
+             * The decryption keys are the encryption keys with the rounds in
+             * reverse order, and InvMixColumns applied to all but the first
+             * and last. Putting a word through the S-box and then TD0 to TD3
+             * leaves just the InvMixColumns.
+             */
+            decrypt = new int[encrypt.length];
+
+            for (int r = 0; r <= rounds; ++r) {
+
+                for (int c = 0; c < 4; ++c) {
+
+                    int w = encrypt[4 * (rounds - r) + c];
+
+                    if (r > 0 && r < rounds) {
+
+                        w = TD0[SBOX[w >>> 24]] ^ TD1[SBOX[(w >>> 16) & 0xFF]]
+                                ^ TD2[SBOX[(w >>> 8) & 0xFF]]
+                                ^ TD3[SBOX[w & 0xFF]];
+                    }
+
+                    decrypt[4 * r + c] = w;
+                }
+            }
+        }
+
+        private static int subWord(int w) {
+
+            return lastRound(SBOX, w, w, w, w);
+        }
+    }
+}
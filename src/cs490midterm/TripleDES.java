@@ -0,0 +1,80 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * TripleDES.java
+ *
+ * TripleDES.java provides Triple-DES in the usual EDE (encrypt-decrypt-encrypt)
+ * form: a block is encrypted with the first key, decrypted with the second and
+ * encrypted again with the third. With three independent keys this gives a
+ * 168-bit key; with the first and third keys the same it is the 112-bit
+ * two-key variant, and with all three the same it is plain DES.
+ *
+ * Rather than calling DES three times, each block goes through the initial
+ * permutation once, the 48 rounds of the three DES operations back to back and
+ * the final permutation once. The FP at the end of one DES operation and the
+ * IP at the start of the next cancel each other out, so they are skipped.
+ *
+ * The three key schedules come from DESKeySchedule, so they are cached like
+ * any other DES key. TripleDES is a BlockCipher, so it can be used with any of
+ * the modes in CipherModes (ECB, CBC and CTR).
+ */
+public class TripleDES implements BlockCipher {
+
+    private final DESKeySchedule k1, k2, k3;
+
+    public TripleDES(DESKeySchedule k1, DESKeySchedule k2, DESKeySchedule k3) {
+
+        this.k1 = k1;
+        this.k2 = k2;
+        this.k3 = k3;
+    }
+
+    /**
+     * Create a TripleDES cipher from the raw bytes of its key.
+     *
+     * @param key 24 bytes for three independent keys, or 16 bytes for the
+     * two-key variant where the third key is the same as the first
+     * @return the TripleDES cipher
+     */
+    public static TripleDES forKey(byte[] key) {
+
+        if (key.length != 16 && key.length != 24) {
+
+            throw new IllegalArgumentException("Key must be 128 or 192-bit");
+        }
+
+        DESKeySchedule k1 = DESKeySchedule.forKey(FastDES.getLong(key, 0)),
+                k2 = DESKeySchedule.forKey(FastDES.getLong(key, 8)),
+                k3 = key.length == 24
+                        ? DESKeySchedule.forKey(FastDES.getLong(key, 16)) : k1;
+
+        return new TripleDES(k1, k2, k3);
+    }
+
+    @Override
+    public long encryptBlock(long block) {
+
+        long lr = FastDES.ip(block);
+
+        lr = FastDES.rounds(lr, k1.encryptKeys);
+        lr = FastDES.rounds(lr, k2.decryptKeys);
+        lr = FastDES.rounds(lr, k3.encryptKeys);
+
+        return FastDES.fp(lr);
+    }
+
+    @Override
+    public long decryptBlock(long block) {
+
+        long lr = FastDES.ip(block);
+
+        lr = FastDES.rounds(lr, k3.decryptKeys);
+        lr = FastDES.rounds(lr, k2.encryptKeys);
+        lr = FastDES.rounds(lr, k1.decryptKeys);
+
+        return FastDES.fp(lr);
+    }
+}
@@ -9,13 +9,12 @@ package cs490midterm;
  * Utils.java contains several methods that I felt were utilities that should be
  * independent of any of the other classes.
  */
-import java.math.BigInteger;
-
 public class Utils {
 
     /**
      * Convert a String of ASCII characters to a String representation of the
-     * hexadecimal values of each ASCII character.
+     * hexadecimal values of each ASCII character. Every character becomes
+     * exactly two digits, including those below 0x10.
      *
      * @param ascii the String of ASCII characters
      * @return the hexadecimal values of all ASCII characters of ascii,
@@ -23,14 +22,7 @@ public class Utils {
      */
     public static String ASCIIToHexString(String ascii) {
 
-        String hex = "";
-
-        for (int x = 0; x < ascii.length(); ++x) {
-
-            hex += Integer.toString((int) ascii.charAt(x), 16);
-        }
-
-        return hex;
+        return HexCodec.encode(ascii);
     }
 
     /**
@@ -44,15 +36,15 @@ public class Utils {
      */
     public static String stripNulls(String s) {
 
-        String t = "";
+        StringBuilder t = new StringBuilder(s.length());
 
         for (int x = 0; x < s.length(); ++x) {
             if ((int) s.charAt(x) != 0) {
-                t += s.charAt(x);
+                t.append(s.charAt(x));
             }
         }
 
-        return t;
+        return t.toString();
     }
 
     /**
@@ -64,17 +56,20 @@ public class Utils {
      */
     public static String hexToASCII(String i) {
 
-        if (i.length() % 2 != 0) {
-            i = "0" + i;
-        }
+        /**
+         * An odd number of digits is read as if it had a leading zero, so the
+         * first digit is a character on its own.
+         */
+        int odd = i.length() % 2;
 
-        String output = "";
+        char[] output = new char[(i.length() + 1) / 2];
 
-        for (int x = 0; x < i.length(); x += 2) {
-            output += Character.toString((char) (new BigInteger(Character.toString(i.charAt(x))
-                    + Character.toString(i.charAt(x + 1)), 16).intValue()));
+        if (odd != 0) {
+            output[0] = (char) HexCodec.digit(i.charAt(0));
         }
 
-        return output;
+        HexCodec.decode(i, odd, i.length() - odd, output, odd);
+
+        return new String(output);
     }
 }
@@ -0,0 +1,104 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * XorKernel.java
+ *
+ * XorKernel.java is the last step of every stream cipher and counter mode:
+ * XORing keystream into the message. Done a byte at a time, the XOR costs as
+ * much as producing the keystream once the keystream comes from a buffer, as
+ * it does for KeystreamPrefetcher, or from a batch of counter blocks, as it
+ * does for CTR mode in CipherModes.java.
+ *
+ * XorKernel reads and writes the arrays 8 bytes at a time through a VarHandle
+ * view of byte[] as long[], which the JIT compiles to single unaligned 64-bit
+ * loads and stores, and only falls back to single bytes for the last few
+ * bytes. Keystream held as big-endian longs, the form BlockCipher produces, is
+ * XORed in the same way through a big-endian view.
+ *
+ * The input and output may be the same array at the same offset, to work in
+ * place.
+ */
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+public final class XorKernel {
+
+    /**
+     * byte[] as longs in the machine's own order. The order doesn't matter
+     * when both sides of the XOR are bytes, so use whichever is cheapest.
+     */
+    private static final VarHandle LONGS = MethodHandles
+            .byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    /**
+     * byte[] as big-endian longs, to match keystream blocks from a
+     * BlockCipher.
+     */
+    private static final VarHandle BIG_ENDIAN_LONGS = MethodHandles
+            .byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private XorKernel() {
+    }
+
+    /**
+     * out = in XOR keystream, for len bytes.
+     *
+     * @param in the array holding the input
+     * @param inOff the offset of the first byte of input
+     * @param ks the array holding the keystream
+     * @param ksOff the offset of the first byte of keystream
+     * @param out the array to write the output into
+     * @param outOff the offset to write the first byte of output at
+     * @param len the number of bytes
+     */
+    public static void xor(byte[] in, int inOff, byte[] ks, int ksOff,
+            byte[] out, int outOff, int len) {
+
+        int x = 0;
+
+        for (; x <= len - 8; x += 8) {
+
+            LONGS.set(out, outOff + x, (long) LONGS.get(in, inOff + x)
+                    ^ (long) LONGS.get(ks, ksOff + x));
+        }
+
+        for (; x < len; ++x) {
+
+            out[outOff + x] = (byte) (in[inOff + x] ^ ks[ksOff + x]);
+        }
+    }
+
+    /**
+     * out = in XOR keystream, for len bytes, where the keystream is a run of
+     * 64-bit blocks taken most significant byte first. The last block is only
+     * partly used if len is not a multiple of 8.
+     *
+     * @param in the array holding the input
+     * @param inOff the offset of the first byte of input
+     * @param ks the keystream blocks
+     * @param ksOff the index of the first block of keystream
+     * @param out the array to write the output into
+     * @param outOff the offset to write the first byte of output at
+     * @param len the number of bytes
+     */
+    public static void xor(byte[] in, int inOff, long[] ks, int ksOff,
+            byte[] out, int outOff, int len) {
+
+        int x = 0;
+
+        for (; x <= len - 8; x += 8, ++ksOff) {
+
+            BIG_ENDIAN_LONGS.set(out, outOff + x,
+                    (long) BIG_ENDIAN_LONGS.get(in, inOff + x) ^ ks[ksOff]);
+        }
+
+        for (int shift = 56; x < len; ++x, shift -= 8) {
+
+            out[outOff + x] = (byte) (in[inOff + x] ^ (ks[ksOff] >>> shift));
+        }
+    }
+}
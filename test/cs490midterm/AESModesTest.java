@@ -0,0 +1,233 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * AESModesTest.java
+ *
+ * Tests for AESModes.java against the JCE's AES/CTR/NoPadding and
+ * AES/GCM/NoPadding. What encrypt writes after its IV has to be what the JCE
+ * writes for that IV, and a message the JCE encrypted with a fixed IV has to
+ * decrypt. Changing any one bit of a GCM message has to make decrypt throw an
+ * AEADBadTagException. A message passed through a Stream in chunks has to
+ * come out the same as encrypting it whole, and a key AES refuses has to
+ * leave the output buffer untouched.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+class AESModesTest {
+
+    static final String KEY = "AES 128-bit key!";
+
+    static final int[] LENGTHS = {0, 1, 15, 16, 17, 100, 1000};
+
+    @Test
+    void encryptMatchesJce() throws Exception {
+
+        for (AESModes.Mode mode : AESModes.Mode.values()) {
+
+            for (int len : LENGTHS) {
+
+                byte[] plain = CipherModesTest.random(len),
+                        b = encrypt(mode, plain),
+                        iv = Arrays.copyOf(b, mode.ivLength);
+
+                assertEquals(mode.encryptedLength(len), b.length);
+                assertArrayEquals(jce(mode, Cipher.ENCRYPT_MODE, iv, plain),
+                        Arrays.copyOfRange(b, mode.ivLength, b.length),
+                        mode + ", length " + len);
+            }
+        }
+    }
+
+    @Test
+    void decryptsJceWithFixedIV() throws Exception {
+
+        for (AESModes.Mode mode : AESModes.Mode.values()) {
+
+            byte[] iv = new byte[mode.ivLength];
+
+            for (int x = 0; x < iv.length; ++x) {
+
+                iv[x] = (byte) x;
+            }
+
+            for (int len : LENGTHS) {
+
+                byte[] plain = CipherModesTest.random(len),
+                        cipher = jce(mode, Cipher.ENCRYPT_MODE, iv, plain);
+
+                ByteBuffer in = ByteBuffer.allocate(iv.length + cipher.length)
+                        .put(iv).put(cipher).flip(),
+                        out = ByteBuffer.allocateDirect(len);
+
+                assertEquals(len, AESModes.decrypt(mode, KEY, in, out));
+                assertArrayEquals(plain, bytes(out.flip()),
+                        mode + ", length " + len);
+            }
+        }
+    }
+
+    @Test
+    void gcmRejectsAnyChangedBit() throws Exception {
+
+        AESModes.Mode mode = AESModes.Mode.GCM;
+
+        byte[] b = encrypt(mode, CipherModesTest.random(20));
+
+        /**
+         * Every bit of the IV, the ciphertext and the tag.
+         */
+        for (int bit = 0; bit < 8 * b.length; ++bit) {
+
+            byte[] changed = b.clone();
+
+            changed[bit >> 3] ^= 1 << (bit & 7);
+
+            assertThrows(AEADBadTagException.class,
+                    () -> AESModes.decrypt(mode, KEY, ByteBuffer.wrap(changed),
+                            ByteBuffer.allocate(changed.length)),
+                    "bit " + bit);
+        }
+    }
+
+    @Test
+    void streamsMatchWholeMessages() throws Exception {
+
+        for (AESModes.Mode mode : AESModes.Mode.values()) {
+
+            for (int chunk : new int[]{1, 7, 16, 33}) {
+
+                byte[] plain = CipherModesTest.random(1000);
+
+                ByteBuffer out = ByteBuffer.allocate(
+                        mode.encryptedLength(plain.length));
+
+                AESModes.Stream stream = AESModes.encryptingStream(mode, KEY,
+                        out);
+
+                int off = 0;
+
+                for (; off + chunk < plain.length; off += chunk) {
+
+                    stream.update(ByteBuffer.wrap(plain, off, chunk), out);
+                }
+
+                stream.doFinal(ByteBuffer.wrap(plain, off,
+                        plain.length - off), out);
+
+                byte[] b = bytes(out.flip()),
+                        iv = Arrays.copyOf(b, mode.ivLength);
+
+                String what = mode + ", chunks of " + chunk;
+
+                assertArrayEquals(jce(mode, Cipher.ENCRYPT_MODE, iv, plain),
+                        Arrays.copyOfRange(b, mode.ivLength, b.length), what);
+
+                ByteBuffer in = ByteBuffer.wrap(b),
+                        message = ByteBuffer.allocate(plain.length);
+
+                stream = AESModes.decryptingStream(mode, KEY, in);
+
+                while (in.remaining() > chunk) {
+
+                    stream.update(in.slice().limit(chunk), message);
+
+                    in.position(in.position() + chunk);
+                }
+
+                stream.doFinal(in, message);
+
+                assertArrayEquals(plain, bytes(message.flip()), what);
+            }
+        }
+    }
+
+    @Test
+    void badKeyLeavesOutputAlone() {
+
+        for (AESModes.Mode mode : AESModes.Mode.values()) {
+
+            ByteBuffer out = ByteBuffer.allocate(64).position(3);
+
+            assertThrows(GeneralSecurityException.class,
+                    () -> AESModes.encrypt(mode, "short key",
+                            ByteBuffer.allocate(10), out));
+            assertEquals(3, out.position());
+
+            assertThrows(GeneralSecurityException.class,
+                    () -> AESModes.encryptingStream(mode, "short key", out));
+            assertEquals(3, out.position());
+        }
+    }
+
+    /**
+     * Encrypt a message with AESModes.encrypt.
+     *
+     * @param mode the mode
+     * @param plain the message
+     * @return the IV, ciphertext and any tag
+     * @throws GeneralSecurityException if the Cipher fails
+     */
+    private static byte[] encrypt(AESModes.Mode mode, byte[] plain)
+            throws GeneralSecurityException {
+
+        ByteBuffer out = ByteBuffer.allocateDirect(
+                mode.encryptedLength(plain.length));
+
+        assertEquals(out.capacity(), AESModes.encrypt(mode, KEY,
+                ByteBuffer.wrap(plain), out));
+
+        return bytes(out.flip());
+    }
+
+    /**
+     * Run the JCE's Cipher for a mode over a whole message.
+     *
+     * @param mode the mode
+     * @param opmode Cipher.ENCRYPT_MODE or Cipher.DECRYPT_MODE
+     * @param iv the IV
+     * @param in the input
+     * @return the output
+     * @throws GeneralSecurityException if the Cipher fails
+     */
+    private static byte[] jce(AESModes.Mode mode, int opmode, byte[] iv,
+            byte[] in) throws GeneralSecurityException {
+
+        Cipher c = Cipher.getInstance(mode == AESModes.Mode.GCM
+                ? "AES/GCM/NoPadding" : "AES/CTR/NoPadding");
+
+        c.init(opmode, new SecretKeySpec(
+                KEY.getBytes(StandardCharsets.US_ASCII), "AES"),
+                mode.params(iv));
+
+        return c.doFinal(in);
+    }
+
+    /**
+     * The remaining bytes of a buffer.
+     *
+     * @param b the buffer
+     * @return the bytes
+     */
+    private static byte[] bytes(ByteBuffer b) {
+
+        byte[] a = new byte[b.remaining()];
+
+        b.get(a);
+
+        return a;
+    }
+}
@@ -0,0 +1,126 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * AESTest.java
+ *
+ * Tests for the Cipher pools of AES.java. Messages encrypted and decrypted by
+ * many threads at once have to match the JCE, a Cipher that fails on a bad
+ * padding mustn't go back into the pool, and the pool mustn't keep more than
+ * MAX_POOLED idle Ciphers however many were in use at once.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+class AESTest {
+
+    @Test
+    void concurrentMessagesMatchJce() throws Exception {
+
+        String key = "AES pool test 1!";
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        try {
+
+            List<Future<?>> results = new ArrayList<>();
+
+            for (int x = 0; x < 200; ++x) {
+
+                int len = x;
+
+                results.add(executor.submit(() -> {
+
+                    Cipher c = Cipher.getInstance("AES/ECB/PKCS5Padding");
+
+                    c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(
+                            key.getBytes(StandardCharsets.US_ASCII), "AES"));
+
+                    byte[] plain = CipherModesTest.random(len),
+                            cipher = AES.encryptBytes(plain, 0, len, key);
+
+                    assertArrayEquals(c.doFinal(plain), cipher);
+                    assertArrayEquals(plain, AES.decryptBytes(cipher, 0,
+                            cipher.length, key));
+
+                    return null;
+                }));
+            }
+
+            for (Future<?> f : results) {
+
+                f.get();
+            }
+
+        } finally {
+
+            executor.shutdown();
+        }
+
+        AES.CipherPool pool = AES.key(key).encrypt;
+
+        assertTrue(pool.getIdleCount() >= 1);
+        assertTrue(pool.getIdleCount() <= 16);
+    }
+
+    @Test
+    void failedCipherIsNotPooled() throws Exception {
+
+        String key = "AES pool test 2!";
+
+        byte[] cipher = AES.encryptBytes(new byte[5], 0, 5, key);
+
+        AES.decryptBytes(cipher, 0, cipher.length, key);
+
+        AES.CipherPool pool = AES.key(key).decrypt;
+
+        assertEquals(1, pool.getIdleCount());
+
+        /**
+         * The first Cipher is taken from the pool and fails, so the pool is
+         * left empty, and the next message gets a new one.
+         */
+        cipher[cipher.length - 1] ^= 1;
+
+        assertThrows(BadPaddingException.class,
+                () -> AES.decryptBytes(cipher, 0, cipher.length, key));
+        assertEquals(0, pool.getIdleCount());
+
+        cipher[cipher.length - 1] ^= 1;
+
+        assertEquals(5, AES.decryptBytes(cipher, 0, cipher.length, key).length);
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void poolKeepsAtMostMaxPooled() {
+
+        AES.CipherPool pool = AES.key("AES pool test 3!").encrypt;
+
+        List<Cipher> borrowed = new ArrayList<>();
+
+        for (int x = 0; x < AES.MAX_POOLED + 10; ++x) {
+
+            borrowed.add(pool.borrow());
+        }
+
+        borrowed.forEach(pool::giveBack);
+
+        assertEquals(AES.MAX_POOLED, pool.getIdleCount());
+    }
+}
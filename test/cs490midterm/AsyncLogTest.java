@@ -0,0 +1,230 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * AsyncLogTest.java
+ *
+ * Tests for AsyncLog.java. Entries logged by several threads at once have to
+ * be written exactly once each, and those from any one thread in the order it
+ * logged them. While the writer is held up in its sink, a full ring has to
+ * drop and count the entries that don't fit rather than wait, close has to
+ * write everything logged before it returns, and entries below the level
+ * have to be thrown away.
+ */
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AsyncLogTest {
+
+    /**
+     * The entries written to a sink, without their times. Only the writer
+     * thread adds to it, and close makes what it added visible.
+     */
+    static final class Lines {
+
+        final List<String> lines = new ArrayList<>();
+
+        void accept(String batch) {
+
+            for (String line : batch.split("\n")) {
+
+                lines.add(line.substring(line.indexOf("] ") + 2));
+            }
+        }
+    }
+
+    @Test
+    void writesConcurrentEntriesOnceInOrder() throws Exception {
+
+        int threads = 8,
+                entries = 5000;
+
+        Lines sink = new Lines();
+
+        AsyncLog log = new AsyncLog("Test Log", ServerLog.Level.PACKET,
+                threads * entries, sink::accept);
+
+        CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] loggers = new Thread[threads];
+
+        for (int x = 0; x < threads; ++x) {
+
+            int t = x;
+
+            loggers[x] = new Thread(() -> {
+
+                try {
+
+                    start.await();
+
+                } catch (InterruptedException ex) {
+
+                    return;
+                }
+
+                for (int y = 0; y < entries; ++y) {
+
+                    log.log(ServerLog.Level.PACKET, t, " ", y, "\n");
+                }
+            });
+            loggers[x].start();
+        }
+
+        start.countDown();
+
+        for (Thread logger : loggers) {
+
+            logger.join();
+        }
+
+        log.close();
+
+        assertEquals(0, log.getDropped());
+        assertEquals(threads * entries, sink.lines.size());
+
+        int[] next = new int[threads];
+
+        for (String line : sink.lines) {
+
+            String[] parts = line.split(" ");
+
+            int t = Integer.parseInt(parts[0]);
+
+            assertEquals(next[t]++, Integer.parseInt(parts[1]),
+                    "thread " + t);
+        }
+
+        int[] expected = new int[threads];
+
+        Arrays.fill(expected, entries);
+
+        assertEquals(Arrays.toString(expected), Arrays.toString(next));
+    }
+
+    @Test
+    void countsEntriesDroppedWhenFull() throws Exception {
+
+        CountDownLatch entered = new CountDownLatch(1),
+                release = new CountDownLatch(1);
+
+        Lines sink = new Lines();
+
+        AsyncLog log = new AsyncLog("Test Log", ServerLog.Level.PACKET, 4,
+                s -> {
+
+                    entered.countDown();
+
+                    try {
+
+                        release.await();
+
+                    } catch (InterruptedException ex) {
+
+                        Thread.currentThread().interrupt();
+                    }
+
+                    sink.accept(s);
+                });
+
+        /**
+         * Hold the writer in the sink with the ring empty, then fill the
+         * ring and log three entries more.
+         */
+        log.log(ServerLog.Level.INFO, "first\n");
+
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        for (int x = 0; x < 7; ++x) {
+
+            log.log(ServerLog.Level.INFO, "entry ", x, "\n");
+        }
+
+        assertEquals(3, log.getDropped());
+
+        release.countDown();
+
+        log.close();
+
+        assertEquals(List.of("first", "entry 0", "entry 1", "entry 2",
+                "entry 3"), sink.lines);
+        assertEquals(3, log.getDropped());
+    }
+
+    @Test
+    void closeWritesEverythingLogged() throws Exception {
+
+        Lines sink = new Lines();
+
+        AsyncLog log = new AsyncLog("Test Log", ServerLog.Level.PACKET, 1024,
+                s -> {
+
+                    /**
+                     * A slow sink, so that most entries are still in the
+                     * ring when close is called.
+                     */
+                    try {
+
+                        Thread.sleep(1);
+
+                    } catch (InterruptedException ex) {
+
+                        Thread.currentThread().interrupt();
+                    }
+
+                    sink.accept(s);
+                });
+
+        for (int x = 0; x < 1000; ++x) {
+
+            log.log(ServerLog.Level.PACKET, x, "\n");
+        }
+
+        log.close();
+
+        assertEquals(1000, sink.lines.size());
+        assertEquals("999", sink.lines.get(999));
+    }
+
+    @Test
+    void setLevelGatesEntries() throws Exception {
+
+        Lines sink = new Lines();
+
+        AsyncLog log = new AsyncLog("Test Log", ServerLog.Level.INFO, 16,
+                sink::accept);
+
+        assertTrue(log.isEnabled(ServerLog.Level.ERROR));
+        assertTrue(log.isEnabled(ServerLog.Level.INFO));
+        assertFalse(log.isEnabled(ServerLog.Level.PACKET));
+
+        log.log(ServerLog.Level.PACKET, "packet 1\n");
+        log.log(ServerLog.Level.INFO, "info 1\n");
+
+        log.setLevel(ServerLog.Level.PACKET);
+
+        log.log(ServerLog.Level.PACKET, "packet 2\n");
+
+        log.setLevel(ServerLog.Level.ERROR);
+
+        assertEquals(ServerLog.Level.ERROR, log.getLevel());
+
+        log.log(ServerLog.Level.INFO, "info 2\n");
+        log.log(ServerLog.Level.ERROR, "error 1\n");
+
+        log.close();
+
+        assertEquals(List.of("info 1", "packet 2", "error 1"), sink.lines);
+        assertEquals(0, log.getDropped());
+    }
+}
@@ -0,0 +1,102 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * BitslicedDESTest.java
+ *
+ * Known-answer tests for BitslicedDES.java, which only runs on whole batches
+ * of BitslicedDES.BATCH blocks. Each of the FIPS 46-3 and SP 800-17 vectors
+ * from FastDESTest is put in a different place in a batch of random blocks,
+ * and every other block of the batch has to match FastDES. DESBlockCipher is
+ * then checked over several batches and a partial one at an offset into the
+ * array.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class BitslicedDESTest {
+
+    @Test
+    void batchesMatchKnownAnswers() {
+
+        Random random = new Random(46);
+
+        for (int v = 0; v < FastDESTest.VECTORS.length; ++v) {
+
+            long[] vector = FastDESTest.VECTORS[v];
+
+            DESKeySchedule key = DESKeySchedule.forKey(vector[0]);
+
+            long[] blocks = new long[BitslicedDES.BATCH];
+
+            for (int x = 0; x < blocks.length; ++x) {
+
+                blocks[x] = random.nextLong();
+            }
+
+            int at = v * 9 % BitslicedDES.BATCH;
+
+            blocks[at] = vector[1];
+
+            long[] expected = new long[blocks.length];
+
+            for (int x = 0; x < blocks.length; ++x) {
+
+                expected[x] = FastDES.encryptBlock(blocks[x], key);
+            }
+
+            long[] plain = blocks.clone();
+
+            BitslicedDES.encrypt(blocks, 0, key);
+
+            assertEquals(vector[2], blocks[at],
+                    "key " + Long.toHexString(vector[0]));
+            assertArrayEquals(expected, blocks);
+
+            BitslicedDES.decrypt(blocks, 0, key);
+
+            assertArrayEquals(plain, blocks);
+        }
+    }
+
+    @Test
+    void blockCipherMatchesFastDES() {
+
+        DESKeySchedule key = DESKeySchedule.forKey(FastDESTest.VECTORS[0][0]);
+
+        DESBlockCipher des = new DESBlockCipher(key);
+
+        Random random = new Random(64);
+
+        int off = 3, len = 3 * BitslicedDES.BATCH + 5;
+
+        long[] blocks = new long[off + len + 2];
+
+        for (int x = 0; x < blocks.length; ++x) {
+
+            blocks[x] = random.nextLong();
+        }
+
+        long[] expected = blocks.clone();
+
+        for (int x = off; x < off + len; ++x) {
+
+            expected[x] = FastDES.encryptBlock(blocks[x], key);
+        }
+
+        long[] plain = blocks.clone();
+
+        des.encryptBlocks(blocks, off, len);
+
+        assertArrayEquals(expected, blocks);
+
+        des.decryptBlocks(blocks, off, len);
+
+        assertArrayEquals(plain, blocks);
+    }
+}
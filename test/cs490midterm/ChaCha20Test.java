@@ -0,0 +1,149 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * ChaCha20Test.java
+ *
+ * Known-answer tests for ChaCha20.java, from the block function test vector
+ * of RFC 8439 section 2.3.2 and the encryption test vector of section 2.4.2,
+ * which runs over two blocks and ends part of the way through a third. Other
+ * lengths, including ones ending on and just past a block boundary, are
+ * compared with the JCE's ChaCha20, and messages with their random nonces
+ * have to round trip.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import javax.crypto.Cipher;
+import javax.crypto.spec.ChaCha20ParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+class ChaCha20Test {
+
+    static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * The key used by both RFC 8439 vectors: the bytes 0x00 to 0x1f.
+     */
+    static final byte[] KEY = new byte[ChaCha20.KEY_LENGTH];
+
+    static {
+
+        for (int x = 0; x < KEY.length; ++x) {
+
+            KEY[x] = (byte) x;
+        }
+    }
+
+    @Test
+    void blockMatchesKnownAnswer() {
+
+        byte[] b = new byte[ChaCha20.BLOCK_LENGTH];
+
+        new ChaCha20(KEY).crypt(HEX.parseHex("000000090000004a00000000"), 0,
+                1, b, 0, b.length);
+
+        assertEquals("10f1e7e4d13b5915500fdd1fa32071c4"
+                + "c7d1f4c733c068030422aa9ac3d46c4e"
+                + "d2826446079faa0914c2d705d98b02a2"
+                + "b5129cd1de164eb9cbd083e8a2503c4e", HEX.formatHex(b));
+    }
+
+    @Test
+    void encryptsKnownAnswer() {
+
+        byte[] plain = ("Ladies and Gentlemen of the class of '99: If I could"
+                + " offer you only one tip for the future, sunscreen would be"
+                + " it.").getBytes(StandardCharsets.US_ASCII),
+                nonce = HEX.parseHex("000000000000004a00000000"),
+                b = plain.clone();
+
+        ChaCha20 chaCha = new ChaCha20(KEY);
+
+        chaCha.crypt(nonce, 0, 1, b, 0, b.length);
+
+        assertEquals("6e2e359a2568f98041ba0728dd0d6981"
+                + "e97e7aec1d4360c20a27afccfd9fae0b"
+                + "f91b65c5524733ab8f593dabcd62b357"
+                + "1639d624e65152ab8f530c359f0861d8"
+                + "07ca0dbf500d6a6156a38e088a22b65e"
+                + "52bc514d16ccf806818ce91ab7793736"
+                + "5af90bbf74a35be6b40b8eedf2785e42"
+                + "874d", HEX.formatHex(b));
+
+        chaCha.crypt(nonce, 0, 1, b, 0, b.length);
+
+        assertArrayEquals(plain, b);
+    }
+
+    @Test
+    void matchesJce() throws Exception {
+
+        byte[] nonce = HEX.parseHex("0123456789abcdef01234567");
+
+        ChaCha20 chaCha = new ChaCha20(KEY);
+
+        for (int len : new int[]{0, 1, 63, 64, 65, 127, 128, 129, 1000}) {
+
+            for (int counter : new int[]{0, 1, 0x7FFFFFFF}) {
+
+                /**
+                 * The JCE won't be initialized twice with the same key and
+                 * nonce, so each test needs a new Cipher.
+                 */
+                Cipher c = Cipher.getInstance("ChaCha20");
+
+                c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "ChaCha20"),
+                        new ChaCha20ParameterSpec(nonce, counter));
+
+                byte[] plain = CipherModesTest.random(len),
+                        out = new byte[len + 3];
+
+                chaCha.crypt(nonce, 0, counter, plain, 0, len, out, 3);
+
+                assertArrayEquals(c.doFinal(plain),
+                        Arrays.copyOfRange(out, 3, 3 + len),
+                        "length " + len + ", counter " + counter);
+            }
+        }
+    }
+
+    @Test
+    void refusesToWrapCounter() {
+
+        ChaCha20 chaCha = new ChaCha20(KEY);
+
+        byte[] nonce = new byte[ChaCha20.NONCE_LENGTH],
+                b = new byte[ChaCha20.BLOCK_LENGTH + 1];
+
+        chaCha.crypt(nonce, 0, -1, b, 0, ChaCha20.BLOCK_LENGTH);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> chaCha.crypt(nonce, 0, -1, b, 0, b.length));
+    }
+
+    @Test
+    void roundTripsMessages() {
+
+        ChaCha20 chaCha = new ChaCha20("ChaCha20 256-bit key for CS490!!");
+
+        for (int len = 0; len <= 130; ++len) {
+
+            byte[] plain = CipherModesTest.random(len),
+                    b = Arrays.copyOf(plain, ChaCha20.NONCE_LENGTH + len);
+
+            int n = chaCha.encryptMessage(b, 0, len);
+
+            assertEquals(ChaCha20.NONCE_LENGTH + len, n);
+            assertEquals(len, chaCha.decryptMessage(b, 0, n));
+            assertArrayEquals(plain, Arrays.copyOf(b, len));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * CipherModesTest.java
+ *
+ * Tests for the ECB, CBC and CTR modes of CipherModes.java with DES, against
+ * the same modes from the JCE's DES. The lengths tried include ones that end
+ * part of the way through a block, ones long enough for ECB to hand full
+ * batches of BitslicedDES.BATCH blocks to DESBlockCipher, and one long enough
+ * for CTR to be split across the fork/join pool.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+class CipherModesTest {
+
+    static final byte[] KEY = {0x13, 0x34, 0x57, 0x79, (byte) 0x9B,
+        (byte) 0xBC, (byte) 0xDF, (byte) 0xF1};
+
+    static final int[] LENGTHS = {0, 1, 7, 8, 9, 63, 64, 65,
+        8 * BitslicedDES.BATCH - 1, 8 * BitslicedDES.BATCH,
+        8 * BitslicedDES.BATCH * 3 + 5, CipherModes.PARALLEL_THRESHOLD + 13};
+
+    private final BlockCipher des
+            = new DESBlockCipher(DESKeySchedule.forKey(KEY));
+
+    @Test
+    void ecbMatchesJce() throws Exception {
+
+        for (int len : LENGTHS) {
+
+            byte[] plain = random(len),
+                    b = new byte[FastDES.outputLength(len)];
+
+            int n = CipherModes.encryptECB(des, plain, 0, len, b, 0);
+
+            assertArrayEquals(jce("DES/ECB/PKCS5Padding", Cipher.ENCRYPT_MODE,
+                    null, plain), Arrays.copyOf(b, n), "length " + len);
+
+            assertEquals(len, CipherModes.decryptECB(des, b, 0, n, b, 0));
+            assertArrayEquals(plain, Arrays.copyOf(b, len));
+        }
+    }
+
+    @Test
+    void cbcMatchesJce() throws Exception {
+
+        long iv = 0x0123456789ABCDEFL;
+
+        for (int len : LENGTHS) {
+
+            byte[] plain = random(len),
+                    b = new byte[FastDES.outputLength(len)];
+
+            int n = CipherModes.encryptCBC(des, iv, plain, 0, len, b, 0);
+
+            assertArrayEquals(jce("DES/CBC/PKCS5Padding", Cipher.ENCRYPT_MODE,
+                    iv, plain), Arrays.copyOf(b, n), "length " + len);
+
+            assertEquals(len, CipherModes.decryptCBC(des, iv, b, 0, n, b, 0));
+            assertArrayEquals(plain, Arrays.copyOf(b, len));
+        }
+    }
+
+    @Test
+    void ctrMatchesJce() throws Exception {
+
+        /**
+         * The second counter wraps around part of the way through the
+         * longer inputs.
+         */
+        for (long counter : new long[]{0x0123456789ABCDEFL, -5}) {
+
+            for (int len : LENGTHS) {
+
+                byte[] plain = random(len),
+                        b = new byte[len];
+
+                assertEquals(len, CipherModes.ctr(des, counter, plain, 0, len,
+                        b, 0));
+
+                assertArrayEquals(jce("DES/CTR/NoPadding",
+                        Cipher.ENCRYPT_MODE, counter, plain), b,
+                        "length " + len);
+
+                CipherModes.ctr(des, counter, b, 0, len, b, 0);
+
+                assertArrayEquals(plain, b);
+            }
+        }
+    }
+
+    @Test
+    void roundTripsMessages() {
+
+        for (int len : LENGTHS) {
+
+            byte[] plain = random(len),
+                    b = Arrays.copyOf(plain, CipherModes.IV_LENGTH
+                            + FastDES.outputLength(len));
+
+            int n = CipherModes.encryptMessageCBC(des, b, 0, len);
+
+            assertEquals(len, CipherModes.decryptMessageCBC(des, b, 0, n));
+            assertArrayEquals(plain, Arrays.copyOf(b, len));
+
+            b = Arrays.copyOf(plain, CipherModes.IV_LENGTH + len);
+
+            n = CipherModes.encryptMessageCTR(des, b, 0, len);
+
+            assertEquals(len, CipherModes.decryptMessageCTR(des, b, 0, n));
+            assertArrayEquals(plain, Arrays.copyOf(b, len));
+        }
+    }
+
+    /**
+     * Run the JCE's DES over some input.
+     *
+     * @param transformation the mode and padding
+     * @param mode Cipher.ENCRYPT_MODE or Cipher.DECRYPT_MODE
+     * @param iv the IV or initial counter, or null for ECB
+     * @param in the input
+     * @return the output
+     * @throws Exception if the JCE fails
+     */
+    static byte[] jce(String transformation, int mode, Long iv, byte[] in)
+            throws Exception {
+
+        Cipher c = Cipher.getInstance(transformation);
+
+        if (iv == null) {
+
+            c.init(mode, new SecretKeySpec(KEY, "DES"));
+
+        } else {
+
+            byte[] ivBytes = new byte[8];
+
+            FastDES.putLong(ivBytes, 0, iv);
+
+            c.init(mode, new SecretKeySpec(KEY, "DES"),
+                    new IvParameterSpec(ivBytes));
+        }
+
+        return c.doFinal(in);
+    }
+
+    /**
+     * Random bytes, the same each time for a given length.
+     *
+     * @param len the number of bytes
+     * @return the bytes
+     */
+    static byte[] random(int len) {
+
+        byte[] b = new byte[len];
+
+        new Random(len).nextBytes(b);
+
+        return b;
+    }
+}
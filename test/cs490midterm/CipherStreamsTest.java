@@ -0,0 +1,206 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * CipherStreamsTest.java
+ *
+ * Tests for CipherOutputStream.java and CipherInputStream.java with each of
+ * the ChunkCiphers. A message is written through a CipherOutputStream in
+ * pieces of 1, 7, 8, 9 and 8192 bytes and one either side of 8192, and has to
+ * come out the same as encrypting the whole message at once: with
+ * FastDES.encrypt for DES, an RC4Engine for RC4 and the JCE for AES. Reading
+ * it back through a CipherInputStream in pieces of the same sizes has to give
+ * the message again.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+class CipherStreamsTest {
+
+    static final int[] PIECES = {1, 7, 8, 9, 8191, 8192, 8193};
+
+    /**
+     * Message lengths: empty, shorter than a block, whole blocks, and longer
+     * than the streams' own buffers with a partial block at the end.
+     */
+    static final int[] LENGTHS = {0, 5, 16, 8192, 3 * 8192 + 13};
+
+    static final String DES_KEY = "iamakey!",
+            RC4_KEY = "iamakey!",
+            AES_KEY = "AES 128-bit key!";
+
+    /**
+     * Creates a fresh ChunkCipher for each stream.
+     */
+    interface Factory {
+
+        ChunkCipher create(boolean encrypt) throws Exception;
+    }
+
+    @Test
+    void desMatchesFastDES() throws Exception {
+
+        DESKeySchedule key = DESKeySchedule.forKey(
+                DES_KEY.getBytes(StandardCharsets.US_ASCII));
+
+        for (int len : LENGTHS) {
+
+            byte[] plain = CipherModesTest.random(len),
+                    expected = new byte[FastDES.outputLength(len)];
+
+            FastDES.encrypt(plain, 0, len, expected, 0, key);
+
+            check("DES", encrypt -> ChunkCiphers.des(key, encrypt), plain,
+                    expected);
+        }
+    }
+
+    @Test
+    void rc4MatchesRC4Engine() throws Exception {
+
+        for (int len : LENGTHS) {
+
+            byte[] plain = CipherModesTest.random(len),
+                    expected = plain.clone();
+
+            new RC4Engine(RC4_KEY).crypt(expected, 0, len);
+
+            check("RC4", encrypt -> ChunkCiphers.rc4(RC4_KEY), plain,
+                    expected);
+        }
+    }
+
+    @Test
+    void aesMatchesJce() throws Exception {
+
+        Cipher c = Cipher.getInstance("AES/ECB/PKCS5Padding");
+
+        c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(
+                AES_KEY.getBytes(StandardCharsets.US_ASCII), "AES"));
+
+        for (int len : LENGTHS) {
+
+            byte[] plain = CipherModesTest.random(len);
+
+            check("AES", encrypt -> ChunkCiphers.aes(AES_KEY, encrypt), plain,
+                    c.doFinal(plain));
+        }
+    }
+
+    /**
+     * Write a message through a CipherOutputStream and read the result back
+     * through a CipherInputStream, in pieces of each size.
+     *
+     * @param name the cipher's name, for the failure messages
+     * @param factory creates the ChunkCiphers
+     * @param plain the message
+     * @param expected the whole message encrypted at once
+     * @throws Exception if a stream or cipher fails
+     */
+    private static void check(String name, Factory factory, byte[] plain,
+            byte[] expected) throws Exception {
+
+        for (int piece : PIECES) {
+
+            String what = name + ", length " + plain.length + ", pieces of "
+                    + piece;
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+            try (OutputStream out = new CipherOutputStream(bytes,
+                    factory.create(true))) {
+
+                write(out, plain, piece);
+            }
+
+            assertArrayEquals(expected, bytes.toByteArray(), what);
+
+            try (InputStream in = new CipherInputStream(
+                    new ByteArrayInputStream(expected),
+                    factory.create(false))) {
+
+                assertArrayEquals(plain, read(in, piece), what);
+            }
+        }
+    }
+
+    /**
+     * Write bytes to a stream in pieces, a byte at a time through write(int)
+     * when the pieces are single bytes.
+     *
+     * @param out the stream
+     * @param b the bytes
+     * @param piece the most bytes written at once
+     * @throws IOException if the stream fails
+     */
+    private static void write(OutputStream out, byte[] b, int piece)
+            throws IOException {
+
+        for (int off = 0; off < b.length; off += piece) {
+
+            if (piece == 1) {
+
+                out.write(b[off]);
+
+            } else {
+
+                out.write(b, off, Math.min(piece, b.length - off));
+            }
+        }
+    }
+
+    /**
+     * Read a stream to its end in pieces, a byte at a time through read()
+     * when the pieces are single bytes.
+     *
+     * @param in the stream
+     * @param piece the most bytes asked for at once
+     * @return everything read
+     * @throws IOException if the stream fails
+     */
+    private static byte[] read(InputStream in, int piece) throws IOException {
+
+        byte[] b = new byte[piece];
+
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+
+        while (true) {
+
+            if (piece == 1) {
+
+                int c = in.read();
+
+                if (c < 0) {
+
+                    break;
+                }
+
+                all.write(c);
+
+            } else {
+
+                int n = in.read(b, 0, piece);
+
+                if (n < 0) {
+
+                    break;
+                }
+
+                all.write(b, 0, n);
+            }
+        }
+
+        return all.toByteArray();
+    }
+}
@@ -0,0 +1,141 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * FastDESTest.java
+ *
+ * Known-answer tests for FastDES.java. The single-block vectors are the
+ * worked example used with FIPS 46-3, and entries from the variable
+ * plaintext, variable key and substitution table tests of NIST SP 800-17,
+ * the validation suite for FIPS 46-3. The byte array API is checked for
+ * every message length up to a few blocks, so the PKCS#5 padding is tried
+ * with each number of padding bytes.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class FastDESTest {
+
+    /**
+     * Key, plaintext and ciphertext, as 64-bit blocks.
+     */
+    static final long[][] VECTORS = {
+        {0x133457799BBCDFF1L, 0x0123456789ABCDEFL, 0x85E813540F0AB405L},
+        {0x0E329232EA6D0D73L, 0x8787878787878787L, 0x0000000000000000L},
+        {0x0101010101010101L, 0x8000000000000000L, 0x95F8A5E5DD31D900L},
+        {0x0101010101010101L, 0x0000000000000001L, 0x166B40B44ABA4BD6L},
+        {0x8001010101010101L, 0x0000000000000000L, 0x95A8D72813DAA94DL},
+        {0x0101010101010102L, 0x0000000000000000L, 0x869EFD7F9F265A09L},
+        {0x7CA110454A1A6E57L, 0x01A1D6D039776742L, 0x690F5B0D9A26939BL}
+    };
+
+    @Test
+    void encryptsKnownAnswers() {
+
+        for (long[] v : VECTORS) {
+
+            DESKeySchedule key = DESKeySchedule.forKey(v[0]);
+
+            assertEquals(v[2], FastDES.encryptBlock(v[1], key),
+                    "key " + Long.toHexString(v[0]));
+        }
+    }
+
+    @Test
+    void decryptsKnownAnswers() {
+
+        for (long[] v : VECTORS) {
+
+            DESKeySchedule key = DESKeySchedule.forKey(v[0]);
+
+            assertEquals(v[1], FastDES.decryptBlock(v[2], key),
+                    "key " + Long.toHexString(v[0]));
+        }
+    }
+
+    @Test
+    void encryptsKnownAnswerThroughByteArrays() {
+
+        DESKeySchedule key = DESKeySchedule.forKey(VECTORS[0][0]);
+
+        byte[] plain = new byte[8],
+                cipher = new byte[FastDES.outputLength(8)];
+
+        FastDES.putLong(plain, 0, VECTORS[0][1]);
+
+        assertEquals(16, FastDES.encrypt(plain, 0, 8, cipher, 0, key));
+        assertEquals(VECTORS[0][2], FastDES.getLong(cipher, 0));
+
+        /**
+         * A whole block of plaintext is followed by a whole block of padding.
+         */
+        assertEquals(FastDES.encryptBlock(0x0808080808080808L, key),
+                FastDES.getLong(cipher, 8));
+    }
+
+    @Test
+    void roundTripsEveryLength() {
+
+        DESKeySchedule key = DESKeySchedule.forKey(
+                "iamakey!".getBytes(StandardCharsets.UTF_8));
+
+        byte[] message = "The quick brown fox jumps over the lazy dog"
+                .getBytes(StandardCharsets.UTF_8);
+
+        for (int len = 0; len <= message.length; ++len) {
+
+            byte[] b = new byte[FastDES.outputLength(len)];
+
+            int n = FastDES.encrypt(message, 0, len, b, 0, key);
+
+            assertEquals(len / 8 * 8 + 8, n);
+            assertEquals(len, FastDES.decrypt(b, 0, n, b, 0, key));
+            assertArrayEquals(Arrays.copyOf(message, len),
+                    Arrays.copyOf(b, len));
+        }
+    }
+
+    @Test
+    void badPaddingLeavesBuffersAlone() {
+
+        DESKeySchedule key = DESKeySchedule.forKey(VECTORS[0][0]);
+
+        /**
+         * A block of zeros decrypts to a last byte of 0, which is never
+         * valid padding.
+         */
+        ByteBuffer in = ByteBuffer.allocate(19),
+                out = ByteBuffer.allocateDirect(24);
+
+        in.position(3);
+        in.putLong(FastDES.encryptBlock(0x1122334455667788L, key));
+        in.putLong(FastDES.encryptBlock(0, key));
+        in.position(3);
+
+        out.position(5);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> FastDES.decrypt(in, out, key));
+
+        assertEquals(3, in.position());
+        assertEquals(5, out.position());
+    }
+
+    @Test
+    void roundTripsMessages() {
+
+        String key = "133457799BBCDFF1",
+                message = "Hello there, DES test message";
+
+        assertEquals(message, FastDES.decryptMessage(
+                FastDES.encryptMessage(message, key), key));
+    }
+}
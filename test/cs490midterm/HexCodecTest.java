@@ -0,0 +1,120 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * HexCodecTest.java
+ *
+ * Tests for HexCodec.java and the Utils methods built on it. Every byte value
+ * has to round trip, decoding has to take either case and refuse anything
+ * that isn't pairs of digits, and Utils.ASCIIToHexString has to write two
+ * digits for the characters below 0x10, where Integer.toString used to write
+ * one, so that Utils.hexToASCII can read its output back.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class HexCodecTest {
+
+    @Test
+    void roundTripsEveryByte() {
+
+        byte[] b = new byte[256];
+
+        for (int x = 0; x < b.length; ++x) {
+
+            b[x] = (byte) x;
+        }
+
+        char[] hex = new char[2 * b.length];
+
+        assertEquals(hex.length, HexCodec.encode(b, 0, b.length, hex, 0));
+
+        for (int x = 0; x < b.length; ++x) {
+
+            assertEquals(String.format("%02x", x),
+                    new String(hex, 2 * x, 2));
+        }
+
+        byte[] decoded = new byte[b.length];
+
+        assertEquals(b.length, HexCodec.decode(new String(hex), 0, hex.length,
+                decoded, 0));
+        assertArrayEquals(b, decoded);
+
+        String s = new String(b, StandardCharsets.ISO_8859_1);
+
+        assertEquals(new String(hex), HexCodec.encode(s));
+        assertEquals(s, Utils.hexToASCII(HexCodec.encode(s)));
+    }
+
+    @Test
+    void decodesEitherCase() {
+
+        byte[] lower = new byte[8],
+                upper = new byte[8];
+
+        HexCodec.decode("0123456789abcdef", 0, 16, lower, 0);
+        HexCodec.decode("0123456789ABCDEF", 0, 16, upper, 0);
+
+        assertArrayEquals(lower, upper);
+        assertEquals(0x0123456789ABCDEFL, FastDES.getLong(lower, 0));
+
+        assertEquals(0xABCDEFL, HexCodec.decodeLong("aBcDeF", 0, 6));
+    }
+
+    @Test
+    void rejectsBadInput() {
+
+        byte[] out = new byte[4];
+
+        assertThrows(IllegalArgumentException.class,
+                () -> HexCodec.decode("abc", 0, 3, out, 0));
+
+        for (String bad : new String[]{"0g", "g0", " 1", "1-", "١٢",
+            "0é"}) {
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> HexCodec.decode(bad, 0, 2, out, 0), bad);
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> HexCodec.decodeLong("", 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> HexCodec.decodeLong("00000000000000000", 0, 17));
+    }
+
+    @Test
+    void writesTwoDigitsBelow0x10() {
+
+        String s = "\u0000\u0001\u000fA\u0010";
+
+        /**
+         * What ASCIIToHexString used to return: one digit for each of the
+         * first three characters, which can't be decoded again.
+         */
+        StringBuilder old = new StringBuilder();
+
+        for (int x = 0; x < s.length(); ++x) {
+
+            old.append(Integer.toString(s.charAt(x), 16));
+        }
+
+        assertEquals("01f4110", old.toString());
+        assertEquals("00010f4110", Utils.ASCIIToHexString(s));
+        assertEquals(s, Utils.hexToASCII(Utils.ASCIIToHexString(s)));
+    }
+
+    @Test
+    void readsOddLengthsWithLeadingZero() {
+
+        assertEquals("\u0001A", Utils.hexToASCII("141"));
+        assertEquals("\u000f", Utils.hexToASCII("f"));
+        assertEquals("", Utils.hexToASCII(""));
+    }
+}
@@ -0,0 +1,149 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * RC4EngineTest.java
+ *
+ * Known-answer tests for RC4Engine.java, from the keystream test vectors of
+ * RFC 6229 for a 40-bit and a 128-bit key, at the start of the keystream and
+ * further in, reached both by skipping and by generating every byte. The same
+ * keystream has to come out of a KeystreamPrefetcher, whose buffer is smaller
+ * than the distance to the later vectors, and RC4Engine.cryptMessage has to
+ * agree with RC4.rC4.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+import org.junit.jupiter.api.Test;
+
+class RC4EngineTest {
+
+    /**
+     * Key, then pairs of keystream offset and the 16 bytes of keystream
+     * found there.
+     */
+    static final String[][] VECTORS = {
+        {"0102030405",
+            "0", "b2396305f03dc027ccc3524a0a1118a8",
+            "16", "6982944f18fc82d589c403a47a0d0919",
+            "240", "28cb1132c96ce286421dcaadb8b69eae",
+            "256", "1cfcf62b03eddb641d77dfcf7f8d8c93",
+            "1520", "3294f744d8f9790507e70f62e5bbceea",
+            "1536", "d8729db41882259bee4f825325f5a130",
+            "4080", "068326a2118416d21f9d04b2cd1ca050",
+            "4096", "ff25b58995996707e51fbdf08b34d875"},
+        {"0102030405060708090a0b0c0d0e0f10",
+            "0", "9ac7cc9a609d1ef7b2932899cde41b97",
+            "16", "5248c4959014126a6e8a84f11d1a9e1c",
+            "240", "065902e4b620f6cc36c8589f66432f2b",
+            "256", "d39d566bc6bce3010768151549f3873f",
+            "1520", "b40110c4190b5622a96116b0017ed297",
+            "1536", "ffa0b514647ec04f6306b892ae661181",
+            "4080", "ff38265c1642c1abe8d3c2fe5e572bf8",
+            "4096", "a36a4c301ae8ac13610ccbc12256cacc"}
+    };
+
+    static final HexFormat HEX = HexFormat.of();
+
+    @Test
+    void skipsToKnownAnswers() {
+
+        for (String[] v : VECTORS) {
+
+            RC4Engine engine = new RC4Engine(HEX.parseHex(v[0]));
+
+            long position = 0;
+
+            byte[] block = new byte[16];
+
+            for (int x = 1; x < v.length; x += 2) {
+
+                long offset = Long.parseLong(v[x]);
+
+                engine.skip(offset - position);
+                engine.keystream(block, 0, 16);
+
+                position = offset + 16;
+
+                assertEquals(v[x + 1], HEX.formatHex(block),
+                        "key " + v[0] + " offset " + offset);
+            }
+        }
+    }
+
+    @Test
+    void generatesKnownAnswers() {
+
+        for (String[] v : VECTORS) {
+
+            byte[] keystream = new byte[4112];
+
+            new RC4Engine(HEX.parseHex(v[0])).crypt(keystream, 0,
+                    keystream.length);
+
+            for (int x = 1; x < v.length; x += 2) {
+
+                int offset = Integer.parseInt(v[x]);
+
+                assertEquals(v[x + 1], HEX.formatHex(keystream, offset,
+                        offset + 16), "key " + v[0] + " offset " + offset);
+            }
+        }
+    }
+
+    @Test
+    void prefetcherMatchesEngine() {
+
+        for (String[] v : VECTORS) {
+
+            byte[] key = HEX.parseHex(v[0]),
+                    expected = new byte[4112],
+                    actual = new byte[4112];
+
+            new RC4Engine(key).keystream(expected, 0, expected.length);
+
+            KeystreamPrefetcher prefetcher = new KeystreamPrefetcher(
+                    new RC4Engine(key), 1024, 256);
+
+            /**
+             * Uneven pieces, and a skip, so that some are served from the
+             * buffer, some run past its end and some miss it altogether.
+             */
+            int off = 0;
+
+            for (int n : new int[]{1, 15, 200, 1000, 3, 1500}) {
+
+                prefetcher.crypt(actual, off, n);
+
+                off += n;
+            }
+
+            prefetcher.skip(900);
+
+            off += 900;
+
+            prefetcher.crypt(actual, off, actual.length - off);
+
+            Arrays.fill(expected, 2719, 3619, (byte) 0);
+
+            assertArrayEquals(expected, actual, "key " + v[0]);
+        }
+    }
+
+    @Test
+    void cryptMessageMatchesRC4() {
+
+        String key = "iamakey!",
+                message = "Hello there, this is a test of RC4 in CS490";
+
+        assertEquals(Utils.hexToASCII(RC4.rC4(message, key)),
+                RC4Engine.cryptMessage(message, key));
+
+        assertEquals(message, RC4Engine.cryptMessage(
+                RC4Engine.cryptMessage(message, key), key));
+    }
+}
@@ -0,0 +1,244 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * RC4SessionTest.java
+ *
+ * Tests for RC4Session.java and the server's side of mode 7 in
+ * CipherEngines.java: messages going both ways, a lost message being skipped,
+ * reordered and tampered messages being rejected without putting the session
+ * out of step, and the server only starting sessions for the authentic first
+ * message of a session, no faster than it was told to. A session replayed to
+ * a server that has forgotten it has to get replies from a new keystream, and
+ * the keystream from the client has to be RC4 under an HMAC-SHA256 of the
+ * session id, with the first DROP bytes thrown away.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+class RC4SessionTest {
+
+    static final String KEY = "iamakey!";
+
+    @Test
+    void roundTripsBothWays() {
+
+        RC4Session client = RC4Session.newClientSession(KEY),
+                server = RC4Session.forServer(KEY, client.getId());
+
+        for (String message : new String[]{"", "Hello", "Hello again",
+            "A third message from the client"}) {
+
+            assertEquals(message, server.decryptMessage(
+                    client.encryptMessage(message)));
+
+            String reply = message.toUpperCase();
+
+            assertEquals(reply, client.decryptMessage(
+                    server.encryptMessage(reply)));
+        }
+    }
+
+    @Test
+    void skipsLostMessagesAndRejectsOldOnes() {
+
+        RC4Session client = RC4Session.newClientSession(KEY),
+                server = RC4Session.forServer(KEY, client.getId());
+
+        String first = client.encryptMessage("first"),
+                second = client.encryptMessage("second");
+
+        assertEquals("second", server.decryptMessage(second));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> server.decryptMessage(first));
+
+        assertEquals("third", server.decryptMessage(
+                client.encryptMessage("third")));
+    }
+
+    @Test
+    void rejectsTamperedMessages() {
+
+        RC4Session client = RC4Session.newClientSession(KEY),
+                server = RC4Session.forServer(KEY, client.getId());
+
+        byte[] b = client.encryptMessage("a message")
+                .getBytes(StandardCharsets.ISO_8859_1);
+
+        /**
+         * A changed session id, a nonce, a sequence number far ahead, a
+         * changed tag and a changed byte of ciphertext.
+         */
+        for (int at : new int[]{4, 12, 20, 28, RC4Session.HEADER_LENGTH + 2}) {
+
+            byte[] bad = b.clone();
+
+            bad[at] ^= 1;
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> server.decryptMessage(bad, 0, bad.length));
+        }
+
+        /**
+         * None of them moved the server along its keystream.
+         */
+        assertEquals(9, server.decryptMessage(b, 0, b.length));
+        assertArrayEquals("a message".getBytes(StandardCharsets.ISO_8859_1),
+                Arrays.copyOf(b, 9));
+    }
+
+    @Test
+    void replayedSessionGetsNewKeystream() {
+
+        RC4Session client = RC4Session.newClientSession(KEY),
+                server = RC4Session.forServer(KEY, client.getId());
+
+        String first = client.encryptMessage("first");
+
+        assertEquals("first", server.decryptMessage(first));
+        assertEquals("reply", client.decryptMessage(
+                server.encryptMessage("reply")));
+        assertEquals(server.getNonce(), client.getNonce());
+
+        String later = client.encryptMessage("later");
+
+        /**
+         * The first message sent again to a server that has forgotten the
+         * session, then a later one.
+         */
+        RC4Session restarted = RC4Session.forServer(KEY, client.getId());
+
+        assertEquals("first", restarted.decryptMessage(first));
+        assertThrows(IllegalArgumentException.class,
+                () -> restarted.decryptMessage(later));
+
+        String reply = restarted.encryptMessage("reply"),
+                again = RC4Session.forServer(KEY, client.getId())
+                        .encryptMessage("reply");
+
+        assertFalse(reply.substring(RC4Session.HEADER_LENGTH).equals(
+                again.substring(RC4Session.HEADER_LENGTH)));
+
+        /**
+         * The client only takes replies with the nonce it learned first.
+         */
+        assertThrows(IllegalArgumentException.class,
+                () -> client.decryptMessage(reply));
+        assertEquals("still", client.decryptMessage(
+                server.encryptMessage("still")));
+    }
+
+    @Test
+    void keystreamIsDerivedWithHmac() throws Exception {
+
+        RC4Session client = RC4Session.newClientSession(KEY);
+
+        byte[] data = new byte[17];
+
+        FastDES.putLong(data, 0, client.getId());
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+
+        mac.init(new SecretKeySpec(KEY.getBytes(StandardCharsets.ISO_8859_1),
+                "HmacSHA256"));
+        mac.update("RC4".getBytes(StandardCharsets.US_ASCII));
+
+        byte[] key = mac.doFinal(data);
+
+        assertArrayEquals(key, RC4Session.directionKey(KEY, "RC4",
+                client.getId(), 0, 0));
+
+        byte[] plain = CipherModesTest.random(100),
+                b = encrypt(client, new String(plain,
+                        StandardCharsets.ISO_8859_1)),
+                expected = plain.clone();
+
+        RC4Engine engine = new RC4Engine(key);
+
+        engine.skip(RC4Session.DROP);
+        engine.crypt(expected, 0, expected.length);
+
+        assertArrayEquals(expected, Arrays.copyOfRange(b,
+                RC4Session.HEADER_LENGTH, b.length));
+    }
+
+    @Test
+    void onlyFirstMessagesStartSessions() throws Exception {
+
+        RC4Session client = RC4Session.newClientSession(KEY);
+
+        byte[] first = encrypt(client, "first"),
+                second = encrypt(client, "second");
+
+        assertTrue(RC4Session.isNewSession(KEY, first, 0, first.length));
+        assertFalse(RC4Session.isNewSession(KEY, second, 0, second.length));
+        assertFalse(RC4Session.isNewSession("notakey!", first, 0,
+                first.length));
+
+        CipherEngine engine = CipherEngines.rc4Sessions(KEY, 16);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.decrypt(second, 0, second.length));
+
+        assertEquals(5, engine.decrypt(first, 0, first.length));
+    }
+
+    @Test
+    void limitsNewSessions() throws Exception {
+
+        CipherEngine engine = CipherEngines.rc4Sessions(KEY, 16, 2);
+
+        int accepted = 0;
+
+        for (int x = 0; x < 5; ++x) {
+
+            byte[] b = encrypt(RC4Session.newClientSession(KEY), "hello");
+
+            try {
+
+                engine.decrypt(b, 0, b.length);
+
+                ++accepted;
+
+            } catch (IllegalArgumentException e) {
+
+                assertEquals("Too many new RC4 sessions", e.getMessage());
+            }
+        }
+
+        /**
+         * Two each second, and the loop may run across the start of a new
+         * second.
+         */
+        assertTrue(accepted >= 2 && accepted <= 4, accepted + " accepted");
+    }
+
+    /**
+     * Encrypt a message from the client's side of a session.
+     *
+     * @param session the client's session
+     * @param message the message
+     * @return the header and ciphertext
+     */
+    private static byte[] encrypt(RC4Session session, String message) {
+
+        byte[] b = Arrays.copyOf(message.getBytes(StandardCharsets.ISO_8859_1),
+                RC4Session.HEADER_LENGTH + message.length());
+
+        session.encryptMessage(b, 0, message.length());
+
+        return b;
+    }
+}
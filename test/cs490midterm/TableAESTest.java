@@ -0,0 +1,186 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * TableAESTest.java
+ *
+ * Known-answer tests for TableAES.java, from the example vectors of FIPS-197
+ * appendix C for AES-128, AES-192 and AES-256. The padded byte array API is
+ * then compared with the JCE's AES in ECB mode with PKCS#5 padding for keys
+ * of each length, and the String API with AES.java, which mode 3 uses. The
+ * TableAES engine for mode 3 has to put the same bytes on the wire as the
+ * javax.crypto one, and be the one chosen when cs490midterm.aes is "table".
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+class TableAESTest {
+
+    static final HexFormat HEX = HexFormat.of();
+
+    static final String PLAINTEXT = "00112233445566778899aabbccddeeff";
+
+    /**
+     * Key and ciphertext from FIPS-197 appendix C.1, C.2 and C.3.
+     */
+    static final String[][] VECTORS = {
+        {"000102030405060708090a0b0c0d0e0f",
+            "69c4e0d86a7b0430d8cdb78070b4c55a"},
+        {"000102030405060708090a0b0c0d0e0f1011121314151617",
+            "dda97ca4864cdfe06eaf70a0ec0d7191"},
+        {"000102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f",
+            "8ea2b7ca516745bfeafc49904b496089"}
+    };
+
+    static final String[] KEYS = {"AES 128-bit key!",
+        "AES 192-bit key, 24 long", "An AES-256 key is 32 bytes long!"};
+
+    @Test
+    void encryptsKnownAnswers() {
+
+        for (String[] v : VECTORS) {
+
+            TableAES.KeySchedule key
+                    = new TableAES.KeySchedule(HEX.parseHex(v[0]));
+
+            byte[] out = new byte[16];
+
+            TableAES.encryptBlock(HEX.parseHex(PLAINTEXT), 0, out, 0, key);
+
+            assertEquals(v[1], HEX.formatHex(out), "key " + v[0]);
+        }
+    }
+
+    @Test
+    void decryptsKnownAnswers() {
+
+        for (String[] v : VECTORS) {
+
+            TableAES.KeySchedule key
+                    = new TableAES.KeySchedule(HEX.parseHex(v[0]));
+
+            byte[] out = new byte[16];
+
+            TableAES.decryptBlock(HEX.parseHex(v[1]), 0, out, 0, key);
+
+            assertEquals(PLAINTEXT, HEX.formatHex(out), "key " + v[0]);
+        }
+    }
+
+    @Test
+    void bytesMatchJce() throws Exception {
+
+        for (String key : KEYS) {
+
+            Cipher c = Cipher.getInstance("AES/ECB/PKCS5Padding");
+
+            c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(
+                    key.getBytes(StandardCharsets.US_ASCII), "AES"));
+
+            for (int len = 0; len <= 50; ++len) {
+
+                byte[] plain = CipherModesTest.random(len),
+                        cipher = TableAES.encryptBytes(plain, 0, len, key);
+
+                assertArrayEquals(c.doFinal(plain), cipher,
+                        key.length() + "-byte key, length " + len);
+
+                assertArrayEquals(plain, TableAES.decryptBytes(cipher, 0,
+                        cipher.length, key));
+            }
+        }
+    }
+
+    @Test
+    void stringsMatchAES() throws Exception {
+
+        String message = "Hello there, this is a test of AES in CS490";
+
+        for (String key : KEYS) {
+
+            String cipher = TableAES.encrypt(message, key);
+
+            assertEquals(AES.encrypt(message, key), cipher);
+            assertEquals(message, TableAES.decrypt(cipher, key));
+        }
+    }
+
+    @Test
+    void engineMatchesJceEngine() throws Exception {
+
+        for (String key : KEYS) {
+
+            CipherEngine jce = CipherEngines.aes(key),
+                    table = CipherEngines.tableAES(key);
+
+            assertEquals(CipherEngines.MODE_AES, table.getId());
+
+            for (int len = 0; len <= 50; ++len) {
+
+                byte[] plain = CipherModesTest.random(len),
+                        b = Arrays.copyOf(plain, 3 + table.getOutputSize(len)),
+                        expected = Arrays.copyOf(plain, b.length);
+
+                /**
+                 * In place, from an offset, as the messagers call it.
+                 */
+                System.arraycopy(b, 0, b, 3, len);
+                System.arraycopy(expected, 0, expected, 3, len);
+
+                int n = table.encrypt(b, 3, len);
+
+                assertEquals(jce.encrypt(expected, 3, len), n);
+                assertArrayEquals(expected, b,
+                        key.length() + "-byte key, length " + len);
+
+                assertEquals(len, table.decrypt(b, 3, n));
+                assertArrayEquals(plain, Arrays.copyOfRange(b, 3, 3 + len));
+            }
+
+            byte[] bad = new byte[16];
+
+            assertThrows(BadPaddingException.class,
+                    () -> table.decrypt(bad, 0, bad.length));
+        }
+    }
+
+    @Test
+    void propertyChoosesTableAES() {
+
+        String old = System.getProperty(CipherEngines.AES_PROPERTY);
+
+        try {
+
+            System.setProperty(CipherEngines.AES_PROPERTY, "table");
+
+            assertEquals("AES (TableAES)",
+                    CipherEngines.aes(KEYS[0]).getName());
+
+            System.setProperty(CipherEngines.AES_PROPERTY, "jce");
+
+            assertEquals("AES", CipherEngines.aes(KEYS[0]).getName());
+
+        } finally {
+
+            if (old == null) {
+
+                System.clearProperty(CipherEngines.AES_PROPERTY);
+
+            } else {
+
+                System.setProperty(CipherEngines.AES_PROPERTY, old);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package cs490midterm;
+
+/**
+ *
+ * @author: John Paul Smith CS490 Cryptography - Keene State College
+ *
+ * TripleDESTest.java
+ *
+ * Tests for TripleDES.java against the JCE's DESede, with three independent
+ * keys and with the two-key variant, one block at a time and in CBC mode as
+ * mode 6 uses it.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+class TripleDESTest {
+
+    static final byte[] KEY
+            = "iamakey!andanotherthird!".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void blocksMatchJce() throws Exception {
+
+        for (byte[] key : new byte[][]{KEY, Arrays.copyOf(KEY, 16)}) {
+
+            TripleDES tdes = TripleDES.forKey(key);
+
+            Cipher c = Cipher.getInstance("DESede/ECB/NoPadding");
+
+            c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(desede(key),
+                    "DESede"));
+
+            byte[] block = new byte[8];
+
+            for (long plain : new long[]{0, -1, 0x0123456789ABCDEFL}) {
+
+                FastDES.putLong(block, 0, plain);
+
+                long cipher = FastDES.getLong(c.doFinal(block), 0);
+
+                assertEquals(cipher, tdes.encryptBlock(plain),
+                        key.length + "-byte key");
+                assertEquals(plain, tdes.decryptBlock(cipher));
+            }
+        }
+    }
+
+    @Test
+    void cbcMatchesJce() throws Exception {
+
+        TripleDES tdes = TripleDES.forKey(KEY);
+
+        long iv = 0x0123456789ABCDEFL;
+
+        byte[] ivBytes = new byte[8];
+
+        FastDES.putLong(ivBytes, 0, iv);
+
+        Cipher c = Cipher.getInstance("DESede/CBC/PKCS5Padding");
+
+        c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "DESede"),
+                new IvParameterSpec(ivBytes));
+
+        for (int len = 0; len <= 40; ++len) {
+
+            byte[] plain = CipherModesTest.random(len),
+                    b = new byte[FastDES.outputLength(len)];
+
+            int n = CipherModes.encryptCBC(tdes, iv, plain, 0, len, b, 0);
+
+            assertArrayEquals(c.doFinal(plain), Arrays.copyOf(b, n),
+                    "length " + len);
+
+            assertEquals(len, CipherModes.decryptCBC(tdes, iv, b, 0, n, b, 0));
+            assertArrayEquals(plain, Arrays.copyOf(b, len));
+        }
+    }
+
+    /**
+     * The 24-byte key the JCE wants, with the first key repeated as the third
+     * for a two-key key.
+     *
+     * @param key a 16 or 24-byte key
+     * @return the 24-byte key
+     */
+    private static byte[] desede(byte[] key) {
+
+        if (key.length == 24) {
+
+            return key;
+        }
+
+        byte[] k = Arrays.copyOf(key, 24);
+
+        System.arraycopy(key, 0, k, 16, 8);
+
+        return k;
+    }
+}